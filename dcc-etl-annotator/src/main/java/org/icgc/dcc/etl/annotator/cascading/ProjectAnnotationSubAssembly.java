@@ -17,27 +17,185 @@
  */
 package org.icgc.dcc.etl.annotator.cascading;
 
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_MUTATION;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_OBSERVATION_VARIANT_ALLELE;
+import static org.icgc.dcc.etl.annotator.model.AnnotatedFileType.SSM;
+
 import lombok.NonNull;
 import lombok.val;
+import lombok.extern.slf4j.Slf4j;
 
 import org.icgc.dcc.etl.annotator.config.SnpEffProperties;
 import org.icgc.dcc.etl.annotator.model.AnnotatedFileType;
 
+import cascading.flow.FlowProcess;
+import cascading.operation.BaseOperation;
+import cascading.operation.Buffer;
+import cascading.operation.BufferCall;
+import cascading.operation.Filter;
+import cascading.operation.FilterCall;
+import cascading.operation.Function;
+import cascading.operation.OperationCall;
+import cascading.pipe.CoGroup;
 import cascading.pipe.Each;
+import cascading.pipe.Every;
+import cascading.pipe.GroupBy;
+import cascading.pipe.Pipe;
 import cascading.pipe.SubAssembly;
+import cascading.pipe.assembly.Discard;
+import cascading.pipe.assembly.Rename;
+import cascading.pipe.assembly.Retain;
+import cascading.pipe.joiner.InnerJoin;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
 
 /**
  * {@link SubAssembly} implementation that is responsible for executing a project annotation flow.
+ * <p>
+ * When enabled for the file type, each distinct variant is annotated once on behalf of the first of its observations,
+ * the representative, and the predictions are joined back to the remaining observations by representative id.
  */
+@Slf4j
 public class ProjectAnnotationSubAssembly extends SubAssembly {
 
+  /**
+   * Temporary fields.
+   */
+  private static final String REPRESENTATIVE_ID = "_representative_id";
+  private static final String OBSERVATION_ID = "_observation_id";
+
+  private static final String COUNTER_GROUP = "SnpEff";
+
   public ProjectAnnotationSubAssembly(@NonNull String projectName, @NonNull AnnotatedFileType fileType,
       @NonNull SnpEffProperties properties) {
+    this(projectName, fileType, properties, new SnpEffFunction(properties, fileType));
+  }
+
+  /**
+   * @param snpEff the function mapping primary to secondary records
+   */
+  ProjectAnnotationSubAssembly(@NonNull String projectName, @NonNull AnnotatedFileType fileType,
+      @NonNull SnpEffProperties properties, @NonNull Function<?> snpEff) {
     val name = "annotation-snpeff-" + projectName;
-    val snpEff = new SnpEffFunction(properties, fileType);
-    val pipe = new Each(name, snpEff);
+    if (!properties.getDeduplicatedFileTypes().contains(fileType)) {
+      setTails(new Each(name, snpEff));
+
+      return;
+    }
+
+    log.info("Annotating distinct {} variants of project '{}'", fileType.getId(), projectName);
+    val observationIdField = new Fields(fileType.getObservationIdFieldName());
+    val representativeIdField = new Fields(REPRESENTATIVE_ID);
+
+    // Assign each observation the id of the first observation of its variant
+    Pipe observations = new GroupBy(new Pipe(name), getVariantFields(fileType));
+    observations = new Every(observations, Fields.ALL, new RepresentativeBuffer(fileType.getObservationIdFieldName()),
+        Fields.ALL);
+
+    // Annotate representatives only
+    Pipe predictions = new Pipe(name + "-predictions", observations);
+    predictions = new Each(predictions, observationIdField.append(representativeIdField),
+        new RepresentativeFilter());
+    predictions = new Discard(predictions, representativeIdField);
+    predictions = new Each(predictions, snpEff);
+
+    // Map representative predictions back to every observation of the variant
+    Pipe mapping = new Pipe(name + "-mapping", observations);
+    mapping = new Retain(mapping, observationIdField.append(representativeIdField));
+    mapping = new Rename(mapping, observationIdField, new Fields(OBSERVATION_ID));
+
+    // The mapping is last since it is the larger side, which is streamed rather than accumulated
+    Pipe pipe = new CoGroup(predictions, observationIdField, mapping, representativeIdField, new InnerJoin());
+    pipe = new Discard(pipe, observationIdField.append(representativeIdField));
+    pipe = new Rename(pipe, new Fields(OBSERVATION_ID), observationIdField);
+    pipe = new Retain(pipe, new Fields(fileType.getSecondaryFileFields()));
 
     setTails(pipe);
   }
 
+  private static Fields getVariantFields(AnnotatedFileType fileType) {
+    val fields = new Fields(
+        fileType.getChromosomeFieldName(),
+        fileType.getChromosomeStartFieldName(),
+        fileType.getChromosomeEndFieldName(),
+        fileType.getMutationTypeFieldName(),
+        fileType.getReferenceAlleleFieldName());
+
+    // See SnpEffFunction#getMutation
+    return fields.append(new Fields(fileType == SSM ? SUBMISSION_MUTATION : SUBMISSION_OBSERVATION_VARIANT_ALLELE));
+  }
+
+  /**
+   * Appends the observation id of the first observation of each variant group to all of its observations.
+   */
+  @SuppressWarnings("rawtypes")
+  private static class RepresentativeBuffer extends BaseOperation<Void> implements Buffer<Void> {
+
+    private final String observationIdFieldName;
+
+    /**
+     * State.
+     */
+    private transient long variantCount;
+    private transient long distinctCount;
+
+    public RepresentativeBuffer(String observationIdFieldName) {
+      super(new Fields(REPRESENTATIVE_ID));
+      this.observationIdFieldName = observationIdFieldName;
+    }
+
+    @Override
+    public void prepare(FlowProcess flowProcess, OperationCall<Void> call) {
+      variantCount = distinctCount = 0;
+    }
+
+    @Override
+    public void operate(FlowProcess flowProcess, BufferCall<Void> call) {
+      val arguments = call.getArgumentsIterator();
+      val collector = call.getOutputCollector();
+
+      String representativeId = null;
+      while (arguments.hasNext()) {
+        val observationId = arguments.next().getString(observationIdFieldName);
+        if (representativeId == null) {
+          representativeId = observationId;
+        }
+
+        collector.add(new Tuple(representativeId));
+        variantCount++;
+      }
+
+      distinctCount++;
+    }
+
+    @Override
+    public void cleanup(FlowProcess flowProcess, OperationCall<Void> call) {
+      flowProcess.increment(COUNTER_GROUP, "variants", variantCount);
+      flowProcess.increment(COUNTER_GROUP, "distinct variants", distinctCount);
+      log.info("Annotating {} distinct of {} variants", distinctCount, variantCount);
+    }
+
+  }
+
+  /**
+   * Retains representative observations only.
+   */
+  @SuppressWarnings("rawtypes")
+  private static class RepresentativeFilter extends BaseOperation<Void> implements Filter<Void> {
+
+    public RepresentativeFilter() {
+      super(2);
+    }
+
+    @Override
+    public boolean isRemove(FlowProcess flowProcess, FilterCall<Void> call) {
+      val arguments = call.getArguments();
+      val observationId = arguments.getString(0);
+      val representativeId = arguments.getString(1);
+
+      return !observationId.equals(representativeId);
+    }
+
+  }
+
 }
@@ -22,7 +22,10 @@ import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUB
 import static org.icgc.dcc.etl.annotator.model.AnnotatedFileType.SSM;
 import static org.icgc.dcc.etl.core.util.Mutations.createMutation;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -31,10 +34,13 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.icgc.dcc.etl.annotator.config.SnpEffProperties;
 import org.icgc.dcc.etl.annotator.converter.ICGCToVCFConverter.MutationType;
+import org.icgc.dcc.etl.annotator.converter.SnpEffVCFToICGCConverter;
 import org.icgc.dcc.etl.annotator.model.AnnotatedFileType;
 import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
 import org.icgc.dcc.etl.annotator.model.SecondaryTupleAdapter;
+import org.icgc.dcc.etl.annotator.snpeff.SnpEffPrediction;
 import org.icgc.dcc.etl.annotator.snpeff.SnpEffPredictor;
+import org.icgc.dcc.etl.annotator.snpeff.SnpEffResultCache;
 
 import cascading.flow.FlowProcess;
 import cascading.operation.BaseOperation;
@@ -43,15 +49,23 @@ import cascading.operation.FunctionCall;
 import cascading.operation.OperationCall;
 import cascading.tuple.Fields;
 import cascading.tuple.TupleEntry;
+import cascading.tuple.TupleEntryCollector;
+
+import com.google.common.collect.Maps;
 
 /**
  * Cascading {@link Function} that maps from ICGC primary to secondary records. This relationship is one-to-many.
+ * <p>
+ * Records are annotated asynchronously, so secondary records are emitted as they complete rather than with the primary
+ * record that produced them. Those still pending when the input is exhausted are emitted on {@link #flush}. Variants
+ * found in the optional {@link SnpEffResultCache} are emitted immediately without being annotated.
  */
 @Slf4j
 @SuppressWarnings("rawtypes")
-public class SnpEffFunction extends BaseOperation<SnpEffPredictor> implements Function<SnpEffPredictor> {
+public class SnpEffFunction extends BaseOperation<SnpEffFunction.Context> implements Function<SnpEffFunction.Context> {
 
   private static final String MISSING_ALLELE = "-";
+  private static final String COUNTER_GROUP = "SnpEff";
 
   /**
    * Configuration.
@@ -67,41 +81,59 @@ public class SnpEffFunction extends BaseOperation<SnpEffPredictor> implements Fu
   }
 
   @Override
-  public void prepare(FlowProcess flowProcess, OperationCall<SnpEffPredictor> call) {
+  @SneakyThrows
+  public void prepare(FlowProcess flowProcess, OperationCall<Context> call) {
     val predictor = new SnpEffPredictor(properties, fileType);
 
     log.info("Asynchronously forking SnpEff process...");
     predictor.start();
     log.info("Successfully asynchronously forked SnpEff process");
 
-    call.setContext(predictor);
+    call.setContext(new Context(predictor, openCache()));
+  }
+
+  @Override
+  @SneakyThrows
+  public void flush(FlowProcess flowProcess, OperationCall<Context> call) {
+    val context = call.getContext();
+    val collector = ((FunctionCall<Context>) call).getOutputCollector();
+
+    log.info("Waiting for pending SnpEff predictions...");
+    emit(context, collector, context.predictor.flush());
   }
 
   @Override
   @SneakyThrows
-  public void cleanup(FlowProcess flowProcess, OperationCall<SnpEffPredictor> call) {
-    val predictor = call.getContext();
+  public void cleanup(FlowProcess flowProcess, OperationCall<Context> call) {
+    val context = call.getContext();
 
     log.info("Shutdown the forked SnpEff process...");
-    predictor.stop();
+    context.predictor.stop();
     log.info("Successfully shutdown the forked SnpEff process");
+
+    if (context.cache != null) {
+      context.cache.close();
+
+      flowProcess.increment(COUNTER_GROUP, "cache hits", context.hitCount);
+      flowProcess.increment(COUNTER_GROUP, "cache misses", context.missCount);
+      log.info("SnpEff cache hits: {}, misses: {}", context.hitCount, context.missCount);
+    }
   }
 
   @Override
-  public void operate(FlowProcess flowProcess, FunctionCall<SnpEffPredictor> call) {
+  @SneakyThrows
+  public void operate(FlowProcess flowProcess, FunctionCall<Context> call) {
     // Shorthands
     val arguments = call.getArguments();
-    val predictor = call.getContext();
+    val context = call.getContext();
     val collector = call.getOutputCollector();
 
-    // Determine the prediction
-    val predictions = predict(arguments, predictor);
-    for (val prediction : predictions) {
-      collector.add(SecondaryTupleAdapter.secondaryToTuple(prediction));
-    }
+    // Submit the prediction and emit any that have completed
+    predict(arguments, context, collector);
+    emit(context, collector, context.predictor.poll());
   }
 
-  private List<SecondaryEntity> predict(TupleEntry arguments, SnpEffPredictor predictor) {
+  private void predict(TupleEntry arguments, Context context, TupleEntryCollector collector) throws IOException {
     // Extract row values
     val chromosome = arguments.getString(fileType.getChromosomeFieldName());
     val start = arguments.getLong(fileType.getChromosomeStartFieldName());
@@ -112,7 +144,53 @@ public class SnpEffFunction extends BaseOperation<SnpEffPredictor> implements Fu
     val reference = (ref.equals(MISSING_ALLELE)) ? "" : ref;
     val id = arguments.getString(fileType.getObservationIdFieldName());
 
-    return predictor.predict(chromosome, start, end, mutation, type, reference, id);
+    if (context.cache != null) {
+      val key = SnpEffResultCache.createKey(chromosome, start, end, mutation, type, reference);
+      val cached = context.cache.get(key, id);
+      if (cached != null) {
+        context.hitCount++;
+        emit(collector, cached);
+
+        return;
+      }
+
+      context.missCount++;
+      context.keys.put(id, key);
+    }
+
+    context.predictor.predict(chromosome, start, end, mutation, type, reference, id);
+  }
+
+  private static void emit(Context context, TupleEntryCollector collector, List<SnpEffPrediction> predictions)
+      throws IOException {
+    for (val prediction : predictions) {
+      if (context.cache != null) {
+        val key = context.keys.remove(prediction.getId());
+        if (key != null) {
+          context.cache.put(key, prediction.getEntities());
+        }
+      }
+
+      emit(collector, prediction.getEntities());
+    }
+  }
+
+  private static void emit(TupleEntryCollector collector, List<SecondaryEntity> entities) {
+    for (val entity : entities) {
+      collector.add(SecondaryTupleAdapter.secondaryToTuple(entity));
+    }
+  }
+
+  private SnpEffResultCache openCache() throws IOException {
+    val cacheDir = properties.getCacheDir();
+    if (cacheDir == null) {
+      return null;
+    }
+
+    // Results are only valid for the SnpEff database, gene build and conversion that produced them
+    val version = properties.getDatabaseVersion() + "-" + properties.getGeneBuildVersion() + "-v"
+        + SnpEffVCFToICGCConverter.VERSION;
+    return SnpEffResultCache.open(new File(new File(cacheDir, version), fileType.getId()));
   }
 
   private static String getMutation(TupleEntry arguments, AnnotatedFileType fileType) {
@@ -126,4 +204,26 @@ public class SnpEffFunction extends BaseOperation<SnpEffPredictor> implements Fu
     return createMutation(mutatedFrom, mutatedTo);
   }
 
+  /**
+   * Per task state.
+   */
+  static class Context {
+
+    final SnpEffPredictor predictor;
+    final SnpEffResultCache cache;
+
+    /**
+     * Cache keys of the pending predictions by observation id.
+     */
+    final Map<String, String> keys = Maps.newHashMap();
+    long hitCount;
+    long missCount;
+
+    Context(SnpEffPredictor predictor, SnpEffResultCache cache) {
+      this.predictor = predictor;
+      this.cache = cache;
+    }
+
+  }
+
 }
@@ -19,14 +19,20 @@ package org.icgc.dcc.etl.annotator.config;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.Set;
+
+import javax.validation.constraints.Min;
 
 import lombok.Data;
 
 import org.hibernate.validator.constraints.NotBlank;
 import org.hibernate.validator.constraints.URL;
+import org.icgc.dcc.etl.annotator.model.AnnotatedFileType;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.Sets;
+
 /**
  * SnpEff specific properties.<br>
  * The class is declared as a {@code @Component} to avoid serialization errors.
@@ -50,4 +56,26 @@ public class SnpEffProperties implements Serializable {
   @NotBlank
   private String geneBuildVersion;
 
+  /**
+   * Number of SnpEff processes forked per task.
+   */
+  @Min(1)
+  private int processCount = 1;
+
+  /**
+   * Maximum number of variants awaiting annotation per task.
+   */
+  @Min(1)
+  private int windowSize = 1000;
+
+  /**
+   * Local directory of the annotation result cache, or {@code null} to always annotate.
+   */
+  private File cacheDir;
+
+  /**
+   * File types whose distinct variants are annotated once and joined back to their observations.
+   */
+  private Set<AnnotatedFileType> deduplicatedFileTypes = Sets.newHashSet();
+
 }
@@ -30,12 +30,12 @@ import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
-import net.sf.picard.reference.IndexedFastaSequenceFile;
 
 import org.broadinstitute.variant.variantcontext.Allele;
 import org.broadinstitute.variant.variantcontext.GenotypeBuilder;
 import org.broadinstitute.variant.variantcontext.GenotypesContext;
 import org.icgc.dcc.etl.annotator.converter.SnpEffVCFToICGCConverter.SampleType;
+import org.icgc.dcc.etl.core.util.MappedFastaSequenceFile;
 
 import com.google.common.collect.Lists;
 
@@ -55,9 +55,9 @@ public class ICGCToVCFConverter {
    */
   private static final String MUTATION_PART_SEPARATOR = ">";
 
-  private final IndexedFastaSequenceFile sequenceFile;
+  private final MappedFastaSequenceFile sequenceFile;
 
-  public ICGCToVCFConverter(IndexedFastaSequenceFile sequenceFile) {
+  public ICGCToVCFConverter(@NonNull MappedFastaSequenceFile sequenceFile) {
     this.sequenceFile = sequenceFile;
   }
 
@@ -171,10 +171,7 @@ public class ICGCToVCFConverter {
   }
 
   private String getReference(String chromosome, long start, long end) {
-    val sequence = sequenceFile.getSubsequenceAt(chromosome, start, end);
-    val text = new String(sequence.getBases());
-
-    return text;
+    return sequenceFile.getSubsequenceAt(chromosome, start, end);
   }
 
   @Data
@@ -37,6 +37,7 @@ import org.broadinstitute.variant.variantcontext.Genotype;
 import org.broadinstitute.variant.variantcontext.VariantContext;
 import org.icgc.dcc.etl.annotator.model.AnnotatedFileType;
 import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
+import org.icgc.dcc.etl.annotator.model.SnpEffVCFRecord;
 import org.icgc.dcc.etl.annotator.model.SnpEffect;
 import org.icgc.dcc.etl.annotator.parser.SnpEffectParser;
 
@@ -56,6 +57,12 @@ import com.google.common.collect.Multimaps;
 @RequiredArgsConstructor
 public class SnpEffVCFToICGCConverter {
 
+  /**
+   * Version of the effect parsing, selection and filtering below. Must be incremented whenever the results of a
+   * conversion change, since previous results may be cached across runs.
+   */
+  public static final int VERSION = 1;
+
   public static final String INFO_EFF_FIELD = "EFF";
   private static final String INFO_PRIM_FIELD = "PRIM";
 
@@ -76,24 +83,64 @@ public class SnpEffVCFToICGCConverter {
       return Collections.emptyList();
     }
 
-    val effects = retrieveUniqueCancerEffects(variant);
+    log.debug("Processing variant: {}", variant);
+    if (!variant.hasAttribute(INFO_EFF_FIELD)) {
+      log.warn("No snpEff annotation found in variant. Skipping. Variant: {}", variant);
+
+      return Collections.emptyList();
+    }
+
+    val controlGenotype = parseGenotype(variant, SampleType.CONTROL_SAMPLE.getName());
+    val tumourGenotype = parseGenotype(variant, SampleType.DONOR_SAMPLE.getName());
+    val effects = retrieveUniqueCancerEffects(extractEffects(variant), controlGenotype, tumourGenotype, variant);
+
+    return createSecondaryEntities(effects, geneBuildVersion, getObservationId(variant));
+  }
+
+  /**
+   * Converts a {@code record} scanned directly from a SnpEff output line, which is equivalent to converting the decoded
+   * {@link VariantContext} of that line.
+   */
+  public List<SecondaryEntity> convert(SnpEffVCFRecord record, AnnotatedFileType fileType) {
+    if (record.getObservationId() == null) {
+      log.warn("The unique identificator is missing in variant {}", record);
+
+      return Collections.emptyList();
+    }
+
+    log.debug("Processing variant: {}", record);
+    if (record.getEffects().isEmpty()) {
+      log.warn("No snpEff annotation found in variant. Skipping. Variant: {}", record);
+
+      return Collections.emptyList();
+    }
+
+    val effects = retrieveUniqueCancerEffects(record.getEffects(), record.getControlGenotype(),
+        record.getTumourGenotype(), record);
 
-    return createSecondaryEntities(effects, geneBuildVersion, variant);
+    return createSecondaryEntities(effects, geneBuildVersion, record.getObservationId());
   }
 
   private static List<SecondaryEntity> createSecondaryEntities(Collection<SnpEffect> effects, String geneBuildVersion,
-      VariantContext variant) {
+      String id) {
     val result = new ImmutableList.Builder<SecondaryEntity>();
 
     for (val effect : effects) {
-      result.add(createSecondaryEntity(effect, geneBuildVersion,
-          getObservationId(variant.getAttribute(INFO_PRIM_FIELD))));
+      result.add(createSecondaryEntity(effect, geneBuildVersion, id));
     }
 
     return result.build();
   }
 
-  private static String getObservationId(Object observationId) {
+  /**
+   * @return the observation id of the annotated {@code variant} or {@code null} if it is missing
+   */
+  public static String getObservationId(@NonNull VariantContext variant) {
+    if (!variant.hasAttribute(INFO_PRIM_FIELD)) {
+      return null;
+    }
+
+    val observationId = variant.getAttribute(INFO_PRIM_FIELD);
     @SuppressWarnings("unchecked")
     val observationIdList =
         (observationId instanceof List) ? (List<String>) observationId : Arrays.asList((String) observationId);
@@ -120,25 +167,18 @@ public class SnpEffVCFToICGCConverter {
   }
 
   /**
-   * Parses {@code variant} and returns a collections of unique effects sorted by priority and limited by the most
-   * important.
+   * Parses the {@code effectAnnotations} of {@code variant} and returns a collections of unique effects sorted by
+   * priority and limited by the most important.
    */
-  private static Collection<SnpEffect> retrieveUniqueCancerEffects(VariantContext variant) {
-    log.debug("Processing variant: {}", variant);
-    if (!variant.hasAttribute(INFO_EFF_FIELD)) {
-      log.warn("No snpEff annotation found in variant. Skipping. Variant: {}", variant);
-
-      return Collections.emptyList();
-    }
-
-    val effects = extractEffects(variant);
+  private static Collection<SnpEffect> retrieveUniqueCancerEffects(List<String> effectAnnotations,
+      String controlGenotype, String tumourGenotype, Object variant) {
     val result = new ImmutableList.Builder<SnpEffect>();
 
-    for (val effectAnnotation : effects) {
-      result.addAll(filterMalformedEffects(SnpEffectParser.parse(effectAnnotation), variant));
+    for (val effectAnnotation : effectAnnotations) {
+      result.addAll(filterMalformedEffects(SnpEffectParser.parse(effectAnnotation)));
     }
 
-    return filterEffects(variant, result.build());
+    return filterEffects(controlGenotype, tumourGenotype, variant, result.build());
   }
 
   /**
@@ -146,11 +186,11 @@ public class SnpEffVCFToICGCConverter {
    * 
    * @return a list of valid effects
    */
-  private static List<SnpEffect> filterMalformedEffects(List<SnpEffect> effects, VariantContext variant) {
+  private static List<SnpEffect> filterMalformedEffects(List<SnpEffect> effects) {
     val result = new ImmutableList.Builder<SnpEffect>();
 
     for (val effect : effects) {
-      if (isValidEffect(effect, variant)) {
+      if (isValidEffect(effect)) {
         result.add(effect);
       }
     }
@@ -158,7 +198,7 @@ public class SnpEffVCFToICGCConverter {
     return result.build();
   }
 
-  private static boolean isValidEffect(SnpEffect effect, VariantContext variant) {
+  private static boolean isValidEffect(SnpEffect effect) {
     if (effect.hasError()) {
       // FIXME: [DCC-2578] Confirm with Junjun when a malformed effect can be still added to a ssm_s.txt.
       if (effect.containsAnyError(WARNING_REF_DOES_NOT_MATCH_GENOME)) {
@@ -189,15 +229,15 @@ public class SnpEffVCFToICGCConverter {
    * <br>
    * Skips variations which are not not mutations. E.g. controlSample equal to tumourSample (same nucleotide mutated
    * into the same nucleotide).
-   * @param variant - annotated variant
+   * @param controlGenotype - allele index of the control sample genotype
+   * @param tumourGenotype - allele index of the tumour sample genotype
+   * @param variant - annotated variant, for logging
    * @param individualEffects - effects retrieved from the {@code vc}
    * @return effects sorted by priority and limited by the most important
    * @see <a href="https://wiki.oicr.on.ca/x/sg6RAw">Effect selection criterias</a>
    */
-  private static Collection<SnpEffect> filterEffects(VariantContext variant, List<SnpEffect> individualEffects) {
-    val controlGenotype = parseGenotype(variant, SampleType.CONTROL_SAMPLE.getName());
-    val tumourGenotype = parseGenotype(variant, SampleType.DONOR_SAMPLE.getName());
-
+  private static Collection<SnpEffect> filterEffects(String controlGenotype, String tumourGenotype, Object variant,
+      List<SnpEffect> individualEffects) {
     if (!isMutation(controlGenotype, tumourGenotype)) {
       log.warn("No mutations found based on the genotype info. Variant: {}", variant);
 
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.annotator.parser;
+
+import static com.google.common.base.Preconditions.checkState;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+
+import org.icgc.dcc.etl.annotator.model.SnpEffVCFRecord;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Scans a SnpEff annotated VCF line for the fields needed by the converter.
+ * <p>
+ * Replaces a full {@code VCFCodec} decode, which builds alleles, genotypes and every INFO attribute. Columns are
+ * located by index and only the {@code PRIM} and {@code EFF} INFO values and the {@code GT} of each sample are copied
+ * out of the line.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class SnpEffVCFLineParser {
+
+  /**
+   * Column indexes.
+   */
+  private static final int INFO_COLUMN = 7;
+  private static final int FORMAT_COLUMN = 8;
+  private static final int CONTROL_SAMPLE_COLUMN = 9;
+  private static final int TUMOUR_SAMPLE_COLUMN = 10;
+  private static final int COLUMN_COUNT = 11;
+
+  private static final String INFO_PRIM_KEY = "PRIM";
+  private static final String INFO_EFF_KEY = "EFF";
+  private static final String GENOTYPE_KEY = "GT";
+  private static final String NO_CALL_INDEX = "-1";
+
+  public static SnpEffVCFRecord parse(@NonNull String line) {
+    // Start offsets of each column, plus one past the end of the last
+    val columns = new int[COLUMN_COUNT + 1];
+    int column = 0;
+    columns[column++] = 0;
+    for (int i = 0; i < line.length() && column < COLUMN_COUNT; i++) {
+      if (line.charAt(i) == '\t') {
+        columns[column++] = i + 1;
+      }
+    }
+    checkState(column == COLUMN_COUNT, "Expected %s columns in SnpEff output line: %s", COLUMN_COUNT, line);
+
+    int end = line.indexOf('\t', columns[TUMOUR_SAMPLE_COLUMN]);
+    columns[COLUMN_COUNT] = (end < 0 ? line.length() : end) + 1;
+
+    // INFO
+    String observationId = null;
+    List<String> effects = Collections.emptyList();
+    int from = columns[INFO_COLUMN];
+    int to = columns[INFO_COLUMN + 1] - 1;
+    while (from < to) {
+      end = indexOf(line, ';', from, to);
+      if (isKey(line, from, end, INFO_PRIM_KEY)) {
+        // Only the first of multiple values is used
+        val valueFrom = from + INFO_PRIM_KEY.length() + 1;
+        observationId = line.substring(valueFrom, indexOf(line, ',', valueFrom, end));
+      } else if (isKey(line, from, end, INFO_EFF_KEY)) {
+        effects = split(line, ',', from + INFO_EFF_KEY.length() + 1, end);
+      }
+
+      from = end + 1;
+    }
+
+    // FORMAT
+    val genotypeIndex = getGenotypeIndex(line, columns[FORMAT_COLUMN], columns[FORMAT_COLUMN + 1] - 1);
+    val controlGenotype = getGenotype(line, genotypeIndex, columns[CONTROL_SAMPLE_COLUMN],
+        columns[CONTROL_SAMPLE_COLUMN + 1] - 1);
+    val tumourGenotype = getGenotype(line, genotypeIndex, columns[TUMOUR_SAMPLE_COLUMN],
+        columns[TUMOUR_SAMPLE_COLUMN + 1] - 1);
+
+    return new SnpEffVCFRecord(observationId, effects, controlGenotype, tumourGenotype);
+  }
+
+  /**
+   * @return the position of {@code GT} within the {@code :} separated FORMAT keys in {@code [from, to)}
+   */
+  private static int getGenotypeIndex(String line, int from, int to) {
+    int index = 0;
+    while (from < to) {
+      val end = indexOf(line, ':', from, to);
+      if (end - from == GENOTYPE_KEY.length() && line.startsWith(GENOTYPE_KEY, from)) {
+        return index;
+      }
+
+      from = end + 1;
+      index++;
+    }
+
+    throw new IllegalStateException("Missing " + GENOTYPE_KEY + " format key in SnpEff output line: " + line);
+  }
+
+  /**
+   * @return the first allele index of the {@code index}th {@code :} separated sample value in {@code [from, to)}
+   */
+  private static String getGenotype(String line, int index, int from, int to) {
+    for (int i = 0; i < index; i++) {
+      from = indexOf(line, ':', from, to) + 1;
+    }
+
+    val end = indexOf(line, ':', from, to);
+    val phased = indexOf(line, '|', from, end);
+    if (phased < end) {
+      throw new UnsupportedOperationException("Phased genotype is not currently supported. Genotype: "
+          + line.substring(from, end));
+    }
+
+    val allele = line.substring(from, indexOf(line, '/', from, end));
+
+    return ".".equals(allele) ? NO_CALL_INDEX : allele;
+  }
+
+  private static boolean isKey(String line, int from, int to, String key) {
+    return to - from > key.length() && line.startsWith(key, from) && line.charAt(from + key.length()) == '=';
+  }
+
+  private static List<String> split(String line, char separator, int from, int to) {
+    val values = Lists.<String> newArrayList();
+    while (from <= to) {
+      val end = indexOf(line, separator, from, to);
+      values.add(line.substring(from, end));
+      from = end + 1;
+    }
+
+    return values;
+  }
+
+  /**
+   * @return the index of {@code c} in {@code [from, to)} or {@code to} if absent
+   */
+  private static int indexOf(String line, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (line.charAt(i) == c) {
+        return i;
+      }
+    }
+
+    return to;
+  }
+
+}
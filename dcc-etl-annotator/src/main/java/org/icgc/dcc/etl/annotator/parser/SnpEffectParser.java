@@ -19,7 +19,6 @@ package org.icgc.dcc.etl.annotator.parser;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.isNullOrEmpty;
-import static java.util.regex.Pattern.quote;
 import static lombok.AccessLevel.PRIVATE;
 import static org.icgc.dcc.etl.annotator.model.ConsequenceType.FRAMESHIFT_VARIANT;
 import static org.icgc.dcc.etl.annotator.model.ConsequenceType.UNKNOWN_CONSEQUENCE;
@@ -56,6 +55,7 @@ import org.icgc.dcc.etl.annotator.model.ParseState;
 import org.icgc.dcc.etl.annotator.model.SnpEffect;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 /**
  * This class orchestrates the set of parsers that parse individual snpEff annotated fields.
@@ -80,8 +80,9 @@ public final class SnpEffectParser {
   public static final int WARNING_AND_ERROR_MEDATA_FIELDS_COUNT = 13;
   public static final SnpEffect MALFORMED_SNP_EFFECT = SnpEffect.builder().consequenceType(UNKNOWN_CONSEQUENCE).build();
 
-  private static final String METADATA_DELIMITER = "[()]";
-  private static final String METADATA_SUBFIELD_DELIMITER = "|";
+  private static final char METADATA_START_DELIMITER = '(';
+  private static final char METADATA_END_DELIMITER = ')';
+  private static final char METADATA_SUBFIELD_DELIMITER = '|';
   private static final int EFFECT_NAME_INDEX = 0;
   private static final int EFFECT_METADATA_INDEX = 1;
   private static final String EMPTY_VALUE = "";
@@ -114,7 +115,7 @@ public final class SnpEffectParser {
       return ImmutableList.of(MALFORMED_SNP_EFFECT);
     }
 
-    val effectNameAndMetadata = effectAnnotation.split(METADATA_DELIMITER);
+    val effectNameAndMetadata = splitEffect(effectAnnotation);
     val fieldsCount = 2;
     if (effectNameAndMetadata.length != fieldsCount) {
       log.warn("Malformed SnpEff effect: {}", effectAnnotation);
@@ -122,7 +123,7 @@ public final class SnpEffectParser {
       return ImmutableList.of(MALFORMED_SNP_EFFECT);
     }
 
-    val effectMetadata = effectNameAndMetadata[EFFECT_METADATA_INDEX].split(quote(METADATA_SUBFIELD_DELIMITER), -1);
+    val effectMetadata = splitMetadata(effectNameAndMetadata[EFFECT_METADATA_INDEX]);
     try {
       checkMetadataFormat(effectMetadata);
     } catch (IllegalStateException e) {
@@ -140,6 +141,55 @@ public final class SnpEffectParser {
     return result.build();
   }
 
+  /**
+   * Equivalent to {@code effectAnnotation.split("[()]")}, without compiling and matching a regular expression per call.
+   */
+  private static String[] splitEffect(String effectAnnotation) {
+    val result = Lists.<String> newArrayList();
+    int from = 0;
+    for (int i = 0; i < effectAnnotation.length(); i++) {
+      val c = effectAnnotation.charAt(i);
+      if (c == METADATA_START_DELIMITER || c == METADATA_END_DELIMITER) {
+        result.add(effectAnnotation.substring(from, i));
+        from = i + 1;
+      }
+    }
+    result.add(effectAnnotation.substring(from));
+
+    // Trailing empty strings are removed
+    int size = result.size();
+    while (size > 0 && result.get(size - 1).isEmpty()) {
+      size--;
+    }
+
+    return result.subList(0, size).toArray(new String[size]);
+  }
+
+  /**
+   * Equivalent to {@code metadata.split(quote("|"), -1)}, without compiling and matching a regular expression per call.
+   */
+  private static String[] splitMetadata(String metadata) {
+    int count = 1;
+    for (int i = 0; i < metadata.length(); i++) {
+      if (metadata.charAt(i) == METADATA_SUBFIELD_DELIMITER) {
+        count++;
+      }
+    }
+
+    val result = new String[count];
+    int from = 0;
+    int field = 0;
+    for (int i = 0; i < metadata.length(); i++) {
+      if (metadata.charAt(i) == METADATA_SUBFIELD_DELIMITER) {
+        result[field++] = metadata.substring(from, i);
+        from = i + 1;
+      }
+    }
+    result[field] = metadata.substring(from);
+
+    return result;
+  }
+
   private static SnpEffect parseIndividualEffect(String effectName, String[] effectMetadata) {
     val result = SnpEffect.builder();
     val parseState = new ParseState();
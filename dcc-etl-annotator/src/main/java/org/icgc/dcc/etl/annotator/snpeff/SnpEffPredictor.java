@@ -17,24 +17,27 @@
  */
 package org.icgc.dcc.etl.annotator.snpeff;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.File;
 import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
-import net.sf.picard.reference.IndexedFastaSequenceFile;
 
 import org.broadinstitute.variant.variantcontext.VariantContext;
 import org.broadinstitute.variant.variantcontext.VariantContextBuilder;
@@ -48,20 +51,37 @@ import org.icgc.dcc.etl.annotator.config.SnpEffProperties;
 import org.icgc.dcc.etl.annotator.converter.ICGCToVCFConverter;
 import org.icgc.dcc.etl.annotator.converter.ICGCToVCFConverter.MutationType;
 import org.icgc.dcc.etl.annotator.model.AnnotatedFileType;
-import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
 import org.icgc.dcc.etl.annotator.resolver.Jre7Resolver;
 import org.icgc.dcc.etl.annotator.resolver.SnpEffDatabaseResolver;
 import org.icgc.dcc.etl.annotator.util.Alleles;
 import org.icgc.dcc.etl.core.resolver.ReferenceGenomeResolver;
+import org.icgc.dcc.etl.core.util.MappedFastaSequenceFile;
 
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
 import com.googlecode.charts4j.collect.Maps;
 
+/**
+ * Streams variants through one or more forked SnpEff processes.
+ * <p>
+ * Variants are submitted without waiting for their annotations, so that SnpEff always has a window of work in flight.
+ * Results are correlated to their submissions by observation id and returned as they complete, in no particular order.
+ * <p>
+ * Not thread safe.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class SnpEffPredictor {
 
+  /**
+   * Constants.
+   */
+  private static final long POLL_TIMEOUT_SECONDS = 1;
+
   /**
    * Configuration.
    */
@@ -73,33 +93,65 @@ public class SnpEffPredictor {
   /**
    * State.
    */
-  private BlockingQueue<List<SecondaryEntity>> queue = new ArrayBlockingQueue<List<SecondaryEntity>>(100);
+  private final BlockingQueue<SnpEffPrediction> queue = new LinkedBlockingQueue<SnpEffPrediction>();
+  private final Multiset<String> pending = HashMultiset.create();
+  private final List<SnpEffPrediction> completed = Lists.newArrayList();
+  private int next;
 
   /**
    * Dependencies.
    */
-  private SnpEffProcess process;
-  private ExecutorService executor = Executors.newFixedThreadPool(2);
-  private PrintStream stream;
+  private final List<SnpEffProcess> processes = Lists.newArrayList();
+  private final List<PrintStream> streams = Lists.newArrayList();
+  private final List<Future<?>> handlers = Lists.newArrayList();
+  private ExecutorService executor;
   private VCFEncoder encoder;
   private ICGCToVCFConverter converter;
 
   @SneakyThrows
   public void start() {
-    this.process = new SnpEffProcess(resolveJava(), resolveDataDir(), properties.getDatabaseVersion());
-    this.stream = new PrintStream(process.getOutputStream());
+    val processCount = properties.getProcessCount();
+    val windowSize = properties.getWindowSize();
+    checkArgument(processCount > 0, "SnpEff process count must be positive: %s", processCount);
+    checkArgument(windowSize > 0, "SnpEff window size must be positive: %s", windowSize);
+
+    this.executor = Executors.newFixedThreadPool(2 * processCount);
     this.encoder = new VCFEncoder(createVCFHeader(), true);
-    this.converter = new ICGCToVCFConverter(new IndexedFastaSequenceFile(resolveReferenceGenome()));
+    this.converter = new ICGCToVCFConverter(MappedFastaSequenceFile.open(resolveReferenceGenome()));
+
+    val java = resolveJava();
+    val dataDir = resolveDataDir();
+    for (int i = 0; i < processCount; i++) {
+      val process = new SnpEffProcess(java, dataDir, properties.getDatabaseVersion());
+      val stream = new PrintStream(process.getOutputStream());
+
+      // Start handler threads
+      val handler = executor.submit(new SnpEffResultHandler(process.getInputStream(), queue, fileType, properties
+          .getGeneBuildVersion()));
+      executor.execute(new SnpEffLogHandler(process.getErrorStream()));
+      initializeSnpEff(stream);
+
+      processes.add(process);
+      attach(stream, handler);
+    }
+
+    log.info("Started {} SnpEff process(es) with a window of {} variant(s)", processCount, windowSize);
+  }
+
+  /**
+   * Attaches the input of a started SnpEff process and the handler publishing its results to {@link #getQueue()}.
+   */
+  void attach(@NonNull PrintStream stream, @NonNull Future<?> handler) {
+    streams.add(stream);
+    handlers.add(handler);
+  }
 
-    // Start handler threads
-    executor.execute(new SnpEffResultHandler(process.getInputStream(), queue, fileType, properties
-        .getGeneBuildVersion()));
-    executor.execute(new SnpEffLogHandler(process.getErrorStream()));
-    initializeSnpEff();
+  BlockingQueue<SnpEffPrediction> getQueue() {
+    return queue;
   }
 
   @SneakyThrows
-  private void initializeSnpEff() {
+  private void initializeSnpEff(PrintStream stream) {
     // VariantContextWriterFactory requires a non-null FILE. Create any and delete it on exit
     val prefix = "zzz";
     val file = File.createTempFile(prefix, null);
@@ -121,26 +173,120 @@ public class SnpEffPredictor {
     return new VCFHeader(set, ImmutableList.of("Patient_01_Germline", "Patient_01_Somatic"));
   }
 
-  @SneakyThrows
-  public List<SecondaryEntity> predict(String chromosome, long start, long end, String mutation, MutationType type,
-      String reference, String id) {
-
+  /**
+   * Submits a variant for annotation. Its results are later returned by {@link #poll()} or {@link #flush()}.
+   * <p>
+   * Blocks only while the window of pending variants is full.
+   */
+  public void predict(String chromosome, long start, long end, String mutation, MutationType type,
+      String reference, @NonNull String id) {
     val variant = createVariant(chromosome, start, end, mutation, type, reference, id);
-    val line = encoder.encode(variant);
-    stream.println(line);
-    stream.flush();
 
-    return queue.take();
+    submit(encoder.encode(variant), id);
+  }
+
+  /**
+   * Writes an encoded variant to the next process, blocking only while the window of pending variants is full.
+   */
+  void submit(@NonNull String line, @NonNull String id) {
+    // Distribute round robin
+    streams.get(next).println(line);
+    next = (next + 1) % streams.size();
+    pending.add(id);
+
+    val windowSize = properties.getWindowSize();
+    if (pending.size() >= windowSize) {
+      // Wait for half the window so that writes are batched between waits
+      flushStreams();
+      while (pending.size() > windowSize / 2) {
+        complete(take());
+      }
+    }
+  }
+
+  /**
+   * @return the predictions completed since the last call, without blocking
+   */
+  public List<SnpEffPrediction> poll() {
+    SnpEffPrediction prediction;
+    while ((prediction = queue.poll()) != null) {
+      complete(prediction);
+    }
+
+    val result = ImmutableList.copyOf(completed);
+    completed.clear();
+
+    return result;
+  }
+
+  /**
+   * @return the remaining predictions, after waiting for all pending variants to complete
+   */
+  public List<SnpEffPrediction> flush() {
+    flushStreams();
+    while (!pending.isEmpty()) {
+      complete(take());
+    }
+
+    return poll();
   }
 
   public void stop() throws InterruptedException {
-    stream.close();
-    log.info("Exit code: {}", process.waitFor());
+    for (val stream : streams) {
+      stream.close();
+    }
+    for (val process : processes) {
+      log.info("Exit code: {}", process.waitFor());
+    }
 
     executor.shutdownNow();
     executor.awaitTermination(1, MINUTES);
   }
 
+  private void flushStreams() {
+    for (val stream : streams) {
+      stream.flush();
+    }
+  }
+
+  private void complete(SnpEffPrediction prediction) {
+    val id = prediction.getId();
+    checkState(id != null && pending.remove(id), "Unexpected SnpEff result for observation id '%s'", id);
+
+    completed.add(prediction);
+  }
+
+  @SneakyThrows
+  private SnpEffPrediction take() {
+    while (true) {
+      val prediction = queue.poll(POLL_TIMEOUT_SECONDS, SECONDS);
+      if (prediction != null) {
+        return prediction;
+      }
+
+      if (isHandlerDone()) {
+        // Results may have been published just before the handler exited
+        val remaining = queue.poll();
+        checkState(remaining != null, "SnpEff terminated with %s variant(s) pending", pending.size());
+
+        return remaining;
+      }
+    }
+  }
+
+  private boolean isHandlerDone() {
+    for (val handler : handlers) {
+      if (handler.isDone()) {
+        // Propagate handler failures
+        Futures.getUnchecked(handler);
+
+        return true;
+      }
+    }
+
+    return false;
+  }
+
   private File resolveJava() {
     val resolver = new Jre7Resolver(properties.getResourceDir());
 
@@ -0,0 +1,584 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.annotator.snpeff;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.util.concurrent.TimeUnit.DAYS;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.etl.annotator.converter.ICGCToVCFConverter.MutationType;
+import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Local, file backed cache of SnpEff results keyed by normalized variant.
+ * <p>
+ * Results are stored without their observation id, which is supplied on lookup, so that a variant shared by many
+ * observations, donors and projects is only annotated once. The cache is only valid for a single SnpEff database and
+ * gene build version, which callers encode into the cache directory.
+ * <p>
+ * Each instance appends its new results to a private segment file that is renamed into place on {@link #close()}, so
+ * concurrent tasks on the same node never share a file that is being written. Existing segments are memory-mapped and
+ * addressed through an in-heap open addressing table of key hashes, so the results themselves live outside of the
+ * heap. Segments are compacted once there are more than {@link #MAX_SEGMENT_COUNT} of them.
+ * <p>
+ * Segments left unpublished by killed tasks are removed on open once they are a day old.
+ * <p>
+ * Not thread safe.
+ */
+@Slf4j
+public class SnpEffResultCache implements Closeable {
+
+  /**
+   * Constants.
+   */
+  private static final int VERSION = 1;
+  private static final String SEGMENT_FILE_SUFFIX = ".segment";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final String LOCK_FILE_NAME = "compaction.lock";
+  private static final int SEGMENT_HEADER_SIZE = 4; // int version
+  private static final int MAX_SEGMENT_SIZE = 1 << 30; // 1 GB
+  private static final int MAX_SEGMENT_COUNT = 64;
+  private static final int MAX_RECENT_SIZE = 100000;
+  private static final long MAX_TEMP_FILE_AGE = DAYS.toMillis(1);
+  private static final char KEY_SEPARATOR = '\t';
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * Configuration.
+   */
+  private final File dir;
+
+  /**
+   * Data.
+   */
+  private final List<MappedByteBuffer> segments = Lists.newArrayList();
+  private final Index index = new Index();
+
+  /**
+   * Results put by this instance, which are not readable from the mapped segments until the next open.
+   */
+  private final Map<String, List<SecondaryEntity>> recent = Maps.newHashMap();
+
+  /**
+   * Output state.
+   */
+  private File segmentFile;
+  private DataOutputStream segmentOutput;
+  private long segmentSize;
+
+  /**
+   * The number of results written by this instance.
+   */
+  @Getter
+  private int putCount;
+
+  private SnpEffResultCache(File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Opens the cache in {@code dir}, creating it if it does not exist.
+   */
+  public static SnpEffResultCache open(@NonNull File dir) throws IOException {
+    checkState(dir.isDirectory() || dir.mkdirs(), "Could not create SnpEff cache directory '%s'", dir);
+
+    deleteStaleTempFiles(dir);
+
+    val cache = new SnpEffResultCache(dir);
+    val segmentFiles = getSegmentFiles(dir);
+    for (val segmentFile : segmentFiles) {
+      cache.addSegment(segmentFile);
+    }
+
+    log.info("Opened SnpEff cache in '{}' with {} result(s) in {} segment(s)",
+        new Object[] { dir, cache.index.size, cache.segments.size() });
+    if (segmentFiles.length > MAX_SEGMENT_COUNT) {
+      cache.compact(segmentFiles);
+    }
+
+    return cache;
+  }
+
+  /**
+   * @return the normalized cache key of the supplied variant
+   */
+  public static String createKey(@NonNull String chromosome, long start, long end, @NonNull String mutation,
+      @NonNull MutationType type, @NonNull String reference) {
+    return Joiner.on(KEY_SEPARATOR).join(chromosome, start, end, type.getId(), reference, mutation);
+  }
+
+  /**
+   * @return the cached results of the variant identified by {@code key} for {@code observationId}, or {@code null} if
+   * the variant has not been annotated
+   */
+  public List<SecondaryEntity> get(@NonNull String key, @NonNull String observationId) throws IOException {
+    List<SecondaryEntity> entities = recent.get(key);
+    if (entities == null) {
+      entities = read(key);
+    }
+
+    return entities == null ? null : withObservationId(entities, observationId);
+  }
+
+  /**
+   * Stores the results of the variant identified by {@code key}. Their observation ids are not stored.
+   */
+  public void put(@NonNull String key, @NonNull List<SecondaryEntity> entities) throws IOException {
+    if (recent.containsKey(key) || read(key) != null) {
+      return;
+    }
+
+    val record = encode(key, entities);
+    if (segmentOutput != null && segmentSize + 4 + record.length > MAX_SEGMENT_SIZE) {
+      // Roll
+      publishSegment();
+    }
+    if (segmentOutput == null) {
+      segmentFile = new File(dir, UUID.randomUUID() + TEMP_FILE_SUFFIX);
+      segmentOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segmentFile), 1 << 16));
+      segmentOutput.writeInt(VERSION);
+      segmentSize = SEGMENT_HEADER_SIZE;
+    }
+
+    writeRecord(segmentOutput, record);
+    segmentSize += 4 + record.length;
+    putCount++;
+
+    if (recent.size() >= MAX_RECENT_SIZE) {
+      // Bound memory at the cost of repeat misses within this instance
+      recent.clear();
+    }
+    recent.put(key, withObservationId(entities, null));
+  }
+
+  /**
+   * Publishes the results written by this instance.
+   */
+  @Override
+  public void close() throws IOException {
+    if (segmentOutput != null) {
+      publishSegment();
+    }
+  }
+
+  private void publishSegment() throws IOException {
+    segmentOutput.close();
+    segmentOutput = null;
+
+    val target = publish(segmentFile);
+    log.info("Wrote {} bytes of results to SnpEff cache segment '{}'", segmentSize, target);
+  }
+
+  private void addSegment(File segmentFile) throws IOException {
+    MappedByteBuffer segment;
+    try {
+      segment = map(segmentFile);
+    } catch (FileNotFoundException e) {
+      // Removed by a concurrent compaction, whose result is either already mapped or will be on the next open
+      log.warn("Skipping missing SnpEff cache segment '{}'", segmentFile);
+      return;
+    }
+
+    if (segment.capacity() < SEGMENT_HEADER_SIZE || segment.getInt(0) != VERSION) {
+      log.warn("Skipping SnpEff cache segment '{}' of unsupported version", segmentFile);
+      return;
+    }
+
+    val segmentNumber = segments.size();
+    segments.add(segment);
+
+    // Index
+    int position = SEGMENT_HEADER_SIZE;
+    while (position < segment.capacity()) {
+      val length = segment.getInt(position);
+      val keyLength = segment.getShort(position + 4);
+      val hash = hash(segment, position + 6, keyLength);
+      index.putIfAbsent(hash, (long) segmentNumber << 32 | position);
+
+      position += 4 + length;
+    }
+  }
+
+  private void compact(File[] segmentFiles) throws IOException {
+    @Cleanup
+    val lockFile = new RandomAccessFile(new File(dir, LOCK_FILE_NAME), "rw");
+    FileLock lock;
+    try {
+      lock = lockFile.getChannel().tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null;
+    }
+    if (lock == null) {
+      // Another task is compacting
+      return;
+    }
+
+    try {
+      // Rewrite every indexed record, which drops those of unsupported versions and duplicates
+      log.info("Compacting {} SnpEff cache segment(s) in '{}'...", segmentFiles.length, dir);
+      DataOutputStream output = null;
+      File outputFile = null;
+      long outputSize = MAX_SEGMENT_SIZE;
+      val compactedFiles = Lists.<File> newArrayList();
+      try {
+        for (val address : index.addresses) {
+          if (address == Index.EMPTY) {
+            continue;
+          }
+
+          val record = readRecord(address);
+          if (outputSize + 4 + record.length > MAX_SEGMENT_SIZE) {
+            // Roll
+            if (output != null) {
+              output.close();
+            }
+
+            outputFile = new File(dir, UUID.randomUUID() + TEMP_FILE_SUFFIX);
+            compactedFiles.add(outputFile);
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile), 1 << 16));
+            output.writeInt(VERSION);
+            outputSize = SEGMENT_HEADER_SIZE;
+          }
+
+          writeRecord(output, record);
+          outputSize += 4 + record.length;
+        }
+      } finally {
+        if (output != null) {
+          output.close();
+        }
+      }
+
+      // Publish before removing the originals so that concurrent readers always find every result
+      for (val compactedFile : compactedFiles) {
+        publish(compactedFile);
+      }
+      for (val segmentFile : segmentFiles) {
+        if (!segmentFile.delete()) {
+          log.warn("Could not delete compacted SnpEff cache segment '{}'", segmentFile);
+        }
+      }
+
+      log.info("Compacted SnpEff cache to {} segment(s)", compactedFiles.size());
+    } finally {
+      lock.release();
+    }
+  }
+
+  private File publish(File tempFile) {
+    val target = new File(dir, tempFile.getName().replace(TEMP_FILE_SUFFIX, SEGMENT_FILE_SUFFIX));
+    checkState(tempFile.renameTo(target), "Could not rename SnpEff cache segment '%s' to '%s'", tempFile, target);
+
+    return target;
+  }
+
+  private List<SecondaryEntity> read(String key) throws IOException {
+    val keyBytes = key.getBytes(UTF_8);
+    val address = index.get(hash(keyBytes));
+    if (address == Index.EMPTY) {
+      return null;
+    }
+
+    val record = readRecord(address);
+    val keyLength = (record[0] & 0xff) << 8 | record[1] & 0xff;
+    if (keyLength != keyBytes.length || !equals(record, 2, keyBytes)) {
+      // Hash collision
+      return null;
+    }
+
+    return decode(record, 2 + keyLength);
+  }
+
+  private byte[] readRecord(long address) {
+    // Absolute reads do not modify the shared buffer state
+    val segment = segments.get((int) (address >>> 32)).duplicate();
+    val position = (int) address;
+
+    val record = new byte[segment.getInt(position)];
+    segment.position(position + 4);
+    segment.get(record);
+
+    return record;
+  }
+
+  private static void writeRecord(DataOutputStream output, byte[] record) throws IOException {
+    output.writeInt(record.length);
+    output.write(record);
+  }
+
+  /**
+   * Encodes a record as {@code short keyLength, byte[] key, int count, entity...}.
+   */
+  private static byte[] encode(String key, List<SecondaryEntity> entities) throws IOException {
+    val bytes = new ByteArrayOutputStream();
+    val output = new DataOutputStream(bytes);
+
+    val keyBytes = key.getBytes(UTF_8);
+    checkArgument(keyBytes.length <= Short.MAX_VALUE, "SnpEff cache key too long: %s", key);
+    output.writeShort(keyBytes.length);
+    output.write(keyBytes);
+
+    output.writeInt(entities.size());
+    for (val entity : entities) {
+      writeString(output, entity.getConsequenceType());
+      writeString(output, entity.getAaMutation());
+      writeString(output, entity.getCdsMutation());
+      writeString(output, entity.getProteinDomainAffected());
+      writeString(output, entity.getGeneAffected());
+      writeString(output, entity.getTranscriptAffected());
+      writeString(output, entity.getGeneBuildVersion());
+      writeString(output, entity.getNote());
+    }
+
+    output.close();
+    return bytes.toByteArray();
+  }
+
+  private static List<SecondaryEntity> decode(byte[] record, int offset) throws IOException {
+    val input = new DataInputStream(new ByteArrayInputStream(record, offset, record.length - offset));
+
+    val count = input.readInt();
+    val entities = ImmutableList.<SecondaryEntity> builder();
+    for (int i = 0; i < count; i++) {
+      entities.add(SecondaryEntity.builder()
+          .consequenceType(readString(input))
+          .aaMutation(readString(input))
+          .cdsMutation(readString(input))
+          .proteinDomainAffected(readString(input))
+          .geneAffected(readString(input))
+          .transcriptAffected(readString(input))
+          .geneBuildVersion(readString(input))
+          .note(readString(input))
+          .build());
+    }
+
+    return entities.build();
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      output.writeUTF(value);
+    }
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readUTF() : null;
+  }
+
+  private static List<SecondaryEntity> withObservationId(List<SecondaryEntity> entities, String observationId) {
+    val result = ImmutableList.<SecondaryEntity> builder();
+    for (val entity : entities) {
+      result.add(withObservationId(entity, observationId));
+    }
+
+    return result.build();
+  }
+
+  private static SecondaryEntity withObservationId(SecondaryEntity entity, String observationId) {
+    return SecondaryEntity.builder()
+        .consequenceType(entity.getConsequenceType())
+        .aaMutation(entity.getAaMutation())
+        .cdsMutation(entity.getCdsMutation())
+        .proteinDomainAffected(entity.getProteinDomainAffected())
+        .geneAffected(entity.getGeneAffected())
+        .transcriptAffected(entity.getTranscriptAffected())
+        .geneBuildVersion(entity.getGeneBuildVersion())
+        .note(entity.getNote())
+        .observationId(observationId)
+        .build();
+  }
+
+  private static boolean equals(byte[] record, int offset, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (record[offset + i] != bytes[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static long hash(byte[] bytes) {
+    long hash = FNV_OFFSET_BASIS;
+    for (val b : bytes) {
+      hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+    }
+
+    return hash;
+  }
+
+  private static long hash(MappedByteBuffer segment, int offset, int length) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = offset; i < offset + length; i++) {
+      hash = (hash ^ (segment.get(i) & 0xff)) * FNV_PRIME;
+    }
+
+    return hash;
+  }
+
+  /**
+   * Removes the unpublished segments of tasks that were killed before closing. Segments being written are modified
+   * continuously, so they are never old enough to be removed.
+   */
+  private static void deleteStaleTempFiles(File dir) {
+    val threshold = currentTimeMillis() - MAX_TEMP_FILE_AGE;
+    val tempFiles = dir.listFiles(new FileFilter() {
+
+      @Override
+      public boolean accept(File file) {
+        return file.getName().endsWith(TEMP_FILE_SUFFIX) && file.lastModified() < threshold;
+      }
+
+    });
+
+    for (val tempFile : tempFiles) {
+      log.info("Deleting stale SnpEff cache segment '{}'...", tempFile);
+      if (!tempFile.delete() && tempFile.exists()) {
+        log.warn("Could not delete stale SnpEff cache segment '{}'", tempFile);
+      }
+    }
+  }
+
+  private static File[] getSegmentFiles(File dir) {
+    val files = dir.listFiles(new FileFilter() {
+
+      @Override
+      public boolean accept(File file) {
+        return file.getName().endsWith(SEGMENT_FILE_SUFFIX);
+      }
+
+    });
+
+    // Deterministic order so that the first occurrence of a key wins consistently
+    Arrays.sort(files);
+    return files;
+  }
+
+  private static MappedByteBuffer map(File file) throws IOException {
+    @Cleanup
+    val randomAccessFile = new RandomAccessFile(file, "r");
+    val channel = randomAccessFile.getChannel();
+
+    // The mapping remains valid after the channel is closed
+    return channel.map(READ_ONLY, 0, channel.size());
+  }
+
+  /**
+   * Open addressing hash table of 64 bit key hashes to record addresses.
+   */
+  private static class Index {
+
+    static final long EMPTY = -1;
+
+    long[] hashes = new long[1024];
+    long[] addresses = newAddresses(1024);
+    int size;
+
+    long get(long hash) {
+      val mask = hashes.length - 1;
+      for (int i = spread(hash) & mask;; i = (i + 1) & mask) {
+        if (addresses[i] == EMPTY || hashes[i] == hash) {
+          return addresses[i];
+        }
+      }
+    }
+
+    void putIfAbsent(long hash, long address) {
+      if (2 * (size + 1) > hashes.length) {
+        resize();
+      }
+
+      val mask = hashes.length - 1;
+      for (int i = spread(hash) & mask;; i = (i + 1) & mask) {
+        if (addresses[i] == EMPTY) {
+          hashes[i] = hash;
+          addresses[i] = address;
+          size++;
+
+          return;
+        }
+        if (hashes[i] == hash) {
+          return;
+        }
+      }
+    }
+
+    private void resize() {
+      val oldHashes = hashes;
+      val oldAddresses = addresses;
+      hashes = new long[2 * oldHashes.length];
+      addresses = newAddresses(hashes.length);
+      size = 0;
+
+      for (int i = 0; i < oldHashes.length; i++) {
+        if (oldAddresses[i] != EMPTY) {
+          putIfAbsent(oldHashes[i], oldAddresses[i]);
+        }
+      }
+    }
+
+    private static int spread(long hash) {
+      return (int) (hash ^ hash >>> 32);
+    }
+
+    private static long[] newAddresses(int length) {
+      val addresses = new long[length];
+      Arrays.fill(addresses, EMPTY);
+
+      return addresses;
+    }
+
+  }
+
+}
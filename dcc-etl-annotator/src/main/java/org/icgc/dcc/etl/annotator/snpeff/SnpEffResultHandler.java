@@ -17,55 +17,45 @@
  */
 package org.icgc.dcc.etl.annotator.snpeff;
 
-import static java.util.regex.Pattern.compile;
-
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.util.List;
-import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.regex.Pattern;
 
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.val;
 
-import org.broadinstitute.variant.vcf.VCFCodec;
-import org.broadinstitute.variant.vcf.VCFFormatHeaderLine;
-import org.broadinstitute.variant.vcf.VCFHeader;
-import org.broadinstitute.variant.vcf.VCFHeaderLine;
-import org.broadinstitute.variant.vcf.VCFHeaderVersion;
-import org.broadinstitute.variant.vcf.VCFInfoHeaderLine;
 import org.icgc.dcc.etl.annotator.converter.SnpEffVCFToICGCConverter;
 import org.icgc.dcc.etl.annotator.model.AnnotatedFileType;
-import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
-
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
+import org.icgc.dcc.etl.annotator.parser.SnpEffVCFLineParser;
 
+/**
+ * Reads annotated variants from a forked SnpEff process and publishes them as {@link SnpEffPrediction}s keyed by
+ * observation id. Results are published in the order SnpEff writes them, which need not match submission order across
+ * processes.
+ */
 public class SnpEffResultHandler implements Runnable {
 
-  private static final Pattern SKIP_ANNOTATION_PATTERN = compile("^#|Reading cancer samples pedigree from VCF header");
+  private static final String HEADER_PREFIX = "#";
+  private static final String PEDIGREE_MESSAGE = "Reading cancer samples pedigree from VCF header";
 
   /**
    * Dependencies.
    */
   @NonNull
   private final InputStream input;
-  private final VCFCodec decoder = createDecoder();
 
   /**
    * State.
    */
   @NonNull
-  private final BlockingQueue<List<SecondaryEntity>> queue;
+  private final BlockingQueue<SnpEffPrediction> queue;
   @NonNull
   private final AnnotatedFileType fileType;
   private final SnpEffVCFToICGCConverter converter;
 
-  public SnpEffResultHandler(@NonNull InputStream input, @NonNull BlockingQueue<List<SecondaryEntity>> queue,
+  public SnpEffResultHandler(@NonNull InputStream input, @NonNull BlockingQueue<SnpEffPrediction> queue,
       @NonNull AnnotatedFileType fileType, @NonNull String geneBuildVersion) {
     this.input = input;
     this.queue = queue;
@@ -83,42 +73,15 @@ public class SnpEffResultHandler implements Runnable {
         continue;
       }
 
-      val variant = decoder.decode(line);
-      val secondaryEntities = converter.convert(variant, fileType);
-      queue.put(secondaryEntities);
+      val record = SnpEffVCFLineParser.parse(line);
+      val secondaryEntities = converter.convert(record, fileType);
+      queue.put(new SnpEffPrediction(record.getObservationId(), secondaryEntities));
     }
 
   }
 
   private static boolean isSkipLine(String line) {
-    val matcher = SKIP_ANNOTATION_PATTERN.matcher(line);
-
-    return matcher.find();
-  }
-
-  private VCFCodec createDecoder() {
-    val decoder = new VCFCodec();
-    val vcfHeader = createVCFHeader();
-    decoder.setVCFHeader(vcfHeader, VCFHeaderVersion.VCF4_1);
-
-    return decoder;
-  }
-
-  private static VCFHeader createVCFHeader() {
-    Set<VCFHeaderLine> set = Sets.newHashSet();
-    val line =
-        new VCFFormatHeaderLine("<ID=GT,Number=1,Type=String,Description=\"Genotype\">", VCFHeaderVersion.VCF4_1);
-    set.add(new VCFInfoHeaderLine(
-        "<ID=EFF,Number=.,Type=String,Description=\"Predicted effects for this variant.Format: 'Effect ( Effect_Impact | Functional_Class | Codon_Change | Amino_Acid_Change| Amino_Acid_length | Gene_Name | Transcript_BioType | Gene_Coding | Transcript_ID | Exon_Rank  | Genotype_Number [ | ERRORS | WARNINGS ] )' \">",
-        VCFHeaderVersion.VCF4_1));
-    set.add(line);
-
-    return new VCFHeader(set, ImmutableList.of("Patient_01_Germline", "Patient_01_Somatic"));
-  }
-
-  @SneakyThrows
-  private PrintWriter openOutFile(String fileName) {
-    return new PrintWriter(fileName, "UTF-8");
+    return line.startsWith(HEADER_PREFIX) || line.contains(PEDIGREE_MESSAGE);
   }
 
 }
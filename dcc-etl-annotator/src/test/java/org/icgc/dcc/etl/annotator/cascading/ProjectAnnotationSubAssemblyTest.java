@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.annotator.cascading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.FieldNames.NormalizerFieldNames.NORMALIZER_OBSERVATION_ID;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_MUTATION;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_OBSERVATION_CHROMOSOME;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_OBSERVATION_CHROMOSOME_END;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_OBSERVATION_CHROMOSOME_START;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_OBSERVATION_MUTATION_TYPE;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_OBSERVATION_REFERENCE_GENOME_ALLELE;
+import static org.icgc.dcc.etl.annotator.model.AnnotatedFileType.SSM;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.val;
+
+import org.icgc.dcc.etl.annotator.config.SnpEffProperties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cascading.flow.FlowDef;
+import cascading.flow.FlowProcess;
+import cascading.flow.local.LocalFlowConnector;
+import cascading.operation.BaseOperation;
+import cascading.operation.Function;
+import cascading.operation.FunctionCall;
+import cascading.scheme.local.TextDelimited;
+import cascading.tap.SinkMode;
+import cascading.tap.local.FileTap;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class ProjectAnnotationSubAssemblyTest {
+
+  /**
+   * Test data.
+   */
+  private static final String PROJECT_NAME = "project";
+  private static final Fields PRIMARY_FIELDS = new Fields(
+      NORMALIZER_OBSERVATION_ID,
+      SUBMISSION_OBSERVATION_CHROMOSOME,
+      SUBMISSION_OBSERVATION_CHROMOSOME_START,
+      SUBMISSION_OBSERVATION_CHROMOSOME_END,
+      SUBMISSION_OBSERVATION_MUTATION_TYPE,
+      SUBMISSION_OBSERVATION_REFERENCE_GENOME_ALLELE,
+      SUBMISSION_MUTATION);
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testDeduplicatedMatchesPlain() throws IOException {
+    val input = createInput(
+        // Two observations of the same variant
+        row("o1", "1", "100", "100", "1", "A", "A>T"),
+        row("o2", "1", "100", "100", "1", "A", "A>T"),
+        // One distinct variant
+        row("o3", "2", "200", "200", "1", "C", "C>G"));
+
+    val plain = annotate(input, false);
+    val deduplicated = annotate(input, true);
+
+    assertThat(deduplicated).isEqualTo(plain);
+
+    // Predictions of the shared variant are re-keyed to each of its observations
+    assertThat(deduplicated).containsExactly(
+        "consequence1\t1:100:A>T\to1",
+        "consequence1\t1:100:A>T\to2",
+        "consequence1\t2:200:C>G\to3",
+        "consequence2\t1:100:A>T\to1",
+        "consequence2\t1:100:A>T\to2",
+        "consequence2\t2:200:C>G\to3");
+  }
+
+  private List<String> annotate(File input, boolean deduplicated) throws IOException {
+    val properties = new SnpEffProperties();
+    if (deduplicated) {
+      properties.setDeduplicatedFileTypes(ImmutableSet.of(SSM));
+    }
+
+    val output = new File(tmp.getRoot(), "output-" + deduplicated);
+    val secondaryFields = new Fields(SSM.getSecondaryFileFields());
+    val source = new FileTap(new TextDelimited(PRIMARY_FIELDS, true, "\t"), input.getAbsolutePath());
+    val sink = new FileTap(new TextDelimited(secondaryFields, false, "\t"), output.getAbsolutePath(), SinkMode.REPLACE);
+
+    val assembly = new ProjectAnnotationSubAssembly(PROJECT_NAME, SSM, properties, new FakeSnpEffFunction());
+    val flowDef = FlowDef.flowDef()
+        .addSource("annotation-snpeff-" + PROJECT_NAME, source)
+        .addTailSink(assembly, sink);
+    new LocalFlowConnector().connect(flowDef).complete();
+
+    return readSecondaries(output);
+  }
+
+  private File createInput(String... rows) throws IOException {
+    val input = tmp.newFile("input.tsv");
+    val lines = Lists.newArrayList(Joiner.on('\t').join(PRIMARY_FIELDS));
+    Collections.addAll(lines, rows);
+    Files.write(Joiner.on('\n').join(lines) + "\n", input, Charsets.UTF_8);
+
+    return input;
+  }
+
+  /**
+   * @return the consequence type, amino acid mutation and observation id of each secondary, in order
+   */
+  private static List<String> readSecondaries(File output) throws IOException {
+    val secondaries = Lists.<String> newArrayList();
+    for (val line : Files.readLines(output, Charsets.UTF_8)) {
+      val values = line.split("\t", -1);
+      secondaries.add(values[0] + "\t" + values[1] + "\t" + values[values.length - 1]);
+    }
+
+    Collections.sort(secondaries);
+    return secondaries;
+  }
+
+  private static String row(String... values) {
+    return Joiner.on('\t').join(values);
+  }
+
+  /**
+   * Deterministically predicts two secondaries per primary record from its variant.
+   */
+  @SuppressWarnings("rawtypes")
+  private static class FakeSnpEffFunction extends BaseOperation<Void> implements Function<Void> {
+
+    FakeSnpEffFunction() {
+      super(new Fields(SSM.getSecondaryFileFields()));
+    }
+
+    @Override
+    public void operate(FlowProcess flowProcess, FunctionCall<Void> call) {
+      val arguments = call.getArguments();
+      val variant = arguments.getString(SUBMISSION_OBSERVATION_CHROMOSOME) + ":"
+          + arguments.getString(SUBMISSION_OBSERVATION_CHROMOSOME_START) + ":"
+          + arguments.getString(SUBMISSION_MUTATION);
+      val observationId = arguments.getString(NORMALIZER_OBSERVATION_ID);
+
+      for (val consequenceType : new String[] { "consequence1", "consequence2" }) {
+        val secondary = new Tuple();
+        secondary.add(consequenceType);
+        secondary.add(variant);
+        for (int i = 2; i < SSM.getFieldsNumber() - 1; i++) {
+          secondary.add(null);
+        }
+        secondary.add(observationId);
+
+        call.getOutputCollector().add(secondary);
+      }
+    }
+
+  }
+
+}
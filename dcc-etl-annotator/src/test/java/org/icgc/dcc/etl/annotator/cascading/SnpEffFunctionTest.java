@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.annotator.cascading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_MUTATION;
+import static org.icgc.dcc.etl.annotator.converter.ICGCToVCFConverter.MutationType.SINGLE_BASE_SUBSTITUTION;
+import static org.icgc.dcc.etl.annotator.model.AnnotatedFileType.SSM;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import org.icgc.dcc.etl.annotator.config.SnpEffProperties;
+import org.icgc.dcc.etl.annotator.converter.ICGCToVCFConverter.MutationType;
+import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
+import org.icgc.dcc.etl.annotator.snpeff.SnpEffPrediction;
+import org.icgc.dcc.etl.annotator.snpeff.SnpEffPredictor;
+import org.icgc.dcc.etl.annotator.snpeff.SnpEffResultCache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+
+import cascading.flow.FlowProcess;
+import cascading.operation.FunctionCall;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
+import cascading.tuple.TupleEntryCollector;
+
+import com.google.common.collect.ImmutableList;
+
+public class SnpEffFunctionTest {
+
+  private static final String KEY = SnpEffResultCache.createKey("1", 100, 100, "A>T", SINGLE_BASE_SUBSTITUTION, "A");
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  /**
+   * Class under test.
+   */
+  SnpEffFunction function = new SnpEffFunction(new SnpEffProperties(), SSM);
+
+  /**
+   * Collaborators.
+   */
+  SnpEffPredictor predictor = mock(SnpEffPredictor.class);
+  SnpEffResultCache cache;
+  SnpEffFunction.Context context;
+  TupleEntryCollector collector = mock(TupleEntryCollector.class);
+
+  @Before
+  @SneakyThrows
+  public void setUp() {
+    cache = SnpEffResultCache.open(tmp.newFolder());
+    context = new SnpEffFunction.Context(predictor, cache);
+  }
+
+  @Test
+  @SneakyThrows
+  public void testMissThenHit() {
+    // Miss
+    function.operate(FlowProcess.NULL, createCall("MU1"));
+    verify(predictor).predict("1", 100L, 100L, "A>T", SINGLE_BASE_SUBSTITUTION, "A", "MU1");
+    assertThat(cache.get(KEY, "MU1")).isNull();
+
+    // Stored once annotated
+    when(predictor.flush()).thenReturn(ImmutableList.of(
+        new SnpEffPrediction("MU1", ImmutableList.of(createEntity("MU1")))));
+    function.flush(FlowProcess.NULL, createCall(null));
+    assertThat(cache.get(KEY, "MU3")).containsExactly(createEntity("MU3"));
+
+    // Hit for another observation of the same variant
+    function.operate(FlowProcess.NULL, createCall("MU2"));
+    verify(predictor, times(1)).predict(anyString(), anyLong(), anyLong(), anyString(),
+        Matchers.any(MutationType.class), anyString(), anyString());
+
+    val tuples = ArgumentCaptor.forClass(Tuple.class);
+    verify(collector, times(2)).add(tuples.capture());
+    assertThat(getObservationId(tuples.getAllValues().get(0))).isEqualTo("MU1");
+    assertThat(getObservationId(tuples.getAllValues().get(1))).isEqualTo("MU2");
+    assertThat(context.hitCount).isEqualTo(1);
+    assertThat(context.missCount).isEqualTo(1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private FunctionCall<SnpEffFunction.Context> createCall(String observationId) {
+    val call = (FunctionCall<SnpEffFunction.Context>) mock(FunctionCall.class);
+    when(call.getContext()).thenReturn(context);
+    when(call.getOutputCollector()).thenReturn(collector);
+    when(call.getArguments()).thenReturn(createArguments(observationId));
+
+    return call;
+  }
+
+  private static TupleEntry createArguments(String observationId) {
+    val fields = new Fields(
+        SSM.getChromosomeFieldName(),
+        SSM.getChromosomeStartFieldName(),
+        SSM.getChromosomeEndFieldName(),
+        SSM.getMutationTypeFieldName(),
+        SSM.getReferenceAlleleFieldName(),
+        SUBMISSION_MUTATION,
+        SSM.getObservationIdFieldName());
+
+    return new TupleEntry(fields, new Tuple("1", "100", "100", SINGLE_BASE_SUBSTITUTION.getId(), "A", "A>T",
+        observationId));
+  }
+
+  private static String getObservationId(Tuple tuple) {
+    return tuple.getString(SSM.getFieldsNumber() - 1);
+  }
+
+  private static SecondaryEntity createEntity(String observationId) {
+    return SecondaryEntity.builder()
+        .consequenceType("missense_variant")
+        .aaMutation("E12V")
+        .cdsMutation("A>T")
+        .geneAffected("ENSG00000141510")
+        .transcriptAffected("ENST00000269305")
+        .geneBuildVersion("75")
+        .note("-999")
+        .observationId(observationId)
+        .build();
+  }
+
+}
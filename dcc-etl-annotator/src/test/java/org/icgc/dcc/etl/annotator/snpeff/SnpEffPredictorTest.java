@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.annotator.snpeff;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.etl.annotator.model.AnnotatedFileType.SSM;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import org.icgc.dcc.etl.annotator.config.SnpEffProperties;
+import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Tests {@code SnpEffPredictor} windowing and result correlation against fake SnpEff processes that echo the submitted
+ * observation ids.
+ */
+public class SnpEffPredictorTest {
+
+  /**
+   * Constants.
+   */
+  private static final int UNLIMITED = Integer.MAX_VALUE;
+
+  /**
+   * Fake processes.
+   */
+  ExecutorService executor;
+  List<Semaphore> releases;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+    releases = Lists.newArrayList();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testWindowBackPressure() throws Exception {
+    val predictor = createPredictor(1, 4, UNLIMITED);
+    val release = releases.get(0);
+
+    for (int i = 1; i <= 3; i++) {
+      predictor.submit("MU" + i, "MU" + i);
+    }
+    assertThat(predictor.poll()).isEmpty();
+
+    // Filling the window blocks until half of it completes
+    val fourth = executor.submit(new Runnable() {
+
+      @Override
+      public void run() {
+        predictor.submit("MU4", "MU4");
+      }
+
+    });
+    Uninterruptibles.sleepUninterruptibly(200, MILLISECONDS);
+    assertThat(fourth.isDone()).isFalse();
+
+    release.release(2);
+    fourth.get(1, MINUTES);
+    assertThat(ids(predictor.poll())).containsExactly("MU1", "MU2");
+
+    release.release(2);
+    assertThat(ids(predictor.flush())).containsExactly("MU3", "MU4");
+  }
+
+  @Test
+  public void testCorrelationAcrossProcesses() {
+    val predictor = createPredictor(2, 100, UNLIMITED);
+    releases.get(1).release(UNLIMITED);
+
+    // Round robin: even ids to the held first process, odd ids to the second
+    for (int i = 0; i < 10; i++) {
+      predictor.submit("MU" + i, "MU" + i);
+    }
+
+    val odd = Lists.<SnpEffPrediction> newArrayList();
+    while (odd.size() < 5) {
+      odd.addAll(predictor.poll());
+    }
+    assertThat(ids(odd)).containsOnly("MU1", "MU3", "MU5", "MU7", "MU9");
+
+    releases.get(0).release(UNLIMITED);
+    assertThat(ids(predictor.flush())).containsOnly("MU0", "MU2", "MU4", "MU6", "MU8");
+    assertThat(predictor.poll()).isEmpty();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnexpectedResult() {
+    val predictor = createPredictor(1, 100, UNLIMITED);
+    releases.get(0).release(UNLIMITED);
+
+    predictor.submit("MU2", "MU1");
+    predictor.flush();
+  }
+
+  @Test
+  public void testTerminatedWithPendingVariants() {
+    val predictor = createPredictor(1, 100, 2);
+    releases.get(0).release(UNLIMITED);
+
+    for (int i = 1; i <= 5; i++) {
+      predictor.submit("MU" + i, "MU" + i);
+    }
+
+    try {
+      predictor.flush();
+      throw new AssertionError("Expected failure");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("SnpEff terminated with 3 variant(s) pending");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveProcessCount() {
+    new SnpEffPredictor(createProperties(0, 100), SSM).start();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveWindowSize() {
+    new SnpEffPredictor(createProperties(1, 0), SSM).start();
+  }
+
+  @SneakyThrows
+  private SnpEffPredictor createPredictor(int processCount, int windowSize, int limit) {
+    val predictor = new SnpEffPredictor(createProperties(processCount, windowSize), SSM);
+    for (int i = 0; i < processCount; i++) {
+      val input = new PipedInputStream(64 * 1024);
+      val stream = new PrintStream(new PipedOutputStream(input));
+      val release = new Semaphore(0);
+      val handler = executor.submit(new FakeSnpEff(input, predictor.getQueue(), release, limit));
+
+      predictor.attach(stream, handler);
+      releases.add(release);
+    }
+
+    return predictor;
+  }
+
+  private static SnpEffProperties createProperties(int processCount, int windowSize) {
+    val properties = new SnpEffProperties();
+    properties.setProcessCount(processCount);
+    properties.setWindowSize(windowSize);
+
+    return properties;
+  }
+
+  private static List<String> ids(List<SnpEffPrediction> predictions) {
+    val ids = Lists.<String> newArrayList();
+    for (val prediction : predictions) {
+      ids.add(prediction.getId());
+    }
+
+    return ids;
+  }
+
+  /**
+   * Echoes each submitted line back as the id of a prediction once released, and terminates after {@code limit}
+   * lines.
+   */
+  @RequiredArgsConstructor
+  private static class FakeSnpEff implements Callable<Void> {
+
+    private final PipedInputStream input;
+    private final BlockingQueue<SnpEffPrediction> queue;
+    private final Semaphore release;
+    private final int limit;
+
+    @Override
+    public Void call() throws Exception {
+      val reader = new BufferedReader(new InputStreamReader(input));
+      String line;
+      int count = 0;
+      while (count < limit && (line = reader.readLine()) != null) {
+        release.acquire();
+        queue.put(new SnpEffPrediction(line, ImmutableList.<SecondaryEntity> of()));
+        count++;
+      }
+
+      reader.close();
+      return null;
+    }
+
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.annotator.snpeff;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.etl.annotator.converter.ICGCToVCFConverter.MutationType.SINGLE_BASE_SUBSTITUTION;
+
+import java.io.File;
+import java.util.Collections;
+
+import lombok.SneakyThrows;
+import lombok.val;
+
+import org.icgc.dcc.etl.annotator.model.SecondaryEntity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+public class SnpEffResultCacheTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  @SneakyThrows
+  public void testGetAfterReopen() {
+    val dir = tmp.newFolder();
+    val key = SnpEffResultCache.createKey("1", 100, 100, "A>T", SINGLE_BASE_SUBSTITUTION, "A");
+    val emptyKey = SnpEffResultCache.createKey("1", 200, 200, "C>G", SINGLE_BASE_SUBSTITUTION, "C");
+
+    val cache = SnpEffResultCache.open(dir);
+    assertThat(cache.get(key, "MU1")).isNull();
+    cache.put(key, ImmutableList.of(createEntity("missense_variant", "MU1")));
+    cache.put(emptyKey, Collections.<SecondaryEntity> emptyList());
+    assertThat(cache.get(key, "MU2")).containsExactly(createEntity("missense_variant", "MU2"));
+    cache.close();
+
+    val reopened = SnpEffResultCache.open(dir);
+    assertThat(reopened.get(key, "MU3")).containsExactly(createEntity("missense_variant", "MU3"));
+    assertThat(reopened.get(emptyKey, "MU3")).isEmpty();
+    assertThat(reopened.get(SnpEffResultCache.createKey("2", 100, 100, "A>T", SINGLE_BASE_SUBSTITUTION, "A"), "MU3"))
+        .isNull();
+    reopened.close();
+  }
+
+  @Test
+  @SneakyThrows
+  public void testCompaction() {
+    val dir = tmp.newFolder();
+    val segmentCount = 70;
+    for (int i = 0; i < segmentCount; i++) {
+      val cache = SnpEffResultCache.open(dir);
+      cache.put(createKey(i), ImmutableList.of(createEntity("consequence" + i, null)));
+      cache.close();
+    }
+
+    // Opening compacts, and the compacted segments must hold every result
+    SnpEffResultCache.open(dir).close();
+    assertThat(dir.list().length).isLessThan(segmentCount);
+
+    val cache = SnpEffResultCache.open(dir);
+    for (int i = 0; i < segmentCount; i++) {
+      assertThat(cache.get(createKey(i), "MU")).containsExactly(createEntity("consequence" + i, "MU"));
+    }
+    cache.close();
+  }
+
+  @Test
+  @SneakyThrows
+  public void testStaleTempFiles() {
+    val dir = tmp.newFolder();
+    val staleFile = new File(dir, "stale.tmp");
+    val activeFile = new File(dir, "active.tmp");
+    assertThat(staleFile.createNewFile()).isTrue();
+    assertThat(activeFile.createNewFile()).isTrue();
+    assertThat(staleFile.setLastModified(System.currentTimeMillis() - DAYS.toMillis(2))).isTrue();
+
+    SnpEffResultCache.open(dir).close();
+
+    assertThat(staleFile).doesNotExist();
+    assertThat(activeFile).exists();
+  }
+
+  private static String createKey(int position) {
+    return SnpEffResultCache.createKey("X", position, position, "G>A", SINGLE_BASE_SUBSTITUTION, "G");
+  }
+
+  private static SecondaryEntity createEntity(String consequenceType, String observationId) {
+    return SecondaryEntity.builder()
+        .consequenceType(consequenceType)
+        .aaMutation("-999")
+        .cdsMutation("-999")
+        .geneAffected("ENSG00000141510")
+        .transcriptAffected("ENST00000269305")
+        .geneBuildVersion("75")
+        .note("-999")
+        .observationId(observationId)
+        .build();
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.annotator.snpeff;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.icgc.dcc.etl.annotator.model.AnnotatedFileType.SSM;
+import lombok.val;
+
+import org.broadinstitute.variant.vcf.VCFCodec;
+import org.broadinstitute.variant.vcf.VCFFormatHeaderLine;
+import org.broadinstitute.variant.vcf.VCFHeader;
+import org.broadinstitute.variant.vcf.VCFHeaderLine;
+import org.broadinstitute.variant.vcf.VCFHeaderVersion;
+import org.broadinstitute.variant.vcf.VCFInfoHeaderLine;
+import org.icgc.dcc.etl.annotator.converter.SnpEffVCFToICGCConverter;
+import org.icgc.dcc.etl.annotator.parser.SnpEffVCFLineParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Compares decoding a SnpEff output line with {@link VCFCodec}, as {@link SnpEffResultHandler} used to, against
+ * scanning it with {@link SnpEffVCFLineParser}. Both include the conversion to secondary entities.
+ * <p>
+ * Not run as part of the build. Run {@link #main(String...)} from the IDE or the test classpath.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+public class SnpEffResultHandlerBenchmark {
+
+  private static final String LINE = "1\t12345\t.\tA\tT\t.\t.\t"
+      + "PRIM=MU1;"
+      + "EFF=missense_variant(MODERATE|MISSENSE|gAg/gTg|E12V|300|GENE1|protein_coding|CODING|ENST0001|2|1),"
+      + "missense_variant(MODERATE|MISSENSE|gAg/gTg|E12V|280|GENE1|protein_coding|CODING|ENST0003|2|1),"
+      + "upstream_gene_variant(MODIFIER||||300|GENE2|protein_coding|CODING|ENST0004||1),"
+      + "intron_variant(MODIFIER|||||GENE1|protein_coding|CODING|ENST0002|1|1)\t"
+      + "GT\t0/0\t0/1";
+
+  private VCFCodec decoder;
+  private SnpEffVCFToICGCConverter converter;
+
+  @Setup
+  public void setUp() {
+    decoder = createDecoder();
+    converter = new SnpEffVCFToICGCConverter("75");
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) {
+    val variant = decoder.decode(LINE);
+    blackhole.consume(SnpEffVCFToICGCConverter.getObservationId(variant));
+    blackhole.consume(converter.convert(variant, SSM));
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    val record = SnpEffVCFLineParser.parse(LINE);
+    blackhole.consume(record.getObservationId());
+    blackhole.consume(converter.convert(record, SSM));
+  }
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(SnpEffResultHandlerBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  private static VCFCodec createDecoder() {
+    val decoder = new VCFCodec();
+    val header = new VCFHeader(ImmutableSet.<VCFHeaderLine> of(
+        new VCFInfoHeaderLine("<ID=EFF,Number=.,Type=String,Description=\"Predicted effects\">",
+            VCFHeaderVersion.VCF4_1),
+        new VCFFormatHeaderLine("<ID=GT,Number=1,Type=String,Description=\"Genotype\">", VCFHeaderVersion.VCF4_1)),
+        ImmutableList.of("Patient_01_Germline", "Patient_01_Somatic"));
+    decoder.setVCFHeader(header, VCFHeaderVersion.VCF4_1);
+
+    return decoder;
+  }
+
+}
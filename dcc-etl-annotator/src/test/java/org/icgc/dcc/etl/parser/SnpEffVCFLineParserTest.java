@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.etl.annotator.model.AnnotatedFileType.SSM;
+import lombok.val;
+
+import org.broadinstitute.variant.vcf.VCFCodec;
+import org.broadinstitute.variant.vcf.VCFFormatHeaderLine;
+import org.broadinstitute.variant.vcf.VCFHeader;
+import org.broadinstitute.variant.vcf.VCFHeaderLine;
+import org.broadinstitute.variant.vcf.VCFHeaderVersion;
+import org.broadinstitute.variant.vcf.VCFInfoHeaderLine;
+import org.icgc.dcc.etl.annotator.converter.SnpEffVCFToICGCConverter;
+import org.icgc.dcc.etl.annotator.parser.SnpEffVCFLineParser;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class SnpEffVCFLineParserTest {
+
+  private static final String LINE = "1\t12345\t.\tA\tT\t.\t.\t"
+      + "PRIM=MU1,MU2;"
+      + "EFF=missense_variant(MODERATE|MISSENSE|gAg/gTg|E12V|300|GENE1|protein_coding|CODING|ENST0001|2|1),"
+      + "intron_variant(MODIFIER|||||GENE1|protein_coding|CODING|ENST0002|1|1);"
+      + "CASE=1\t"
+      + "DP:GT\t10:0/0\t12:1/1";
+
+  @Test
+  public void testParse() {
+    val record = SnpEffVCFLineParser.parse(LINE);
+
+    assertThat(record.getObservationId()).isEqualTo("MU1");
+    assertThat(record.getEffects()).containsExactly(
+        "missense_variant(MODERATE|MISSENSE|gAg/gTg|E12V|300|GENE1|protein_coding|CODING|ENST0001|2|1)",
+        "intron_variant(MODIFIER|||||GENE1|protein_coding|CODING|ENST0002|1|1)");
+    assertThat(record.getControlGenotype()).isEqualTo("0");
+    assertThat(record.getTumourGenotype()).isEqualTo("1");
+  }
+
+  @Test
+  public void testParse_missingFields() {
+    val record = SnpEffVCFLineParser.parse("1\t12345\t.\tA\tT\t.\t.\t.\tGT\t./.\t0/1");
+
+    assertThat(record.getObservationId()).isNull();
+    assertThat(record.getEffects()).isEmpty();
+    assertThat(record.getControlGenotype()).isEqualTo("-1");
+    assertThat(record.getTumourGenotype()).isEqualTo("0");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testParse_phased() {
+    SnpEffVCFLineParser.parse("1\t12345\t.\tA\tT\t.\t.\tPRIM=MU1\tGT\t0|0\t0|1");
+  }
+
+  @Test
+  public void testConvert_matchesDecodedVariant() {
+    val converter = new SnpEffVCFToICGCConverter("75");
+
+    val expected = converter.convert(createDecoder().decode(LINE), SSM);
+    val actual = converter.convert(SnpEffVCFLineParser.parse(LINE), SSM);
+
+    assertThat(actual).isNotEmpty().isEqualTo(expected);
+  }
+
+  private static VCFCodec createDecoder() {
+    val decoder = new VCFCodec();
+    val header = new VCFHeader(ImmutableSet.<VCFHeaderLine> of(
+        new VCFInfoHeaderLine("<ID=EFF,Number=.,Type=String,Description=\"Predicted effects\">",
+            VCFHeaderVersion.VCF4_1),
+        new VCFFormatHeaderLine("<ID=GT,Number=1,Type=String,Description=\"Genotype\">", VCFHeaderVersion.VCF4_1)),
+        ImmutableList.of("Patient_01_Germline", "Patient_01_Somatic"));
+    decoder.setVCFHeader(header, VCFHeaderVersion.VCF4_1);
+
+    return decoder;
+  }
+
+}
@@ -226,6 +226,14 @@ public class EtlService {
         .fastaFile(config.getFastaFile())
         .outputDir(outputDir)
         .exportVCF(config.isExportVCF())
+        .workerCount(config.getIndexerWorkerCount())
+        .queueSize(config.getIndexerQueueSize())
+        .typeConcurrency(config.getIndexerTypeConcurrency())
+        .memoryBudget(config.getIndexerMemoryBudget())
+        .bulkBudget(config.getIndexerBulkBudget())
+        .shareSource(config.isIndexerShareSource())
+        .archiveThreadCount(config.getIndexerArchiveThreadCount())
+        .archiveBlockSize(config.getIndexerArchiveBlockSize())
         .hadoop(config.getIndexerHadoop())
         .build();
 
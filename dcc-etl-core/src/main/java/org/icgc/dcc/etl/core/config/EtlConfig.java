@@ -91,6 +91,46 @@ public class EtlConfig {
    */
   Map<String, String> loaderHadoop;
 
+  /**
+   * The number of document transform worker threads per indexer type.
+   */
+  int indexerWorkerCount = 1;
+
+  /**
+   * The maximum number of in-flight documents per indexer type when using multiple workers.
+   */
+  int indexerQueueSize = 1000;
+
+  /**
+   * The maximum number of indexer types to process concurrently.
+   */
+  int indexerTypeConcurrency = 1;
+
+  /**
+   * The estimated heap in MB available to concurrently processed indexer types. A value of 0 uses 3/4 of the heap.
+   */
+  int indexerMemoryBudget = 0;
+
+  /**
+   * The maximum number of concurrent Elasticsearch bulk requests across all indexer types.
+   */
+  int indexerBulkBudget = 10;
+
+  /**
+   * Whether the indexer should index the document source serialized for the archive instead of serializing it again.
+   */
+  boolean indexerShareSource = false;
+
+  /**
+   * The number of threads compressing each indexer archive.
+   */
+  int indexerArchiveThreadCount = 1;
+
+  /**
+   * The uncompressed size in bytes of independently compressed indexer archive blocks.
+   */
+  int indexerArchiveBlockSize = 1024 * 1024;
+
   /**
    * Hadoop properties for the indexers.
    */
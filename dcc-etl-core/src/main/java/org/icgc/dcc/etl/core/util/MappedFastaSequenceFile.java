@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.core.util;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+/**
+ * Read-only, memory-mapped FASTA reference sequence addressed through its {@code .fai} index.
+ * <p>
+ * Replaces {@code IndexedFastaSequenceFile#getSubsequenceAt} for point lookups. Bases are read straight from the
+ * mapping without intermediate buffers, single bases are returned as shared constant strings and the contig of the
+ * previous lookup is remembered, which suits the chromosome sorted access of the ETL. Instances are immutable, thread
+ * safe and shared per JVM by {@link #open(File)}, so the mapping is paid once no matter how many converters use it.
+ */
+@Slf4j
+public final class MappedFastaSequenceFile {
+
+  /**
+   * Constants.
+   */
+  private static final String INDEX_FILE_SUFFIX = ".fai";
+  private static final String[] BASES = createBases();
+
+  /**
+   * Instances by canonical FASTA file.
+   */
+  private static final ConcurrentMap<File, MappedFastaSequenceFile> INSTANCES = Maps.newConcurrentMap();
+
+  @Getter
+  private final File file;
+  private final Map<String, Contig> contigs;
+
+  /**
+   * Window cache of the last accessed contig.
+   */
+  private volatile Contig lastContig;
+
+  private MappedFastaSequenceFile(File file, Map<String, Contig> contigs) {
+    this.file = file;
+    this.contigs = contigs;
+  }
+
+  /**
+   * @return the shared instance for {@code fastaFile}, mapping it on first use
+   */
+  public static MappedFastaSequenceFile open(@NonNull File fastaFile) throws IOException {
+    val key = fastaFile.getCanonicalFile();
+    val instance = INSTANCES.get(key);
+    if (instance != null) {
+      return instance;
+    }
+
+    synchronized (INSTANCES) {
+      if (!INSTANCES.containsKey(key)) {
+        INSTANCES.put(key, map(key));
+      }
+
+      return INSTANCES.get(key);
+    }
+  }
+
+  public boolean hasContig(@NonNull String chromosome) {
+    return contigs.containsKey(chromosome);
+  }
+
+  /**
+   * @return the base at 1-based {@code position} of {@code chromosome}
+   */
+  public byte getBase(@NonNull String chromosome, long position) {
+    val contig = getContig(chromosome);
+    checkPosition(contig, position, position);
+
+    return contig.getBase(position);
+  }
+
+  /**
+   * @return the bases of 1-based, inclusive {@code [start, end]} of {@code chromosome}
+   */
+  public String getSubsequenceAt(@NonNull String chromosome, long start, long end) {
+    val contig = getContig(chromosome);
+    checkPosition(contig, start, end);
+
+    if (start == end) {
+      return BASES[contig.getBase(start) & 0xff];
+    }
+
+    val bases = new byte[(int) (end - start + 1)];
+    for (int i = 0; i < bases.length; i++) {
+      bases[i] = contig.getBase(start + i);
+    }
+
+    return new String(bases, US_ASCII);
+  }
+
+  private Contig getContig(String chromosome) {
+    val last = lastContig;
+    if (last != null && last.name.equals(chromosome)) {
+      return last;
+    }
+
+    val contig = contigs.get(chromosome);
+    checkArgument(contig != null, "Unable to find entry for contig '%s' in '%s'", chromosome, file);
+    lastContig = contig;
+
+    return contig;
+  }
+
+  private static void checkPosition(Contig contig, long start, long end) {
+    checkArgument(start >= 1 && start <= end + 1 && end <= contig.length,
+        "Invalid range [%s, %s] of contig '%s' of length %s", start, end, contig.name, contig.length);
+  }
+
+  private static MappedFastaSequenceFile map(File fastaFile) throws IOException {
+    val indexFile = new File(fastaFile.getPath() + INDEX_FILE_SUFFIX);
+    checkState(indexFile.exists(), "Missing FASTA index file '%s'", indexFile);
+    log.info("Mapping reference sequence '{}'...", fastaFile);
+
+    @Cleanup
+    val randomAccessFile = new RandomAccessFile(fastaFile, "r");
+    val channel = randomAccessFile.getChannel();
+
+    // Columns: name, length, offset, line bases, line bytes
+    val contigs = ImmutableMap.<String, Contig> builder();
+    long mappedBytes = 0;
+    for (val line : Files.readLines(indexFile, US_ASCII)) {
+      if (line.isEmpty()) {
+        continue;
+      }
+
+      val fields = line.split("\t");
+      val name = fields[0];
+      val length = Long.parseLong(fields[1]);
+      val offset = Long.parseLong(fields[2]);
+      val lineBases = Integer.parseInt(fields[3]);
+      val lineBytes = Integer.parseInt(fields[4]);
+
+      val size = length == 0 ? 0 : (length - 1) / lineBases * lineBytes + (length - 1) % lineBases + 1;
+      checkState(size <= Integer.MAX_VALUE, "Contig '%s' is too large to map: %s bytes", name, size);
+
+      // The mapping remains valid after the channel is closed
+      val buffer = channel.map(READ_ONLY, offset, size);
+      contigs.put(name, new Contig(name, length, lineBases, lineBytes, buffer));
+      mappedBytes += size;
+    }
+
+    val result = new MappedFastaSequenceFile(fastaFile, contigs.build());
+    log.info("Mapped {} bytes of {} contig(s) of reference sequence '{}'",
+        new Object[] { mappedBytes, result.contigs.size(), fastaFile });
+
+    return result;
+  }
+
+  private static String[] createBases() {
+    val bases = new String[256];
+    for (int i = 0; i < bases.length; i++) {
+      bases[i] = String.valueOf((char) i);
+    }
+
+    return bases;
+  }
+
+  /**
+   * A single mapped sequence.
+   */
+  private static class Contig {
+
+    final String name;
+    final long length;
+    final int lineBases;
+    final int lineBytes;
+
+    /**
+     * Absolute reads only, since the buffer is shared.
+     */
+    final MappedByteBuffer buffer;
+
+    Contig(String name, long length, int lineBases, int lineBytes, MappedByteBuffer buffer) {
+      this.name = name;
+      this.length = length;
+      this.lineBases = lineBases;
+      this.lineBytes = lineBytes;
+      this.buffer = buffer;
+    }
+
+    byte getBase(long position) {
+      val index = position - 1;
+
+      return buffer.get((int) (index / lineBases * lineBytes + index % lineBases));
+    }
+
+  }
+
+}
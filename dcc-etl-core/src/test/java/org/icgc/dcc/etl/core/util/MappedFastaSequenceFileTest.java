@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.core.util;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import lombok.val;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+
+public class MappedFastaSequenceFileTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  /**
+   * Class under test.
+   */
+  MappedFastaSequenceFile sequenceFile;
+
+  @Before
+  public void setUp() throws IOException {
+    val fastaFile = new File(tmp.getRoot(), "reference.fasta");
+    Files.write(">1 first\nACGT\nTGCA\nGG\n>2\nNNNN\n", fastaFile, US_ASCII);
+    Files.write("1\t10\t9\t4\t5\n2\t4\t25\t4\t5\n", new File(fastaFile.getPath() + ".fai"), US_ASCII);
+
+    this.sequenceFile = MappedFastaSequenceFile.open(fastaFile);
+  }
+
+  @Test
+  public void testGetSubsequenceAt() {
+    assertThat(sequenceFile.getSubsequenceAt("1", 1, 1)).isEqualTo("A");
+    assertThat(sequenceFile.getSubsequenceAt("1", 3, 6)).isEqualTo("GTTG");
+    assertThat(sequenceFile.getSubsequenceAt("1", 8, 10)).isEqualTo("AGG");
+    assertThat(sequenceFile.getSubsequenceAt("2", 1, 4)).isEqualTo("NNNN");
+    assertThat(sequenceFile.getBase("1", 5)).isEqualTo((byte) 'T');
+  }
+
+  @Test
+  public void testSingleBasesAreShared() {
+    assertThat(sequenceFile.getSubsequenceAt("1", 1, 1)).isSameAs(sequenceFile.getSubsequenceAt("1", 8, 8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownContig() {
+    sequenceFile.getSubsequenceAt("X", 1, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOutOfRange() {
+    sequenceFile.getSubsequenceAt("2", 4, 5);
+  }
+
+}
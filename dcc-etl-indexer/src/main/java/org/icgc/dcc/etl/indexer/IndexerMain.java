@@ -142,6 +142,15 @@ public class IndexerMain {
     log.info("         fastaFile    - {}", options.fastaFile);
     log.info("         outputDir    - {}", options.outputDir);
     log.info("         optimize     - {}", options.optimize);
+    log.info("         workerCount  - {}", options.workerCount);
+    log.info("         queueSize    - {}", options.queueSize);
+    log.info("         concurrency  - {}", options.typeConcurrency);
+    log.info("         memoryBudget - {}", options.memoryBudget);
+    log.info("         bulkBudget   - {}", options.bulkBudget);
+    log.info("         shareSource  - {}", options.shareSource);
+    log.info("         gzipThreads  - {}", options.archiveThreadCount);
+    log.info("         gzipBlock    - {}", options.archiveBlockSize);
+    log.info("         storeDir     - {}", options.observationStoreDir);
     log.info("         hadoop       - {}", options.hadoop);
     log.info("         {}\n", options);
   }
@@ -158,6 +167,15 @@ public class IndexerMain {
         .outputDir(options.outputDir)
         .exportVCF(options.exportVCF)
         .optimize(options.optimize)
+        .workerCount(options.workerCount)
+        .queueSize(options.queueSize)
+        .typeConcurrency(options.typeConcurrency)
+        .memoryBudget(options.memoryBudget)
+        .bulkBudget(options.bulkBudget)
+        .shareSource(options.shareSource)
+        .archiveThreadCount(options.archiveThreadCount)
+        .archiveBlockSize(options.archiveBlockSize)
+        .observationStoreDir(options.observationStoreDir)
         .hadoop(options.hadoop)
         .build();
 
@@ -82,6 +82,24 @@ public class Options {
   public boolean exportVCF = true;
   @Parameter(names = { "--optimize" }, arity = 1, description = "Optimize the index after creation?")
   public boolean optimize = true;
+  @Parameter(names = { "--worker-count" }, description = "Number of document transform worker threads per type (default is 1)")
+  public int workerCount = 1;
+  @Parameter(names = { "--queue-size" }, description = "Maximum number of in-flight documents per type when using multiple workers (default is 1000)")
+  public int queueSize = 1000;
+  @Parameter(names = { "--type-concurrency" }, description = "Maximum number of document types to process concurrently (default is 1)")
+  public int typeConcurrency = 1;
+  @Parameter(names = { "--memory-budget" }, description = "Estimated heap in MB available to concurrently processed document types (default is 3/4 of the maximum heap)")
+  public int memoryBudget = 0;
+  @Parameter(names = { "--bulk-budget" }, description = "Maximum number of concurrent Elasticsearch bulk requests across all document types (default is 10)")
+  public int bulkBudget = 10;
+  @Parameter(names = { "--share-source" }, arity = 1, description = "Index the JSON document source shared with the archive instead of encoding Smile separately?")
+  public boolean shareSource = false;
+  @Parameter(names = { "--archive-threads" }, description = "Number of threads compressing each archive (default is 1)")
+  public int archiveThreadCount = 1;
+  @Parameter(names = { "--archive-block-size" }, description = "Uncompressed size in bytes of independently compressed archive blocks (default is 1 MB)")
+  public int archiveBlockSize = 1024 * 1024;
+  @Parameter(names = { "--observation-store-dir" }, description = "Local directory of a memory-mapped observation store to build or reuse (default is to read observations from MongoDB)")
+  public String observationStoreDir;
 
   /**
    * Hadoop
@@ -81,6 +81,53 @@ public class Config implements Serializable {
    */
   boolean optimize;
 
+  /**
+   * The number of document transform worker threads per type. Values less than 2 process sequentially.
+   */
+  int workerCount;
+
+  /**
+   * The maximum number of in-flight documents per type when processing with multiple workers.
+   */
+  int queueSize;
+
+  /**
+   * The maximum number of document types to process concurrently. Values less than 2 process types sequentially.
+   */
+  int typeConcurrency;
+
+  /**
+   * The estimated heap in MB that concurrently processed document types may use. A value of 0 uses three quarters of
+   * the maximum heap.
+   */
+  int memoryBudget;
+
+  /**
+   * The maximum number of concurrent Elasticsearch bulk requests shared by all concurrently processed document types.
+   */
+  int bulkBudget;
+
+  /**
+   * Whether to index the JSON encoding shared with the archive writer instead of a separate Smile encoding.
+   */
+  boolean shareSource;
+
+  /**
+   * The number of threads compressing each archive. Values less than 2 compress on the writing thread.
+   */
+  int archiveThreadCount;
+
+  /**
+   * The uncompressed size in bytes of the blocks compressed independently when using multiple archive threads.
+   */
+  int archiveBlockSize;
+
+  /**
+   * The optional local directory of the memory-mapped observation store. When {@code null} observations are read
+   * directly from MongoDB.
+   */
+  String observationStoreDir;
+
   /**
    * Hadoop properties.
    */
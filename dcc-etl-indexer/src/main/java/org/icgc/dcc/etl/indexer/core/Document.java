@@ -17,12 +17,20 @@
  */
 package org.icgc.dcc.etl.indexer.core;
 
+import static lombok.AccessLevel.NONE;
+import static org.icgc.dcc.etl.indexer.factory.JacksonFactory.newDefaultMapper;
+import static org.icgc.dcc.etl.indexer.factory.JacksonFactory.newSmileWriter;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.ToString;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
@@ -30,6 +38,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  * Default implementation for the {@link Document} abstraction.
  */
 @Value
+@ToString(exclude = { "jsonSource", "smileSource" })
 public class Document {
 
   /**
@@ -47,6 +56,16 @@ public class Document {
    */
   ObjectNode source;
 
+  /**
+   * The encoded document source, lazily created and shared by all writers of the document.
+   */
+  @NonFinal
+  @Getter(NONE)
+  transient volatile byte[] jsonSource;
+  @NonFinal
+  @Getter(NONE)
+  transient volatile byte[] smileSource;
+
   @JsonCreator
   public Document(
       @NonNull @JsonProperty("type") DocumentType type,
@@ -58,4 +77,38 @@ public class Document {
     this.source = source;
   }
 
+  /**
+   * Gets the JSON encoding of the document source, encoding it on first access.
+   * <p>
+   * The source must not be modified once encoded and the returned bytes must not be modified.
+   * 
+   * @return the encoded source
+   */
+  @JsonIgnore
+  @SneakyThrows
+  public byte[] getJsonSource() {
+    if (jsonSource == null) {
+      jsonSource = newDefaultMapper().writeValueAsBytes(source);
+    }
+
+    return jsonSource;
+  }
+
+  /**
+   * Gets the Smile encoding of the document source, encoding it on first access.
+   * <p>
+   * The source must not be modified once encoded and the returned bytes must not be modified.
+   * 
+   * @return the encoded source
+   */
+  @JsonIgnore
+  @SneakyThrows
+  public byte[] getSmileSource() {
+    if (smileSource == null) {
+      smileSource = newSmileWriter().writeValueAsBytes(source);
+    }
+
+    return smileSource;
+  }
+
 }
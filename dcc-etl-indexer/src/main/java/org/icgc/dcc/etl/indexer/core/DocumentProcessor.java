@@ -30,6 +30,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
+import org.icgc.dcc.etl.indexer.io.ReferenceDataCache;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 import org.icgc.dcc.etl.indexer.util.DefaultDocumentContext;
 import org.icgc.dcc.etl.indexer.util.Stopwatches;
@@ -58,6 +59,11 @@ public class DocumentProcessor {
   @NonNull
   protected final CollectionReader reader;
 
+  /**
+   * Reference data shared across document types. Optional.
+   */
+  protected ReferenceDataCache referenceData;
+
   /**
    * Callback clients.
    */
@@ -72,10 +78,21 @@ public class DocumentProcessor {
     callbacks.add(callback);
   }
 
+  /**
+   * Share reference data with other document types instead of reading it for this type alone.
+   * 
+   * @param referenceData
+   */
+  public void setReferenceData(@NonNull ReferenceDataCache referenceData) {
+    this.referenceData = referenceData;
+  }
+
   /**
    * Process all root and their resulting documents.
+   * 
+   * @return the number of documents processed
    */
-  public void process() {
+  public int process() {
     // Loop state
     int documentCount = 0;
     Stopwatch watch = Stopwatches.createStarted();
@@ -85,35 +102,57 @@ public class DocumentProcessor {
 
     // Process each collection root object in turn
     for (val root : readCollection()) {
-      transform(type.getTransform(), context, root);
+      val document = transform(type.getTransform(), context, root);
+      callback(document);
 
-      boolean status = ++documentCount % type.getStatusInterval() == 0;
-      if (status) {
-        log.info("Processed {} '{}' documents ({} docs/s) in {}",
-            new Object[] { formatCount(documentCount), type.getName(), formatRate(documentCount, watch), watch });
-      }
+      logStatus(++documentCount, watch);
     }
 
-    log.info("Finished processing {} '{}' documents in {}",
-        new Object[] { formatCount(documentCount), type.getName(), watch });
+    logFinished(documentCount, watch);
+
+    return documentCount;
   }
 
-  private void transform(DocumentTransform transform, DocumentContext context, ObjectNode root) {
+  protected Document transform(DocumentTransform transform, DocumentContext context, ObjectNode root) {
     try {
       // Delegate to transform
-      val document = transform.transformDocument(root, context);
+      return transform.transformDocument(root, context);
+    } catch (Exception e) {
+      log.error("Error procesing document with root: " + root, e);
+      throw propagate(e);
+    }
+  }
 
+  protected void callback(Document document) {
+    try {
       // Delegate behavior to callbacks
       for (val callback : callbacks) {
         callback.call(document);
       }
     } catch (Exception e) {
-      log.error("Error procesing document with root: " + root, e);
-      propagate(e);
+      log.error("Error procesing document with id: " + document.getId(), e);
+      throw propagate(e);
+    }
+  }
+
+  protected void logStatus(int documentCount, Stopwatch watch) {
+    boolean status = documentCount % type.getStatusInterval() == 0;
+    if (status) {
+      log.info("Processed {} '{}' documents ({} docs/s) in {}",
+          new Object[] { formatCount(documentCount), type.getName(), formatRate(documentCount, watch), watch });
     }
   }
 
-  private DocumentContext createContext() {
+  protected void logFinished(int documentCount, Stopwatch watch) {
+    log.info("Finished processing {} '{}' documents in {}",
+        new Object[] { formatCount(documentCount), type.getName(), watch });
+  }
+
+  protected DocumentContext createContext() {
+    if (referenceData != null) {
+      return new DefaultDocumentContext(indexName, type, reader, referenceData);
+    }
+
     return new DefaultDocumentContext(indexName, type, reader);
   }
 
@@ -20,10 +20,26 @@ package org.icgc.dcc.etl.indexer.core;
 import java.io.Serializable;
 import java.util.concurrent.Callable;
 
+import org.icgc.dcc.etl.indexer.model.DocumentType;
+
 import cascading.flow.Flow;
 
 public interface DocumentTask extends Callable<Flow<?>>, Serializable {
 
   void execute() throws Exception;
 
+  /**
+   * Gets the document type processed by this task.
+   * 
+   * @return the type
+   */
+  DocumentType getType();
+
+  /**
+   * Gets the number of documents processed by the last execution of this task in the current JVM.
+   * 
+   * @return the document count
+   */
+  int getDocumentCount();
+
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.etl.indexer.model.DocumentType;
+import org.icgc.dcc.etl.indexer.util.Stopwatches;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link DocumentProcessor} that transforms roots on a pool of worker threads.
+ * <p>
+ * The calling thread's collection cursor is drained by a dedicated producer thread into a bounded queue of pending
+ * transforms which are executed concurrently by {@code workerCount} workers against a shared {@link DocumentContext}.
+ * The calling thread consumes the queue in cursor order and invokes the callbacks, so writers see the same sequence
+ * of documents as with the sequential processor and need not be thread-safe.
+ */
+@Slf4j
+public class ParallelDocumentProcessor extends DocumentProcessor {
+
+  /**
+   * Marker indicating the producer has exhausted the collection.
+   */
+  private static final Future<Document> END = immediateFuture(null);
+
+  /**
+   * Configuration.
+   */
+  private final int workerCount;
+  private final int queueSize;
+
+  public ParallelDocumentProcessor(@NonNull String indexName, @NonNull DocumentType type,
+      @NonNull CollectionReader reader, int workerCount, int queueSize) {
+    super(indexName, type, reader);
+    checkArgument(workerCount > 0, "Worker count must be positive: %s", workerCount);
+    checkArgument(queueSize > 0, "Queue size must be positive: %s", queueSize);
+    this.workerCount = workerCount;
+    this.queueSize = queueSize;
+  }
+
+  @Override
+  public int process() {
+    log.info("Processing '{}' documents with {} workers and a queue size of {}...",
+        new Object[] { type.getName(), workerCount, queueSize });
+
+    // Loop state
+    int documentCount = 0;
+    val watch = Stopwatches.createStarted();
+
+    // Document-shared context
+    val context = createContext();
+
+    // Bounded to limit the number of in-flight roots and documents held in memory
+    val queue = new ArrayBlockingQueue<Future<Document>>(queueSize);
+    val workers = newFixedThreadPool(workerCount, newThreadFactory("worker"));
+    val producer = newSingleThreadExecutor(newThreadFactory("producer"));
+
+    try {
+      val production = producer.submit(new Producer(context, queue, workers));
+
+      while (true) {
+        val pending = queue.poll(1, SECONDS);
+        if (pending == null) {
+          if (production.isDone()) {
+            // Surface producer failures, otherwise the end marker is still to be taken
+            production.get();
+          }
+
+          continue;
+        }
+        if (pending == END) {
+          break;
+        }
+
+        callback(getDocument(pending));
+
+        logStatus(++documentCount, watch);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw propagate(e);
+    } catch (ExecutionException e) {
+      throw propagate(e.getCause());
+    } finally {
+      producer.shutdownNow();
+      workers.shutdownNow();
+    }
+
+    logFinished(documentCount, watch);
+
+    return documentCount;
+  }
+
+  private static Document getDocument(Future<Document> pending) throws InterruptedException {
+    try {
+      return pending.get();
+    } catch (ExecutionException e) {
+      throw propagate(e.getCause());
+    }
+  }
+
+  private ThreadFactory newThreadFactory(String role) {
+    return new ThreadFactoryBuilder().setNameFormat(type.getName() + "-" + role + "-%d").setDaemon(true).build();
+  }
+
+  /**
+   * Reads the collection and enqueues transforms in cursor order.
+   */
+  private class Producer implements Callable<Void> {
+
+    private final DocumentContext context;
+    private final BlockingQueue<Future<Document>> queue;
+    private final ExecutorService workers;
+
+    private Producer(DocumentContext context, BlockingQueue<Future<Document>> queue, ExecutorService workers) {
+      this.context = context;
+      this.queue = queue;
+      this.workers = workers;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      val transform = type.getTransform();
+      for (val root : readCollection()) {
+        // Blocks when the consumer falls behind
+        queue.put(workers.submit(new Callable<Document>() {
+
+          @Override
+          public Document call() {
+            return transform(transform, context, root);
+          }
+
+        }));
+      }
+
+      queue.put(END);
+      return null;
+    }
+
+  }
+
+}
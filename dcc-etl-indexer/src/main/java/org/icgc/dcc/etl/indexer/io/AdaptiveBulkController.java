@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import lombok.Getter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adapts the bulk size and number of in-flight bulk requests to the feedback of completed requests.
+ * <p>
+ * Follows an additive increase, multiplicative decrease scheme: requests completing within the target latency admit
+ * one more concurrent request (and larger bulks when well within the target), slow requests admit one less, and
+ * rejections or local heap pressure halve both. Not itself a bound on memory, which is the responsibility of the
+ * caller.
+ */
+@Slf4j
+public class AdaptiveBulkController {
+
+  /**
+   * Constants.
+   */
+  private static final double BULK_SIZE_GROWTH = 1.25;
+
+  /**
+   * Configuration.
+   */
+  private final int maxConcurrency;
+  private final long minBulkSize;
+  private final long maxBulkSize;
+  private final long targetLatency;
+  private final double heapThreshold;
+
+  /**
+   * State.
+   */
+  @Getter
+  private volatile int concurrency = 1;
+  @Getter
+  private volatile long bulkSize;
+
+  /**
+   * @param maxConcurrency the maximum number of in-flight bulk requests
+   * @param minBulkSize the minimum bulk size in bytes
+   * @param maxBulkSize the maximum bulk size in bytes
+   * @param initialBulkSize the bulk size in bytes to start with
+   * @param targetLatency the bulk request latency in milliseconds above which concurrency is reduced
+   * @param heapThreshold the fraction of the maximum heap in use above which bulk size and concurrency are reduced
+   */
+  public AdaptiveBulkController(int maxConcurrency, long minBulkSize, long maxBulkSize, long initialBulkSize,
+      long targetLatency, double heapThreshold) {
+    checkArgument(maxConcurrency > 0, "Max concurrency must be positive: %s", maxConcurrency);
+    checkArgument(0 < minBulkSize && minBulkSize <= maxBulkSize, "Invalid bulk size range: [%s, %s]", minBulkSize,
+        maxBulkSize);
+    this.maxConcurrency = maxConcurrency;
+    this.minBulkSize = minBulkSize;
+    this.maxBulkSize = maxBulkSize;
+    this.bulkSize = clamp(initialBulkSize);
+    this.targetLatency = targetLatency;
+    this.heapThreshold = heapThreshold;
+  }
+
+  /**
+   * Records a bulk request that completed without rejections.
+   * 
+   * @param latency the latency of the request in milliseconds
+   * @param heapUsage the fraction of the maximum heap currently in use
+   */
+  public synchronized void onSuccess(long latency, double heapUsage) {
+    if (heapUsage > heapThreshold) {
+      log.warn("Heap usage of {}% exceeds threshold. Backing off...", Math.round(100 * heapUsage));
+      backOff();
+    } else if (latency > targetLatency) {
+      update(Math.max(1, concurrency - 1), bulkSize);
+    } else {
+      val grownBulkSize = latency < targetLatency / 2 ? clamp(Math.round(bulkSize * BULK_SIZE_GROWTH)) : bulkSize;
+      update(Math.min(maxConcurrency, concurrency + 1), grownBulkSize);
+    }
+  }
+
+  /**
+   * Records a bulk request that was, entirely or in part, rejected by the cluster.
+   */
+  public synchronized void onRejection() {
+    log.warn("Bulk request rejected. Backing off...");
+    backOff();
+  }
+
+  private void backOff() {
+    update(Math.max(1, concurrency / 2), clamp(bulkSize / 2));
+  }
+
+  private void update(int newConcurrency, long newBulkSize) {
+    if (newConcurrency != concurrency || newBulkSize != bulkSize) {
+      log.info("Adjusting bulk concurrency from {} to {} and bulk size from {} to {} bytes",
+          new Object[] { concurrency, newConcurrency, bulkSize, newBulkSize });
+      concurrency = newConcurrency;
+      bulkSize = newBulkSize;
+    }
+  }
+
+  private long clamp(long size) {
+    return Math.max(minBulkSize, Math.min(maxBulkSize, size));
+  }
+
+}
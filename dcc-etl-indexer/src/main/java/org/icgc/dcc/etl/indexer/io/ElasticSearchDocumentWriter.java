@@ -17,44 +17,55 @@
  */
 package org.icgc.dcc.etl.indexer.io;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.base.Throwables.propagate;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
-import static java.util.concurrent.TimeUnit.SECONDS;
-import static org.elasticsearch.action.bulk.BulkProcessor.builder;
+import static org.elasticsearch.ExceptionsHelper.unwrapCause;
 import static org.elasticsearch.client.Requests.indexRequest;
-import static org.elasticsearch.common.unit.ByteSizeUnit.MB;
+import static org.elasticsearch.common.xcontent.XContentType.JSON;
 import static org.elasticsearch.common.xcontent.XContentType.SMILE;
+import static org.elasticsearch.rest.RestStatus.SERVICE_UNAVAILABLE;
+import static org.elasticsearch.rest.RestStatus.TOO_MANY_REQUESTS;
 import static org.icgc.dcc.common.core.util.Formats.formatBytes;
 import static org.icgc.dcc.common.core.util.Formats.formatCount;
-import static org.icgc.dcc.etl.indexer.factory.JacksonFactory.newSmileWriter;
 
 import java.io.IOException;
-import java.util.concurrent.Semaphore;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkProcessor.Listener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.icgc.dcc.etl.indexer.core.Document;
 import org.icgc.dcc.etl.indexer.core.DocumentWriter;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Output destination for {@link DefaultDocument} instances to be written.
+ * <p>
+ * Bulk size and the number of in-flight bulk requests are adapted to the observed latency, rejections and heap usage by
+ * an {@link AdaptiveBulkController}, while the bytes of in-flight requests are bounded so that raising concurrency
+ * never buffers more than a single maximum sized bulk would. Only the items of a bulk that failed with a retryable
+ * status are retried.
  */
 @Slf4j
 public class ElasticSearchDocumentWriter implements DocumentWriter {
@@ -62,13 +73,16 @@ public class ElasticSearchDocumentWriter implements DocumentWriter {
   /**
    * Constants.
    */
-  private static final int BULK_ACTIONS = -1; // Unlimited
-  private static final ByteSizeValue BULK_SIZE = new ByteSizeValue(75, MB);
+  private static final long MIN_BULK_SIZE = 5L * 1024 * 1024;
+  private static final long MAX_BULK_SIZE = 75L * 1024 * 1024;
+  private static final long INITIAL_BULK_SIZE = 15L * 1024 * 1024;
+  private static final long MAX_IN_FLIGHT_BYTES = MAX_BULK_SIZE;
+  private static final long TARGET_LATENCY_MILLIS = 10 * 1000L;
+  private static final double HEAP_THRESHOLD = 0.8;
   private static final int SHUTDOWN_PERIOD_MINUTES = 60;
-  private static final ObjectWriter BINARY_WRITER = newSmileWriter();
   private static final double TIMEOUT_MUTLIPLIPER = 1.3;
   private static final long DEFAULT_SLEEP_TIMEOUT = 5000L;
-  private static final long DEFAULT_FAILED_EXECUTION_ID = -1L;
+  private static final long RETRY_DELAY_MILLIS = 1000L;
   private static final int MAX_FAILED_RETRIES = 5;
 
   /**
@@ -81,17 +95,23 @@ public class ElasticSearchDocumentWriter implements DocumentWriter {
   /**
    * Configuration.
    */
-  private final int concurrentRequests;
+  private final XContentType contentType;
+  private final boolean isCheckClusterState;
 
   /**
    * Batching state.
    */
-  private final BulkProcessor processor;
-  private final AtomicInteger batchErrorCount = new AtomicInteger(0);
-  private final Semaphore semaphore; // See https://github.com/elasticsearch/elasticsearch/issues/6314
+  private final AdaptiveBulkController controller;
+  private final ScheduledExecutorService retryExecutor;
+
+  /**
+   * In-flight state. Guarded by {@code this}.
+   */
+  private Bulk current = new Bulk();
+  private int inFlightCount;
+  private long inFlightBytes;
+  private Throwable failure;
   private long sleepTimeout = DEFAULT_SLEEP_TIMEOUT;
-  private long failedExecutionId = DEFAULT_FAILED_EXECUTION_ID;
-  private final boolean isCheckClusterState;
 
   /**
    * Dependencies.
@@ -107,73 +127,242 @@ public class ElasticSearchDocumentWriter implements DocumentWriter {
 
   public ElasticSearchDocumentWriter(Client client, String indexName, DocumentType type, int concurrentRequests,
       boolean isCheckClusterState) {
+    this(client, indexName, type, concurrentRequests, isCheckClusterState, SMILE);
+  }
+
+  /**
+   * @param concurrentRequests the maximum number of in-flight bulk requests, which is adapted down to cluster feedback
+   * @param contentType the encoding of the indexed source. {@code JSON} shares the encoding of the archive writer.
+   */
+  public ElasticSearchDocumentWriter(Client client, String indexName, DocumentType type, int concurrentRequests,
+      boolean isCheckClusterState, @NonNull XContentType contentType) {
+    checkArgument(contentType == SMILE || contentType == JSON, "Unsupported content type: %s", contentType);
     this.indexName = indexName;
     this.type = type;
-    this.concurrentRequests = concurrentRequests;
-    this.processor = createProcessor(client);
-    this.semaphore = new Semaphore(concurrentRequests);
+    this.contentType = contentType;
+    this.controller = new AdaptiveBulkController(Math.max(1, concurrentRequests), MIN_BULK_SIZE, MAX_BULK_SIZE,
+        INITIAL_BULK_SIZE, TARGET_LATENCY_MILLIS, HEAP_THRESHOLD);
+    this.retryExecutor = newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("es-bulk-retry-%d").setDaemon(true).build());
     this.client = client;
     this.isCheckClusterState = isCheckClusterState;
   }
 
   @Override
   public void write(Document document) throws IOException {
-    val request = createRequest(document.getId(), document.getSource());
+    // Encoded at most once per format across all writers of the document
+    val source = contentType == JSON ? document.getJsonSource() : document.getSmileSource();
 
-    processor.add(request);
-    documentCount++;
+    write(document.getId(), source);
+  }
+
+  /**
+   * Writes an already encoded document source, avoiding a parse and serialization round trip.
+   * 
+   * @param id the document id
+   * @param source the document source encoded as the content type of this writer
+   */
+  public void write(@NonNull String id, @NonNull byte[] source) throws IOException {
+    val request = createRequest(id, source);
+
+    synchronized (this) {
+      checkFailure();
+      current.add(request, source.length);
+      documentCount++;
+
+      if (current.getBytes() >= controller.getBulkSize()) {
+        flushBulk();
+      }
+    }
   }
 
   @Override
   @SneakyThrows
   public void close() throws IOException {
-    log.info("Closing bulk processor...");
-    processor.close();
-    log.info("Finished closing bulk processor");
-
-    log.info("Sleeping for 1 s...");
-    SECONDS.sleep(1);
-
-    val pendingCount = getPendingCount();
-    if (pendingCount > 0) {
-      log.info("Waiting up to {} mins for pending bulk requests...", SHUTDOWN_PERIOD_MINUTES, pendingCount);
-      checkState(semaphore.tryAcquire(concurrentRequests, SHUTDOWN_PERIOD_MINUTES, MINUTES),
-          "%s bulk requests failed to complete within the shutdown period", getPendingCount());
-    }
+    try {
+      synchronized (this) {
+        log.info("Flushing final bulk...");
+        flushBulk();
+
+        if (inFlightCount > 0) {
+          log.info("Waiting up to {} mins for {} pending bulk requests...", SHUTDOWN_PERIOD_MINUTES, inFlightCount);
+          val deadline = System.currentTimeMillis() + MINUTES.toMillis(SHUTDOWN_PERIOD_MINUTES);
+          while (inFlightCount > 0 && failure == null && System.currentTimeMillis() < deadline) {
+            wait(Math.max(1, deadline - System.currentTimeMillis()));
+          }
 
-    checkState(batchErrorCount.get() == 0, "Encountered %s batch errors when writing to ElasticSearch",
-        batchErrorCount.get());
+          checkState(inFlightCount == 0 || failure != null,
+              "%s bulk requests failed to complete within the shutdown period", inFlightCount);
+        }
 
-    log.info("Finished indexing {} '{}' documents", formatCount(documentCount), type.getName());
-  }
+        checkFailure();
+      }
+    } finally {
+      retryExecutor.shutdownNow();
+    }
 
-  private int getPendingCount() {
-    return concurrentRequests - semaphore.availablePermits();
+    log.info("Finished indexing {} '{}' documents", formatCount(documentCount), type.getName());
   }
 
-  private IndexRequest createRequest(String id, Object value) {
+  private IndexRequest createRequest(String id, byte[] source) {
     return indexRequest(indexName)
         .type(type.getName())
         .id(id)
-        .contentType(SMILE)
-        .source(createSource(value));
+        .contentType(contentType)
+        .source(source);
   }
 
-  private byte[] createSource(Object document) {
+  /**
+   * Submits the accumulated bulk once in-flight requests leave room for it. Must hold the lock.
+   */
+  private void flushBulk() throws IOException {
+    if (current.isEmpty()) {
+      return;
+    }
+
     try {
-      return BINARY_WRITER.writeValueAsBytes(document);
-    } catch (JsonProcessingException e) {
-      propagate(e);
-      return null;
+      // A single bulk is always admitted so that progress is guaranteed. Writes keep accumulating into the current bulk
+      // while waiting, so it is only swapped out once admitted
+      while (failure == null && inFlightCount > 0
+          && (inFlightCount >= controller.getConcurrency()
+          || inFlightBytes + current.getBytes() > MAX_IN_FLIGHT_BYTES)) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for bulk capacity");
+    }
+
+    checkFailure();
+    if (current.isEmpty()) {
+      // Already submitted by another writer while waiting
+      return;
+    }
+
+    val next = current;
+    current = new Bulk();
+    inFlightCount++;
+    inFlightBytes += next.getBytes();
+    execute(next);
+  }
+
+  private void execute(final Bulk bulk) {
+    val attempt = bulk.nextAttempt();
+    val request = bulk.createRequest();
+    log.info("Sending '{}' bulk request with {} items ({} bytes){}", new Object[] {
+        type, formatCount(bulk.size()), formatBytes(bulk.getBytes()), attempt > 1 ? " attempt " + attempt : "" });
+
+    val start = System.currentTimeMillis();
+    client.bulk(request, new ActionListener<BulkResponse>() {
+
+      @Override
+      public void onResponse(BulkResponse response) {
+        onBulkResponse(bulk, response, System.currentTimeMillis() - start);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        onBulkFailure(bulk, t);
+      }
+
+    });
+  }
+
+  private void onBulkResponse(Bulk bulk, BulkResponse response, long latency) {
+    if (!response.hasFailures()) {
+      controller.onSuccess(latency, getHeapUsage());
+      complete(bulk.getBytes());
+
+      return;
+    }
+
+    // Collect only the failed items
+    val retry = bulk.copyAttempts();
+    for (val item : response) {
+      if (!item.isFailed()) {
+        continue;
+      }
+
+      if (!isRetryable(item)) {
+        fail(new IllegalStateException(String.format("Failed to index es://%s/%s/%s because %s",
+            item.getIndex(), item.getType(), item.getId(), item.getFailureMessage())), bulk.getBytes());
+
+        return;
+      }
+
+      retry.add(bulk.getRequest(item.getItemId()), bulk.getSize(item.getItemId()));
+    }
+
+    controller.onRejection();
+    log.warn("{} of {} '{}' bulk items were rejected", new Object[] { retry.size(), bulk.size(), type });
+
+    // Only the retried items remain in flight
+    release(bulk.getBytes() - retry.getBytes());
+    scheduleRetry(retry, response.buildFailureMessage());
+  }
+
+  private void onBulkFailure(Bulk bulk, Throwable t) {
+    log.info("Encountered exception during bulk load: ", t);
+    if (unwrapCause(t) instanceof EsRejectedExecutionException) {
+      controller.onRejection();
+    }
+
+    scheduleRetry(bulk, t);
+  }
+
+  private void scheduleRetry(final Bulk bulk, Object cause) {
+    if (bulk.getAttempts() >= MAX_FAILED_RETRIES) {
+      log.error("Error performing bulk: {}", cause);
+      fail(new IllegalStateException(String.format("Failed to index %s '%s' documents after %s attempts: %s",
+          bulk.size(), type, bulk.getAttempts(), cause)), bulk.getBytes());
+
+      return;
+    }
+
+    totalRetries.incrementAndGet();
+    val delay = RETRY_DELAY_MILLIS << (bulk.getAttempts() - 1);
+    retryExecutor.schedule(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          if (isCheckClusterState) {
+            checkIfClusterGreen();
+          }
+
+          log.info("Retrying {} failed '{}' bulk items...", bulk.size(), type);
+          execute(bulk);
+        } catch (Throwable t) {
+          fail(t, bulk.getBytes());
+        }
+      }
+
+    }, delay, MILLISECONDS);
+  }
+
+  private synchronized void complete(long bytes) {
+    inFlightCount--;
+    inFlightBytes -= bytes;
+    notifyAll();
+  }
+
+  private synchronized void release(long bytes) {
+    inFlightBytes -= bytes;
+    notifyAll();
+  }
+
+  private synchronized void fail(Throwable t, long bytes) {
+    if (failure == null) {
+      failure = t;
     }
+
+    complete(bytes);
   }
 
-  private BulkProcessor createProcessor(Client client) {
-    return builder(client, createListener())
-        .setBulkActions(BULK_ACTIONS)
-        .setBulkSize(BULK_SIZE)
-        .setConcurrentRequests(concurrentRequests)
-        .build();
+  private void checkFailure() {
+    if (failure != null) {
+      throw new IllegalStateException("Encountered errors when writing to ElasticSearch", failure);
+    }
   }
 
   private void checkIfClusterGreen() {
@@ -198,71 +387,70 @@ public class ElasticSearchDocumentWriter implements DocumentWriter {
     sleepTimeout = Math.round(sleepTimeout * TIMEOUT_MUTLIPLIPER);
   }
 
-  private boolean isRetryFailed() {
-    return batchErrorCount.get() < MAX_FAILED_RETRIES;
+  private static boolean isRetryable(BulkItemResponse item) {
+    val status = item.getFailure().getStatus();
+    return status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE;
+  }
+
+  private static double getHeapUsage() {
+    val runtime = Runtime.getRuntime();
+    return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
   }
 
   /**
-   * Blindly relies on the fact that this loader is single threaded.
+   * Index requests of a single bulk and their source sizes, retained so that failed items can be resubmitted.
    */
-  private void resetFailedCount(long executionId) {
-    if (executionId == failedExecutionId) {
-      log.info("Successfully load failed index request '{}'", executionId);
-      failedExecutionId = DEFAULT_FAILED_EXECUTION_ID;
-      batchErrorCount.set(0);
+  private static class Bulk {
+
+    private final List<IndexRequest> requests = Lists.newArrayList();
+    private final List<Integer> sizes = Lists.newArrayList();
+    @Getter
+    private long bytes;
+    @Getter
+    private int attempts;
+
+    void add(IndexRequest request, int size) {
+      requests.add(request);
+      sizes.add(size);
+      bytes += size;
     }
-  }
 
-  private Listener createListener() {
-    return new BulkProcessor.Listener() {
-
-      @Override
-      @SneakyThrows
-      public void beforeBulk(long executionId, BulkRequest request) {
-
-        semaphore.acquire();
-
-        val count = request.numberOfActions();
-        val bytes = request.estimatedSizeInBytes();
-        log.info("Sending '{}' bulk request with {} items ({} bytes)",
-            new Object[] { type, formatCount(count), formatBytes(bytes) });
-      }
+    IndexRequest getRequest(int i) {
+      return requests.get(i);
+    }
 
-      @Override
-      public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
-        semaphore.release();
+    int getSize(int i) {
+      return sizes.get(i);
+    }
 
-        checkState(!response.hasFailures(), "Failed to index: %s", response.buildFailureMessage());
-        resetFailedCount(executionId);
-      }
+    int size() {
+      return requests.size();
+    }
 
-      @Override
-      public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
-        log.info("Encountered exception during bulk load: ", failure);
-        // Record errors for enclosing class
-        batchErrorCount.incrementAndGet();
-        totalRetries.incrementAndGet();
+    boolean isEmpty() {
+      return requests.isEmpty();
+    }
 
-        semaphore.release();
+    int nextAttempt() {
+      return ++attempts;
+    }
 
-        if (isRetryFailed()) {
-          if (isCheckClusterState) {
-            checkIfClusterGreen();
-          }
-          log.info("Flushing pending requests before retry...");
-          processor.flush();
-          log.info("Flushing finished. Retrying failed index request '{}'", executionId);
-          processor.add(request);
-          failedExecutionId = executionId;
+    Bulk copyAttempts() {
+      val bulk = new Bulk();
+      bulk.attempts = attempts;
 
-          return;
-        }
+      return bulk;
+    }
 
-        log.error("Error performing bulk: ", failure);
-        propagate(failure);
+    BulkRequest createRequest() {
+      val request = new BulkRequest();
+      for (val indexRequest : requests) {
+        request.add(indexRequest);
       }
 
-    };
+      return request;
+    }
+
   }
 
 }
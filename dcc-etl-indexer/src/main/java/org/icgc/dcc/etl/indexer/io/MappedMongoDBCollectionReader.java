@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.collect.Iterables.transform;
+import static org.icgc.dcc.etl.indexer.model.CollectionFields.DEFAULT_COLLECTION_FIELDS;
+import static org.icgc.dcc.etl.indexer.util.JsonNodeProjections.project;
+
+import java.io.File;
+import java.util.Map;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import org.icgc.dcc.etl.indexer.model.CollectionFields;
+import org.jongo.Jongo;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Function;
+import com.google.common.collect.Maps;
+
+/**
+ * Data access layer for document collection sources that serves observations from a {@link MappedObservationStore}.
+ * <p>
+ * The store is built from the complete observation collection on first use, or reopened if it already exists in
+ * {@code storeDir}, and is shared by all readers of the same directory in the JVM. Field projections are applied per
+ * read so that every document type can use the same store.
+ */
+public class MappedMongoDBCollectionReader extends MongoDBCollectionReader {
+
+  /**
+   * Stores shared by all readers, keyed by directory.
+   */
+  private static final Map<File, MappedObservationStore> STORES = Maps.newHashMap();
+
+  /**
+   * Configuration.
+   */
+  private final File storeDir;
+
+  public MappedMongoDBCollectionReader(@NonNull Jongo client, @NonNull File storeDir) {
+    super(client);
+    this.storeDir = storeDir.getAbsoluteFile();
+  }
+
+  @Override
+  public Iterable<ObjectNode> readObservations(@NonNull CollectionFields fields) {
+    return projectAll(getStore().getObservations(), fields);
+  }
+
+  @Override
+  public Iterable<ObjectNode> readObservationsByDonorId(@NonNull String donorId, CollectionFields fields) {
+    return projectAll(getStore().getObservationsByDonorId(donorId), fields);
+  }
+
+  @Override
+  public Iterable<ObjectNode> readObservationsByGeneId(@NonNull String geneId, @NonNull CollectionFields fields) {
+    return projectAll(getStore().getObservationsByGeneId(geneId), fields);
+  }
+
+  @Override
+  public Iterable<ObjectNode> readObservationsByMutationId(String mutationId, CollectionFields fields) {
+    return projectAll(getStore().getObservationsByMutationId(mutationId), fields);
+  }
+
+  @SneakyThrows
+  private MappedObservationStore getStore() {
+    synchronized (STORES) {
+      MappedObservationStore store = STORES.get(storeDir);
+      if (store == null) {
+        store = MappedObservationStore.exists(storeDir) ?
+            MappedObservationStore.open(storeDir) :
+            MappedObservationStore.build(storeDir, super.readObservations(DEFAULT_COLLECTION_FIELDS));
+
+        STORES.put(storeDir, store);
+      }
+
+      return store;
+    }
+  }
+
+  private static Iterable<ObjectNode> projectAll(Iterable<ObjectNode> observations, final CollectionFields fields) {
+    if (fields == null) {
+      return observations;
+    }
+
+    return transform(observations, new Function<ObjectNode, ObjectNode>() {
+
+      @Override
+      public ObjectNode apply(ObjectNode observation) {
+        // Safe to modify since each read decodes a new instance
+        return project(observation, fields);
+      }
+
+    });
+  }
+
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static org.icgc.dcc.common.core.util.Formats.formatBytes;
+import static org.icgc.dcc.common.core.util.Formats.formatCount;
+import static org.icgc.dcc.common.core.util.Formats.formatRate;
+import static org.icgc.dcc.etl.indexer.factory.JacksonFactory.newSmileReader;
+import static org.icgc.dcc.etl.indexer.factory.JacksonFactory.newSmileWriter;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationConsequenceGeneId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationConsequences;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationDonorId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationMutationId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.etl.indexer.util.Stopwatches;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Read-only, file backed store of observations indexed by donor, gene and mutation id.
+ * <p>
+ * Observations are Smile encoded into memory-mapped segment files and addressed through a memory-mapped offset table,
+ * so the documents themselves live outside of the heap. The indexes dictionary-encode ids into dense {@code int}s and
+ * keep their posting lists in compressed sparse row layout: a sorted {@code String[]} of ids, an {@code int[]} of
+ * offsets and an {@code int[]} of observation numbers.
+ * <p>
+ * All files are written to a single directory and the index file is written last, so a store that is found on disk
+ * can be reopened without going back to the source.
+ */
+@Slf4j
+public class MappedObservationStore {
+
+  /**
+   * Constants.
+   */
+  private static final int VERSION = 1;
+  private static final String INDEX_FILE_NAME = "observations.index";
+  private static final String OFFSETS_FILE_NAME = "observations.offsets";
+  private static final String SEGMENT_FILE_NAME_FORMAT = "observations-%04d.smile";
+  private static final int SEGMENT_SIZE = 1 << 30; // 1 GB
+  private static final int OFFSET_ENTRY_SIZE = 12; // long address + int length
+  private static final int STATUS_INTERVAL = 1000000;
+
+  /**
+   * Serialization.
+   */
+  private static final ObjectWriter WRITER = newSmileWriter();
+  private static final ObjectReader READER = newSmileReader();
+
+  /**
+   * The number of observations in the store.
+   */
+  @Getter
+  private final int size;
+
+  /**
+   * Data.
+   */
+  private final List<MappedByteBuffer> segments;
+  private final MappedByteBuffer offsets;
+
+  /**
+   * Indexes.
+   */
+  private final Postings donorIndex;
+  private final Postings geneIndex;
+  private final Postings mutationIndex;
+
+  private MappedObservationStore(int size, List<MappedByteBuffer> segments, MappedByteBuffer offsets,
+      Postings donorIndex, Postings geneIndex, Postings mutationIndex) {
+    this.size = size;
+    this.segments = segments;
+    this.offsets = offsets;
+    this.donorIndex = donorIndex;
+    this.geneIndex = geneIndex;
+    this.mutationIndex = mutationIndex;
+  }
+
+  public static boolean exists(@NonNull File dir) {
+    return new File(dir, INDEX_FILE_NAME).exists();
+  }
+
+  /**
+   * Writes the supplied {@code observations} to {@code dir} and opens the resulting store.
+   */
+  public static MappedObservationStore build(@NonNull File dir, @NonNull Iterable<ObjectNode> observations)
+      throws IOException {
+    log.info("Building observation store in '{}'...", dir);
+    checkState(dir.isDirectory() || dir.mkdirs(), "Could not create observation store directory '%s'", dir);
+    val watch = Stopwatches.createStarted();
+
+    val donors = new PostingsBuilder();
+    val genes = new PostingsBuilder();
+    val mutations = new PostingsBuilder();
+
+    int count = 0;
+    int segmentCount = 0;
+    long segmentPosition = SEGMENT_SIZE;
+    OutputStream segment = null;
+
+    @Cleanup
+    val offsetsOutput = new DataOutputStream(newOutputStream(new File(dir, OFFSETS_FILE_NAME)));
+    try {
+      for (val observation : observations) {
+        val bytes = WRITER.writeValueAsBytes(observation);
+        if (segmentPosition + bytes.length > SEGMENT_SIZE) {
+          // Roll
+          if (segment != null) {
+            segment.close();
+          }
+
+          segment = newOutputStream(getSegmentFile(dir, segmentCount++));
+          segmentPosition = 0;
+        }
+
+        segment.write(bytes);
+        offsetsOutput.writeLong((long) (segmentCount - 1) << 32 | segmentPosition);
+        offsetsOutput.writeInt(bytes.length);
+        segmentPosition += bytes.length;
+
+        // Index
+        donors.add(getObservationDonorId(observation), count);
+        mutations.add(getObservationMutationId(observation), count);
+        for (val geneId : getObservationGeneIds(observation)) {
+          genes.add(geneId, count);
+        }
+
+        if (++count % STATUS_INTERVAL == 0) {
+          log.info("Stored {} observations ({} docs/s) in {}",
+              new Object[] { formatCount(count), formatRate(count, watch), watch });
+        }
+      }
+    } finally {
+      if (segment != null) {
+        segment.close();
+      }
+    }
+
+    offsetsOutput.close();
+    checkState((long) count * OFFSET_ENTRY_SIZE <= Integer.MAX_VALUE, "Too many observations to store: %s", count);
+
+    // Write the index last since it marks the store as complete
+    @Cleanup
+    val indexOutput = new DataOutputStream(newOutputStream(new File(dir, INDEX_FILE_NAME)));
+    indexOutput.writeInt(VERSION);
+    indexOutput.writeInt(count);
+    indexOutput.writeInt(segmentCount);
+    donors.build().write(indexOutput);
+    genes.build().write(indexOutput);
+    mutations.build().write(indexOutput);
+    indexOutput.close();
+
+    log.info("Finished building observation store with {} observations in {}", formatCount(count), watch);
+    return open(dir);
+  }
+
+  /**
+   * Opens a store previously written to {@code dir}.
+   */
+  public static MappedObservationStore open(@NonNull File dir) throws IOException {
+    log.info("Opening observation store in '{}'...", dir);
+    val watch = Stopwatches.createStarted();
+
+    @Cleanup
+    val indexInput = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(dir, INDEX_FILE_NAME))));
+    val version = indexInput.readInt();
+    checkState(version == VERSION, "Unsupported observation store version %s in '%s'", version, dir);
+    val size = indexInput.readInt();
+    val segmentCount = indexInput.readInt();
+    val donorIndex = Postings.read(indexInput);
+    val geneIndex = Postings.read(indexInput);
+    val mutationIndex = Postings.read(indexInput);
+
+    val segments = ImmutableList.<MappedByteBuffer> builder();
+    long bytes = 0;
+    for (int i = 0; i < segmentCount; i++) {
+      val segment = map(getSegmentFile(dir, i));
+      bytes += segment.capacity();
+
+      segments.add(segment);
+    }
+
+    val offsets = map(new File(dir, OFFSETS_FILE_NAME));
+
+    log.info("Opened observation store with {} observations ({} mapped, {} donors, {} genes, {} mutations) in {}",
+        new Object[] { formatCount(size), formatBytes(bytes), formatCount(donorIndex.getKeyCount()),
+            formatCount(geneIndex.getKeyCount()), formatCount(mutationIndex.getKeyCount()), watch });
+
+    return new MappedObservationStore(size, segments.build(), offsets, donorIndex, geneIndex, mutationIndex);
+  }
+
+  public Iterable<ObjectNode> getObservations() {
+    return getObservations(null, 0, size);
+  }
+
+  public Iterable<ObjectNode> getObservationsByDonorId(@NonNull String donorId) {
+    return getObservations(donorIndex, donorId);
+  }
+
+  public Iterable<ObjectNode> getObservationsByGeneId(@NonNull String geneId) {
+    return getObservations(geneIndex, geneId);
+  }
+
+  public Iterable<ObjectNode> getObservationsByMutationId(@NonNull String mutationId) {
+    return getObservations(mutationIndex, mutationId);
+  }
+
+  private Iterable<ObjectNode> getObservations(Postings index, String id) {
+    val k = index.indexOf(id);
+    if (k < 0) {
+      return ImmutableList.of();
+    }
+
+    return getObservations(index.values, index.offsets[k], index.offsets[k + 1]);
+  }
+
+  /**
+   * Lazily decodes observations {@code values[from..to)}, or {@code from..to} if {@code values} is {@code null}.
+   */
+  private Iterable<ObjectNode> getObservations(final int[] values, final int from, final int to) {
+    return new Iterable<ObjectNode>() {
+
+      @Override
+      public Iterator<ObjectNode> iterator() {
+        return new AbstractIterator<ObjectNode>() {
+
+          int i = from;
+
+          @Override
+          protected ObjectNode computeNext() {
+            if (i >= to) {
+              return endOfData();
+            }
+
+            val observationNumber = values == null ? i : values[i];
+            i++;
+
+            return get(observationNumber);
+          }
+
+        };
+      }
+
+    };
+  }
+
+  @SneakyThrows
+  private ObjectNode get(int observationNumber) {
+    // Absolute reads do not modify the shared buffer state
+    val entry = observationNumber * OFFSET_ENTRY_SIZE;
+    val address = offsets.getLong(entry);
+    val length = offsets.getInt(entry + 8);
+
+    val segment = segments.get((int) (address >>> 32)).duplicate();
+    segment.position((int) address);
+
+    val bytes = new byte[length];
+    segment.get(bytes);
+
+    return READER.readValue(bytes);
+  }
+
+  private static Set<String> getObservationGeneIds(ObjectNode observation) {
+    // Multiple consequences (transcripts) of an observation commonly share a gene
+    val geneIds = Sets.<String> newLinkedHashSet();
+    for (val consequence : getObservationConsequences(observation)) {
+      val geneId = getObservationConsequenceGeneId(consequence);
+      if (geneId != null) {
+        geneIds.add(geneId);
+      }
+    }
+
+    return geneIds;
+  }
+
+  private static File getSegmentFile(File dir, int i) {
+    return new File(dir, String.format(SEGMENT_FILE_NAME_FORMAT, i));
+  }
+
+  private static OutputStream newOutputStream(File file) throws IOException {
+    return new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+  }
+
+  private static MappedByteBuffer map(File file) throws IOException {
+    @Cleanup
+    val randomAccessFile = new RandomAccessFile(file, "r");
+    val channel = randomAccessFile.getChannel();
+
+    // The mapping remains valid after the channel is closed
+    return channel.map(READ_ONLY, 0, channel.size());
+  }
+
+  /**
+   * Immutable id to observation numbers index in CSR layout.
+   */
+  private static class Postings {
+
+    /**
+     * Sorted dictionary of ids. The position of an id is its dense {@code int} id.
+     */
+    final String[] keys;
+
+    /**
+     * The observation numbers of key {@code k} are {@code values[offsets[k]..offsets[k + 1])}.
+     */
+    final int[] offsets;
+    final int[] values;
+
+    Postings(String[] keys, int[] offsets, int[] values) {
+      this.keys = keys;
+      this.offsets = offsets;
+      this.values = values;
+    }
+
+    int getKeyCount() {
+      return keys.length;
+    }
+
+    int indexOf(String key) {
+      return Arrays.binarySearch(keys, key);
+    }
+
+    void write(DataOutputStream output) throws IOException {
+      output.writeInt(keys.length);
+      for (val key : keys) {
+        output.writeUTF(key);
+      }
+      for (val offset : offsets) {
+        output.writeInt(offset);
+      }
+
+      output.writeInt(values.length);
+      for (val value : values) {
+        output.writeInt(value);
+      }
+    }
+
+    static Postings read(DataInputStream input) throws IOException {
+      val keys = new String[input.readInt()];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = input.readUTF();
+      }
+
+      val offsets = new int[keys.length + 1];
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = input.readInt();
+      }
+
+      val values = new int[input.readInt()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = input.readInt();
+      }
+
+      return new Postings(keys, offsets, values);
+    }
+
+  }
+
+  /**
+   * Accumulates (id, observation number) pairs in insertion order.
+   */
+  private static class PostingsBuilder {
+
+    /**
+     * Build time only dictionary.
+     */
+    final Map<String, Integer> dictionary = Maps.newHashMap();
+
+    /**
+     * Pairs.
+     */
+    int[] keyIds = new int[1024];
+    int[] values = new int[1024];
+    int size;
+
+    void add(String key, int value) {
+      if (key == null) {
+        return;
+      }
+
+      Integer keyId = dictionary.get(key);
+      if (keyId == null) {
+        keyId = dictionary.size();
+        dictionary.put(key, keyId);
+      }
+
+      if (size == values.length) {
+        val capacity = size + (size >> 1);
+        keyIds = Arrays.copyOf(keyIds, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+
+      keyIds[size] = keyId;
+      values[size] = value;
+      size++;
+    }
+
+    Postings build() {
+      // Sort the dictionary and renumber the ids by rank so that lookups can binary search
+      val keys = dictionary.keySet().toArray(new String[dictionary.size()]);
+      Arrays.sort(keys);
+      val rank = new int[keys.length];
+      for (int k = 0; k < keys.length; k++) {
+        rank[dictionary.get(keys[k])] = k;
+      }
+
+      // Count
+      val offsets = new int[keys.length + 1];
+      for (int i = 0; i < size; i++) {
+        offsets[rank[keyIds[i]] + 1]++;
+      }
+
+      // Prefix sum
+      for (int k = 0; k < keys.length; k++) {
+        offsets[k + 1] += offsets[k];
+      }
+
+      // Fill, preserving observation order within each key
+      val cursors = Arrays.copyOf(offsets, keys.length);
+      val postings = new int[size];
+      for (int i = 0; i < size; i++) {
+        postings[cursors[rank[keyIds[i]]]++] = values[i];
+      }
+
+      return new Postings(keys, offsets, postings);
+    }
+
+  }
+
+}
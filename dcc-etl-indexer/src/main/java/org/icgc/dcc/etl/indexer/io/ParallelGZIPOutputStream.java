@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Block parallel gzip output stream in the style of {@code pigz}.
+ * <p>
+ * Written bytes are split into fixed size blocks which are compressed concurrently, each into a complete gzip member
+ * (RFC 1952), and written to the underlying stream in order. The result is a standard multi-member gzip stream that
+ * {@link java.util.zip.GZIPInputStream}, Hadoop's gzip codec and {@code gunzip} read as if it were a single member.
+ * Members are independent, so each block is compressed without the history of the previous one, which costs a little
+ * compression ratio for larger blocks.
+ * <p>
+ * Not thread safe.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+  /**
+   * Constants.
+   */
+  private static final int HEADER_SIZE = 10;
+  private static final int TRAILER_SIZE = 8;
+  private static final byte[] HEADER = {
+      0x1f, (byte) 0x8b, // Magic
+      Deflater.DEFLATED, // Compression method
+      0, // Flags
+      0, 0, 0, 0, // Modification time
+      0, // Extra flags
+      0 // Operating system
+  };
+
+  /**
+   * Configuration.
+   */
+  private final int blockSize;
+  private final int level;
+  private final int maxPending;
+
+  /**
+   * Output.
+   */
+  private final OutputStream out;
+
+  /**
+   * Compression state.
+   */
+  private final ExecutorService executor;
+  private final Deque<Future<Member>> pending = new ArrayDeque<Future<Member>>();
+  private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater>();
+  private final Deque<byte[]> freeBlocks = new ArrayDeque<byte[]>();
+
+  /**
+   * Current block state.
+   */
+  private byte[] block;
+  private int count;
+  private long memberCount;
+  private boolean closed;
+
+  public ParallelGZIPOutputStream(@NonNull OutputStream out, int blockSize, int threadCount) {
+    this(out, blockSize, threadCount, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  public ParallelGZIPOutputStream(@NonNull OutputStream out, int blockSize, int threadCount, int level) {
+    checkArgument(blockSize > 0, "Block size must be positive: %s", blockSize);
+    checkArgument(threadCount > 0, "Thread count must be positive: %s", threadCount);
+    this.out = out;
+    this.blockSize = blockSize;
+    this.level = level;
+
+    // Bounds memory to roughly 2 blocks per thread
+    this.maxPending = 2 * threadCount;
+    this.executor = newFixedThreadPool(threadCount,
+        new ThreadFactoryBuilder().setNameFormat("gzip-compressor-%d").setDaemon(true).build());
+    this.block = new byte[blockSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    checkOpen();
+    block[count++] = (byte) b;
+    if (count == blockSize) {
+      submitBlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkOpen();
+    while (len > 0) {
+      val n = Math.min(len, blockSize - count);
+      System.arraycopy(b, off, block, count, n);
+      count += n;
+      off += n;
+      len -= n;
+
+      if (count == blockSize) {
+        submitBlock();
+      }
+    }
+  }
+
+  /**
+   * Waits for all completed blocks to be written. The current partial block stays buffered so that frequent flushes do
+   * not produce small members; it is only ended by {@link #close()}.
+   */
+  @Override
+  public void flush() throws IOException {
+    checkOpen();
+    drain(0);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    try {
+      // An empty gzip stream still requires a member
+      if (count > 0 || memberCount == 0) {
+        submitBlock();
+      }
+
+      drain(0);
+      out.flush();
+    } finally {
+      closed = true;
+      executor.shutdownNow();
+      for (val deflater : deflaters) {
+        deflater.end();
+      }
+
+      out.close();
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    pending.add(executor.submit(new Compression(block, count)));
+    memberCount++;
+
+    block = freeBlocks.isEmpty() ? new byte[blockSize] : freeBlocks.removeFirst();
+    count = 0;
+
+    // Apply back pressure
+    drain(maxPending);
+  }
+
+  private void drain(int limit) throws IOException {
+    while (pending.size() > limit) {
+      val member = getMember(pending.removeFirst());
+      out.write(member.getBytes(), 0, member.getLength());
+
+      freeBlocks.add(member.getBlock());
+    }
+  }
+
+  private static Member getMember(Future<Member> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for compression");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to compress block", e.getCause());
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private Deflater takeDeflater() {
+    val deflater = deflaters.poll();
+    if (deflater == null) {
+      return new Deflater(level, true);
+    }
+
+    deflater.reset();
+    return deflater;
+  }
+
+  private static int getBound(int length) {
+    // Stored block worst case plus the member overhead
+    return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + HEADER_SIZE + TRAILER_SIZE;
+  }
+
+  private static void writeInt(byte[] bytes, int offset, int value) {
+    // Little endian
+    bytes[offset] = (byte) value;
+    bytes[offset + 1] = (byte) (value >> 8);
+    bytes[offset + 2] = (byte) (value >> 16);
+    bytes[offset + 3] = (byte) (value >> 24);
+  }
+
+  /**
+   * Compresses a single block into a gzip member.
+   */
+  @RequiredArgsConstructor
+  private class Compression implements Callable<Member> {
+
+    private final byte[] block;
+    private final int length;
+
+    @Override
+    public Member call() {
+      byte[] bytes = new byte[getBound(length)];
+      System.arraycopy(HEADER, 0, bytes, 0, HEADER_SIZE);
+      int position = HEADER_SIZE;
+
+      val deflater = takeDeflater();
+      try {
+        deflater.setInput(block, 0, length);
+        deflater.finish();
+        while (!deflater.finished()) {
+          if (bytes.length - position < TRAILER_SIZE + 1) {
+            bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+          }
+
+          position += deflater.deflate(bytes, position, bytes.length - position - TRAILER_SIZE);
+        }
+      } finally {
+        deflaters.add(deflater);
+      }
+
+      val crc = new CRC32();
+      crc.update(block, 0, length);
+      writeInt(bytes, position, (int) crc.getValue());
+      writeInt(bytes, position + 4, length);
+
+      return new Member(block, bytes, position + TRAILER_SIZE);
+    }
+
+  }
+
+  /**
+   * Compressed block.
+   */
+  @Value
+  private static class Member {
+
+    /**
+     * The uncompressed block, to be reused.
+     */
+    byte[] block;
+
+    /**
+     * The gzip member, of which the first {@code length} bytes are valid.
+     */
+    byte[] bytes;
+    int length;
+
+  }
+
+}
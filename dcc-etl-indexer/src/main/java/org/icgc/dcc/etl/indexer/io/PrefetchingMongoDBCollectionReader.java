@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterables.concat;
+import static com.google.common.collect.Iterables.partition;
+import static com.google.common.collect.Iterables.transform;
+import static org.icgc.dcc.common.core.model.FieldNames.OBSERVATION_CONSEQUENCES;
+import static org.icgc.dcc.common.core.model.FieldNames.OBSERVATION_CONSEQUENCES_GENE_ID;
+import static org.icgc.dcc.common.core.model.FieldNames.OBSERVATION_DONOR_ID;
+import static org.icgc.dcc.common.core.model.FieldNames.OBSERVATION_MUTATION_ID;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.DONOR_COLLECTION;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.GENE_COLLECTION;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.MUTATION_COLLECTION;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.OBSERVATION_COLLECTION;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getDonorId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getGeneId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getMutationId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationConsequenceGeneId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationConsequences;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationDonorId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.getObservationMutationId;
+import static org.icgc.dcc.etl.indexer.model.CollectionFieldAccessors.removeObservationConsequenceGeneId;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.common.core.model.ReleaseCollection;
+import org.icgc.dcc.etl.indexer.model.CollectionFields;
+import org.jongo.Jongo;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Function;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Data access layer for document collection sources that batches observation lookups.
+ * <p>
+ * Roots read from the donor, gene or mutation {@code collection} are streamed in windows of {@code prefetchSize}.
+ * Before a window is handed to the caller, the observations of all its roots are fetched with a single {@code $in} query and
+ * indexed in memory so that the subsequent {@code readObservationsBy*Id} calls made by the transform are served
+ * without a round trip. Each prefetched entry is handed out once and then released.
+ * <p>
+ * Only the most recent {@code maxWindowCount} windows are retained, so that roots which are never read (e.g. filtered
+ * or failed) do not accumulate. Reading the observations of a root whose window was released falls back to a
+ * direct query.
+ */
+@Slf4j
+public class PrefetchingMongoDBCollectionReader extends MongoDBCollectionReader {
+
+  /**
+   * Constants.
+   */
+  private static final int DEFAULT_MAX_WINDOW_COUNT = 2;
+
+  /**
+   * Configuration.
+   */
+  private final ReleaseCollection collection;
+  private final CollectionFields observationFields;
+  private final int prefetchSize;
+  private final int maxWindowCount;
+
+  /**
+   * State - Observations of prefetched roots that have not yet been read, indexed by root id.
+   */
+  private final ConcurrentMap<String, List<ObjectNode>> prefetched = Maps.newConcurrentMap();
+
+  /**
+   * State - Root ids of the retained windows, oldest first.
+   */
+  private final Queue<Set<String>> windows = new ArrayDeque<Set<String>>();
+
+  public PrefetchingMongoDBCollectionReader(@NonNull Jongo client, @NonNull ReleaseCollection collection,
+      @NonNull CollectionFields observationFields, int prefetchSize) {
+    this(client, collection, observationFields, prefetchSize, DEFAULT_MAX_WINDOW_COUNT);
+  }
+
+  /**
+   * @param maxWindowCount the number of windows to retain, which should cover the roots that have been handed out but
+   * not yet transformed
+   */
+  public PrefetchingMongoDBCollectionReader(@NonNull Jongo client, @NonNull ReleaseCollection collection,
+      @NonNull CollectionFields observationFields, int prefetchSize, int maxWindowCount) {
+    super(client);
+    checkArgument(prefetchSize > 0, "Prefetch size must be positive: %s", prefetchSize);
+    checkArgument(maxWindowCount > 0, "Maximum window count must be positive: %s", maxWindowCount);
+    this.collection = collection;
+    this.observationFields = observationFields;
+    this.prefetchSize = prefetchSize;
+    this.maxWindowCount = maxWindowCount;
+  }
+
+  @Override
+  public Iterable<ObjectNode> read(@NonNull ReleaseCollection releaseCollection, @NonNull CollectionFields fields) {
+    val roots = readRoots(releaseCollection, fields);
+    val key = ObservationKey.forCollection(releaseCollection);
+    if (releaseCollection != collection || key == null) {
+      // Only the document roots are prefetched, not the reference data read by the document context
+      return roots;
+    }
+
+    log.info("Prefetching '{}' observations in windows of {} roots", releaseCollection.getId(), prefetchSize);
+    return concat(transform(partition(roots, prefetchSize), new Function<List<ObjectNode>, List<ObjectNode>>() {
+
+      @Override
+      public List<ObjectNode> apply(List<ObjectNode> window) {
+        prefetch(key, window);
+
+        return window;
+      }
+
+    }));
+  }
+
+  @Override
+  public Iterable<ObjectNode> readObservationsByDonorId(@NonNull String donorId, CollectionFields fields) {
+    val observations = prefetched.remove(donorId);
+
+    return observations == null ? super.readObservationsByDonorId(donorId, fields) : observations;
+  }
+
+  @Override
+  public Iterable<ObjectNode> readObservationsByGeneId(@NonNull String geneId, @NonNull CollectionFields fields) {
+    val observations = prefetched.remove(geneId);
+
+    return observations == null ? super.readObservationsByGeneId(geneId, fields) : observations;
+  }
+
+  @Override
+  public Iterable<ObjectNode> readObservationsByMutationId(String mutationId, CollectionFields fields) {
+    val observations = prefetched.remove(mutationId);
+
+    return observations == null ? super.readObservationsByMutationId(mutationId, fields) : observations;
+  }
+
+  /**
+   * @return the number of prefetched roots whose observations have not yet been read
+   */
+  int getPrefetchedCount() {
+    return prefetched.size();
+  }
+
+  /**
+   * Reads the document roots of {@code releaseCollection}.
+   */
+  protected Iterable<ObjectNode> readRoots(ReleaseCollection releaseCollection, CollectionFields fields) {
+    return super.read(releaseCollection, fields);
+  }
+
+  /**
+   * Reads the observations whose {@code fieldName} matches any of the supplied {@code rootIds} in a single query.
+   */
+  protected Iterable<ObjectNode> readObservations(String fieldName, List<String> rootIds, CollectionFields fields) {
+    val query = "{ " + fieldName + ": { $in: # } }";
+
+    return read(getCollection(OBSERVATION_COLLECTION).find(query, rootIds), fields);
+  }
+
+  private void prefetch(ObservationKey key, List<ObjectNode> window) {
+    val ids = ImmutableSet.<String> builder();
+    for (val root : window) {
+      ids.add(key.getRootId(root));
+    }
+
+    val windowIds = ids.build();
+    val windowObservations = ArrayListMultimap.<String, ObjectNode> create();
+
+    // Clients may not require the key field, but it is required for indexing so it is added here and removed once it
+    // is no longer required
+    val addKey = !observationFields.uses(key.getFieldName());
+    val fields = addKey ? observationFields.with(key.getFieldName()) : observationFields;
+    for (val observation : readObservations(key.getFieldName(), windowIds.asList(), fields)) {
+      boolean shared = false;
+      for (val id : key.getObservationIds(observation)) {
+        if (windowIds.contains(id)) {
+          // Transforms modify observations in place so each root must have its own copy
+          windowObservations.put(id, shared ? observation.deepCopy() : observation);
+          shared = true;
+        }
+      }
+    }
+
+    for (val id : windowIds) {
+      val observations = windowObservations.get(id);
+      if (addKey) {
+        for (val observation : observations) {
+          key.remove(observation);
+        }
+      }
+
+      prefetched.put(id, ImmutableList.copyOf(observations));
+    }
+
+    release(windowIds);
+  }
+
+  private void release(Set<String> windowIds) {
+    windows.add(windowIds);
+    while (windows.size() > maxWindowCount) {
+      int releasedCount = 0;
+      for (val id : windows.remove()) {
+        if (prefetched.remove(id) != null) {
+          releasedCount++;
+        }
+      }
+
+      if (releasedCount > 0) {
+        log.debug("Released prefetched observations of {} unread root(s)", releasedCount);
+      }
+    }
+  }
+
+  /**
+   * The observation field that relates an observation to its root.
+   */
+  @RequiredArgsConstructor
+  private enum ObservationKey {
+
+    DONOR(DONOR_COLLECTION, OBSERVATION_DONOR_ID) {
+
+      @Override
+      String getRootId(ObjectNode donor) {
+        return getDonorId(donor);
+      }
+
+      @Override
+      Collection<String> getObservationIds(ObjectNode observation) {
+        return ImmutableList.of(getObservationDonorId(observation));
+      }
+
+    },
+    GENE(GENE_COLLECTION, OBSERVATION_CONSEQUENCES + "." + OBSERVATION_CONSEQUENCES_GENE_ID) {
+
+      @Override
+      String getRootId(ObjectNode gene) {
+        return getGeneId(gene);
+      }
+
+      @Override
+      Collection<String> getObservationIds(ObjectNode observation) {
+        val geneIds = ImmutableSet.<String> builder();
+        for (val consequence : getObservationConsequences(observation)) {
+          val geneId = getObservationConsequenceGeneId(consequence);
+          if (geneId != null) {
+            geneIds.add(geneId);
+          }
+        }
+
+        return geneIds.build();
+      }
+
+      @Override
+      void remove(ObjectNode observation) {
+        for (val consequence : getObservationConsequences(observation)) {
+          removeObservationConsequenceGeneId(consequence);
+        }
+      }
+
+    },
+    MUTATION(MUTATION_COLLECTION, OBSERVATION_MUTATION_ID) {
+
+      @Override
+      String getRootId(ObjectNode mutation) {
+        return getMutationId(mutation);
+      }
+
+      @Override
+      Collection<String> getObservationIds(ObjectNode observation) {
+        return ImmutableList.of(getObservationMutationId(observation));
+      }
+
+    };
+
+    private final ReleaseCollection collection;
+    private final String fieldName;
+
+    String getFieldName() {
+      return fieldName;
+    }
+
+    abstract String getRootId(ObjectNode root);
+
+    abstract Collection<String> getObservationIds(ObjectNode observation);
+
+    void remove(ObjectNode observation) {
+      observation.remove(fieldName);
+    }
+
+    static ObservationKey forCollection(ReleaseCollection collection) {
+      for (val value : values()) {
+        if (value.collection == collection) {
+          return value;
+        }
+      }
+
+      return null;
+    }
+
+  }
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.base.Stopwatch.createStarted;
+import static com.google.common.collect.Iterables.transform;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.DONOR_COLLECTION;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.GENE_COLLECTION;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.GENE_SET_COLLECTION;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.PROJECT_COLLECTION;
+import static org.icgc.dcc.common.core.util.Formats.formatCount;
+import static org.icgc.dcc.etl.indexer.model.CollectionFields.DEFAULT_COLLECTION_FIELDS;
+import static org.icgc.dcc.etl.indexer.model.CollectionFields.collectionFields;
+import static org.icgc.dcc.etl.indexer.transform.GeneGeneSetPivoter.pivotGenesGeneSets;
+import static org.icgc.dcc.etl.indexer.util.JsonNodeProjections.projectCopy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.common.core.model.ReleaseCollection;
+import org.icgc.dcc.etl.indexer.core.CollectionReader;
+import org.icgc.dcc.etl.indexer.model.CollectionFields;
+import org.icgc.dcc.etl.indexer.model.DocumentType;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Process-wide cache of the reference data (projects, donors, genes and gene sets) that document types join against.
+ * <p>
+ * Each collection is read once using the union of the projections of all document types that join against it, and
+ * then narrowed to the projection of each requesting type. Requests that are not covered by the union (e.g. types with
+ * the default projection) are read once per distinct projection instead. Cached documents are never handed out
+ * directly: every type receives its own narrowed copy, since transforms and gene set pivoting mutate their inputs.
+ * Likewise, genes are pivoted once per projection and each request receives copies of the pivoted genes.
+ * <p>
+ * Since the cache holds every loaded collection in addition to the copies held by each type, it only pays off when
+ * more than one type is written. A single type reads its reference data straight from its {@link CollectionReader}.
+ */
+@Slf4j
+public class ReferenceDataCache {
+
+  /**
+   * Constants.
+   */
+  private static final List<ReleaseCollection> REFERENCE_COLLECTIONS =
+      ImmutableList.of(PROJECT_COLLECTION, DONOR_COLLECTION, GENE_COLLECTION, GENE_SET_COLLECTION);
+  private static final CollectionFields GENE_SET_ONTOLOGY_FIELDS =
+      collectionFields().includedFields("id", "go_term.ontology").build();
+
+  /**
+   * Data access.
+   */
+  @NonNull
+  private final CollectionReader reader;
+
+  /**
+   * Union of the projections of all document types per reference collection.
+   */
+  private final Map<ReleaseCollection, CollectionFields> unionFields;
+
+  /**
+   * Loaded collections.
+   */
+  private final ConcurrentMap<Key, Entry> entries = Maps.newConcurrentMap();
+
+  /**
+   * Pivoted genes per projection.
+   */
+  private final ConcurrentMap<Key, PivotedGenes> pivotedGenes = Maps.newConcurrentMap();
+
+  /**
+   * Gene set ontologies by gene set id, used to pivot genes.
+   */
+  @Getter(value = PRIVATE, lazy = true)
+  private final Map<String, String> geneSetOntologies = loadGeneSetOntologies();
+
+  public ReferenceDataCache(@NonNull CollectionReader reader, @NonNull Iterable<DocumentType> types) {
+    this.reader = reader;
+    this.unionFields = createUnionFields(types);
+  }
+
+  public Iterable<ObjectNode> getProjects(@NonNull CollectionFields fields) {
+    return get(PROJECT_COLLECTION, fields);
+  }
+
+  public Iterable<ObjectNode> getDonors(@NonNull CollectionFields fields) {
+    return get(DONOR_COLLECTION, fields);
+  }
+
+  public Iterable<ObjectNode> getGenesPivoted(@NonNull CollectionFields fields) {
+    val genes = getPivotedGenes(fields).getGenes();
+
+    return transform(genes, new Function<ObjectNode, ObjectNode>() {
+
+      @Override
+      public ObjectNode apply(ObjectNode gene) {
+        return gene.deepCopy();
+      }
+
+    });
+  }
+
+  public Iterable<ObjectNode> getGeneSets(@NonNull CollectionFields fields) {
+    return get(GENE_SET_COLLECTION, fields);
+  }
+
+  /**
+   * Gets a snapshot of the load statistics of each cached collection projection.
+   */
+  public List<Stats> getStats() {
+    val stats = ImmutableList.<Stats> builder();
+    for (val entry : entries.values()) {
+      if (entry.isLoaded()) {
+        stats.add(entry.getStats());
+      }
+    }
+
+    return stats.build();
+  }
+
+  public void logStats() {
+    for (val stats : getStats()) {
+      log.info("Reference data '{}' {}: {} documents loaded in {} ms, served {} requests",
+          new Object[] { stats.getCollection().getId(), stats.getFields(), formatCount(stats.getSize()),
+              stats.getLoadTime(), stats.getRequestCount() });
+    }
+  }
+
+  private Iterable<ObjectNode> get(ReleaseCollection collection, final CollectionFields fields) {
+    val union = unionFields.get(collection);
+    val loadFields = union != null && union.covers(fields) ? union : fields;
+    val documents = getEntry(collection, loadFields).getDocuments();
+
+    return transform(documents, new Function<ObjectNode, ObjectNode>() {
+
+      @Override
+      public ObjectNode apply(ObjectNode document) {
+        return projectCopy(document, fields);
+      }
+
+    });
+  }
+
+  private Map<String, String> loadGeneSetOntologies() {
+    val geneSetOntologies = ImmutableMap.<String, String> builder();
+    for (val geneSet : get(GENE_SET_COLLECTION, GENE_SET_ONTOLOGY_FIELDS)) {
+      val goTerm = geneSet.path("go_term");
+
+      if (!goTerm.isMissingNode()) {
+        val id = geneSet.get("id").textValue();
+        val ontology = goTerm.get("ontology").textValue();
+
+        geneSetOntologies.put(id, ontology);
+      }
+    }
+
+    return geneSetOntologies.build();
+  }
+
+  private Entry getEntry(ReleaseCollection collection, CollectionFields fields) {
+    val key = new Key(collection, fields);
+    val entry = new Entry(key, fields);
+    val existing = entries.putIfAbsent(key, entry);
+
+    return existing == null ? entry : existing;
+  }
+
+  private PivotedGenes getPivotedGenes(CollectionFields fields) {
+    val key = new Key(GENE_COLLECTION, fields);
+    val genes = new PivotedGenes(fields);
+    val existing = pivotedGenes.putIfAbsent(key, genes);
+
+    return existing == null ? genes : existing;
+  }
+
+  private List<ObjectNode> load(ReleaseCollection collection, CollectionFields fields) {
+    switch (collection) {
+    case PROJECT_COLLECTION:
+      return ImmutableList.copyOf(reader.readProjects(fields));
+    case DONOR_COLLECTION:
+      return ImmutableList.copyOf(reader.readDonors(fields));
+    case GENE_COLLECTION:
+      // NOTE: Pivoted per request
+      return ImmutableList.copyOf(reader.readGenes(fields));
+    case GENE_SET_COLLECTION:
+      return ImmutableList.copyOf(reader.readGeneSets(fields));
+    default:
+      throw new IllegalArgumentException("Unexpected reference collection: " + collection);
+    }
+  }
+
+  private static Map<ReleaseCollection, CollectionFields> createUnionFields(Iterable<DocumentType> types) {
+    val unionFields = Maps.<ReleaseCollection, CollectionFields> newEnumMap(ReleaseCollection.class);
+    for (val collection : REFERENCE_COLLECTIONS) {
+      CollectionFields union = null;
+      for (val type : types) {
+        val fields = type.getFields().getFields(collection);
+
+        // Root collection reads and unconfigured projections would only widen the union
+        val joined = type.getCollection() != collection && fields != DEFAULT_COLLECTION_FIELDS;
+        if (joined) {
+          union = union == null ? fields : union.union(fields);
+        }
+      }
+
+      if (union != null) {
+        unionFields.put(collection, union);
+      }
+    }
+
+    // Gene set ontologies are needed to pivot genes
+    val geneSetFields = unionFields.get(GENE_SET_COLLECTION);
+    if (geneSetFields != null) {
+      unionFields.put(GENE_SET_COLLECTION, geneSetFields.union(GENE_SET_ONTOLOGY_FIELDS));
+    }
+
+    return unionFields;
+  }
+
+  private static String formatFields(CollectionFields fields) {
+    return "{included: " + fields.getIncludedFields() + ", excluded: " + fields.getExcludedFields() + "}";
+  }
+
+  /**
+   * Cache key of a collection projection.
+   */
+  @Value
+  private static class Key {
+
+    ReleaseCollection collection;
+    Set<String> includedFields;
+    Set<String> excludedFields;
+
+    private Key(ReleaseCollection collection, CollectionFields fields) {
+      this.collection = collection;
+      this.includedFields = ImmutableSet.copyOf(fields.getIncludedFields());
+      this.excludedFields = ImmutableSet.copyOf(fields.getExcludedFields());
+    }
+
+  }
+
+  /**
+   * Lazily loaded collection projection.
+   */
+  @RequiredArgsConstructor
+  private class Entry {
+
+    private final Key key;
+    private final CollectionFields fields;
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private volatile long loadTime = -1;
+
+    @Getter(lazy = true)
+    private final List<ObjectNode> loadedDocuments = loadDocuments();
+
+    List<ObjectNode> getDocuments() {
+      requestCount.incrementAndGet();
+      return getLoadedDocuments();
+    }
+
+    boolean isLoaded() {
+      return loadTime >= 0;
+    }
+
+    Stats getStats() {
+      return new Stats(key.getCollection(), formatFields(fields), getLoadedDocuments().size(), loadTime,
+          requestCount.get());
+    }
+
+    private List<ObjectNode> loadDocuments() {
+      val watch = createStarted();
+      log.info("Loading reference data '{}' {}...", key.getCollection().getId(), formatFields(fields));
+      val documents = load(key.getCollection(), fields);
+
+      loadTime = watch.elapsed(MILLISECONDS);
+      log.info("Loaded {} reference data '{}' documents in {}",
+          new Object[] { formatCount(documents.size()), key.getCollection().getId(), watch });
+
+      return documents;
+    }
+
+  }
+
+  /**
+   * Lazily pivoted gene projection.
+   */
+  @RequiredArgsConstructor
+  private class PivotedGenes {
+
+    private final CollectionFields fields;
+
+    @Getter(lazy = true)
+    private final List<ObjectNode> genes = pivotGenes();
+
+    private List<ObjectNode> pivotGenes() {
+      // NOTE: Pivoting mutates the genes, which is safe since they are copies
+      return ImmutableList.copyOf(pivotGenesGeneSets(get(GENE_COLLECTION, fields), getGeneSetOntologies()));
+    }
+
+  }
+
+  /**
+   * Load statistics of a cached collection projection.
+   */
+  @Value
+  public static class Stats {
+
+    /**
+     * The cached collection.
+     */
+    ReleaseCollection collection;
+
+    /**
+     * The projection the collection was loaded with.
+     */
+    String fields;
+
+    /**
+     * The number of cached documents.
+     */
+    int size;
+
+    /**
+     * The time taken to load the documents in milliseconds.
+     */
+    long loadTime;
+
+    /**
+     * The number of document type requests served.
+     */
+    int requestCount;
+
+  }
+
+}
@@ -18,6 +18,7 @@
 package org.icgc.dcc.etl.indexer.io;
 
 import static com.fasterxml.jackson.core.JsonParser.Feature.AUTO_CLOSE_SOURCE;
+import static com.google.common.io.ByteStreams.readFully;
 import static org.icgc.dcc.common.core.util.Formats.formatCount;
 import static org.icgc.dcc.etl.indexer.io.TarArchiveDocumentWriter.MAPPING_FILE_NAME;
 import static org.icgc.dcc.etl.indexer.io.TarArchiveDocumentWriter.SETTINGS_FILE_NAME;
@@ -58,8 +59,35 @@ public class TarArchiveDocumentReader {
   @NonNull
   private final InputStream inputStream;
 
+  public void read(@NonNull final DocumentType type, @NonNull final TarArchiveEntryCallback callback) {
+    read(new TarArchiveSourceCallback() {
+
+      @Override
+      public void onSettings(ObjectNode settings) {
+        callback.onSettings(settings);
+      }
+
+      @Override
+      public void onMapping(String mappingTypeName, ObjectNode mapping) {
+        callback.onMapping(mappingTypeName, mapping);
+      }
+
+      @Override
+      @SneakyThrows
+      public void onSource(String id, byte[] source) {
+        val document = new Document(type, id, (ObjectNode) MAPPER.readTree(source));
+
+        callback.onDocument(document);
+      }
+
+    });
+  }
+
+  /**
+   * Reads the archive, dispatching document sources without parsing them.
+   */
   @SneakyThrows
-  public void read(@NonNull DocumentType type, @NonNull TarArchiveEntryCallback callback) {
+  public void read(@NonNull TarArchiveSourceCallback callback) {
     val archiveStream = readArchiveStream(inputStream);
 
     int count = 0;
@@ -77,11 +105,10 @@ public class TarArchiveDocumentReader {
         callback.onMapping(mappingTypeName, mapping);
       } else {
         val id = getEntryNamePart(entry, 2);
-        val source = readSource(archiveStream);
-        val document = new Document(type, id, source);
+        val source = readBytes(archiveStream, entry);
 
         // Dispatch
-        callback.onDocument(document);
+        callback.onSource(id, source);
 
         if (++count % 1000 == 0) {
           log.info("Document count: {}", formatCount(count));
@@ -106,6 +133,13 @@ public class TarArchiveDocumentReader {
     return (ObjectNode) MAPPER.readTree(inputStream);
   }
 
+  private static byte[] readBytes(InputStream inputStream, TarArchiveEntry entry) throws IOException {
+    val bytes = new byte[(int) entry.getSize()];
+    readFully(inputStream, bytes);
+
+    return bytes;
+  }
+
   private static TarArchiveInputStream readArchiveStream(InputStream inputStream) throws IOException {
     return new TarArchiveInputStream(inputStream);
   }
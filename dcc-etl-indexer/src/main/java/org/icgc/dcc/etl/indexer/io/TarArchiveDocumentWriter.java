@@ -25,21 +25,19 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.utils.CountingOutputStream;
 import org.icgc.dcc.etl.indexer.core.Document;
 import org.icgc.dcc.etl.indexer.core.DocumentWriter;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 import org.icgc.dcc.etl.indexer.service.IndexService;
+import org.icgc.dcc.etl.indexer.util.ReusableByteArrayOutputStream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.io.ByteStreams;
 
 /**
  * Knapsack compliant archive writer.
@@ -55,6 +53,7 @@ public class TarArchiveDocumentWriter implements DocumentWriter {
   private static final ObjectMapper MAPPER = newDefaultMapper().configure(AUTO_CLOSE_TARGET, false);
   public static final String SETTINGS_FILE_NAME = "_settings";
   public static final String MAPPING_FILE_NAME = "_mapping";
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
 
   /**
    * Meta data.
@@ -66,6 +65,11 @@ public class TarArchiveDocumentWriter implements DocumentWriter {
    */
   private final TarArchiveOutputStream archive;
 
+  /**
+   * Serialization buffer reused across meta entries.
+   */
+  private final ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+
   public TarArchiveDocumentWriter(@NonNull String indexName, @NonNull OutputStream outputStream) throws IOException {
     // Create state
     this.indexName = indexName;
@@ -79,7 +83,8 @@ public class TarArchiveDocumentWriter implements DocumentWriter {
     val name = formatEntryName(document);
 
     try {
-      addEntry(name, document.getSource());
+      // Shares the encoding with any other JSON writers of the document
+      addEntry(name, document.getJsonSource());
     } catch (Exception e) {
       throw new RuntimeException("Failed to write document with id " + document.getId() + " of type "
           + document.getType(), e);
@@ -106,14 +111,24 @@ public class TarArchiveDocumentWriter implements DocumentWriter {
   }
 
   private void addEntry(String name, ObjectNode source) throws IOException {
-    val size = getSize(source);
+    // Serialize once to learn the entry size up front
+    buffer.reset();
+    MAPPER.writeValue(buffer, source);
+
+    addEntry(name, buffer.getBuffer(), buffer.size());
+  }
 
+  private void addEntry(String name, byte[] source) throws IOException {
+    addEntry(name, source, source.length);
+  }
+
+  private void addEntry(String name, byte[] source, int size) throws IOException {
     // knapsack 2.x versions needs an extra directory so we embedded them under the index
     val entry = new TarArchiveEntry(formatEntryName(indexName, name));
     entry.setSize(size);
 
     archive.putArchiveEntry(entry);
-    MAPPER.writeValue(archive, source);
+    archive.write(source, 0, size);
     archive.closeArchiveEntry();
   }
 
@@ -129,12 +144,4 @@ public class TarArchiveDocumentWriter implements DocumentWriter {
     return new TarArchiveOutputStream(outputStream);
   }
 
-  @SneakyThrows
-  private static long getSize(ObjectNode source) {
-    val counter = new CountingOutputStream(ByteStreams.nullOutputStream());
-    MAPPER.writeValue(counter, source);
-
-    return counter.getBytesWritten();
-  }
-
 }
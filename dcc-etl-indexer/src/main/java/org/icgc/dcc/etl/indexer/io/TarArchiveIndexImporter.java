@@ -17,27 +17,33 @@
  */
 package org.icgc.dcc.etl.indexer.io;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Stopwatch.createStarted;
 import static com.google.common.base.Strings.repeat;
+import static com.google.common.base.Throwables.propagate;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.elasticsearch.common.xcontent.XContentType.JSON;
 import static org.icgc.dcc.common.hadoop.fs.FileSystems.getFileSystem;
 import static org.icgc.dcc.etl.indexer.factory.TransportClientFactory.newTransportClient;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import lombok.Cleanup;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.elasticsearch.client.Client;
 import org.icgc.dcc.etl.indexer.cli.DocumentTypeConverter;
-import org.icgc.dcc.etl.indexer.core.Document;
 import org.icgc.dcc.etl.indexer.core.DocumentService;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 
@@ -46,6 +52,9 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * An index importer that can ingest the current {@link DocumentService} produced JSON tarball archives (stored in HDFS
@@ -56,7 +65,6 @@ import com.google.common.base.Stopwatch;
  * importantly, we are free to upgrade Elasticsearch when the Portal API has upgraded to the latest API.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class TarArchiveIndexImporter {
 
   public static class Options {
@@ -84,6 +92,8 @@ public class TarArchiveIndexImporter {
      */
     @Parameter(names = { "--types" }, converter = DocumentTypeConverter.class, description = "Document types to import. Comma seperated list of: 'donor', 'donor-centric', 'gene-centric', 'gene-project', 'project', 'observation-centric', 'mutation-centric'. By default all index types will be created. (e.g. project,mutation-centric)")
     public List<DocumentType> types = newArrayList(DocumentType.values());
+    @Parameter(names = { "--concurrency" }, description = "Number of document type archives to import concurrently (default is 3)")
+    public int concurrency = 3;
 
     /**
      * Hadoop
@@ -101,6 +111,11 @@ public class TarArchiveIndexImporter {
 
   }
 
+  /**
+   * Constants.
+   */
+  private static final int CONCURRENT_REQUESTS = 10;
+
   /**
    * Dependencies.
    */
@@ -109,14 +124,65 @@ public class TarArchiveIndexImporter {
   @NonNull
   private final Client client;
 
+  /**
+   * Configuration.
+   */
+  private final int concurrency;
+
+  public TarArchiveIndexImporter(TarArchivesProcessor processor, Client client) {
+    this(processor, client, 1);
+  }
+
+  /**
+   * @param concurrency the number of document type archives imported at once
+   */
+  public TarArchiveIndexImporter(@NonNull TarArchivesProcessor processor, @NonNull Client client, int concurrency) {
+    checkArgument(concurrency > 0, "Concurrency must be positive: %s", concurrency);
+    this.processor = processor;
+    this.client = client;
+    this.concurrency = concurrency;
+  }
+
   public void execute(String indexName) {
+    execute(indexName, ImmutableList.copyOf(DocumentType.values()));
+  }
+
+  /**
+   * Imports the supplied {@code types} with up to {@code concurrency} archives streamed at once, heaviest first.
+   */
+  @SneakyThrows
+  public void execute(final String indexName, @NonNull Iterable<DocumentType> types) {
     val watch = Stopwatch.createStarted();
-    for (val type : DocumentType.values()) {
-      log.info("{}", repeat("-", 80));
-      log.info("Importing '{}' document type...", type);
-      log.info("{}", repeat("-", 80));
+    val executor = newFixedThreadPool(concurrency,
+        new ThreadFactoryBuilder().setNameFormat("archive-importer-%d").build());
+
+    try {
+      val futures = Lists.<Future<?>> newArrayList();
+      for (val type : prioritize(types)) {
+        futures.add(executor.submit(new Runnable() {
+
+          @Override
+          public void run() {
+            log.info("{}", repeat("-", 80));
+            log.info("Importing '{}' document type...", type);
+            log.info("{}", repeat("-", 80));
+
+            execute(indexName, type);
+          }
 
-      execute(indexName, type);
+        }));
+      }
+
+      // Fail on the first failure
+      for (val future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          throw propagate(e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
     }
 
     log.info("Finished importing in {}", watch);
@@ -126,30 +192,16 @@ public class TarArchiveIndexImporter {
   public void execute(final String indexName, final DocumentType type) {
     val indexClient = client.admin().indices();
 
+    // Share the requests between the types being imported concurrently. Documents are forwarded as the archived JSON.
     @Cleanup
-    val writer = new ElasticSearchDocumentWriter(client, indexName, type, 10, true);
-
-    log.info("Checking index '{}' for existence...", indexName);
-    val exists = indexClient.prepareExists(indexName)
-        .execute()
-        .actionGet()
-        .isExists();
+    val writer = new ElasticSearchDocumentWriter(client, indexName, type, Math.max(1, CONCURRENT_REQUESTS
+        / concurrency), true, JSON);
 
-    processor.process(type, new TarArchiveEntryCallback() {
+    processor.process(type, new TarArchiveSourceCallback() {
 
       @Override
       public void onSettings(ObjectNode settings) {
-        // Only do this the first time
-        if (!exists) {
-          log.info("Creating index '{}'...", indexName);
-          checkState(indexClient
-              .prepareCreate(indexName)
-              .setSettings(settings.toString())
-              .execute()
-              .actionGet()
-              .isAcknowledged(),
-              "Index '%s' creation was not acknowledged!", indexName);
-        }
+        createIndex(indexName, settings);
       }
 
       @Override
@@ -167,11 +219,50 @@ public class TarArchiveIndexImporter {
 
       @Override
       @SneakyThrows
-      public void onDocument(Document document) {
-        writer.write(document);
+      public void onSource(String id, byte[] source) {
+        writer.write(id, source);
+      }
+
+    });
+  }
+
+  /**
+   * Creates the index the first time settings are encountered. Synchronized since types may be imported concurrently.
+   */
+  private synchronized void createIndex(String indexName, ObjectNode settings) {
+    val indexClient = client.admin().indices();
+
+    log.info("Checking index '{}' for existence...", indexName);
+    val exists = indexClient.prepareExists(indexName)
+        .execute()
+        .actionGet()
+        .isExists();
+
+    // Only do this the first time
+    if (!exists) {
+      log.info("Creating index '{}'...", indexName);
+      checkState(indexClient
+          .prepareCreate(indexName)
+          .setSettings(settings.toString())
+          .execute()
+          .actionGet()
+          .isAcknowledged(),
+          "Index '%s' creation was not acknowledged!", indexName);
+    }
+  }
+
+  private static List<DocumentType> prioritize(Iterable<DocumentType> types) {
+    val sorted = Lists.newArrayList(types);
+    Collections.sort(sorted, new Comparator<DocumentType>() {
+
+      @Override
+      public int compare(DocumentType a, DocumentType b) {
+        return Integer.compare(b.getWeight(), a.getWeight());
       }
 
     });
+
+    return sorted;
   }
 
   /**
@@ -195,11 +286,11 @@ public class TarArchiveIndexImporter {
     val processor = new TarArchivesProcessor(fileSystem, archiveDir, indexName);
 
     // Construct
-    val importer = new TarArchiveIndexImporter(processor, client);
+    val importer = new TarArchiveIndexImporter(processor, client, options.concurrency);
 
     // Import
     val watch = createStarted();
-    importer.execute(indexName);
+    importer.execute(indexName, options.types);
     log.info("Finished importing '{}' in {}!", indexName, watch);
   }
 
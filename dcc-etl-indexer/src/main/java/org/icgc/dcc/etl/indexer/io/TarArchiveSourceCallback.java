@@ -17,28 +17,17 @@
  */
 package org.icgc.dcc.etl.indexer.io;
 
-import static org.icgc.dcc.etl.indexer.factory.JongoFactory.newJongo;
-import static org.icgc.dcc.etl.indexer.model.CollectionFields.DEFAULT_COLLECTION_FIELDS;
-import lombok.Cleanup;
-import lombok.SneakyThrows;
-import lombok.val;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import org.junit.Ignore;
-import org.junit.Test;
+/**
+ * Callback interface for entry events which receives document sources as the raw JSON bytes of the archive.
+ */
+public interface TarArchiveSourceCallback {
+
+  void onSettings(ObjectNode settings);
 
-@Ignore("Useful for debugging only")
-public class DirectMemoryMongoDBCollectionReaderTest {
+  void onMapping(String mappingTypeName, ObjectNode mapping);
 
-  @Test
-  @SneakyThrows
-  @SuppressWarnings("deprecation")
-  public void testRead() {
-    @Cleanup
-    val reader = new DirectMemoryMongoDBCollectionReader(newJongo("mongodb://localhost/etl-test-release17-0-0"));
-    for (@SuppressWarnings("unused")
-    val value : reader.readObservations(DEFAULT_COLLECTION_FIELDS)) {
-      // No-op
-    }
-  }
+  void onSource(String id, byte[] source);
 
 }
@@ -19,6 +19,10 @@ package org.icgc.dcc.etl.indexer.io;
 
 import static org.icgc.dcc.common.hadoop.fs.FileOperations.getDataInputStream;
 import static org.icgc.dcc.common.hadoop.fs.HadoopUtils.exists;
+
+import java.io.IOException;
+import java.io.InputStream;
+
 import lombok.Cleanup;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -50,20 +54,44 @@ public class TarArchivesProcessor {
 
   @SneakyThrows
   public void process(DocumentType type, TarArchiveEntryCallback callback) {
-    val archiveFile = getArchivePath(type);
-
-    if (!exists(fileSystem, archiveFile)) {
-      log.warn("Archive file '{}' does not exist, skipping...", archiveFile);
+    @Cleanup
+    val archiveInputStream = openArchive(type);
+    if (archiveInputStream == null) {
       return;
     }
 
-    @Cleanup
-    val archiveInputStream = getDataInputStream(fileSystem, archiveFile);
     val reader = new TarArchiveDocumentReader(archiveInputStream);
 
     reader.read(type, callback);
   }
 
+  /**
+   * Processes the archive of the supplied {@code type}, dispatching document sources without parsing them.
+   */
+  @SneakyThrows
+  public void process(DocumentType type, TarArchiveSourceCallback callback) {
+    @Cleanup
+    val archiveInputStream = openArchive(type);
+    if (archiveInputStream == null) {
+      return;
+    }
+
+    val reader = new TarArchiveDocumentReader(archiveInputStream);
+
+    reader.read(callback);
+  }
+
+  private InputStream openArchive(DocumentType type) throws IOException {
+    val archiveFile = getArchivePath(type);
+
+    if (!exists(fileSystem, archiveFile)) {
+      log.warn("Archive file '{}' does not exist, skipping...", archiveFile);
+      return null;
+    }
+
+    return getDataInputStream(fileSystem, archiveFile);
+  }
+
   private Path getArchivePath(DocumentType type) {
     return new Path(archiveDir, indexName + "-" + type.getName() + ".tar.gz");
   }
@@ -17,6 +17,7 @@
  */
 package org.icgc.dcc.etl.indexer.model;
 
+import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Iterables.get;
 import static com.google.common.collect.Iterables.isEmpty;
@@ -31,6 +32,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.val;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * Metadata for describing which collection fields to include and exclude.
@@ -97,6 +99,94 @@ public class CollectionFields {
     return result.build();
   }
 
+  /**
+   * Creates a projection that retrieves every field retrieved by either this or the supplied {@code fields}.
+   * 
+   * @param fields the fields to combine with
+   * @return the combined fields
+   */
+  public CollectionFields union(@NonNull CollectionFields fields) {
+    val result = collectionFields();
+
+    // Include (an empty list means all fields)
+    if (!isEmpty(includedFields) && !isEmpty(fields.includedFields)) {
+      val candidates = ImmutableSet.copyOf(concat(includedFields, fields.includedFields));
+      val newIncludedFields = ImmutableList.<String> builder();
+      for (val fieldName : candidates) {
+        // Redundant with an ancestor and rejected by MongoDB as a path collision
+        if (!hasAncestor(candidates, fieldName)) {
+          newIncludedFields.add(fieldName);
+        }
+      }
+
+      result.includedFields(newIncludedFields.build());
+    }
+
+    // Exclude only what both exclude
+    val newExcludedFields = newArrayList(excludedFields);
+    newExcludedFields.retainAll(ImmutableSet.copyOf(fields.excludedFields));
+    result.excludedFields(newExcludedFields);
+
+    return result.build();
+  }
+
+  /**
+   * Determines if every field retrieved by the supplied {@code fields} is also retrieved by this projection.
+   * 
+   * @param fields the fields to test
+   * @return {@code true} if a result of this projection can be narrowed to {@code fields}
+   */
+  public boolean covers(@NonNull CollectionFields fields) {
+    if (isEmpty(fields.includedFields)) {
+      if (!isEmpty(includedFields)) {
+        return false;
+      }
+
+      for (val fieldName : excludedFields) {
+        if (!contains(fields.excludedFields, fieldName)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    // MongoDB retrieves the identifier of an inclusion projection unless it is explicitly excluded
+    if (contains(excludedFields, MONGO_INTERNAL_ID) && !contains(fields.excludedFields, MONGO_INTERNAL_ID)) {
+      return false;
+    }
+
+    for (val fieldName : fields.includedFields) {
+      val included = isEmpty(includedFields) || hasAncestor(includedFields, fieldName)
+          || contains(includedFields, fieldName);
+      if (!included) {
+        return false;
+      }
+
+      for (val excludedFieldName : excludedFields) {
+        if (isPath(excludedFieldName, fieldName) || isPath(fieldName, excludedFieldName)) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean hasAncestor(Iterable<String> fieldNames, String fieldName) {
+    for (val candidate : fieldNames) {
+      if (!candidate.equals(fieldName) && isPath(candidate, fieldName)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean isPath(String ancestor, String fieldName) {
+    return fieldName.equals(ancestor) || fieldName.startsWith(ancestor + ".");
+  }
+
   public static class Builder {
 
     /**
@@ -197,6 +197,8 @@ public enum DocumentType {
       .transform(new DonorDocumentTransform())
       .batchSize(10000)
       .statusInterval(1000)
+      .weight(5)
+      .heapSize(512)
       .fields(
           fields()
               .donorFields(
@@ -234,7 +236,10 @@ public enum DocumentType {
       .collection(DONOR_COLLECTION)
       .transform(new DonorCentricDocumentTransform())
       .statusInterval(1000)
+      .weight(80)
+      .heapSize(2048)
       .batchSize(1)
+      .prefetchSize(10)
       .fields(
           fields()
               .projectFields(
@@ -316,6 +321,8 @@ public enum DocumentType {
       .collection(GENE_COLLECTION)
       .batchSize(1000)
       .statusInterval(1000)
+      .weight(10)
+      .heapSize(1024)
       .fields(
           fields()
               .geneFields(geneFields()
@@ -337,6 +344,8 @@ public enum DocumentType {
       .transform(new GeneTextDocumentTransform())
       .batchSize(1000)
       .statusInterval(1000)
+      .weight(5)
+      .heapSize(512)
       .fields(
           fields()
               .geneFields(
@@ -356,6 +365,9 @@ public enum DocumentType {
       .transform(new GeneCentricDocumentTransform())
       .batchSize(1000)
       .statusInterval(1000)
+      .weight(60)
+      .heapSize(2048)
+      .prefetchSize(10)
       .fields(
           fields()
               .projectFields(
@@ -447,6 +459,8 @@ public enum DocumentType {
       .transform(new ObservationCentricDocumentTransform())
       .batchSize(200)
       .statusInterval(100000)
+      .weight(40)
+      .heapSize(1024)
       .fields(
           fields()
               .projectFields(
@@ -527,6 +541,9 @@ public enum DocumentType {
       .transform(new MutationTextDocumentTransform())
       .batchSize(1000)
       .statusInterval(100000)
+      .weight(30)
+      .heapSize(1024)
+      .prefetchSize(1000)
       .fields(
           fields()
               .mutationFields(
@@ -560,6 +577,9 @@ public enum DocumentType {
       .transform(new MutationCentricDocumentTransform())
       .batchSize(1000)
       .statusInterval(100000)
+      .weight(100)
+      .heapSize(4096)
+      .prefetchSize(1000)
       .fields(
           fields()
               .projectFields(
@@ -665,6 +685,21 @@ public enum DocumentType {
    */
   private final int batchSize;
 
+  /**
+   * The number of roots whose observations are fetched together. A value of 0 disables prefetching.
+   */
+  private final int prefetchSize;
+
+  /**
+   * The relative expected processing time. Heavier types are scheduled first when processing types concurrently.
+   */
+  private final int weight;
+
+  /**
+   * The estimated heap in MB used while processing.
+   */
+  private final int heapSize;
+
   /**
    * The source collection.
    */
@@ -683,6 +718,9 @@ public enum DocumentType {
     this.transform = attributes.transform;
     this.batchSize = attributes.batchSize;
     this.statusInterval = attributes.statusInterval;
+    this.prefetchSize = attributes.prefetchSize;
+    this.weight = attributes.weight;
+    this.heapSize = attributes.heapSize;
     this.collection = attributes.collection;
     this.fields = attributes.fields;
   }
@@ -36,6 +36,9 @@ class DocumentTypeAttributes {
   private final static DocumentTransform DEFAULT_TRANSFORM = new BasicDocumentTransform();
   private final static int DEFAULT_BATCH_SIZE = 1;
   private final static int DEFAULT_STATUS_INTERVAL = 1000;
+  private final static int DEFAULT_PREFETCH_SIZE = 0; // Disabled
+  private final static int DEFAULT_WEIGHT = 1;
+  private final static int DEFAULT_HEAP_SIZE = 256; // MB
 
   @NonNull
   String name;
@@ -53,6 +56,9 @@ class DocumentTypeAttributes {
   DocumentFields fields = DEFAULT_DOCUMENT_FIELDS;
   int batchSize = DEFAULT_BATCH_SIZE;
   int statusInterval = DEFAULT_STATUS_INTERVAL;
+  int prefetchSize = DEFAULT_PREFETCH_SIZE;
+  int weight = DEFAULT_WEIGHT;
+  int heapSize = DEFAULT_HEAP_SIZE;
 
   DocumentTypeAttributes fields(@NonNull DocumentFields.Builder builder) {
     this.fields = builder.build();
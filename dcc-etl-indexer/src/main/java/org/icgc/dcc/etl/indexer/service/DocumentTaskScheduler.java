@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang.StringUtils.repeat;
+import static org.icgc.dcc.common.core.util.Formats.formatCount;
+import static org.icgc.dcc.common.core.util.Formats.formatRate;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.etl.indexer.core.DocumentTask;
+import org.icgc.dcc.etl.indexer.model.DocumentType;
+import org.icgc.dcc.etl.indexer.util.Stopwatches;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Executes document tasks concurrently within a heap budget.
+ * <p>
+ * Pending tasks are admitted heaviest {@link DocumentType#getWeight() weight} first whenever a slot is free and their
+ * estimated {@link DocumentType#getHeapSize() heap size} fits the remaining budget, back filling with lighter tasks
+ * otherwise. A task that exceeds the budget on its own is still run once nothing else is running. The first failure
+ * aborts all running tasks.
+ */
+@Slf4j
+public class DocumentTaskScheduler {
+
+  /**
+   * Configuration.
+   */
+  private final int concurrency;
+  private final int memoryBudget;
+
+  public DocumentTaskScheduler(int concurrency, int memoryBudget) {
+    checkArgument(concurrency > 0, "Concurrency must be positive: %s", concurrency);
+    checkArgument(memoryBudget > 0, "Memory budget must be positive: %s", memoryBudget);
+    this.concurrency = concurrency;
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * Executes the supplied {@code tasks}, returning their reports in completion order.
+   */
+  public List<Report> execute(@NonNull Iterable<DocumentTask> tasks) throws InterruptedException {
+    val pending = prioritize(tasks);
+    val reports = Lists.<Report> newArrayList();
+
+    val executor = newFixedThreadPool(concurrency, new ThreadFactoryBuilder().setNameFormat("document-task-%d").build());
+    val completion = new ExecutorCompletionService<Report>(executor);
+
+    int running = 0;
+    int memory = 0;
+    try {
+      while (!pending.isEmpty() || running > 0) {
+        // Admit
+        val iterator = pending.iterator();
+        while (running < concurrency && iterator.hasNext()) {
+          val task = iterator.next();
+          val heapSize = task.getType().getHeapSize();
+
+          val admissible = running == 0 || memory + heapSize <= memoryBudget;
+          if (admissible) {
+            iterator.remove();
+            completion.submit(new Job(task));
+
+            running++;
+            memory += heapSize;
+            log.info("Started '{}' task ({} running, {}/{} MB budgeted, {} pending)",
+                new Object[] { task.getType().getName(), running, memory, memoryBudget, pending.size() });
+          }
+        }
+
+        // Await
+        val report = completion.take().get();
+        running--;
+        memory -= report.getType().getHeapSize();
+        reports.add(report);
+        log.info("Finished '{}' task in {} ({} running, {} pending)",
+            new Object[] { report.getType().getName(), report.getWatch(), running, pending.size() });
+      }
+    } catch (ExecutionException e) {
+      log.error("Aborting task executions due to exception...");
+      propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    logReports(reports);
+
+    return reports;
+  }
+
+  private static List<DocumentTask> prioritize(Iterable<DocumentTask> tasks) {
+    val prioritized = Lists.newLinkedList(tasks);
+    Collections.sort(prioritized, new Comparator<DocumentTask>() {
+
+      @Override
+      public int compare(DocumentTask a, DocumentTask b) {
+        // Heaviest first
+        return Integer.compare(b.getType().getWeight(), a.getType().getWeight());
+      }
+
+    });
+
+    return prioritized;
+  }
+
+  private static void logReports(List<Report> reports) {
+    log.info("{}", repeat("-", 90));
+    log.info(String.format("%-30s %15s %15s %15s", "Type", "Documents", "Time (s)", "Docs/s"));
+    log.info("{}", repeat("-", 90));
+    for (val report : reports) {
+      log.info(String.format("%-30s %15s %15.1f %15s", report.getType().getName(),
+          formatCount(report.getDocumentCount()), report.getWatch().elapsed(MILLISECONDS) / 1000.0,
+          formatRate(report.getDocumentCount(), report.getWatch())));
+    }
+    log.info("{}", repeat("-", 90));
+  }
+
+  /**
+   * Execution of a single task.
+   */
+  @Value
+  private static class Job implements Callable<Report> {
+
+    DocumentTask task;
+
+    @Override
+    public Report call() throws Exception {
+      val watch = Stopwatches.createStarted();
+      task.call();
+      watch.stop();
+
+      return new Report(task.getType(), task.getDocumentCount(), watch);
+    }
+
+  }
+
+  /**
+   * Outcome of a single task.
+   */
+  @Value
+  public static class Report {
+
+    /**
+     * The processed type.
+     */
+    DocumentType type;
+
+    /**
+     * The number of documents processed.
+     */
+    int documentCount;
+
+    /**
+     * The wall-clock time of the task.
+     */
+    Stopwatch watch;
+
+  }
+
+}
@@ -17,6 +17,7 @@
  */
 package org.icgc.dcc.etl.indexer.service;
 
+import static com.google.common.collect.Iterables.size;
 import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static org.icgc.dcc.etl.indexer.factory.JongoFactory.newJongo;
 import static org.icgc.dcc.etl.indexer.factory.TransportClientFactory.newTransportClient;
@@ -25,10 +26,14 @@ import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 
 import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
 
 import org.elasticsearch.client.Client;
 import org.icgc.dcc.etl.indexer.core.Config;
 import org.icgc.dcc.etl.indexer.core.DocumentTask;
+import org.icgc.dcc.etl.indexer.io.MongoDBCollectionReader;
+import org.icgc.dcc.etl.indexer.io.ReferenceDataCache;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 import org.icgc.dcc.etl.indexer.task.LocalDocumentTask;
 import org.jongo.Jongo;
@@ -36,6 +41,7 @@ import org.jongo.Jongo;
 /**
  * High level service facade for local node index creation.
  */
+@Slf4j
 public class LocalDocumentService extends AbstractDocumentService {
 
   /**
@@ -48,15 +54,39 @@ public class LocalDocumentService extends AbstractDocumentService {
    */
   private final Client outputClient;
 
+  /**
+   * Reference data shared by all tasks of a run, if there is more than one.
+   */
+  private ReferenceDataCache referenceData;
+
   public LocalDocumentService(@NonNull Config config) {
     super(config);
     this.inputClient = newJongo(config.getMongoUri());
     this.outputClient = newTransportClient(config.getEsUri(), false);
   }
 
+  @Override
+  protected void write(Iterable<DocumentType> types) throws IOException {
+    if (size(types) < 2) {
+      // Nothing to share, so avoid holding the reference data for the life of the run
+      super.write(types);
+      return;
+    }
+
+    referenceData = new ReferenceDataCache(new MongoDBCollectionReader(inputClient), types);
+    try {
+      super.write(types);
+    } finally {
+      referenceData.logStats();
+
+      // Release for garbage collection
+      referenceData = null;
+    }
+  }
+
   @Override
   protected DocumentTask createTask(@NonNull DocumentType type) {
-    return new LocalDocumentTask(type, config, inputClient, outputClient);
+    return new LocalDocumentTask(type, config, inputClient, outputClient, referenceData);
   }
 
   @Override
@@ -64,6 +94,29 @@ public class LocalDocumentService extends AbstractDocumentService {
     return sameThreadExecutor();
   }
 
+  @Override
+  protected void executeTasks(Iterable<DocumentTask> tasks) throws InterruptedException {
+    if (config.getTypeConcurrency() < 2) {
+      super.executeTasks(tasks);
+      return;
+    }
+
+    val memoryBudget = getMemoryBudget();
+    log.info("Executing up to {} tasks concurrently within a heap budget of {} MB...", config.getTypeConcurrency(),
+        memoryBudget);
+    val scheduler = new DocumentTaskScheduler(config.getTypeConcurrency(), memoryBudget);
+    scheduler.execute(tasks);
+  }
+
+  private int getMemoryBudget() {
+    if (config.getMemoryBudget() > 0) {
+      return config.getMemoryBudget();
+    }
+
+    val maxMemory = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+    return (int) (maxMemory * 3 / 4);
+  }
+
   @Override
   public void close() throws IOException {
     inputClient.getDatabase().getMongo().close();
@@ -18,6 +18,8 @@
 package org.icgc.dcc.etl.indexer.task;
 
 import static com.google.common.io.Closeables.close;
+import static org.elasticsearch.common.xcontent.XContentType.JSON;
+import static org.elasticsearch.common.xcontent.XContentType.SMILE;
 
 import static org.icgc.dcc.common.hadoop.fs.HadoopUtils.exists;
 import static org.icgc.dcc.common.hadoop.fs.HadoopUtils.rm;
@@ -26,12 +28,15 @@ import static org.icgc.dcc.etl.indexer.factory.TransportClientFactory.newTranspo
 import static org.icgc.dcc.etl.indexer.model.DocumentType.MUTATION_CENTRIC_TYPE;
 
 import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.zip.GZIPOutputStream;
 
 import lombok.Cleanup;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -41,17 +46,25 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.icgc.dcc.etl.indexer.core.CollectionReader;
 import org.icgc.dcc.etl.indexer.core.Config;
 import org.icgc.dcc.etl.indexer.core.DocumentProcessor;
 import org.icgc.dcc.etl.indexer.core.DocumentTask;
 import org.icgc.dcc.etl.indexer.core.DocumentWriter;
+import org.icgc.dcc.etl.indexer.core.ParallelDocumentProcessor;
 import org.icgc.dcc.etl.indexer.io.ElasticSearchDocumentWriter;
+import org.icgc.dcc.etl.indexer.io.MappedMongoDBCollectionReader;
+import org.icgc.dcc.etl.indexer.io.MongoDBCollectionReader;
 import org.icgc.dcc.etl.indexer.io.MutationVCFDocumentWriter;
+import org.icgc.dcc.etl.indexer.io.ParallelGZIPOutputStream;
+import org.icgc.dcc.etl.indexer.io.PrefetchingMongoDBCollectionReader;
+import org.icgc.dcc.etl.indexer.io.ReferenceDataCache;
 import org.icgc.dcc.etl.indexer.io.TarArchiveDocumentWriter;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 import org.icgc.dcc.etl.indexer.repository.ProjectRepository;
 import org.icgc.dcc.etl.indexer.util.DocumentWriterCallback;
+import org.jongo.Jongo;
 
 import cascading.flow.Flow;
 
@@ -76,11 +89,18 @@ public abstract class AbstractDocumentTask implements DocumentTask {
   /**
    * Execution parameters.
    */
+  @Getter
   @NonNull
   protected final DocumentType type;
   @NonNull
   protected final Config config;
 
+  /**
+   * Execution state.
+   */
+  @Getter
+  private transient volatile int documentCount;
+
   @Override
   @SneakyThrows
   public Flow<?> call() {
@@ -101,7 +121,7 @@ public abstract class AbstractDocumentTask implements DocumentTask {
     val processor = createProcessor(type, reader, writers);
 
     try {
-      processor.process();
+      documentCount = processor.process();
     } finally {
       // Cleanup
       val swallow = true;
@@ -109,7 +129,7 @@ public abstract class AbstractDocumentTask implements DocumentTask {
         close(writer, swallow);
       }
 
-      close(reader, swallow);
+      closeCollectionReader(reader);
     }
   }
 
@@ -120,6 +140,31 @@ public abstract class AbstractDocumentTask implements DocumentTask {
    */
   abstract CollectionReader createCollectionReader();
 
+  protected CollectionReader createCollectionReader(Jongo client) {
+    if (config.getObservationStoreDir() != null) {
+      val storeDir = new File(config.getObservationStoreDir(), config.getIndexName());
+      log.info("Creating mapped collection reader for observation store '{}'...", storeDir);
+
+      return new MappedMongoDBCollectionReader(client, storeDir);
+    }
+
+    if (type.getPrefetchSize() > 0) {
+      // The current and previous windows, plus those of the roots queued for parallel workers
+      val queuedRootCount = config.getWorkerCount() > 1 ? config.getQueueSize() : 0;
+      val maxWindowCount = 2 + queuedRootCount / type.getPrefetchSize();
+
+      return new PrefetchingMongoDBCollectionReader(client, type.getCollection(), type.getFields()
+          .getObservationFields(), type.getPrefetchSize(), maxWindowCount);
+    }
+
+    return new MongoDBCollectionReader(client);
+  }
+
+  protected void closeCollectionReader(CollectionReader reader) throws IOException {
+    val swallow = true;
+    close(reader, swallow);
+  }
+
   protected Iterable<DocumentWriter> createWriters(DocumentType type, FileSystem fileSystem) throws IOException {
     val writers = ImmutableList.<DocumentWriter> builder();
 
@@ -134,9 +179,6 @@ public abstract class AbstractDocumentTask implements DocumentTask {
   }
 
   protected DocumentWriter createTarArchiveWriter(FileSystem fileSystem) throws IOException {
-    // Config
-    val bufferSize = 8 * 1024;
-
     val archiveName = String.format("%s-%s.tar.gz", config.getIndexName(), type.getName());
     val archivePath = new Path(config.getOutputDir(), archiveName);
     if (exists(fileSystem, archivePath)) {
@@ -144,13 +186,28 @@ public abstract class AbstractDocumentTask implements DocumentTask {
       rm(fileSystem, archivePath);
     }
 
-    val archiveOutputStream =
-        new GZIPOutputStream(new BufferedOutputStream(fileSystem.create(archivePath), bufferSize));
+    val archiveOutputStream = createArchiveOutputStream(fileSystem.create(archivePath));
 
     log.info("Creating tar archive writer for archive file '{}'...", archivePath);
     return new TarArchiveDocumentWriter(config.getIndexName(), archiveOutputStream);
   }
 
+  protected OutputStream createArchiveOutputStream(OutputStream outputStream) throws IOException {
+    // Config
+    val bufferSize = 8 * 1024;
+
+    val threadCount = config.getArchiveThreadCount();
+    if (threadCount > 1) {
+      val blockSize = config.getArchiveBlockSize();
+      log.info("Compressing archive using {} threads and blocks of {} bytes...", threadCount, blockSize);
+
+      // Blocks are written whole so no buffering required
+      return new ParallelGZIPOutputStream(outputStream, blockSize, threadCount);
+    }
+
+    return new GZIPOutputStream(new BufferedOutputStream(outputStream, bufferSize));
+  }
+
   protected DocumentWriter createVCFWriter(FileSystem fileSystem) throws IOException {
     // Config
     val bufferSize = 8 * 1024;
@@ -172,18 +229,40 @@ public abstract class AbstractDocumentTask implements DocumentTask {
   }
 
   protected DocumentWriter createElasticSearchWriter(DocumentType type) {
-    // Sets the number of concurrent requests allowed to be executed. A value of 0 means that only a single request will
-    // be allowed to be executed. A value of 1 means 1 concurrent request is allowed to be executed while accumulating
-    // new bulk requests.
-    val concurrentRequests = 1; // 2014-08-26: Changed from 10 to 1 to reduce chance for OOM
+    // Sets the maximum number of concurrent requests allowed to be executed while accumulating new bulk requests. The
+    // writer adapts down from this to cluster feedback and bounds the bytes in flight, which previously required pinning
+    // this to 1 to reduce the chance for OOM.
+    val concurrentRequests = 4;
     return new ElasticSearchDocumentWriter(newTransportClient(config.getEsUri()), config.getIndexName(), type,
-        concurrentRequests, true);
+        concurrentRequests, true, getSourceContentType());
+  }
+
+  /**
+   * @return the Elasticsearch source encoding, which when {@code JSON} is shared with the archive writer
+   */
+  protected XContentType getSourceContentType() {
+    return config.isShareSource() ? JSON : SMILE;
+  }
+
+  /**
+   * Template method.
+   * 
+   * @return the reference data shared with other tasks, or {@code null} if none.
+   */
+  protected ReferenceDataCache getReferenceData() {
+    return null;
   }
 
   protected DocumentProcessor createProcessor(DocumentType type, CollectionReader reader,
       Iterable<DocumentWriter> writers) {
-    val processor = new DocumentProcessor(config.getIndexName(), type, reader);
+    val processor = createProcessor(type, reader);
+
+    val referenceData = getReferenceData();
+    if (referenceData != null) {
+      processor.setReferenceData(referenceData);
+    }
 
+    // Writers share the encodings cached on each document
     for (val writer : writers) {
       processor.addCallback(new DocumentWriterCallback(writer));
     }
@@ -191,6 +270,16 @@ public abstract class AbstractDocumentTask implements DocumentTask {
     return processor;
   }
 
+  private DocumentProcessor createProcessor(DocumentType type, CollectionReader reader) {
+    if (config.getWorkerCount() > 1) {
+      log.info("Creating parallel processor with {} workers...", config.getWorkerCount());
+      return new ParallelDocumentProcessor(config.getIndexName(), type, reader,
+          config.getWorkerCount(), config.getQueueSize());
+    }
+
+    return new DocumentProcessor(config.getIndexName(), type, reader);
+  }
+
   private boolean isVCFExportable(DocumentType type) {
     return config.isExportVCF() && type == MUTATION_CENTRIC_TYPE;
   }
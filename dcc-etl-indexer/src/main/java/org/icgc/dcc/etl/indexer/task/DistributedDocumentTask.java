@@ -23,7 +23,6 @@ import lombok.NonNull;
 
 import org.icgc.dcc.etl.indexer.core.CollectionReader;
 import org.icgc.dcc.etl.indexer.core.Config;
-import org.icgc.dcc.etl.indexer.io.MongoDBCollectionReader;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 
 @EqualsAndHashCode(callSuper = true)
@@ -35,9 +34,7 @@ public class DistributedDocumentTask extends AbstractDocumentTask {
 
   @Override
   protected CollectionReader createCollectionReader() {
-    // FIXME: Change this back?
-    // return new DirectMemoryMongoDBCollectionReader(newJongo(config.getMongoUri()));
-    return new MongoDBCollectionReader(newJongo(config.getMongoUri()));
+    return createCollectionReader(newJongo(config.getMongoUri()));
   }
 
 }
@@ -29,7 +29,7 @@ import org.icgc.dcc.etl.indexer.core.CollectionReader;
 import org.icgc.dcc.etl.indexer.core.Config;
 import org.icgc.dcc.etl.indexer.core.DocumentWriter;
 import org.icgc.dcc.etl.indexer.io.ElasticSearchDocumentWriter;
-import org.icgc.dcc.etl.indexer.io.MongoDBCollectionReader;
+import org.icgc.dcc.etl.indexer.io.ReferenceDataCache;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 import org.icgc.dcc.etl.indexer.schema.SchemaWriter;
 import org.jongo.Jongo;
@@ -38,26 +38,36 @@ import com.google.common.collect.ImmutableList;
 
 public class LocalDocumentTask extends AbstractDocumentTask {
 
+  /**
+   * Constants.
+   */
+  private static final int DEFAULT_CONCURRENT_REQUESTS = 10;
+
   private final Jongo inputClient;
   private final Client outputClient;
+  private final ReferenceDataCache referenceData;
 
   public LocalDocumentTask(@NonNull DocumentType type, @NonNull Config config,
-      @NonNull Jongo inputClient, @NonNull Client outputClient) {
+      @NonNull Jongo inputClient, @NonNull Client outputClient, ReferenceDataCache referenceData) {
     super(type, config);
     this.inputClient = inputClient;
     this.outputClient = outputClient;
+    this.referenceData = referenceData;
   }
 
   @Override
   protected CollectionReader createCollectionReader() {
-    return new MongoDBCollectionReader(inputClient) {
+    return createCollectionReader(inputClient);
+  }
 
-      @Override
-      public void close() throws IOException {
-        // No-op since we are using a shared client
-      }
+  @Override
+  protected void closeCollectionReader(CollectionReader reader) {
+    // No-op since we are using a shared client
+  }
 
-    };
+  @Override
+  protected ReferenceDataCache getReferenceData() {
+    return referenceData;
   }
 
   @Override
@@ -72,7 +82,16 @@ public class LocalDocumentTask extends AbstractDocumentTask {
 
   @Override
   protected DocumentWriter createElasticSearchWriter(DocumentType type) {
-    return new ElasticSearchDocumentWriter(outputClient, config.getIndexName(), type, 10, false);
+    return new ElasticSearchDocumentWriter(outputClient, config.getIndexName(), type, getConcurrentRequests(), false,
+        getSourceContentType());
+  }
+
+  private int getConcurrentRequests() {
+    // Share the bulk budget between the types that may be running concurrently
+    val bulkBudget = config.getBulkBudget() > 0 ? config.getBulkBudget() : DEFAULT_CONCURRENT_REQUESTS;
+    val typeConcurrency = Math.max(1, config.getTypeConcurrency());
+
+    return Math.max(1, bulkBudget / typeConcurrency);
   }
 
   private SchemaWriter createSchemaWriter(DocumentType type) {
@@ -37,6 +37,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.icgc.dcc.etl.indexer.core.CollectionReader;
 import org.icgc.dcc.etl.indexer.core.DocumentContext;
+import org.icgc.dcc.etl.indexer.io.ReferenceDataCache;
 import org.icgc.dcc.etl.indexer.model.DocumentType;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -71,6 +72,12 @@ public class DefaultDocumentContext implements DocumentContext {
   @NonNull
   private final CollectionReader reader;
 
+  /**
+   * Reference data shared with other document types. Optional, in which case reference data is read from
+   * {@link #reader} for this type alone.
+   */
+  private final ReferenceDataCache referenceData;
+
   /**
    * Lazy-loaded map of projects indexed by project id.
    */
@@ -102,6 +109,19 @@ public class DefaultDocumentContext implements DocumentContext {
   @Getter(lazy = true)
   private final Multimap<String, ObjectNode> geneSetGeneIdIndex = resolveGeneSetGeneIdIndex();
 
+  public DefaultDocumentContext(@NonNull String indexName, @NonNull DocumentType type,
+      @NonNull CollectionReader reader) {
+    this(indexName, type, reader, null);
+  }
+
+  public DefaultDocumentContext(@NonNull String indexName, @NonNull DocumentType type,
+      @NonNull CollectionReader reader, ReferenceDataCache referenceData) {
+    this.indexName = indexName;
+    this.type = type;
+    this.reader = reader;
+    this.referenceData = referenceData;
+  }
+
   @Override
   public ObjectNode getProject(@NonNull String projectId) {
     return getProjects().get(projectId);
@@ -205,20 +225,28 @@ public class DefaultDocumentContext implements DocumentContext {
   }
 
   private Iterable<ObjectNode> readProjects() {
-    return reader.readProjects(type.getFields().getProjectFields());
+    val fields = type.getFields().getProjectFields();
+    return isShared() ? referenceData.getProjects(fields) : reader.readProjects(fields);
   }
 
   private Iterable<ObjectNode> readDonors() {
-    return reader.readDonors(type.getFields().getDonorFields());
+    val fields = type.getFields().getDonorFields();
+    return isShared() ? referenceData.getDonors(fields) : reader.readDonors(fields);
   }
 
   private Iterable<ObjectNode> readGenes() {
     // NOTE: Special case
-    return reader.readGenesPivoted(type.getFields().getGeneFields());
+    val fields = type.getFields().getGeneFields();
+    return isShared() ? referenceData.getGenesPivoted(fields) : reader.readGenesPivoted(fields);
   }
 
   private Iterable<ObjectNode> readGeneSets() {
-    return reader.readGeneSets(type.getFields().getGeneSetFields());
+    val fields = type.getFields().getGeneSetFields();
+    return isShared() ? referenceData.getGeneSets(fields) : reader.readGeneSets(fields);
+  }
+
+  private boolean isShared() {
+    return referenceData != null;
   }
 
   private Iterable<ObjectNode> readObservationsByDonorId(String donorId) {
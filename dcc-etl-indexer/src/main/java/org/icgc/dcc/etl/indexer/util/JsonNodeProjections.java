@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.util;
+
+import static com.google.common.collect.Iterables.isEmpty;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.util.regex.Pattern;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+
+import org.icgc.dcc.etl.indexer.model.CollectionFields;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Applies {@link CollectionFields} projections to in-memory documents, mirroring the MongoDB projection semantics of
+ * dotted paths over nested objects and arrays of objects.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class JsonNodeProjections {
+
+  /**
+   * Constants.
+   */
+  private static final Pattern PATH_SEPARATOR = Pattern.compile("\\.");
+  private static final String ID_FIELD_NAME = "_id";
+
+  /**
+   * Projects the supplied {@code node} onto {@code fields}.
+   * <p>
+   * Excluded fields are removed from {@code node} in place. If there are included fields, a new node containing only
+   * those and {@code _id} is returned instead, which shares its values with {@code node}. As with MongoDB, {@code _id}
+   * is only dropped when it is explicitly excluded.
+   * 
+   * @param node the node to project
+   * @param fields the fields to retain
+   * @return the projected node
+   */
+  public static ObjectNode project(@NonNull ObjectNode node, @NonNull CollectionFields fields) {
+    val result = include(node, fields);
+    exclude(result, fields);
+
+    return result;
+  }
+
+  /**
+   * Projects a copy of the supplied {@code node} onto {@code fields}, leaving {@code node} untouched.
+   * <p>
+   * Only the retained fields are copied, so this is cheaper than projecting a deep copy of {@code node}.
+   * 
+   * @param node the node to project
+   * @param fields the fields to retain
+   * @return the projected copy which shares no state with {@code node}
+   */
+  public static ObjectNode projectCopy(@NonNull ObjectNode node, @NonNull CollectionFields fields) {
+    val result = include(node, fields).deepCopy();
+    exclude(result, fields);
+
+    return result;
+  }
+
+  private static ObjectNode include(ObjectNode node, CollectionFields fields) {
+    if (isEmpty(fields.getIncludedFields())) {
+      return node;
+    }
+
+    // MongoDB always returns the identifier of an inclusion projection, which exclude() drops if requested
+    val result = JsonNodeFactory.instance.objectNode();
+    copyPath(node, result, split(ID_FIELD_NAME), 0);
+
+    for (val fieldName : fields.getIncludedFields()) {
+      copyPath(node, result, split(fieldName), 0);
+    }
+
+    return result;
+  }
+
+  private static void exclude(ObjectNode node, CollectionFields fields) {
+    for (val fieldName : fields.getExcludedFields()) {
+      removePath(node, split(fieldName), 0);
+    }
+  }
+
+  private static void copyPath(ObjectNode source, ObjectNode target, String[] path, int i) {
+    val name = path[i];
+    val value = source.get(name);
+    if (value == null) {
+      return;
+    }
+
+    val last = i == path.length - 1;
+    if (last) {
+      target.set(name, value);
+    } else if (value.isObject()) {
+      copyPath((ObjectNode) value, withObject(target, name), path, i + 1);
+    } else if (value.isArray()) {
+      val targetArray = withArray(target, name);
+      for (int j = 0; j < value.size(); j++) {
+        val element = value.get(j);
+        if (!element.isObject()) {
+          continue;
+        }
+
+        // Align elements by position so that sibling paths of the same array merge into the same element
+        while (targetArray.size() <= j) {
+          targetArray.addObject();
+        }
+
+        copyPath((ObjectNode) element, (ObjectNode) targetArray.get(j), path, i + 1);
+      }
+    }
+  }
+
+  private static void removePath(JsonNode node, String[] path, int i) {
+    if (!node.isObject()) {
+      return;
+    }
+
+    val name = path[i];
+    val last = i == path.length - 1;
+    if (last) {
+      ((ObjectNode) node).remove(name);
+      return;
+    }
+
+    val value = node.get(name);
+    if (value == null) {
+      return;
+    }
+
+    if (value.isArray()) {
+      for (val element : value) {
+        removePath(element, path, i + 1);
+      }
+    } else {
+      removePath(value, path, i + 1);
+    }
+  }
+
+  private static ObjectNode withObject(ObjectNode node, String name) {
+    val value = node.get(name);
+    if (value != null && value.isObject()) {
+      return (ObjectNode) value;
+    }
+
+    return node.putObject(name);
+  }
+
+  private static ArrayNode withArray(ObjectNode node, String name) {
+    val value = node.get(name);
+    if (value != null && value.isArray()) {
+      return (ArrayNode) value;
+    }
+
+    return node.putArray(name);
+  }
+
+  private static String[] split(String fieldName) {
+    return PATH_SEPARATOR.split(fieldName);
+  }
+
+}
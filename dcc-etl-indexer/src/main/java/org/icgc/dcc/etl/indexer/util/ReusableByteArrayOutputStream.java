@@ -17,32 +17,29 @@
  */
 package org.icgc.dcc.etl.indexer.util;
 
-import static org.icgc.dcc.etl.indexer.factory.JacksonFactory.newSmileReader;
-import static org.icgc.dcc.etl.indexer.factory.JacksonFactory.newSmileWriter;
+import java.io.ByteArrayOutputStream;
 
-import java.io.IOException;
-
-import org.apache.directmemory.serialization.Serializer;
-
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.ObjectWriter;
+/**
+ * {@link ByteArrayOutputStream} that exposes its internal buffer so that its contents can be consumed without copying.
+ * <p>
+ * Intended to be {@link #reset()} and reused, in which case the buffer only grows to the size of the largest content
+ * written.
+ */
+public class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
 
-public final class SmileObjectNodeSerializer implements Serializer {
+  public ReusableByteArrayOutputStream(int size) {
+    super(size);
+  }
 
   /**
-   * Mappers.
+   * Gets the internal buffer, of which only the first {@link #size()} bytes are valid.
+   * <p>
+   * The buffer is only valid until the next write or {@link #reset()}.
+   * 
+   * @return the buffer
    */
-  private static final ObjectWriter WRITER = newSmileWriter();
-  private static final ObjectReader READER = newSmileReader();
-
-  @Override
-  public <T> byte[] serialize(T obj) throws IOException {
-    return WRITER.writeValueAsBytes(obj);
-  }
-
-  @Override
-  public <T> T deserialize(byte[] source, final Class<T> clazz) throws IOException, ClassNotFoundException {
-    return READER.readValue(source);
+  public byte[] getBuffer() {
+    return buf;
   }
 
 }
@@ -25,7 +25,6 @@ import static org.icgc.dcc.etl.indexer.vcf.util.FeatureUtils.getPropertyNames;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.EnumSet;
@@ -47,6 +46,7 @@ import org.broadinstitute.variant.vcf.VCFHeader;
 import org.broadinstitute.variant.vcf.VCFHeaderLine;
 import org.broadinstitute.variant.vcf.VCFHeaderLineType;
 import org.broadinstitute.variant.vcf.VCFInfoHeaderLine;
+import org.icgc.dcc.etl.core.util.MappedFastaSequenceFile;
 import org.icgc.dcc.etl.indexer.vcf.model.Consequence;
 import org.icgc.dcc.etl.indexer.vcf.model.Feature;
 import org.icgc.dcc.etl.indexer.vcf.model.Mutation;
@@ -91,10 +91,10 @@ public class MutationVCFWriter implements Closeable {
   private final ICGCToVCFMutationConverter converter;
 
   public MutationVCFWriter(@NonNull String releaseName, @NonNull File fastaFile, @NonNull OutputStream outputStream,
-      boolean open, int totalSsmTestedDonorCount) throws FileNotFoundException {
+      boolean open, int totalSsmTestedDonorCount) throws IOException {
     this.releaseName = releaseName;
     this.sequenceFile = new IndexedFastaSequenceFile(fastaFile);
-    this.converter = new ICGCToVCFMutationConverter(sequenceFile);
+    this.converter = new ICGCToVCFMutationConverter(MappedFastaSequenceFile.open(fastaFile));
     this.writer = createWriter(sequenceFile.getSequenceDictionary(), outputStream);
     this.open = open;
     this.totalSsmTestedDonorCount = totalSsmTestedDonorCount;
@@ -23,9 +23,10 @@ import static org.icgc.dcc.etl.indexer.vcf.model.MutationType.DELETION;
 import static org.icgc.dcc.etl.indexer.vcf.model.MutationType.INSERTION;
 import static org.icgc.dcc.etl.indexer.vcf.model.MutationType.MUTLTIPLE_BASE_SUBSTITUTION;
 import static org.icgc.dcc.etl.indexer.vcf.model.MutationType.SINGLE_BASE_SUBSTITUTION;
+import lombok.NonNull;
 import lombok.val;
-import net.sf.picard.reference.IndexedFastaSequenceFile;
 
+import org.icgc.dcc.etl.core.util.MappedFastaSequenceFile;
 import org.icgc.dcc.etl.indexer.vcf.model.MutationType;
 
 /**
@@ -40,9 +41,9 @@ public class ICGCToVCFMutationConverter {
    */
   private static final String MUTATION_PART_SEPARATOR = ">";
 
-  private final IndexedFastaSequenceFile sequenceFile;
+  private final MappedFastaSequenceFile sequenceFile;
 
-  public ICGCToVCFMutationConverter(IndexedFastaSequenceFile sequenceFile) {
+  public ICGCToVCFMutationConverter(@NonNull MappedFastaSequenceFile sequenceFile) {
     this.sequenceFile = sequenceFile;
   }
 
@@ -116,10 +117,7 @@ public class ICGCToVCFMutationConverter {
   }
 
   private String getReference(String chromosome, long start, long end) {
-    val sequence = sequenceFile.getSubsequenceAt(chromosome, start, end);
-    val text = new String(sequence.getBases());
-
-    return text;
+    return sequenceFile.getSubsequenceAt(chromosome, start, end);
   }
 
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.core;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.PROJECT_COLLECTION;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.PROJECT_TYPE;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import lombok.val;
+
+import org.icgc.dcc.etl.indexer.model.CollectionFields;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class ParallelDocumentProcessorTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  public void testProcessPreservesOrder() {
+    val count = 10000;
+    val reader = createReader(count);
+    val processor = new ParallelDocumentProcessor("document-processor", PROJECT_TYPE, reader, 8, 16);
+
+    final List<String> ids = newArrayList();
+    processor.addCallback(new DocumentCallback() {
+
+      @Override
+      public void call(Document document) {
+        ids.add(document.getId());
+      }
+
+    });
+
+    processor.process();
+
+    assertThat(ids).hasSize(count);
+    for (int i = 0; i < count; i++) {
+      assertThat(ids.get(i)).isEqualTo("P" + i);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testProcessPropagatesCallbackFailure() {
+    val reader = createReader(100);
+    val processor = new ParallelDocumentProcessor("document-processor", PROJECT_TYPE, reader, 4, 2);
+
+    processor.addCallback(new DocumentCallback() {
+
+      @Override
+      public void call(Document document) {
+        throw new IllegalStateException(document.getId());
+      }
+
+    });
+
+    processor.process();
+  }
+
+  private static CollectionReader createReader(int count) {
+    List<ObjectNode> projects = newArrayList();
+    for (int i = 0; i < count; i++) {
+      val project = MAPPER.createObjectNode();
+      project.put(PROJECT_COLLECTION.getSurrogateKey(), "P" + i);
+
+      projects.add(project);
+    }
+
+    val reader = mock(CollectionReader.class);
+    when(reader.read(eq(PROJECT_COLLECTION), any(CollectionFields.class))).thenReturn(projects);
+
+    return reader;
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import lombok.val;
+
+import org.junit.Test;
+
+public class AdaptiveBulkControllerTest {
+
+  private static final long MB = 1024 * 1024;
+  private static final long TARGET_LATENCY = 1000;
+
+  @Test
+  public void testIncrease() {
+    val controller = createController();
+    assertThat(controller.getConcurrency()).isEqualTo(1);
+    assertThat(controller.getBulkSize()).isEqualTo(16 * MB);
+
+    // Fast responses grow both
+    controller.onSuccess(100, 0.1);
+    assertThat(controller.getConcurrency()).isEqualTo(2);
+    assertThat(controller.getBulkSize()).isEqualTo(20 * MB);
+
+    // Moderate responses only grow concurrency
+    controller.onSuccess(800, 0.1);
+    assertThat(controller.getConcurrency()).isEqualTo(3);
+    assertThat(controller.getBulkSize()).isEqualTo(20 * MB);
+
+    // Bounded
+    for (int i = 0; i < 100; i++) {
+      controller.onSuccess(100, 0.1);
+    }
+    assertThat(controller.getConcurrency()).isEqualTo(4);
+    assertThat(controller.getBulkSize()).isEqualTo(64 * MB);
+  }
+
+  @Test
+  public void testDecrease() {
+    val controller = createController();
+    for (int i = 0; i < 3; i++) {
+      controller.onSuccess(100, 0.1);
+    }
+    assertThat(controller.getConcurrency()).isEqualTo(4);
+
+    // Slow responses shed concurrency only
+    val bulkSize = controller.getBulkSize();
+    controller.onSuccess(2000, 0.1);
+    assertThat(controller.getConcurrency()).isEqualTo(3);
+    assertThat(controller.getBulkSize()).isEqualTo(bulkSize);
+
+    // Rejections and heap pressure halve both
+    controller.onRejection();
+    assertThat(controller.getConcurrency()).isEqualTo(1);
+    assertThat(controller.getBulkSize()).isEqualTo(bulkSize / 2);
+
+    controller.onSuccess(100, 0.95);
+    assertThat(controller.getConcurrency()).isEqualTo(1);
+    assertThat(controller.getBulkSize()).isEqualTo(bulkSize / 4);
+
+    // Bounded
+    for (int i = 0; i < 10; i++) {
+      controller.onRejection();
+    }
+    assertThat(controller.getConcurrency()).isEqualTo(1);
+    assertThat(controller.getBulkSize()).isEqualTo(4 * MB);
+  }
+
+  private static AdaptiveBulkController createController() {
+    return new AdaptiveBulkController(4, 4 * MB, 64 * MB, 16 * MB, TARGET_LATENCY, 0.9);
+  }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
+import static org.elasticsearch.rest.RestStatus.TOO_MANY_REQUESTS;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.DIAGRAM_TYPE;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class ElasticSearchDocumentWriterTest {
+
+  /**
+   * Test data.
+   */
+  private static final String INDEX_NAME = "index";
+  private static final int LARGE_SOURCE_SIZE = 8 * 1024 * 1024;
+  private static final byte[] SMALL_SOURCE = new byte[] { 1 };
+
+  /**
+   * Collaborators.
+   */
+  Client client;
+  BlockingQueue<BulkCall> calls;
+  ExecutorService caller;
+
+  /**
+   * Class under test.
+   */
+  ElasticSearchDocumentWriter writer;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    calls = new LinkedBlockingQueue<BulkCall>();
+    client = mock(Client.class);
+    doAnswer(new Answer<Void>() {
+
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        val arguments = invocation.getArguments();
+        calls.add(new BulkCall((BulkRequest) arguments[0], (ActionListener<BulkResponse>) arguments[1]));
+
+        return null;
+      }
+
+    }).when(client).bulk(any(BulkRequest.class), Matchers.<ActionListener<BulkResponse>> any());
+
+    caller = Executors.newSingleThreadExecutor();
+    writer = new ElasticSearchDocumentWriter(client, INDEX_NAME, DIAGRAM_TYPE, 1, false);
+  }
+
+  @After
+  public void tearDown() {
+    caller.shutdownNow();
+  }
+
+  @Test
+  public void testRetryRejectedItems() throws Exception {
+    // Exceeds the initial bulk size
+    writer.write("1", new byte[LARGE_SOURCE_SIZE]);
+    writer.write("2", new byte[LARGE_SOURCE_SIZE]);
+
+    val bulk = nextCall();
+    assertThat(bulk.getIds()).containsExactly("1", "2");
+    bulk.respond(ImmutableSet.of("2"), TOO_MANY_REQUESTS);
+
+    // Exceeds the halved bulk size, but the retried item is still in flight
+    val write = write("3", new byte[LARGE_SOURCE_SIZE]);
+
+    // Only the rejected item is retried
+    val retry = nextCall();
+    assertThat(retry.getIds()).containsExactly("2");
+    assertThat(calls.poll(200, MILLISECONDS)).isNull();
+    assertThat(write.isDone()).isFalse();
+    assertThat(writer.getTotalRetries().get()).isEqualTo(1);
+
+    retry.respond(ImmutableSet.<String> of(), null);
+    write.get(5, SECONDS);
+
+    val next = nextCall();
+    assertThat(next.getIds()).containsExactly("3");
+    next.respond(ImmutableSet.<String> of(), null);
+
+    writer.close();
+  }
+
+  @Test
+  public void testInFlightLimit() throws Exception {
+    writer.write("1", new byte[LARGE_SOURCE_SIZE]);
+    writer.write("2", new byte[LARGE_SOURCE_SIZE]);
+    val first = nextCall();
+
+    // A second bulk must wait for the first to complete
+    writer.write("3", new byte[LARGE_SOURCE_SIZE]);
+    val write = write("4", new byte[LARGE_SOURCE_SIZE]);
+    assertThat(calls.poll(200, MILLISECONDS)).isNull();
+    assertThat(write.isDone()).isFalse();
+
+    first.respond(ImmutableSet.<String> of(), null);
+    write.get(5, SECONDS);
+
+    val second = nextCall();
+    assertThat(second.getIds()).containsExactly("3", "4");
+    second.respond(ImmutableSet.<String> of(), null);
+
+    writer.close();
+    assertThat(writer.getTotalRetries().get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testInterruptedWhileWaitingKeepsBulk() throws Exception {
+    writer.write("1", new byte[LARGE_SOURCE_SIZE]);
+    writer.write("2", new byte[LARGE_SOURCE_SIZE]);
+    val first = nextCall();
+
+    writer.write("3", new byte[LARGE_SOURCE_SIZE]);
+    val write = write("4", new byte[LARGE_SOURCE_SIZE]);
+    assertThat(calls.poll(200, MILLISECONDS)).isNull();
+
+    // Interrupt the write waiting for capacity
+    write.cancel(true);
+
+    // Runs after the interrupted write on the same thread
+    val close = close();
+    first.respond(ImmutableSet.<String> of(), null);
+
+    val second = nextCall();
+    assertThat(second.getIds()).containsExactly("3", "4");
+    second.respond(ImmutableSet.<String> of(), null);
+
+    close.get(5, SECONDS);
+  }
+
+  @Test
+  public void testFinalBulkOnClose() throws Exception {
+    writer.write("1", SMALL_SOURCE);
+    writer.write("2", SMALL_SOURCE);
+    assertThat(calls).isEmpty();
+
+    val close = close();
+    val bulk = nextCall();
+    assertThat(bulk.getIds()).containsExactly("1", "2");
+    assertThat(close.isDone()).isFalse();
+
+    bulk.respond(ImmutableSet.<String> of(), null);
+    close.get(5, SECONDS);
+  }
+
+  @Test
+  public void testNonRetryableFailure() throws Exception {
+    writer.write("1", SMALL_SOURCE);
+    writer.write("2", SMALL_SOURCE);
+
+    val close = close();
+    nextCall().respond(ImmutableSet.of("1"), BAD_REQUEST);
+
+    try {
+      close.get(5, SECONDS);
+      fail("Expected close to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+
+    assertThat(calls).isEmpty();
+    assertThat(writer.getTotalRetries().get()).isEqualTo(0);
+  }
+
+  private BulkCall nextCall() throws InterruptedException {
+    val call = calls.poll(5, SECONDS);
+    assertThat(call).as("bulk request").isNotNull();
+
+    return call;
+  }
+
+  private Future<Void> write(final String id, final byte[] source) {
+    return caller.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() throws Exception {
+        writer.write(id, source);
+        return null;
+      }
+
+    });
+  }
+
+  private Future<Void> close() {
+    return caller.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() throws Exception {
+        writer.close();
+        return null;
+      }
+
+    });
+  }
+
+  /**
+   * A bulk request awaiting its response.
+   */
+  @RequiredArgsConstructor
+  private static class BulkCall {
+
+    private final BulkRequest request;
+    private final ActionListener<BulkResponse> listener;
+
+    List<String> getIds() {
+      val ids = Lists.<String> newArrayList();
+      for (val item : request.requests()) {
+        ids.add(((IndexRequest) item).id());
+      }
+
+      return ids;
+    }
+
+    void respond(Set<String> failedIds, RestStatus status) {
+      val items = new BulkItemResponse[request.numberOfActions()];
+      for (int i = 0; i < items.length; i++) {
+        val item = (IndexRequest) request.requests().get(i);
+        items[i] = failedIds.contains(item.id()) ?
+            new BulkItemResponse(i, "index",
+                new Failure(item.index(), item.type(), item.id(), status.name(), status)) :
+            new BulkItemResponse(i, "index",
+                new IndexResponse(item.index(), item.type(), item.id(), 1, true));
+      }
+
+      listener.onResponse(new BulkResponse(items, 1));
+    }
+
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.collect.Iterables.size;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.test.json.JsonNodes.$;
+
+import java.io.File;
+import java.util.List;
+
+import lombok.val;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+
+public class MappedObservationStoreTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testBuildAndOpen() throws Exception {
+    val dir = new File(tmp.getRoot(), "store");
+    assertThat(MappedObservationStore.exists(dir)).isFalse();
+
+    val built = MappedObservationStore.build(dir, createObservations());
+    assertThat(MappedObservationStore.exists(dir)).isTrue();
+    assertStore(built);
+
+    val reopened = MappedObservationStore.open(dir);
+    assertStore(reopened);
+  }
+
+  private static void assertStore(MappedObservationStore store) {
+    assertThat(store.getSize()).isEqualTo(3);
+    assertThat(size(store.getObservations())).isEqualTo(3);
+
+    assertThat(mutationIds(store.getObservationsByDonorId("DO1"))).containsExactly("MU1", "MU2");
+    assertThat(mutationIds(store.getObservationsByDonorId("DO2"))).containsExactly("MU1");
+    assertThat(mutationIds(store.getObservationsByDonorId("DO3"))).isEmpty();
+
+    // Gene shared by multiple consequences of the same observation is only indexed once
+    assertThat(mutationIds(store.getObservationsByGeneId("G1"))).containsExactly("MU1", "MU1");
+    assertThat(mutationIds(store.getObservationsByGeneId("G2"))).containsExactly("MU2");
+
+    assertThat(size(store.getObservationsByMutationId("MU1"))).isEqualTo(2);
+    assertThat(size(store.getObservationsByMutationId("MU2"))).isEqualTo(1);
+  }
+
+  private static List<String> mutationIds(Iterable<ObjectNode> observations) {
+    val mutationIds = ImmutableList.<String> builder();
+    for (val observation : observations) {
+      mutationIds.add(observation.get("_mutation_id").textValue());
+    }
+
+    return mutationIds.build();
+  }
+
+  private static List<ObjectNode> createObservations() {
+    return ImmutableList.of(
+        (ObjectNode) $("{_donor_id: 'DO1', _mutation_id: 'MU1', consequence: [{_gene_id: 'G1'}, {_gene_id: 'G1'}]}"),
+        (ObjectNode) $("{_donor_id: 'DO2', _mutation_id: 'MU1', consequence: [{_gene_id: 'G1'}]}"),
+        (ObjectNode) $("{_donor_id: 'DO1', _mutation_id: 'MU2', consequence: [{_gene_id: 'G2'}, {}]}"));
+  }
+
+}
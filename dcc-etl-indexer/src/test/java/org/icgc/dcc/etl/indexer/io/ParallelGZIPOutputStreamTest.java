@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import lombok.val;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class ParallelGZIPOutputStreamTest {
+
+  @Test
+  public void testWrite() throws Exception {
+    val data = createData(3 * 64 * 1024 + 123);
+    val output = new ByteArrayOutputStream();
+
+    val gzip = new ParallelGZIPOutputStream(output, 64 * 1024, 4);
+    // Mix single byte and partial block writes
+    gzip.write(data[0]);
+    gzip.write(data, 1, 1000);
+    gzip.write(data, 1001, data.length - 1001);
+    gzip.close();
+
+    assertThat(gunzip(output.toByteArray())).isEqualTo(data);
+  }
+
+  @Test
+  public void testWriteEmpty() throws Exception {
+    val output = new ByteArrayOutputStream();
+    new ParallelGZIPOutputStream(output, 1024, 2).close();
+
+    assertThat(gunzip(output.toByteArray())).isEmpty();
+  }
+
+  @Test
+  public void testWriteIncompressible() throws Exception {
+    val data = new byte[10 * 1024];
+    new Random(1).nextBytes(data);
+    val output = new ByteArrayOutputStream();
+
+    val gzip = new ParallelGZIPOutputStream(output, 1024, 2);
+    gzip.write(data);
+    gzip.close();
+
+    assertThat(gunzip(output.toByteArray())).isEqualTo(data);
+  }
+
+  @Test
+  public void testFlush() throws Exception {
+    val data = createData(2 * 1024 + 100);
+    val output = new ByteArrayOutputStream();
+
+    val gzip = new ParallelGZIPOutputStream(output, 1024, 2);
+    gzip.write(data);
+    gzip.flush();
+
+    // Only the completed blocks are written
+    val flushed = output.toByteArray();
+    assertThat(gunzip(flushed)).isEqualTo(Arrays.copyOf(data, 2 * 1024));
+
+    // Flushing again does not end the partial block
+    gzip.flush();
+    assertThat(output.toByteArray()).isEqualTo(flushed);
+
+    gzip.close();
+    assertThat(gunzip(output.toByteArray())).isEqualTo(data);
+  }
+
+  private static byte[] createData(int size) {
+    val data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) ('a' + i % 7 + i / 4096 % 3);
+    }
+
+    return data;
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws Exception {
+    return ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.FieldNames.DONOR_ID;
+import static org.icgc.dcc.common.core.model.FieldNames.OBSERVATION_DONOR_ID;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.DONOR_COLLECTION;
+import static org.icgc.dcc.etl.indexer.model.CollectionFields.DEFAULT_COLLECTION_FIELDS;
+import static org.icgc.dcc.etl.indexer.model.CollectionFields.collectionFields;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import lombok.val;
+
+import org.icgc.dcc.common.core.model.ReleaseCollection;
+import org.icgc.dcc.etl.indexer.model.CollectionFields;
+import org.jongo.Jongo;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class PrefetchingMongoDBCollectionReaderTest {
+
+  private static final CollectionFields OBSERVATION_FIELDS = collectionFields().includedFields(OBSERVATION_DONOR_ID)
+      .build();
+
+  /**
+   * Fake data.
+   */
+  List<ObjectNode> donors = Lists.newArrayList();
+  List<ObjectNode> observations = Lists.newArrayList();
+
+  /**
+   * Observation queries, in order.
+   */
+  List<List<String>> queries = Lists.newArrayList();
+
+  @Test
+  public void testPrefetchBeforeHandOff() {
+    addDonors(5);
+    val reader = createReader(2, 2);
+
+    val roots = reader.read(DONOR_COLLECTION, DEFAULT_COLLECTION_FIELDS).iterator();
+    assertThat(queries).isEmpty();
+
+    // Each window is prefetched before its first root is handed out
+    assertThat(getDonorId(roots.next())).isEqualTo("DO0");
+    assertThat(queries).containsExactly(ImmutableList.of("DO0", "DO1"));
+    assertThat(getDonorId(roots.next())).isEqualTo("DO1");
+    assertThat(queries).hasSize(1);
+    assertThat(getDonorId(roots.next())).isEqualTo("DO2");
+    assertThat(queries).hasSize(2).endsWith(ImmutableList.of("DO2", "DO3"));
+
+    // Served from the prefetched window and then released
+    val observations = reader.readObservationsByDonorId("DO1", OBSERVATION_FIELDS);
+    assertThat(observations).hasSize(2);
+    for (val observation : observations) {
+      assertThat(observation.get(OBSERVATION_DONOR_ID).textValue()).isEqualTo("DO1");
+    }
+    assertThat(reader.getPrefetchedCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void testUnreadRootsAreReleased() {
+    addDonors(10);
+    val reader = createReader(2, 2);
+
+    // Roots whose observations are never read
+    for (val root : reader.read(DONOR_COLLECTION, DEFAULT_COLLECTION_FIELDS)) {
+      assertThat(root).isNotNull();
+      assertThat(reader.getPrefetchedCount()).isLessThanOrEqualTo(2 * 2);
+    }
+
+    assertThat(queries).hasSize(5);
+    assertThat(reader.getPrefetchedCount()).isEqualTo(2 * 2);
+  }
+
+  private PrefetchingMongoDBCollectionReader createReader(int prefetchSize, int maxWindowCount) {
+    return new PrefetchingMongoDBCollectionReader(mock(Jongo.class), DONOR_COLLECTION, OBSERVATION_FIELDS,
+        prefetchSize, maxWindowCount) {
+
+      @Override
+      protected Iterable<ObjectNode> readRoots(ReleaseCollection releaseCollection, CollectionFields fields) {
+        return donors;
+      }
+
+      @Override
+      protected Iterable<ObjectNode> readObservations(String fieldName, List<String> rootIds,
+          CollectionFields fields) {
+        queries.add(ImmutableList.copyOf(rootIds));
+
+        val result = ImmutableList.<ObjectNode> builder();
+        for (val observation : observations) {
+          if (rootIds.contains(observation.get(fieldName).textValue())) {
+            result.add(observation);
+          }
+        }
+
+        return result.build();
+      }
+
+    };
+  }
+
+  private void addDonors(int count) {
+    for (int i = 0; i < count; i++) {
+      val donorId = "DO" + i;
+      donors.add(JsonNodeFactory.instance.objectNode().put(DONOR_ID, donorId));
+
+      // Two observations per donor
+      observations.add(JsonNodeFactory.instance.objectNode().put(OBSERVATION_DONOR_ID, donorId));
+      observations.add(JsonNodeFactory.instance.objectNode().put(OBSERVATION_DONOR_ID, donorId));
+    }
+  }
+
+  private static String getDonorId(ObjectNode donor) {
+    return donor.get(DONOR_ID).textValue();
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.FieldNames.GENE_SETS;
+import static org.icgc.dcc.common.core.model.FieldNames.GENE_SETS_TYPE;
+import static org.icgc.dcc.common.core.model.FieldNames.GENE_SET_ID;
+import static org.icgc.dcc.common.test.json.JsonNodes.$;
+import static org.icgc.dcc.etl.indexer.model.CollectionFields.collectionFields;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.DONOR_TYPE;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.GENE_CENTRIC_TYPE;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.MUTATION_CENTRIC_TYPE;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import lombok.val;
+
+import org.icgc.dcc.etl.indexer.core.CollectionReader;
+import org.icgc.dcc.etl.indexer.model.CollectionFields;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+
+public class ReferenceDataCacheTest {
+
+  @Test
+  public void testSharedAcrossTypes() {
+    val reader = mock(CollectionReader.class);
+    when(reader.readDonors(any(CollectionFields.class))).thenReturn(ImmutableList.of(
+        (ObjectNode) $("{_id: 1, _donor_id: 'DO1', _project_id: 'P1', donor_sex: 'female', gene: [{_gene_id: 'G1'}]}")));
+
+    val cache = new ReferenceDataCache(reader, ImmutableList.of(GENE_CENTRIC_TYPE, MUTATION_CENTRIC_TYPE));
+
+    val geneCentricDonor = getOnlyElement(cache.getDonors(GENE_CENTRIC_TYPE.getFields().getDonorFields()));
+    val mutationCentricDonor = getOnlyElement(cache.getDonors(MUTATION_CENTRIC_TYPE.getFields().getDonorFields()));
+
+    // Loaded once for both types
+    verify(reader, times(1)).readDonors(any(CollectionFields.class));
+    assertThat(getOnlyElement(cache.getStats()).getRequestCount()).isEqualTo(2);
+
+    // Narrowed per type
+    assertThat(geneCentricDonor.has("_id")).isFalse();
+    assertThat(geneCentricDonor.has("gene")).isFalse();
+    assertThat(geneCentricDonor.get("donor_sex").textValue()).isEqualTo("female");
+
+    // Copied per type
+    geneCentricDonor.put("donor_sex", "male");
+    assertThat(mutationCentricDonor.get("donor_sex").textValue()).isEqualTo("female");
+  }
+
+  @Test
+  public void testUncoveredFields() {
+    val reader = mock(CollectionReader.class);
+    when(reader.readProjects(any(CollectionFields.class))).thenReturn(ImmutableList.of(
+        (ObjectNode) $("{_project_id: 'P1', primary_site: 'Brain', _summary: {_total_donor_count: 1}}")));
+
+    val cache = new ReferenceDataCache(reader, ImmutableList.of(GENE_CENTRIC_TYPE, DONOR_TYPE));
+
+    val geneCentricProject = getOnlyElement(cache.getProjects(GENE_CENTRIC_TYPE.getFields().getProjectFields()));
+    val donorProject = getOnlyElement(cache.getProjects(DONOR_TYPE.getFields().getProjectFields()));
+
+    // Default projection is not covered by the union so is loaded separately
+    verify(reader, times(2)).readProjects(any(CollectionFields.class));
+    assertThat(cache.getStats()).hasSize(2);
+
+    assertThat(geneCentricProject.has("_summary")).isFalse();
+    assertThat(donorProject.has("_summary")).isTrue();
+  }
+
+  @Test
+  public void testIdRetainedByInclusion() {
+    val reader = mock(CollectionReader.class);
+    when(reader.readProjects(any(CollectionFields.class))).thenReturn(ImmutableList.of(
+        (ObjectNode) $("{_id: 1, _project_id: 'P1', primary_site: 'Brain'}")));
+
+    val cache = new ReferenceDataCache(reader, ImmutableList.of(GENE_CENTRIC_TYPE, DONOR_TYPE));
+    val fields = collectionFields().includedFields("_project_id").excludedFields().build();
+
+    val project = getOnlyElement(cache.getProjects(fields));
+
+    // As MongoDB would
+    assertThat(project.toString()).isEqualTo("{\"_id\":1,\"_project_id\":\"P1\"}");
+  }
+
+  @Test
+  public void testGenesPivotedOnce() {
+    val gene = (ObjectNode) $("{_gene_id: 'G1', symbol: 'TP53'}");
+    gene.withArray(GENE_SETS).addObject().put(GENE_SET_ID, "GS1").put(GENE_SETS_TYPE, "pathway");
+
+    val reader = mock(CollectionReader.class);
+    when(reader.readGenes(any(CollectionFields.class))).thenReturn(ImmutableList.of(gene));
+    when(reader.readGeneSets(any(CollectionFields.class))).thenReturn(ImmutableList.<ObjectNode> of());
+
+    val cache = new ReferenceDataCache(reader, ImmutableList.of(GENE_CENTRIC_TYPE, MUTATION_CENTRIC_TYPE));
+    val fields = collectionFields().build();
+
+    val gene1 = getOnlyElement(cache.getGenesPivoted(fields));
+    val gene2 = getOnlyElement(cache.getGenesPivoted(fields));
+
+    // Read and pivoted once for both requests
+    verify(reader, times(1)).readGenes(any(CollectionFields.class));
+    verify(reader, times(1)).readGeneSets(any(CollectionFields.class));
+    assertThat(gene1.has(GENE_SETS)).isFalse();
+    assertThat(gene1.get("pathway").get(0).textValue()).isEqualTo("GS1");
+    assertThat(gene2).isEqualTo(gene1);
+
+    // Copied per request
+    gene1.put("symbol", "BRCA1");
+    assertThat(gene2.get("symbol").textValue()).isEqualTo("TP53");
+    assertThat(getOnlyElement(cache.getGenesPivoted(fields)).get("symbol").textValue()).isEqualTo("TP53");
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.test.json.JsonNodes.$;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.PROJECT_TYPE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import lombok.val;
+
+import org.icgc.dcc.etl.indexer.core.Document;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
+
+public class TarArchiveDocumentReaderTest {
+
+  private static final ObjectNode P1 = (ObjectNode) $("{_project_id: 'P1'}");
+  private static final ObjectNode P2 = (ObjectNode) $("{_project_id: 'P2', name: 'Project 2'}");
+
+  @Test
+  public void testReadSources() throws Exception {
+    val reader = new TarArchiveDocumentReader(new ByteArrayInputStream(createArchive()));
+
+    final Map<String, byte[]> sources = Maps.newHashMap();
+    reader.read(new TarArchiveSourceCallback() {
+
+      @Override
+      public void onSettings(ObjectNode settings) {
+      }
+
+      @Override
+      public void onMapping(String mappingTypeName, ObjectNode mapping) {
+      }
+
+      @Override
+      public void onSource(String id, byte[] source) {
+        sources.put(id, source);
+      }
+
+    });
+
+    // Forwarded exactly as archived
+    val mapper = new ObjectMapper();
+    assertThat(sources).hasSize(2);
+    assertThat(mapper.readTree(sources.get("P1"))).isEqualTo(P1);
+    assertThat(mapper.readTree(sources.get("P2"))).isEqualTo(P2);
+  }
+
+  @Test
+  public void testReadDocuments() throws Exception {
+    val reader = new TarArchiveDocumentReader(new ByteArrayInputStream(createArchive()));
+
+    final Map<String, Document> documents = Maps.newHashMap();
+    reader.read(PROJECT_TYPE, new TarArchiveEntryCallback() {
+
+      @Override
+      public void onSettings(ObjectNode settings) {
+      }
+
+      @Override
+      public void onMapping(String mappingTypeName, ObjectNode mapping) {
+      }
+
+      @Override
+      public void onDocument(Document document) {
+        documents.put(document.getId(), document);
+      }
+
+    });
+
+    assertThat(documents).hasSize(2);
+    assertThat(documents.get("P1").getSource()).isEqualTo(P1);
+    assertThat(documents.get("P2").getSource()).isEqualTo(P2);
+    assertThat(documents.get("P2").getType()).isEqualTo(PROJECT_TYPE);
+  }
+
+  private static byte[] createArchive() throws Exception {
+    val output = new ByteArrayOutputStream();
+    val writer = new TarArchiveDocumentWriter("test-index", output);
+    writer.write(new Document(PROJECT_TYPE, "P1", P1));
+    writer.write(new Document(PROJECT_TYPE, "P2", P2));
+    writer.close();
+
+    return output.toByteArray();
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.test.json.JsonNodes.$;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.PROJECT_TYPE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import lombok.val;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.icgc.dcc.etl.indexer.core.Document;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.io.ByteStreams;
+
+public class TarArchiveDocumentWriterTest {
+
+  @Test
+  public void testWrite() throws Exception {
+    val output = new ByteArrayOutputStream();
+    val writer = new TarArchiveDocumentWriter("test-index", output);
+
+    val small = (ObjectNode) $("{_project_id: 'P1'}");
+    val large = (ObjectNode) $("{_project_id: 'P2'}");
+    large.put("description", new String(new char[200 * 1024]).replace('\0', 'x'));
+
+    // Larger than the initial buffer followed by smaller to exercise reuse
+    writer.write(new Document(PROJECT_TYPE, "P2", large));
+    writer.write(new Document(PROJECT_TYPE, "P1", small));
+    writer.close();
+
+    val archive = new TarArchiveInputStream(new ByteArrayInputStream(output.toByteArray()));
+    val mapper = new ObjectMapper();
+    int documentCount = 0;
+    for (TarArchiveEntry entry = archive.getNextTarEntry(); entry != null; entry = archive.getNextTarEntry()) {
+      val bytes = ByteStreams.toByteArray(archive);
+      assertThat(bytes).hasSize((int) entry.getSize());
+
+      val source = mapper.readTree(bytes);
+      if (entry.getName().equals("test-index/project/P1")) {
+        assertThat(source).isEqualTo(small);
+        documentCount++;
+      } else if (entry.getName().equals("test-index/project/P2")) {
+        assertThat(source).isEqualTo(large);
+        documentCount++;
+      }
+    }
+
+    assertThat(documentCount).isEqualTo(2);
+  }
+
+}
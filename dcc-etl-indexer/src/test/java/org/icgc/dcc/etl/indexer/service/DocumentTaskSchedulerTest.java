@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.DONOR_CENTRIC_TYPE;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.GENE_CENTRIC_TYPE;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.MUTATION_CENTRIC_TYPE;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.PROJECT_TYPE;
+import static org.icgc.dcc.etl.indexer.model.DocumentType.RELEASE_TYPE;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import org.icgc.dcc.etl.indexer.core.DocumentTask;
+import org.icgc.dcc.etl.indexer.model.DocumentType;
+import org.junit.Test;
+
+import cascading.flow.Flow;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class DocumentTaskSchedulerTest {
+
+  @Test
+  public void testExecuteHeaviestFirst() throws Exception {
+    val state = new State();
+    val tasks = createTasks(state, PROJECT_TYPE, GENE_CENTRIC_TYPE, RELEASE_TYPE, MUTATION_CENTRIC_TYPE,
+        DONOR_CENTRIC_TYPE);
+
+    val reports = new DocumentTaskScheduler(1, Integer.MAX_VALUE).execute(tasks);
+
+    assertThat(state.started).containsExactly(MUTATION_CENTRIC_TYPE, DONOR_CENTRIC_TYPE, GENE_CENTRIC_TYPE,
+        PROJECT_TYPE, RELEASE_TYPE);
+    assertThat(reports).hasSize(5);
+    assertThat(reports.get(0).getDocumentCount()).isEqualTo(MUTATION_CENTRIC_TYPE.ordinal());
+  }
+
+  @Test
+  public void testExecuteWithinMemoryBudget() throws Exception {
+    val state = new State();
+    val tasks = createTasks(state, MUTATION_CENTRIC_TYPE, DONOR_CENTRIC_TYPE, GENE_CENTRIC_TYPE, PROJECT_TYPE);
+
+    // Only the mutation centric type on its own, or the donor and gene centric types together
+    val memoryBudget = MUTATION_CENTRIC_TYPE.getHeapSize();
+    new DocumentTaskScheduler(4, memoryBudget).execute(tasks);
+
+    assertThat(state.started).hasSize(4);
+    assertThat(state.maxMemory.get()).isLessThanOrEqualTo(memoryBudget);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testExecutePropagatesFailure() throws Exception {
+    val task = new TestTask(new State(), PROJECT_TYPE) {
+
+      @Override
+      public Flow<?> call() {
+        throw new IllegalStateException();
+      }
+
+    };
+
+    new DocumentTaskScheduler(2, Integer.MAX_VALUE).execute(ImmutableList.<DocumentTask> of(task));
+  }
+
+  private static List<DocumentTask> createTasks(State state, DocumentType... types) {
+    val tasks = ImmutableList.<DocumentTask> builder();
+    for (val type : types) {
+      tasks.add(new TestTask(state, type));
+    }
+
+    return tasks.build();
+  }
+
+  private static class State {
+
+    final List<DocumentType> started = Lists.newCopyOnWriteArrayList();
+    final AtomicInteger memory = new AtomicInteger();
+    final AtomicInteger maxMemory = new AtomicInteger();
+
+  }
+
+  @RequiredArgsConstructor
+  private static class TestTask implements DocumentTask {
+
+    private final State state;
+    @Getter
+    private final DocumentType type;
+    @Getter
+    private int documentCount;
+
+    @Override
+    public Flow<?> call() throws Exception {
+      execute();
+      return null;
+    }
+
+    @Override
+    public void execute() throws Exception {
+      state.started.add(type);
+      val memory = state.memory.addAndGet(type.getHeapSize());
+      synchronized (state) {
+        state.maxMemory.set(Math.max(state.maxMemory.get(), memory));
+      }
+
+      Thread.sleep(50);
+
+      state.memory.addAndGet(-type.getHeapSize());
+      documentCount = type.ordinal();
+    }
+
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.indexer.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.test.json.JsonNodes.$;
+import static org.icgc.dcc.etl.indexer.model.CollectionFields.collectionFields;
+import static org.icgc.dcc.etl.indexer.util.JsonNodeProjections.project;
+import static org.icgc.dcc.etl.indexer.util.JsonNodeProjections.projectCopy;
+import lombok.val;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class JsonNodeProjectionsTest {
+
+  @Test
+  public void testProjectIncluded() {
+    val node = (ObjectNode) $("{_id: 1, a: 1, b: {c: 2, d: 3}, e: [{f: 4, g: 5}, {f: 6}], h: 7}");
+    val fields = collectionFields().includedFields("a", "b.c", "e.f", "e.g").build();
+
+    val result = project(node, fields);
+
+    assertThat(result.toString())
+        .isEqualTo("{\"_id\":1,\"a\":1,\"b\":{\"c\":2},\"e\":[{\"f\":4,\"g\":5},{\"f\":6}]}");
+  }
+
+  @Test
+  public void testProjectIncludedWithoutId() {
+    val node = (ObjectNode) $("{_id: 1, a: 1, b: 2}");
+    val fields = collectionFields().includedFields("a").excludedFields("_id").build();
+
+    val result = project(node, fields);
+
+    assertThat(result.toString()).isEqualTo("{\"a\":1}");
+  }
+
+  @Test
+  public void testProjectIncludedId() {
+    val node = (ObjectNode) $("{_id: 1, a: 1, b: 2}");
+    val fields = collectionFields().includedFields("_id", "a").build();
+
+    val result = project(node, fields);
+
+    assertThat(result.toString()).isEqualTo("{\"_id\":1,\"a\":1}");
+  }
+
+  @Test
+  public void testProjectIncludedMissingId() {
+    val node = (ObjectNode) $("{a: 1, b: 2}");
+    val fields = collectionFields().includedFields("a").build();
+
+    val result = project(node, fields);
+
+    assertThat(result.toString()).isEqualTo("{\"a\":1}");
+  }
+
+  @Test
+  public void testProjectCopyIncluded() {
+    val node = (ObjectNode) $("{_id: 1, a: {b: 2}, c: 3}");
+    val fields = collectionFields().includedFields("a").build();
+
+    val result = projectCopy(node, fields);
+    ((ObjectNode) result.get("a")).put("b", 4);
+
+    assertThat(result.toString()).isEqualTo("{\"_id\":1,\"a\":{\"b\":4}}");
+    assertThat(node.toString()).isEqualTo("{\"_id\":1,\"a\":{\"b\":2},\"c\":3}");
+  }
+
+  @Test
+  public void testProjectExcluded() {
+    val node = (ObjectNode) $("{_id: 1, a: 1, b: {c: 2, d: 3}, e: [{f: 4, g: 5}, {f: 6}]}");
+    val fields = collectionFields().excludedFields("_id", "b.d", "e.f").build();
+
+    val result = project(node, fields);
+
+    assertThat(result.toString()).isEqualTo("{\"a\":1,\"b\":{\"c\":2},\"e\":[{\"g\":5},{}]}");
+  }
+
+}
@@ -24,13 +24,13 @@ import static org.icgc.dcc.etl.indexer.vcf.model.MutationType.INSERTION;
 import static org.icgc.dcc.etl.indexer.vcf.model.MutationType.SINGLE_BASE_SUBSTITUTION;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Collection;
 
 import lombok.RequiredArgsConstructor;
 import lombok.val;
-import net.sf.picard.reference.IndexedFastaSequenceFile;
 
+import org.icgc.dcc.etl.core.util.MappedFastaSequenceFile;
 import org.icgc.dcc.etl.indexer.vcf.model.MutationType;
 import org.junit.Before;
 import org.junit.Test;
@@ -70,8 +70,8 @@ public class ICGCToVCFMutationConverterTest {
   final VCFMutation expected;
 
   @Before
-  public void setUp() throws FileNotFoundException {
-    this.converter = new ICGCToVCFMutationConverter(new IndexedFastaSequenceFile(REFERENCE_GENOME));
+  public void setUp() throws IOException {
+    this.converter = new ICGCToVCFMutationConverter(MappedFastaSequenceFile.open(REFERENCE_GENOME));
   }
 
   /**
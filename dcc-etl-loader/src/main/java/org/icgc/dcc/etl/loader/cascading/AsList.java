@@ -19,6 +19,8 @@ package org.icgc.dcc.etl.loader.cascading;
 
 import static org.icgc.dcc.common.cascading.TupleEntries.remove;
 
+import java.util.List;
+
 import org.icgc.dcc.common.cascading.operation.BaseAggregator;
 
 import cascading.flow.FlowProcess;
@@ -27,6 +29,8 @@ import cascading.tuple.Fields;
 import cascading.tuple.Tuple;
 import cascading.tuple.TupleEntry;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * An {@code Aggregator} that produces a {@code Tuple} of all {@code TupleEntry} that passes by, effectively producing a
  * list of all {@code TupleEntry}.
@@ -40,7 +44,7 @@ import cascading.tuple.TupleEntry;
  * <p>
  * Note that the operation removes the redundant fields provided from the resulting list (typically join fields).
  */
-public final class AsList extends BaseAggregator<Tuple> {
+public final class AsList extends BaseAggregator<Tuple> implements NestingOperation {
 
   private final Fields redundantFields;
 
@@ -79,4 +83,9 @@ public final class AsList extends BaseAggregator<Tuple> {
     aggregatorCall.getOutputCollector().add(context);
   }
 
+  @Override
+  public List<Fields> getNestedFields(Fields argumentFields) {
+    return ImmutableList.of(argumentFields.subtract(redundantFields));
+  }
+
 }
@@ -21,13 +21,12 @@ import static cascading.tuple.Fields.ARGS;
 import static cascading.tuple.Fields.REPLACE;
 import static com.google.common.base.Objects.firstNonNull;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
 import static org.icgc.dcc.common.cascading.Fields2.checkFieldsCardinality;
 import static org.icgc.dcc.common.cascading.Fields2.fields;
-import static org.icgc.dcc.common.cascading.TupleEntries.getFirstString;
 
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import lombok.NonNull;
 import lombok.val;
@@ -40,10 +39,9 @@ import cascading.pipe.Each;
 import cascading.pipe.Pipe;
 import cascading.pipe.SubAssembly;
 import cascading.tuple.Fields;
-import cascading.tuple.Tuple;
 
 /**
- * Translates {@link Fields} using the provided mappings.
+ * Translates {@link Fields} using the provided mappings, all at once.
  */
 class CodesTranslator extends SubAssembly {
 
@@ -51,53 +49,61 @@ class CodesTranslator extends SubAssembly {
    * @param mappings A {@link Map} of {@link Fields} to their code-to-value mappings (String -> String).
    */
   CodesTranslator(Pipe pipe, @NonNull Map<String, Map<String, String>> mappings) {
-    setTails(processRecursively(
+    setTails(process(
         pipe,
-        mappings.entrySet().iterator()));
+        mappings));
   }
 
-  private static Pipe processRecursively(Pipe pipe, Iterator<Entry<String, Map<String, String>>> entries) {
-    if (entries.hasNext()) {
-      val entry = entries.next();
-      return processRecursively(
-          new Each(
-              pipe,
+  private static Pipe process(Pipe pipe, Map<String, Map<String, String>> mappings) {
+    if (mappings.isEmpty()) {
+      return pipe;
+    }
 
-              // Field to translate
-              fields(entry.getKey()),
+    return new Each(
+        pipe,
 
-              // Translator
-              new Translate(
-                  entry.getValue()), // Mapping
+        // Fields to translate
+        fields(mappings.keySet()),
 
-              REPLACE),
-          entries);
-    } else {
-      return pipe;
-    }
+        // Translator
+        new Translate(
+            mappings.values()), // Mappings, in the order of the fields
+
+        REPLACE);
   }
 
   private static class Translate extends BaseFunction<Void> {
 
     /**
-     * Code to value mapping.
+     * Code to value mappings, by argument position.
      */
-    private final Map<String, String> mapping;
+    private final Map<String, String>[] mappings;
 
-    private Translate(@NonNull Map<String, String> mapping) {
+    @SuppressWarnings("unchecked")
+    private Translate(@NonNull Iterable<Map<String, String>> mappings) {
       super(ARGS);
-      this.mapping = mapping;
+
+      val list = newArrayList(mappings);
+      this.mappings = new Map[list.size()];
+      for (int i = 0; i < list.size(); i++) {
+        this.mappings[i] = newHashMap(list.get(i));
+      }
     }
 
     @Override
     public void operate(
         @SuppressWarnings("rawtypes") FlowProcess flowProcess,
         FunctionCall<Void> functionCall) {
-      checkFieldsCardinality(functionCall.getArgumentFields(), 1);
-      val code = checkNotNull(getFirstString(functionCall.getArguments()));
+      checkFieldsCardinality(functionCall.getArgumentFields(), mappings.length);
+      val tuple = functionCall.getArguments().getTupleCopy();
+      for (int i = 0; i < mappings.length; i++) {
+        val code = checkNotNull(tuple.getString(i));
+        tuple.set(i, tryTranslate(mappings[i], code));
+      }
+
       functionCall
           .getOutputCollector()
-          .add(new Tuple(tryTranslate(mapping, code)));
+          .add(tuple);
     }
 
     /**
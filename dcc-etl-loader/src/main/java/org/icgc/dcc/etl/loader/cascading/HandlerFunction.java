@@ -46,6 +46,11 @@ public class HandlerFunction extends BaseFunction<Void> {
   private final SubmissionModel submissionModel;
   private final DataType dataType;
 
+  /**
+   * Reused across entries so that its compiled plan is too.
+   */
+  private transient LoaderHandler handler;
+
   public HandlerFunction(
       SubmissionModel submissionModel,
       DataType dataType) {
@@ -59,15 +64,22 @@ public class HandlerFunction extends BaseFunction<Void> {
       @SuppressWarnings("rawtypes") FlowProcess flowProcess,
       FunctionCall<Void> functionCall) {
     TupleEntry entry = functionCall.getArguments();
-    DBObject dbObject = new LoaderHandler(
-        submissionModel,
-        new HandlingType(
-            dataType.getTopLevelFileType(),
-            Nesting.JOIN),
-        Redacting.NONE)
-        .transformEntry(entry);
+    DBObject dbObject = getHandler().transformEntry(entry);
     String json = dbObject.toString(); // For now the string representation is fine
     functionCall.getOutputCollector().add(new Tuple(json));
   }
 
+  private LoaderHandler getHandler() {
+    if (handler == null) {
+      handler = new LoaderHandler(
+          submissionModel,
+          new HandlingType(
+              dataType.getTopLevelFileType(),
+              Nesting.JOIN),
+          Redacting.NONE);
+    }
+
+    return handler;
+  }
+
 }
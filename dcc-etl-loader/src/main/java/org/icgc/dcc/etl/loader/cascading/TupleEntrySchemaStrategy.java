@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.cascading;
+
+import static com.google.common.collect.Sets.newLinkedHashSet;
+
+import java.util.List;
+import java.util.Set;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.hadoop.mapred.JobConf;
+
+import cascading.flow.Flow;
+import cascading.flow.FlowElement;
+import cascading.flow.FlowStep;
+import cascading.flow.FlowStepStrategy;
+import cascading.flow.planner.BaseFlowStep;
+import cascading.flow.planner.Scope;
+import cascading.pipe.Operator;
+import cascading.tuple.Fields;
+
+/**
+ * Registers the schemas of the entries nested by the {@link NestingOperation}s of a flow with
+ * {@link TupleEntrySerialization}, so that they are written as a token rather than inline.
+ * <p>
+ * The schemas are resolved from the planned steps once for the whole flow, so that every step agrees on the tokens of
+ * the entries it exchanges with the others.
+ */
+@Slf4j
+public class TupleEntrySchemaStrategy implements FlowStepStrategy<JobConf> {
+
+  private Fields[] schemas;
+
+  @Override
+  public void apply(Flow<JobConf> flow, List<FlowStep<JobConf>> predecessorSteps, FlowStep<JobConf> flowStep) {
+    if (schemas == null) {
+      schemas = resolveSchemas(flow);
+      log.info("Registering {} tuple entry schemas for flow '{}'", schemas.length, flow.getName());
+    }
+
+    TupleEntrySerialization.setSchemas(flowStep.getConfig(), schemas);
+  }
+
+  /**
+   * Returns the nested schemas of all the steps of {@code flow}, in plan order.
+   */
+  public static Fields[] resolveSchemas(@NonNull Flow<JobConf> flow) {
+    Set<Fields> schemas = newLinkedHashSet();
+    for (val flowStep : flow.getFlowSteps()) {
+      val step = (BaseFlowStep<JobConf>) flowStep;
+
+      for (val element : step.getGraph().vertexSet()) {
+        if (isNestingOperator(element)) {
+          val operator = (Operator) element;
+          val operation = (NestingOperation) operator.getOperation();
+
+          for (val scope : step.getPreviousScopes(operator)) {
+            schemas.addAll(operation.getNestedFields(getArgumentFields(operator, scope)));
+          }
+        }
+      }
+    }
+
+    return schemas.toArray(new Fields[schemas.size()]);
+  }
+
+  private static boolean isNestingOperator(FlowElement element) {
+    return element instanceof Operator && ((Operator) element).getOperation() instanceof NestingOperation;
+  }
+
+  private static Fields getArgumentFields(Operator operator, Scope incomingScope) {
+    return incomingScope.getOutValuesFields().select(operator.getArgumentSelector());
+  }
+
+}
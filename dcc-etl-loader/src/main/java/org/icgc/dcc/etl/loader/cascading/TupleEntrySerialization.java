@@ -21,20 +21,26 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.io.serializer.Deserializer;
 import org.apache.hadoop.io.serializer.Serialization;
 import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.mapred.JobConf;
 
 import cascading.CascadingException;
+import cascading.flow.hadoop.util.HadoopUtil;
 import cascading.tuple.Comparison;
 import cascading.tuple.Fields;
 import cascading.tuple.StreamComparator;
@@ -46,24 +52,74 @@ import cascading.tuple.hadoop.io.BufferedInputStream;
 import cascading.tuple.hadoop.io.TupleDeserializer;
 import cascading.tuple.hadoop.io.TupleSerializer;
 
-import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
 
 /**
  * Serialization implementation that is required for Hadoop {@link SequenceFile} serialization.
+ * <p>
+ * Each entry is written as a length prefixed block holding its {@link Fields} followed by its {@link Tuple}. Schemas
+ * registered in the job configuration with {@link #setSchemas(Configuration, Fields...)} are written as a single token. Any other
+ * schema is written inline as its compact names rather than a Java serialized object, encoded once per stream for each
+ * distinct schema and decoded into a single shared {@code Fields} instance. Being self contained, blocks remain
+ * readable after being reordered by the shuffle and equal entries have equal bytes, which allows
+ * {@link TupleEntryComparator} to compare them without deserializing.
  */
 @SerializationToken(tokens = { 223 }, classNames = { "cascading.tuple.TupleEntry" })
 public class TupleEntrySerialization extends Configured implements Comparison<TupleEntry>, Serialization<TupleEntry> {
 
+  /**
+   * Property holding the registered schemas, shared by all the tasks of a job.
+   */
+  public static final String SCHEMAS_PROPERTY = "dcc.loader.tuple.entry.schemas";
+
+  /**
+   * Schema token of an inline schema. Registered schemas are written as their index plus one.
+   */
+  private static final int INLINE_SCHEMA = 0;
+
+  /**
+   * Field name encodings.
+   */
+  private static final int STRING_FIELD = 0;
+  private static final int POSITION_FIELD = 1;
+
   /**
    * Delegate for recursively contained {@link Tuple} values.
    */
   private TupleSerialization tupleSerialization;
 
+  /**
+   * Registered schemas, indexed by token.
+   */
+  private Fields[] schemas = new Fields[0];
+
+  /**
+   * Registers the schemas of the entries of a flow so that they are written as a token rather than inline.
+   * 
+   * @see TupleEntrySchemaStrategy
+   */
+  public static void setSchemas(Configuration conf, Fields... schemas) {
+    try {
+      conf.set(SCHEMAS_PROPERTY, HadoopUtil.serializeBase64(schemas, new JobConf(conf)));
+    } catch (IOException exception) {
+      throw new CascadingException("Unable to serialize schemas", exception);
+    }
+  }
+
   @Override
   public void setConf(Configuration conf) {
     super.setConf(conf);
 
     this.tupleSerialization = new TupleSerialization(conf);
+
+    String value = conf == null ? null : conf.get(SCHEMAS_PROPERTY);
+    if (value != null) {
+      try {
+        this.schemas = HadoopUtil.deserializeBase64(value, new JobConf(conf), Fields[].class);
+      } catch (IOException exception) {
+        throw new CascadingException("Unable to deserialize schemas", exception);
+      }
+    }
   }
 
   @Override
@@ -75,14 +131,14 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
   public Serializer<TupleEntry> getSerializer(Class<TupleEntry> c) {
     final TupleSerializer tupleSerializer = (TupleSerializer) tupleSerialization.getSerializer(Tuple.class);
 
-    return new TupleEntrySerializer(tupleSerializer);
+    return new TupleEntrySerializer(tupleSerializer, schemas);
   }
 
   @Override
   public Deserializer<TupleEntry> getDeserializer(Class<TupleEntry> c) {
     final TupleDeserializer tupleDeserializer = (TupleDeserializer) tupleSerialization.getDeserializer(Tuple.class);
 
-    return new TupleEntryDeserializer(tupleDeserializer);
+    return new TupleEntryDeserializer(tupleDeserializer, schemas);
   }
 
   @Override
@@ -99,13 +155,26 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
 
     private final TupleSerializer delegate;
 
-    public TupleEntrySerializer(TupleSerializer tupleSerializer) {
+    /**
+     * Reusable block buffer that the delegate writes to.
+     */
+    private final DataOutputBuffer block = new DataOutputBuffer();
+
+    /**
+     * Schema dictionary of this stream, seeded with the tokens of the registered schemas.
+     */
+    private final Map<Fields, byte[]> schemas = Maps.newHashMap();
+
+    public TupleEntrySerializer(TupleSerializer tupleSerializer, Fields... registeredSchemas) {
       this.delegate = tupleSerializer;
+      for (int i = 0; i < registeredSchemas.length; i++) {
+        schemas.put(registeredSchemas[i], encodeToken(i + 1));
+      }
     }
 
     @Override
     public void open(OutputStream out) throws IOException {
-      delegate.open(out);
+      delegate.open(block);
 
       if (out instanceof DataOutputStream) {
         this.out = (DataOutputStream) out;
@@ -116,10 +185,12 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
 
     @Override
     public void serialize(TupleEntry t) throws IOException {
-      ObjectOutputStream output = new ObjectOutputStream(out);
-      output.writeObject(t.getFields());
-
+      block.reset();
+      block.write(getSchema(t.getFields()));
       delegate.serialize(t.getTuple());
+
+      WritableUtils.writeVInt(out, block.getLength());
+      out.write(block.getData(), 0, block.getLength());
     }
 
     @Override
@@ -131,6 +202,47 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
       }
     }
 
+    private byte[] getSchema(Fields fields) throws IOException {
+      byte[] schema = schemas.get(fields);
+      if (schema == null) {
+        schema = encodeFields(fields);
+        schemas.put(fields, schema);
+      }
+
+      return schema;
+    }
+
+    private static byte[] encodeToken(int token) {
+      try {
+        DataOutputBuffer buffer = new DataOutputBuffer();
+        WritableUtils.writeVInt(buffer, token);
+
+        return Arrays.copyOf(buffer.getData(), buffer.getLength());
+      } catch (IOException exception) {
+        throw new IllegalStateException(exception); // In memory
+      }
+    }
+
+    private static byte[] encodeFields(Fields fields) throws IOException {
+      DataOutputBuffer buffer = new DataOutputBuffer();
+      WritableUtils.writeVInt(buffer, INLINE_SCHEMA);
+      WritableUtils.writeVInt(buffer, fields.size());
+      for (int i = 0; i < fields.size(); i++) {
+        Comparable<?> field = fields.get(i);
+        if (field instanceof String) {
+          WritableUtils.writeVInt(buffer, STRING_FIELD);
+          WritableUtils.writeString(buffer, (String) field);
+        } else if (field instanceof Integer) {
+          WritableUtils.writeVInt(buffer, POSITION_FIELD);
+          WritableUtils.writeVInt(buffer, (Integer) field);
+        } else {
+          throw new IOException("Unsupported field '" + field + "' of type " + field.getClass());
+        }
+      }
+
+      return Arrays.copyOf(buffer.getData(), buffer.getLength());
+    }
+
   }
 
   /**
@@ -142,13 +254,30 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
 
     private final TupleDeserializer delegate;
 
-    public TupleEntryDeserializer(TupleDeserializer tupleDeserializer) {
+    /**
+     * Reusable block buffer that the delegate reads from.
+     */
+    private final DataInputBuffer block = new DataInputBuffer();
+    private byte[] bytes = new byte[1024];
+
+    /**
+     * Registered schemas, indexed by token.
+     */
+    private final Fields[] registeredSchemas;
+
+    /**
+     * Schema dictionary of this stream, keyed by encoding.
+     */
+    private final Map<ByteBuffer, Fields> schemas = Maps.newHashMap();
+
+    public TupleEntryDeserializer(TupleDeserializer tupleDeserializer, Fields... registeredSchemas) {
       this.delegate = tupleDeserializer;
+      this.registeredSchemas = registeredSchemas;
     }
 
     @Override
     public void open(InputStream in) throws IOException {
-      delegate.open(in);
+      delegate.open(block);
 
       if (in instanceof DataInputStream) {
         this.in = (DataInputStream) in;
@@ -159,18 +288,18 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
 
     @Override
     public TupleEntry deserialize(TupleEntry t) throws IOException {
-      ObjectInputStream input = new ObjectInputStream(in);
-      TupleEntry tupleEntry = null;
-      try {
-        Fields fields = (Fields) input.readObject();
-        Tuple tuple = delegate.deserialize(null);
-
-        tupleEntry = new TupleEntry(fields, tuple);
-      } catch (ClassNotFoundException e) {
-        Throwables.propagate(e);
+      int length = WritableUtils.readVInt(in);
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, 2 * bytes.length)];
       }
 
-      return tupleEntry;
+      in.readFully(bytes, 0, length);
+      block.reset(bytes, length);
+
+      Fields fields = readFields();
+      Tuple tuple = delegate.deserialize(null);
+
+      return new TupleEntry(fields, tuple);
     }
 
     @Override
@@ -182,13 +311,76 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
       }
     }
 
+    private Fields readFields() throws IOException {
+      int start = block.getPosition();
+      int token = WritableUtils.readVInt(block);
+      if (token != INLINE_SCHEMA) {
+        if (token > registeredSchemas.length) {
+          throw new IOException("Unregistered schema token " + token);
+        }
+
+        return registeredSchemas[token - 1];
+      }
+
+      // Skip over the schema to find its extent
+      int size = WritableUtils.readVInt(block);
+      for (int i = 0; i < size; i++) {
+        int encoding = WritableUtils.readVInt(block);
+        if (encoding == STRING_FIELD) {
+          WritableUtils.skipFully(block, WritableUtils.readVInt(block));
+        } else {
+          WritableUtils.readVInt(block);
+        }
+      }
+
+      // Only decode the first time the schema is encountered
+      int length = block.getPosition() - start;
+      Fields fields = schemas.get(ByteBuffer.wrap(bytes, start, length));
+      if (fields == null) {
+        byte[] schema = Arrays.copyOfRange(bytes, start, start + length);
+        fields = decodeFields(schema);
+        schemas.put(ByteBuffer.wrap(schema), fields);
+      }
+
+      return fields;
+    }
+
+    private static Fields decodeFields(byte[] schema) throws IOException {
+      DataInputBuffer buffer = new DataInputBuffer();
+      buffer.reset(schema, schema.length);
+
+      WritableUtils.readVInt(buffer); // Token
+      int size = WritableUtils.readVInt(buffer);
+      Comparable<?>[] names = new Comparable<?>[size];
+      for (int i = 0; i < size; i++) {
+        int encoding = WritableUtils.readVInt(buffer);
+        if (encoding == STRING_FIELD) {
+          names[i] = WritableUtils.readString(buffer);
+        } else if (encoding == POSITION_FIELD) {
+          names[i] = WritableUtils.readVInt(buffer);
+        } else {
+          throw new IOException("Unsupported field encoding " + encoding);
+        }
+      }
+
+      return new Fields(names);
+    }
+
   }
 
+  /**
+   * Orders entries by fields and then tuple values. Streams are compared by their serialized bytes, which is a
+   * consistent but not a natural order, and is sufficient for grouping.
+   */
   public static class TupleEntryComparator implements StreamComparator<BufferedInputStream>, Comparator<TupleEntry>,
       Serializable {
 
     @Override
     public int compare(TupleEntry lhs, TupleEntry rhs) {
+      if (lhs == rhs) {
+        return 0;
+      }
+
       if (lhs == null) {
         return -1;
       }
@@ -197,7 +389,12 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
         return 1;
       }
 
-      return 0;
+      int result = compareFields(lhs.getFields(), rhs.getFields());
+      if (result != 0) {
+        return result;
+      }
+
+      return compareTuples(lhs.getTuple(), rhs.getTuple());
     }
 
     @Override
@@ -215,15 +412,72 @@ public class TupleEntrySerialization extends Configured implements Comparison<Tu
           return 1;
         }
 
-        String lhsString = WritableUtils.readString(new DataInputStream(lhsStream));
-        String rhsString = WritableUtils.readString(new DataInputStream(rhsStream));
+        byte[] lhsBuffer = lhsStream.getBuffer();
+        int lhsPosition = lhsStream.getPosition();
+        int lhsPrefix = WritableUtils.decodeVIntSize(lhsBuffer[lhsPosition]);
+        int lhsLength = WritableComparator.readVInt(lhsBuffer, lhsPosition);
 
-        return lhsString.compareTo(rhsString);
+        byte[] rhsBuffer = rhsStream.getBuffer();
+        int rhsPosition = rhsStream.getPosition();
+        int rhsPrefix = WritableUtils.decodeVIntSize(rhsBuffer[rhsPosition]);
+        int rhsLength = WritableComparator.readVInt(rhsBuffer, rhsPosition);
+
+        // Consume the blocks so that any following elements can be compared
+        lhsStream.skip(lhsPrefix + lhsLength);
+        rhsStream.skip(rhsPrefix + rhsLength);
+
+        return WritableComparator.compareBytes(
+            lhsBuffer, lhsPosition + lhsPrefix, lhsLength,
+            rhsBuffer, rhsPosition + rhsPrefix, rhsLength);
       } catch (IOException exception) {
         throw new CascadingException(exception);
       }
     }
 
+    private static int compareFields(Fields lhs, Fields rhs) {
+      if (lhs.size() != rhs.size()) {
+        return lhs.size() < rhs.size() ? -1 : 1;
+      }
+
+      for (int i = 0; i < lhs.size(); i++) {
+        int result = String.valueOf(lhs.get(i)).compareTo(String.valueOf(rhs.get(i)));
+        if (result != 0) {
+          return result;
+        }
+      }
+
+      return 0;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private int compareTuples(Tuple lhs, Tuple rhs) {
+      if (lhs.size() != rhs.size()) {
+        return lhs.size() < rhs.size() ? -1 : 1;
+      }
+
+      for (int i = 0; i < lhs.size(); i++) {
+        Object lhsValue = lhs.getObject(i);
+        Object rhsValue = rhs.getObject(i);
+
+        int result;
+        if (lhsValue == null || rhsValue == null) {
+          result = lhsValue == rhsValue ? 0 : lhsValue == null ? -1 : 1;
+        } else if (lhsValue instanceof TupleEntry && rhsValue instanceof TupleEntry) {
+          result = compare((TupleEntry) lhsValue, (TupleEntry) rhsValue);
+        } else if (lhsValue instanceof Comparable && lhsValue.getClass() == rhsValue.getClass()) {
+          result = ((Comparable) lhsValue).compareTo(rhsValue);
+        } else {
+          result = lhsValue.toString().compareTo(rhsValue.toString());
+        }
+
+        if (result != 0) {
+          return result;
+        }
+      }
+
+      return 0;
+    }
+
   }
 
 }
@@ -23,6 +23,9 @@ import static org.icgc.dcc.etl.loader.flow.LoaderFields.unprefixFieldName;
 import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.DONOR_ID_BASE_FIELD_NAME;
 import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_DONOR_ID_FIELD_NAME;
 import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_REST_FIELD_NAME;
+
+import java.util.List;
+
 import lombok.val;
 
 import org.icgc.dcc.common.cascading.operation.BaseFunction;
@@ -33,10 +36,12 @@ import cascading.tuple.Fields;
 import cascading.tuple.Tuple;
 import cascading.tuple.TupleEntry;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * Transforms entry a tuple mapping of id field and rest of fields.
  */
-public class TuplizeFunction extends BaseFunction<Void> {
+public class TuplizeFunction extends BaseFunction<Void> implements NestingOperation {
 
   public TuplizeFunction() {
     super(new Fields(SUPPLEMENTAL_DONOR_ID_FIELD_NAME, SUPPLEMENTAL_REST_FIELD_NAME));
@@ -76,4 +81,18 @@ public class TuplizeFunction extends BaseFunction<Void> {
         .getOutputCollector()
         .add(outgoingTuple);
   }
+
+  @Override
+  public List<Fields> getNestedFields(Fields argumentFields) {
+    for (int i = 0; i < argumentFields.size(); i++) {
+      val prefixedFieldName = argumentFields.get(i).toString();
+
+      if (unprefixFieldName(prefixedFieldName).equals(DONOR_ID_BASE_FIELD_NAME)) {
+        return ImmutableList.of(argumentFields.subtract(new Fields(prefixedFieldName)));
+      }
+    }
+
+    return ImmutableList.of();
+  }
+
 }
@@ -34,12 +34,14 @@ import static org.icgc.dcc.common.cascading.Tuples2.nestTuple;
 import static org.icgc.dcc.common.cascading.Tuples2.sortTuples;
 
 import java.util.Iterator;
+import java.util.List;
 
 import lombok.val;
 
 import org.icgc.dcc.common.cascading.TupleEntries;
 import org.icgc.dcc.common.cascading.operation.BaseBuffer;
 import org.icgc.dcc.common.cascading.operation.BaseFunction;
+import org.icgc.dcc.etl.loader.cascading.NestingOperation;
 
 import cascading.flow.FlowProcess;
 import cascading.operation.BufferCall;
@@ -55,6 +57,8 @@ import cascading.tuple.Tuple;
 import cascading.tuple.TupleEntry;
 import cascading.tuple.Tuples;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * Nests observations within occurence.
  */
@@ -78,7 +82,7 @@ public class ObservationNesting extends SubAssembly {
             .append(OBSERVATION_ARRAY_FIELD)));
   }
 
-  private static class Nest extends BaseBuffer<Void> {
+  private static class Nest extends BaseBuffer<Void> implements NestingOperation {
 
     public Nest(Fields nestingField) {
       super(nestingField);
@@ -106,6 +110,16 @@ public class ObservationNesting extends SubAssembly {
       return nestTuple(tuple);
     }
 
+    /**
+     * Both the nested observations and their trimmed counterparts (see {@link ObservationTrimmer}).
+     */
+    @Override
+    public List<Fields> getNestedFields(Fields argumentFields) {
+      return ImmutableList.of(
+          argumentFields,
+          cloneFields(argumentFields).subtract(OCCURENCE_FIELDS));
+    }
+
   }
 
   private static class ObservationTrimmer extends BaseFunction<Void> {
@@ -21,6 +21,8 @@ import static cascading.tuple.Fields.ARGS;
 import static cascading.tuple.Fields.REPLACE;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
 import static org.icgc.dcc.common.core.model.SpecialValue.NO_VALUE;
 import static org.icgc.dcc.common.core.model.SpecialValue.isDeprecatedValue;
@@ -33,6 +35,7 @@ import static org.icgc.dcc.common.cascading.Fields2.getFieldNames;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import lombok.NonNull;
 import lombok.val;
@@ -153,7 +156,11 @@ public class PreProcessor extends SubAssembly {
             fieldNames));
   }
 
-  private class PreProcessFunction extends BaseFunction<Void> {
+  /**
+   * Trims, clears missing values, translates codes and coerces types in a single pass over each tuple. Everything that
+   * only depends on the {@link FileType} is resolved by position upfront.
+   */
+  static class PreProcessFunction extends BaseFunction<Void> {
 
     /**
      * The {@link Fields} in the order they appear in the submission file, minus any extra fields.
@@ -161,7 +168,14 @@ public class PreProcessor extends SubAssembly {
     private final Fields incomingFields;
     private final FileType fileType;
     private final Map<String, ValueType> fileSchemaFieldsMap;
-    private final Map<String, Optional<Map<String, String>>> codeLists;
+
+    /**
+     * Per position state, {@code null} entries of the code tables meaning the field is not code list backed.
+     */
+    private final String[] fieldNames;
+    private final Class<?>[] types;
+    private final Map<String, String>[] codeTables;
+    private final Set<String>[] codeValues;
 
     /**
      * TODO: Address trick to know what the header contain: DCC-996 (also in PreProcessFunction)
@@ -175,8 +189,14 @@ public class PreProcessor extends SubAssembly {
 
       this.fileType = fileType;
       this.fileSchemaFieldsMap = checkNotNull(fields);
-      this.codeLists = codeLists;
       this.incomingFields = checkNotNull(incomingFields);
+      checkState(incomingFields.size() <= fileSchemaFieldsMap.size(), "Unexpected fields: %s > %s, (%s and %s)",
+          incomingFields.size(), fileSchemaFieldsMap.size(), incomingFields, fileSchemaFieldsMap.keySet());
+
+      this.fieldNames = fieldNames(incomingFields);
+      this.types = types(fieldNames);
+      this.codeTables = codeTables(fieldNames, codeLists);
+      this.codeValues = codeValues(codeTables);
     }
 
     @Override
@@ -186,76 +206,57 @@ public class PreProcessor extends SubAssembly {
       TupleEntry entry = functionCall.getArguments();
 
       Tuple newTuple = new Tuple(entry.getTuple());
+      for (int i = 0; i < newTuple.size(); i++) {
+        newTuple.set(i, preProcessValue(i, newTuple.getString(i)));
+      }
 
-      // TODO: should be different operations - started to split it already, see in CascadingFunctions
-      trimValues(newTuple);
-      clearMissingValues(newTuple);
-      translateCodes(newTuple);
       coerceTypes(newTuple);
 
       functionCall.getOutputCollector().add(newTuple);
     }
 
     /**
-     * FIXME: Neither operations belong to the loader (see https://jira.oicr.on.ca/browse/DCC-1641 and DCC-1941 and
-     * DCC-1942)
+     * FIXME: Neither trimming nor clearing belong to the loader (see https://jira.oicr.on.ca/browse/DCC-1641 and
+     * DCC-1941 and DCC-1942)
      */
-    private void trimValues(Tuple newTuple) {
-      for (int i = 0; i < newTuple.size(); i++) {
-        String value = newTuple.getString(i);
-        if (value != null) {
-          value = value.trim();
-        }
-        newTuple.set(i, value);
+    private Object preProcessValue(int index, String value) {
+      if (value == null) {
+        return value;
       }
-    }
 
-    private void clearMissingValues(Tuple newTuple) {
-      for (int i = 0; i < newTuple.size(); i++) {
-        String value = newTuple.getString(i);
-        if (value != null) {
-
-          // Replace any empty value, missing code or former missing code with null
-          if (value.isEmpty() || isFullMissingCode(value) || isDeprecatedValue(value)) {
-            // TODO: add a check that this really should be read as a missing code?
-            newTuple.set(i, NO_VALUE);
-          }
-        }
+      value = value.trim();
+
+      // Replace any empty value, missing code or former missing code with null
+      if (value.isEmpty() || isFullMissingCode(value) || isDeprecatedValue(value)) {
+        // TODO: add a check that this really should be read as a missing code?
+        return NO_VALUE;
       }
+
+      return translateCode(index, value);
     }
 
-    private void translateCodes(Tuple newTuple) {
-      int index = 0;
-      for (String fieldName : getFieldNames(incomingFields)) {
-        Optional<Map<String, String>> codeList = codeLists.get(fieldName);
-        if (codeList.isPresent()) {
-          String originalValue = // Either term.code or term.value (see DCC-904's first comment)
-              newTuple.getString(index);
-          if (originalValue != null) { // Else value was cleared, translation not required
-
-            // Translate term code to value
-            val mapping = codeList.get();
-            if (mapping.containsKey(originalValue)) {
-              newTuple.setString(index, mapping.get(originalValue));
-            } else {
-              if (!mapping.containsValue(originalValue)) {
-                log.error(
-                    "Invalid value found, neither null, a term code or a term value: '{}' (field '{}' in file schema '{}')",
-                    new Object[] { originalValue, fieldName, fileType });
-              }
-            }
-          }
-        }
-
-        index++;
+    private String translateCode(int index, String originalValue) { // Either term.code or term.value (see DCC-904)
+      val mapping = codeTables[index];
+      if (mapping == null) {
+        return originalValue;
+      }
+
+      // Translate term code to value
+      val value = mapping.get(originalValue);
+      if (value != null) {
+        return value;
       }
+
+      if (!codeValues[index].contains(originalValue)) {
+        log.error(
+            "Invalid value found, neither null, a term code or a term value: '{}' (field '{}' in file schema '{}')",
+            new Object[] { originalValue, fieldNames[index], fileType });
+      }
+
+      return originalValue;
     }
 
     private Tuple coerceTypes(Tuple newTuple) {
-      checkState(incomingFields.size() <= fileSchemaFieldsMap.size(), "Unexpected fields: %s > %s, (%s and %s)",
-          incomingFields.size(), fileSchemaFieldsMap.size(), incomingFields, fileSchemaFieldsMap.keySet());
-      Class<?>[] types = types(incomingFields);
-
       try {
         Tuples.coerce(newTuple, types, newTuple);
       } catch (OperationException e) { // so as to complete cascading's message with something more informative...
@@ -271,19 +272,51 @@ public class PreProcessor extends SubAssembly {
       return newTuple;
     }
 
-    private Class<?>[] types(Fields sourceFields) {
-      Class<?>[] types = new Class[sourceFields.size()];
-      int i = 0;
-      for (String fieldName : getFieldNames(sourceFields)) {
+    private Class<?>[] types(String[] fieldNames) {
+      Class<?>[] types = new Class[fieldNames.length];
+      for (int i = 0; i < fieldNames.length; i++) {
+        val fieldName = fieldNames[i];
         ValueType type = fileSchemaFieldsMap.get(fieldName);
         checkNotNull(type, "Could not find %s within %s", fieldName, fileSchemaFieldsMap.keySet());
 
         log.debug(fileType + "\t" + fieldName + "\t" + type);
-        types[i++] = type.getJavaType();
+        types[i] = type.getJavaType();
       }
       return types;
     }
 
   }
 
+  private static String[] fieldNames(Fields fields) {
+    String[] fieldNames = new String[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      fieldNames[i] = fields.get(i).toString();
+    }
+    return fieldNames;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, String>[] codeTables(String[] fieldNames,
+      Map<String, Optional<Map<String, String>>> codeLists) {
+    Map<String, String>[] codeTables = new Map[fieldNames.length];
+    for (int i = 0; i < fieldNames.length; i++) {
+      val codeList = codeLists.get(fieldNames[i]);
+      if (codeList != null && codeList.isPresent()) {
+        codeTables[i] = newHashMap(codeList.get());
+      }
+    }
+    return codeTables;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Set<String>[] codeValues(Map<String, String>[] codeTables) {
+    Set<String>[] codeValues = new Set[codeTables.length];
+    for (int i = 0; i < codeTables.length; i++) {
+      if (codeTables[i] != null) {
+        codeValues[i] = newHashSet(codeTables[i].values());
+      }
+    }
+    return codeValues;
+  }
+
 }
@@ -413,9 +413,7 @@ public abstract class BaseRecordLoaderFlowPlanner implements RecordLoaderFlowPla
    * Performs the platform based connection of the flow.
    */
   private Flow<?> connectFlow(FlowDef flowDef, LoaderPlatformStrategy platformStrategy) {
-    return platformStrategy
-        .getFlowConnector()
-        .connect(flowDef);
+    return platformStrategy.connect(flowDef);
   }
 
   private Pipe identify(Pipe pipe, FileType currentFileType) {
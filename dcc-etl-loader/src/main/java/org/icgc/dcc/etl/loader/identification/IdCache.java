@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.identification;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import org.icgc.dcc.etl.loader.identification.Identifier.IdResolver;
+import org.icgc.dcc.id.client.core.IdClient;
+
+/**
+ * Least recently used cache of IDs by business key in front of an {@link IdClient}, since business keys (mutations in
+ * particular) repeat heavily.
+ * <p>
+ * Not thread safe.
+ */
+class IdCache {
+
+  /**
+   * Configuration.
+   */
+  private final IdResolver idResolver;
+  private final String projectId;
+
+  /**
+   * The client able to retrieve the ID from the service.
+   */
+  private final IdClient idClient;
+
+  /**
+   * Data.
+   */
+  private final Map<List<String>, String> ids;
+
+  /**
+   * Statistics.
+   */
+  @Getter
+  private long hitCount;
+  @Getter
+  private long missCount;
+  @Getter
+  private long resolveNanos;
+
+  IdCache(@NonNull IdResolver idResolver, @NonNull String projectId, @NonNull IdClient idClient, final int size) {
+    checkArgument(size > 0, "Cache size must be positive: %s", size);
+    this.idResolver = idResolver;
+    this.projectId = projectId;
+    this.idClient = idClient;
+
+    // Access ordered for LRU eviction
+    this.ids = new LinkedHashMap<List<String>, String>(16, 0.75f, true) {
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<String>, String> eldest) {
+        return size() > size;
+      }
+
+    };
+  }
+
+  /**
+   * Returns the ID of the entity with the supplied business {@code key}, querying the service if it is not cached.
+   */
+  String getId(List<String> key) {
+    String id = ids.get(key);
+    if (id == null) {
+      id = resolve(key);
+      ids.put(key, id);
+    } else {
+      hitCount++;
+    }
+
+    return id;
+  }
+
+  int size() {
+    return ids.size();
+  }
+
+  private String resolve(List<String> key) {
+    long start = System.nanoTime();
+    String id = checkNotNull(
+        idResolver.resolve(projectId, key, idClient),
+        "Failed to get an ID for %s", key);
+
+    resolveNanos += System.nanoTime() - start;
+    missCount++;
+
+    return id;
+  }
+
+}
@@ -20,7 +20,10 @@ package org.icgc.dcc.etl.loader.identification;
 import static cascading.tuple.Fields.ALL;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static lombok.AccessLevel.PRIVATE;
 import static org.icgc.dcc.common.core.model.FieldNames.NormalizerFieldNames.NORMALIZER_MUTATION;
 import static org.icgc.dcc.common.core.model.FieldNames.SubmissionFieldNames.SUBMISSION_ANALYZED_SAMPLE_ID;
@@ -38,6 +41,7 @@ import static org.icgc.dcc.common.core.model.FileTypes.FileType.SSM_P_TYPE;
 import static org.icgc.dcc.etl.loader.flow.LoaderFields.generatedFields;
 import static org.icgc.dcc.etl.loader.flow.LoaderFields.prefixedFields;
 
+import java.util.Arrays;
 import java.util.List;
 
 import lombok.Getter;
@@ -117,6 +121,12 @@ public final class Identifier {
   @Slf4j
   private static class Identify<T> extends BaseFunction<T> {
 
+    /**
+     * Constants.
+     */
+    private static final int CACHE_SIZE = 50000;
+    private static final String COUNTER_GROUP = "Identifier";
+
     private final String serviceUri;
     private final String releaseName;
 
@@ -138,9 +148,9 @@ public final class Identifier {
     private final FileType metaFileType;
 
     /**
-     * The client able to retrieve the ID from the service.
+     * Per task cache of IDs by business key.
      */
-    private IdClient idClient;
+    private transient IdCache cache;
 
     public Identify(String identifierClientClassName, String serviceUri, String releaseName,
         String identifierAuthToken, IdResolver idResolver,
@@ -163,7 +173,7 @@ public final class Identifier {
         OperationCall<T> operationCall) {
       super.prepare(flowProcess, operationCall);
 
-      idClient = createIdentifierClient();
+      cache = new IdCache(idResolver, projectId, createIdentifierClient(), CACHE_SIZE);
     }
 
     @Override
@@ -171,18 +181,40 @@ public final class Identifier {
         @SuppressWarnings("rawtypes") FlowProcess flowProcess,
         FunctionCall<T> functionCall) {
       TupleEntry entry = functionCall.getArguments();
-      String id =
-          checkNotNull(
-              idResolver.getId(
-                  projectId, entry, idClient, fileType, metaFileType),
-              "Failed to get an ID for %s", entry);
+      List<String> key = idResolver.getKey(entry, fileType, metaFileType);
+
+      String id = cache.getId(key);
+
       functionCall.getOutputCollector().add(new Tuple(id));
     }
 
+    @Override
+    public void cleanup(
+        @SuppressWarnings("rawtypes") FlowProcess flowProcess,
+        OperationCall<T> operationCall) {
+      long hitCount = cache.getHitCount();
+      long missCount = cache.getMissCount();
+      long resolveNanos = cache.getResolveNanos();
+      flowProcess.increment(COUNTER_GROUP, idResolver.name() + " cache hits", hitCount);
+      flowProcess.increment(COUNTER_GROUP, idResolver.name() + " cache misses", missCount);
+      flowProcess.increment(COUNTER_GROUP, idResolver.name() + " resolve millis", NANOSECONDS.toMillis(resolveNanos));
+
+      long total = hitCount + missCount;
+      if (total > 0) {
+        log.info("Identified {} '{}' tuples with a {}% cache hit rate and {} ms average resolve time",
+            new Object[] { total, fileType, 100 * hitCount / total,
+                missCount == 0 ? 0 : NANOSECONDS.toMillis(resolveNanos) / (double) missCount });
+      }
+
+      cache = null;
+      super.cleanup(flowProcess, operationCall);
+    }
+
     private IdClient createIdentifierClient() {
       log.info("Creating client using {}", serviceUri);
       return new IdClientFactory(identifierClientClassName, serviceUri, releaseName, identifierAuthToken).create();
     }
+
   }
 
   /**
@@ -194,26 +226,32 @@ public final class Identifier {
     DONOR(DONOR_TYPE, IdentifierFieldNames.SURROGATE_DONOR_ID) {
 
       @Override
-      public String getId(String projectId, TupleEntry entry, IdClient idClient,
-          FileType fileSchemaType,
-          FileType metaFileSchemaType) {
+      public List<String> getKey(TupleEntry entry, FileType fileSchemaType, FileType metaFileSchemaType) {
         String originalDonorId = entry.getString(
             prefixedFields(fileSchemaType, SUBMISSION_DONOR_ID));
-        printDebugLog(originalDonorId, projectId);
-        return idClient.createDonorId(originalDonorId, projectId);
+        return singletonList(originalDonorId);
+      }
+
+      @Override
+      public String resolve(String projectId, List<String> key, IdClient idClient) {
+        printDebugLog(key, projectId);
+        return idClient.createDonorId(key.get(0), projectId);
       }
 
     },
     SPECIMEN(SPECIMEN_TYPE, IdentifierFieldNames.SURROGATE_SPECIMEN_ID) {
 
       @Override
-      public String getId(String projectId, TupleEntry entry, IdClient idClient,
-          FileType fileSchemaType,
-          FileType metaFileSchemaType) {
+      public List<String> getKey(TupleEntry entry, FileType fileSchemaType, FileType metaFileSchemaType) {
         String originalSpecimenId = entry.getString(
             prefixedFields(fileSchemaType, SUBMISSION_SPECIMEN_ID));
-        printDebugLog(originalSpecimenId, projectId);
-        return idClient.createSpecimenId(originalSpecimenId, projectId);
+        return singletonList(originalSpecimenId);
+      }
+
+      @Override
+      public String resolve(String projectId, List<String> key, IdClient idClient) {
+        printDebugLog(key, projectId);
+        return idClient.createSpecimenId(key.get(0), projectId);
       }
 
     },
@@ -224,35 +262,39 @@ public final class Identifier {
     SPECIMEN_DONOR(SPECIMEN_TYPE, IdentifierFieldNames.SURROGATE_DONOR_ID) {
 
       @Override
-      public String getId(String projectId, TupleEntry entry, IdClient idClient,
-          FileType fileSchemaType,
-          FileType metaFileSchemaType) {
+      public List<String> getKey(TupleEntry entry, FileType fileSchemaType, FileType metaFileSchemaType) {
         String originalSpecimenId = entry.getString(
             prefixedFields(fileSchemaType, SUBMISSION_DONOR_ID));
-        printDebugLog(originalSpecimenId, projectId);
-        return idClient.createDonorId(originalSpecimenId, projectId);
+        return singletonList(originalSpecimenId);
+      }
+
+      @Override
+      public String resolve(String projectId, List<String> key, IdClient idClient) {
+        printDebugLog(key, projectId);
+        return idClient.createDonorId(key.get(0), projectId);
       }
 
     },
     SAMPLE(SAMPLE_TYPE, IdentifierFieldNames.SURROGATE_SAMPLE_ID) {
 
       @Override
-      public String getId(String projectId, TupleEntry entry, IdClient idClient,
-          FileType fileSchemaType,
-          FileType metaFileSchemaType) {
+      public List<String> getKey(TupleEntry entry, FileType fileSchemaType, FileType metaFileSchemaType) {
         String originalSampleId = entry.getString(
             prefixedFields(fileSchemaType, SUBMISSION_ANALYZED_SAMPLE_ID));
-        printDebugLog(originalSampleId, projectId);
-        return idClient.createSampleId(originalSampleId, projectId);
+        return singletonList(originalSampleId);
+      }
+
+      @Override
+      public String resolve(String projectId, List<String> key, IdClient idClient) {
+        printDebugLog(key, projectId);
+        return idClient.createSampleId(key.get(0), projectId);
       }
 
     },
     MUTATION(SSM_P_TYPE, IdentifierFieldNames.SURROGATE_MUTATION_ID) {
 
       @Override
-      public String getId(String projectId, TupleEntry entry, IdClient idClient,
-          FileType fileSchemaType,
-          FileType metaFileSchemaType) {
+      public List<String> getKey(TupleEntry entry, FileType fileSchemaType, FileType metaFileSchemaType) {
         checkState(metaFileSchemaType != null, "Expected to find a meta file schema name for %s", fileSchemaType);
 
         String chromosome = entry.getString(
@@ -268,9 +310,15 @@ public final class Identifier {
         String assemblyVersion = entry.getString(
             prefixedFields(metaFileSchemaType, SUBMISSION_OBSERVATION_ASSEMBLY_VERSION));
 
-        printDebugLog(chromosome, chromosomeStart, chromosomeEnd, mutation, mutationType, assemblyVersion);
+        // Values may be null
+        return Arrays.asList(chromosome, chromosomeStart, chromosomeEnd, mutation, mutationType, assemblyVersion);
+      }
+
+      @Override
+      public String resolve(String projectId, List<String> key, IdClient idClient) {
+        printDebugLog(key);
         return idClient.createMutationId(
-            chromosome, chromosomeStart, chromosomeEnd, mutation, mutationType, assemblyVersion);
+            key.get(0), key.get(1), key.get(2), key.get(3), key.get(4), key.get(5));
       }
 
     };
@@ -282,14 +330,15 @@ public final class Identifier {
     private final String idFieldName;
 
     /**
-     * Returns the ID based on the kind of entity requiring it.
-     * <p>
-     * This basically extracts part of the business key from the {@link TupleEntry}, and combines it with the projectId
-     * in order to query the service via the {@link HttpIdentifierClient}. The file schema name(s) are used to build
-     * properly prefixed fields, as they are prefixed in the {@link TupleEntry}.
+     * Extracts the part of the business key held by the {@link TupleEntry}, which identifies the entity within a
+     * project.
+     */
+    abstract List<String> getKey(TupleEntry entry, FileType fileSchemaType, FileType metaFileSchemaType);
+
+    /**
+     * Queries the service for the ID of the entity with the supplied business {@code key}.
      */
-    abstract String getId(String projectId, TupleEntry entry, IdClient idClient,
-        FileType fileSchemaType, FileType metaFileSchemaType);
+    abstract String resolve(String projectId, List<String> key, IdClient idClient);
 
     /**
      * Returns a pre-defined helper based on the file schema.
@@ -304,8 +353,8 @@ public final class Identifier {
       return null;
     }
 
-    private static void printDebugLog(String... values) {
-      log.debug("Resolving ID for: {}", newArrayList(values));
+    private static void printDebugLog(List<String> key, String... values) {
+      log.debug("Resolving ID for: {}", concat(key, newArrayList(values)));
     }
   }
 
@@ -22,12 +22,12 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Lists.newArrayList;
-import static org.icgc.dcc.common.cascading.Fields2.field;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
 import static org.icgc.dcc.common.cascading.TupleEntries.OBJECT_TO_TUPLE_ENTRY_CAST;
 import static org.icgc.dcc.common.cascading.TupleEntries.getFieldNames;
 import static org.icgc.dcc.common.cascading.TupleEntries.getTuple;
 import static org.icgc.dcc.common.cascading.TupleEntries.getTupleEntry;
-import static org.icgc.dcc.common.core.json.Jackson.DEFAULT;
 import static org.icgc.dcc.common.core.model.FieldNames.AVAILABLE_DATA_TYPES;
 import static org.icgc.dcc.etl.loader.flow.LoaderFields.generatedFieldName;
 import static org.icgc.dcc.etl.loader.flow.LoaderFields.getPrefix;
@@ -54,9 +54,11 @@ import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMEN
 import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_REST_FIELD_NAME;
 import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.isSupplementalField;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -82,76 +84,133 @@ import cascading.tuple.Fields;
 import cascading.tuple.Tuple;
 import cascading.tuple.TupleEntry;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.BasicDBObjectBuilder;
 import com.mongodb.DBObject;
 
 /**
- * 
+ * Transforms loader tuple entries into documents.
+ * <p>
+ * The handling of each incoming field is compiled once per distinct set of incoming {@link Fields} into a plan of
+ * {@link FieldAction}s addressing tuple positions directly, so that transforming an entry neither resolves field names
+ * nor classifies fields. Not thread safe.
  */
 @RequiredArgsConstructor
 public class LoaderHandler implements TupleEntryToDBObjectTransformer {
 
+  /**
+   * Constants.
+   */
+  private static final Fields SUPPLEMENTAL_MERGED_FIELD = new Fields(SUPPLEMENTAL_MERGED_FIELD_NAME);
+  private static final Fields SUPPLEMENTAL_REST_FIELD = new Fields(SUPPLEMENTAL_REST_FIELD_NAME);
+
   private final SubmissionModel submissionModel;
   private final HandlingType handlingType;
   private final Redacting redacting;
 
+  /**
+   * Compiled plans by incoming fields, of which there is usually only one.
+   */
+  private final Map<Fields, Plan> plans = newHashMap();
+
   @Override
   public DBObject transformEntry(TupleEntry entry) {
+    val plan = getPlan(entry.getFields());
+
     val builder = new BasicDBObjectBuilder();
+    val tuple = entry.getTuple();
+    for (val action : plan.getActions()) {
+      action.apply(builder, entry, tuple);
+    }
+
+    if (plan.isSupplemental()) {
+      return handleSupplementalValue(builder, entry);
+    }
 
+    return builder.get();
+  }
+
+  private Plan getPlan(Fields fields) {
+    Plan plan = plans.get(fields);
+    if (plan == null) {
+      plan = compile(fields);
+      plans.put(fields, plan);
+    }
+
+    return plan;
+  }
+
+  private Plan compile(Fields fields) {
     val fileType = handlingType.getFileType();
     val optionalMetaFileType = getOptionalMetaFileType(handlingType);
 
-    boolean hasSupplemental = false;
-
-    val submissionFieldNames = filter(
+    val submissionFieldNames = newArrayList(filter(
         submissionModel.getFieldNames(fileType),
-        relevantFields(handlingType));
-    val prefixedSubmissionFieldNames = prefixFieldNames(fileType, submissionFieldNames);
+        relevantFields(handlingType)));
+    Set<String> prefixedSubmissionFieldNames = newHashSet(prefixFieldNames(fileType, submissionFieldNames));
     val prefixedSubmissionMetaFieldNames =
         getOptionalPrefixedSubmissionMetaFieldNames(submissionModel, optionalMetaFileType);
+    Set<String> prefixedSubmissionMetaFieldNameSet = prefixedSubmissionMetaFieldNames.isPresent() ?
+        newHashSet(prefixedSubmissionMetaFieldNames.get()) :
+        Collections.<String> emptySet();
+
+    val prefixedLoaderFieldNames = Lists.<String> newArrayList();
+    for (int i = 0; i < fields.size(); i++) {
+      prefixedLoaderFieldNames.add(fields.get(i).toString());
+    }
 
-    for (val prefixedLoaderFieldName : getFieldNames(entry)) {
+    val actions = ImmutableList.<FieldAction> builder();
+    boolean hasSupplemental = false;
+    for (val prefixedLoaderFieldName : prefixedLoaderFieldNames) {
       val unprefixedLoaderFieldName = unprefixFieldName(prefixedLoaderFieldName);
 
-      if (isNormalField(prefixedSubmissionFieldNames, prefixedLoaderFieldName)) {
-        handleNormalValue(builder, entry, fileType, unprefixedLoaderFieldName);
+      if (prefixedSubmissionFieldNames.contains(prefixedLoaderFieldName)) {
+        addValue(actions, prefixedLoaderFieldNames, fileType, unprefixedLoaderFieldName);
       }
 
       else if (hasMetaType(handlingType)
-          && isMetaField(prefixedSubmissionMetaFieldNames.get(), prefixedLoaderFieldName)) {
-        handleMetaValue(builder, entry, optionalMetaFileType.get(), unprefixedLoaderFieldName);
+          && prefixedSubmissionMetaFieldNameSet.contains(prefixedLoaderFieldName)) {
+        addValue(actions, prefixedLoaderFieldNames, optionalMetaFileType.get(), unprefixedLoaderFieldName);
       }
 
       else if (isGeneratedField(prefixedLoaderFieldName)) {
         if (isAvailableRawSequenceDataField(prefixedLoaderFieldName)) {
-          handleRawSequenceDataInfoField(builder, entry, fileType);
+          checkState(fileType.isSample()); // By design
+          actions.add(new RawSequenceDataInfoAction());
         }
 
         else if (isSummaryField(prefixedLoaderFieldName)) {
-          handleSummaryField(builder, entry, fileType);
+          checkState(fileType.isDonor()); // By design
+          actions.add(new SummaryAction());
         }
 
         else { // Any other generated field such as _type, _donor_id, ...
-          handleOtherGeneratedField(builder, entry, fileType, unprefixedLoaderFieldName);
+          actions.add(new ValueAction(
+              unprefixedLoaderFieldName,
+              getPosition(prefixedLoaderFieldNames, generatedFieldName(unprefixedLoaderFieldName)),
+              false));
         }
       }
 
       else if (isObservationArrayInternalName(prefixedLoaderFieldName)) {
-        handleObservationArray(builder, entry, fileType);
+        addArray(actions, prefixedLoaderFieldNames,
+            Occurence.getObservationFileType(), Occurence.getObservationArrayInternalName(), Nesting.OBSERVATION);
       }
 
       else if (isJoinArrayInternalName(prefixedLoaderFieldName)) {
-        handleJoinArray(builder, entry, fileType, unprefixedLoaderFieldName);
+        val subFileType = getNestedFileType(
+            fileType,
+            generatedFieldName(unprefixedLoaderFieldName));
+
+        addArray(actions, prefixedLoaderFieldNames,
+            subFileType, getConsequenceArrayInternalName(subFileType), Nesting.JOIN);
       }
 
       else if (isSupplementalField(prefixedLoaderFieldName)) {
@@ -161,27 +220,69 @@ public class LoaderHandler implements TupleEntryToDBObjectTransformer {
 
       else {
         throw new IllegalStateException(String.format("Unknown field: '%s' for '%s': '%s', '%s'",
-            prefixedLoaderFieldName, handlingType, submissionFieldNames, entry.getFields()));
+            prefixedLoaderFieldName, handlingType, submissionFieldNames, fields));
       }
     }
 
-    if (hasSupplemental) {
-      return handleSupplementalValue(builder, entry);
+    return new Plan(actions.build(), hasSupplemental);
+  }
+
+  private void addValue(
+      @NonNull final ImmutableList.Builder<FieldAction> actions,
+      @NonNull final List<String> prefixedLoaderFieldNames,
+      @NonNull final FileType fileType,
+      @NonNull final String unprefixedFieldName) {
+
+    if (isSensitive(submissionModel, fileType, unprefixedFieldName, redacting)) {
+      // Redacted values are never added
+      return;
     }
 
-    return builder.get();
+    actions.add(new ValueAction(
+        unprefixedFieldName,
+        getPosition(prefixedLoaderFieldNames, prefixedFieldName(fileType, unprefixedFieldName)),
+        true));
   }
 
-  private BasicDBObject handleSupplementalValue(BasicDBObjectBuilder builder, TupleEntry entry) {
+  private void addArray(
+      @NonNull final ImmutableList.Builder<FieldAction> actions,
+      @NonNull final List<String> prefixedLoaderFieldNames,
+      @NonNull final FileType nestedFileType,
+      @NonNull final String prefixedArrayName,
+      @NonNull final Nesting nesting) {
+
+    actions.add(new ArrayAction(
+        potentiallyRenameArray(nestedFileType),
+        getPosition(prefixedLoaderFieldNames, prefixedArrayName),
+        recursion(nestedFileType, nesting)));
+  }
 
-    ObjectNode document = DEFAULT.convertValue(builder.get(), ObjectNode.class);
-    val supplementalTuple = (Tuple) entry.getObject(new Fields(SUPPLEMENTAL_MERGED_FIELD_NAME));
+  private LoaderHandler recursion(
+      @NonNull final FileType nestedFileType,
+      @NonNull final Nesting nesting) {
+
+    return new LoaderHandler(
+        submissionModel,
+        new HandlingType(nestedFileType, nesting),
+        redacting);
+  }
+
+  private static int getPosition(List<String> prefixedLoaderFieldNames, String prefixedLoaderFieldName) {
+    val position = prefixedLoaderFieldNames.indexOf(prefixedLoaderFieldName);
+    checkState(position >= 0, "Field '%s' not found in '%s'", prefixedLoaderFieldName, prefixedLoaderFieldNames);
+
+    return position;
+  }
+
+  private DBObject handleSupplementalValue(BasicDBObjectBuilder builder, TupleEntry entry) {
+    val document = builder.get();
+    val supplementalTuple = (Tuple) entry.getObject(SUPPLEMENTAL_MERGED_FIELD);
 
     if (supplementalTuple != null) {
 
       for (Iterator<Object> i = supplementalTuple.iterator(); i.hasNext();) {
         val tupleEntry = (TupleEntry) i.next();
-        val supplementalEntry = (TupleEntry) tupleEntry.getObject(new Fields(SUPPLEMENTAL_REST_FIELD_NAME));
+        val supplementalEntry = (TupleEntry) tupleEntry.getObject(SUPPLEMENTAL_REST_FIELD);
         val fileType = determineSupplementalType(supplementalEntry);
 
         if (isSpecimenSupplementalType(fileType)) {
@@ -194,31 +295,31 @@ public class LoaderHandler implements TupleEntryToDBObjectTransformer {
       }
     }
 
-    return DEFAULT.convertValue(document, BasicDBObject.class);
+    return document;
   }
 
-  private void handleSpecimenSupplementalFileType(ObjectNode document, @NonNull final TupleEntry supplementalEntry,
+  private void handleSpecimenSupplementalFileType(DBObject document, @NonNull final TupleEntry supplementalEntry,
       @NonNull final FileType fileType) {
     // Nest under specimen
     val entrySpecimenId = supplementalEntry.getString(prefixedFieldName(fileType, SPECIMEN_ID_FIELD_NAME));
-    val specimens = document.path(SPECIMEN_FIELD_NAME);
+    val specimens = (List<?>) document.get(SPECIMEN_FIELD_NAME);
+    if (specimens == null) {
+      return;
+    }
 
     for (val specimen : specimens) {
-      val specimenId = specimen.get(SPECIMEN_ID_FIELD_NAME).asText();
+      val specimenObject = (DBObject) specimen;
+      val specimenId = String.valueOf(specimenObject.get(SPECIMEN_ID_FIELD_NAME));
 
       if (specimenId.equals(entrySpecimenId)) {
-        val existingValues = (ArrayNode) specimen.withArray(fileType.getId());
-        existingValues.add(extractEntry(supplementalEntry));
-        ((ObjectNode) specimen).put(fileType.getId(), existingValues);
+        withArray(specimenObject, fileType.getId()).add(extractEntry(supplementalEntry));
       }
     }
   }
 
-  private void handleDonorSupplementalFileType(ObjectNode document, @NonNull final TupleEntry supplementalEntry,
+  private void handleDonorSupplementalFileType(DBObject document, @NonNull final TupleEntry supplementalEntry,
       @NonNull final FileType fileType) {
-    val existingValues = document.withArray(fileType.getId());
-    existingValues.add(extractEntry(supplementalEntry));
-    document.put(fileType.getId(), existingValues);
+    withArray(document, fileType.getId()).add(extractEntry(supplementalEntry));
   }
 
   private boolean isSpecimenSupplementalType(FileType fileType) {
@@ -230,17 +331,26 @@ public class LoaderHandler implements TupleEntryToDBObjectTransformer {
         || fileType == FileType.THERAPY_TYPE;
   }
 
-  private static JsonNode extractEntry(TupleEntry entry) {
+  private static BasicDBList withArray(DBObject object, String fieldName) {
+    BasicDBList values = (BasicDBList) object.get(fieldName);
+    if (values == null) {
+      values = new BasicDBList();
+      object.put(fieldName, values);
+    }
 
-    JsonNode rootNode = DEFAULT.createObjectNode();
+    return values;
+  }
+
+  private static DBObject extractEntry(TupleEntry entry) {
+    val object = new BasicDBObject();
 
     for (val prefixedFieldName : getFieldNames(entry)) {
       val value = entry.getString(new Fields(prefixedFieldName));
       val unprefixedFieldName = unprefixFieldName(prefixedFieldName);
-      ((ObjectNode) rootNode).put(unprefixedFieldName, value);
+      object.put(unprefixedFieldName, value);
     }
 
-    return rootNode;
+    return object;
   }
 
   private FileType determineSupplementalType(TupleEntry entry) {
@@ -249,123 +359,6 @@ public class LoaderHandler implements TupleEntryToDBObjectTransformer {
     return FileType.from(prefix);
   }
 
-  private void handleNormalValue(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType fileType,
-      @NonNull final String unprefixedFieldName) {
-
-    handleValue(builder, entry, fileType, unprefixedFieldName);
-  }
-
-  private void handleMetaValue(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType metaFileType,
-      @NonNull final String unprefixedFieldName) {
-
-    handleValue(builder, entry, metaFileType, unprefixedFieldName);
-  }
-
-  private void handleRawSequenceDataInfoField(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType fileType) {
-
-    checkState(fileType.isSample()); // By design
-    builder.add(
-        LoaderFieldNames.AVAILABLE_RAW_SEQUENCE_DATA,
-        extractRawSequenceDataInfo(entry));
-  }
-
-  private void handleSummaryField(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType fileType) {
-
-    checkState(fileType.isDonor()); // By design
-    builder.add(
-        LoaderFieldNames.SUMMARY,
-        extractSummary(getTupleEntry(
-            entry,
-            SummaryCollector.getStaticResultField())));
-  }
-
-  private void handleOtherGeneratedField(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType fileType,
-      @NonNull final String unprefixedFieldName) {
-
-    builder.add(
-        unprefixedFieldName,
-        extractObjectValue(
-            entry,
-            generatedFieldName(unprefixedFieldName)));
-  }
-
-  private void handleJoinArray(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType fileType,
-      @NonNull final String unprefixedFieldName) {
-
-    val subFileType = getNestedFileType(
-        fileType,
-        generatedFieldName(unprefixedFieldName));
-
-    handleArray(
-        builder, entry, subFileType, getConsequenceArrayInternalName(subFileType), Nesting.JOIN);
-  }
-
-  private void handleObservationArray(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType fileType) {
-
-    handleArray(
-        builder, entry,
-        Occurence.getObservationFileType(), Occurence.getObservationArrayInternalName(), Nesting.OBSERVATION);
-  }
-
-  private void handleArray(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType nestedFileType,
-      @NonNull final String prefixedArrayName,
-      @NonNull final Nesting nesting) {
-
-    builder.add(
-        potentiallyRenameArray(nestedFileType),
-        transfromTupleEntries(
-            getTuple(entry, field(prefixedArrayName)),
-            recursion(nestedFileType, nesting)));
-  }
-
-  private LoaderHandler recursion(
-      @NonNull final FileType nestedFileType,
-      @NonNull final Nesting nesting) {
-
-    return new LoaderHandler(
-        submissionModel,
-        new HandlingType(nestedFileType, nesting),
-        redacting);
-  }
-
-  private void handleValue(
-      @NonNull final BasicDBObjectBuilder builder,
-      @NonNull final TupleEntry entry,
-      @NonNull final FileType fileType,
-      @NonNull final String unprefixedFieldName) {
-
-    val value = extractPotentiallySensitiveObjectValue(
-        submissionModel, fileType, entry, unprefixedFieldName, redacting);
-
-    if (stillContainsValue(value)) {
-      builder.add(unprefixedFieldName, value);
-    }
-  }
-
   private static Optional<FileType> getOptionalMetaFileType(
       @NonNull final HandlingType handlingType) {
 
@@ -427,21 +420,6 @@ public class LoaderHandler implements TupleEntryToDBObjectTransformer {
     return list;
   }
 
-  private static Object extractPotentiallySensitiveObjectValue(
-      ControlFieldsReference reference, FileType fileType, TupleEntry entry,
-      String unprefixedFieldName, Redacting redacting) {
-
-    return isSensitive(reference, fileType, unprefixedFieldName, redacting) ?
-
-        LoaderModel.SENSITIVE_VALUE_REPLACEMENT : extractObjectValue(
-            entry,
-            prefixedFieldName(fileType, unprefixedFieldName));
-  }
-
-  private static Object extractObjectValue(TupleEntry entry, String prefixedLoaderFieldName) {
-    return entry.getObject(new Fields(prefixedLoaderFieldName));
-  }
-
   private static DBObject extractRawSequenceDataInfo(TupleEntry entry) {
     return transfromTupleEntries(
         getTuple(
@@ -503,20 +481,6 @@ public class LoaderHandler implements TupleEntryToDBObjectTransformer {
     return availableDataTypes;
   }
 
-  private boolean isNormalField(
-      @NonNull final Collection<String> prefixedSubmissionFieldNames,
-      @NonNull final String prefixedLoaderFieldName) {
-    return prefixedSubmissionFieldNames
-        .contains(prefixedLoaderFieldName);
-  }
-
-  private boolean isMetaField(
-      @NonNull final Collection<String> prefixedSubmissionMetaFieldNames,
-      @NonNull final String prefixedLoaderFieldName) {
-    return prefixedSubmissionMetaFieldNames
-        .contains(prefixedLoaderFieldName);
-  }
-
   private static boolean isSensitive(
       @NonNull final ControlFieldsReference reference,
       @NonNull final FileType fileType,
@@ -543,6 +507,75 @@ public class LoaderHandler implements TupleEntryToDBObjectTransformer {
         && value != LoaderModel.SENSITIVE_VALUE_REPLACEMENT;
   }
 
+  /**
+   * Compiled handling of a set of incoming fields.
+   */
+  @Value
+  private static class Plan {
+
+    List<FieldAction> actions;
+    boolean supplemental;
+
+  }
+
+  /**
+   * Compiled handling of a single incoming field.
+   */
+  private static abstract class FieldAction {
+
+    abstract void apply(BasicDBObjectBuilder builder, TupleEntry entry, Tuple tuple);
+
+  }
+
+  @RequiredArgsConstructor
+  private static class ValueAction extends FieldAction {
+
+    private final String fieldName;
+    private final int position;
+    private final boolean skipMissing;
+
+    @Override
+    void apply(BasicDBObjectBuilder builder, TupleEntry entry, Tuple tuple) {
+      val value = tuple.getObject(position);
+      if (!skipMissing || stillContainsValue(value)) {
+        builder.add(fieldName, value);
+      }
+    }
+
+  }
+
+  @RequiredArgsConstructor
+  private static class ArrayAction extends FieldAction {
+
+    private final String fieldName;
+    private final int position;
+    private final LoaderHandler handler;
+
+    @Override
+    void apply(BasicDBObjectBuilder builder, TupleEntry entry, Tuple tuple) {
+      builder.add(fieldName, transfromTupleEntries((Tuple) tuple.getObject(position), handler));
+    }
+
+  }
+
+  private static class RawSequenceDataInfoAction extends FieldAction {
+
+    @Override
+    void apply(BasicDBObjectBuilder builder, TupleEntry entry, Tuple tuple) {
+      builder.add(LoaderFieldNames.AVAILABLE_RAW_SEQUENCE_DATA, extractRawSequenceDataInfo(entry));
+    }
+
+  }
+
+  private static class SummaryAction extends FieldAction {
+
+    @Override
+    void apply(BasicDBObjectBuilder builder, TupleEntry entry, Tuple tuple) {
+      builder.add(LoaderFieldNames.SUMMARY, extractSummary(getTupleEntry(entry, SummaryCollector.getStaticResultField())));
+    }
+
+  }
+
   @Value
   public static class HandlingType {
 
@@ -26,8 +26,10 @@ import static org.icgc.dcc.etl.loader.flow.LoaderFields.generatedFields;
 import static org.icgc.dcc.etl.loader.flow.LoaderFields.prefixedFields;
 import static org.icgc.dcc.etl.loader.flow.LoaderFields.unprefixFieldName;
 import static org.icgc.dcc.etl.loader.service.LoaderModel.getCollection;
+
+import java.io.IOException;
+
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import org.icgc.dcc.common.cascading.taps.MongoDbTap.MongoDbScheme;
@@ -45,11 +47,8 @@ import cascading.tap.Tap;
 import cascading.tuple.Fields;
 import cascading.tuple.TupleEntry;
 
-import com.google.common.base.Throwables;
 import com.mongodb.BasicDBObjectBuilder;
-import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
-import com.mongodb.MongoException;
 
 /**
  * Converts the incoming {@code Tuple} into a {@code DBObject} according to the {@code Schema} and persists it in the
@@ -61,7 +60,15 @@ public class LoaderMongoDbScheme extends MongoDbScheme {
   private final SubmissionModel submissionModel;
   private final DataType dataType;
 
-  private transient DBCollection mutationDbCollection;
+  /**
+   * Reused across entries so that its compiled plan is too.
+   */
+  private transient LoaderHandler handler;
+
+  /**
+   * Buffered mutation upserts.
+   */
+  private transient MutationBuffer mutationBuffer;
 
   public LoaderMongoDbScheme(
       @NonNull final SubmissionModel submissionModel,
@@ -81,28 +88,25 @@ public class LoaderMongoDbScheme extends MongoDbScheme {
   protected void preSinkHook(SinkCall<Void, Object> sinkCall) {
     if (isAggregatedType(dataType)) {
       log.debug("Setting collection '{}'", MUTATION_COLLECTION);
-      this.mutationDbCollection = getDbCollection(sinkCall, databaseName, MUTATION_COLLECTION.getId());
+      this.mutationBuffer =
+          new MutationBuffer(getDbCollection(sinkCall, databaseName, MUTATION_COLLECTION.getId()));
     }
   }
 
   @Override
   protected void persistHook(SinkCall<Void, Object> sinkCall, TupleEntry entry) {
     if (isAggregatedType(dataType)) {
-      persistMutation(sinkCall, entry);
+      mutationBuffer.add(extractMutation(entry, mutationFields()));
     }
   }
 
-  @SneakyThrows
-  private void persistMutation(SinkCall<Void, Object> sinkCall, TupleEntry entry) {
-    DBObject mutationDbObject = extractMutation(entry, mutationFields());
-    try {
-      checkResult(upsert(mutationDbCollection, mutationDbObject));
-    } catch (MongoException e) {
-      log.error("{} caught while trying to upsert mutation {}",
-          e.getClass().getSimpleName(), mutationDbObject);
-      Throwables.propagate(e);
+  @Override
+  public void sinkCleanup(FlowProcess<Object> flowProcess, SinkCall<Void, Object> sinkCall) throws IOException {
+    if (isAggregatedType(dataType) && mutationBuffer != null) {
+      mutationBuffer.flush();
     }
 
+    super.sinkCleanup(flowProcess, sinkCall);
   }
 
   /**
@@ -139,13 +143,16 @@ public class LoaderMongoDbScheme extends MongoDbScheme {
 
   @Override
   protected DBObject convert(TupleEntry entry) {
-    return new LoaderHandler(
-        submissionModel,
-        new HandlingType(
-            dataType.getTopLevelFileType(),
-            Nesting.JOIN),
-        Redacting.SENSITIVE_FIELDS)
-        .transformEntry(entry);
+    if (handler == null) {
+      handler = new LoaderHandler(
+          submissionModel,
+          new HandlingType(
+              dataType.getTopLevelFileType(),
+              Nesting.JOIN),
+          Redacting.SENSITIVE_FIELDS);
+    }
+
+    return handler.transformEntry(entry);
   }
 
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.mongodb;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.MUTATION_COLLECTION;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.base.Throwables;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+/**
+ * Buffers mutations by primary key and upserts them in unordered bulk operations once a count or size threshold is
+ * reached. Mutations are deduplicated since a mutation is repeated for each of its observations.
+ */
+@Slf4j
+class MutationBuffer {
+
+  /**
+   * Default thresholds at which buffered mutations are flushed.
+   */
+  static final int DEFAULT_MAX_COUNT = 1000;
+  static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+  /**
+   * Configuration.
+   */
+  private final DBCollection collection;
+  private final int maxCount;
+  private final long maxBytes;
+
+  /**
+   * State.
+   */
+  private final Map<List<Object>, DBObject> mutations = newLinkedHashMap();
+  private long bytes;
+
+  MutationBuffer(@NonNull DBCollection collection) {
+    this(collection, DEFAULT_MAX_COUNT, DEFAULT_MAX_BYTES);
+  }
+
+  MutationBuffer(@NonNull DBCollection collection, int maxCount, long maxBytes) {
+    this.collection = collection;
+    this.maxCount = maxCount;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Adds {@code mutation}, replacing any buffered mutation with the same primary key.
+   */
+  void add(@NonNull DBObject mutation) {
+    DBObject previous = mutations.put(getPrimaryKey(mutation), mutation);
+    if (previous != null) {
+      bytes -= estimateSize(previous);
+    }
+
+    bytes += estimateSize(mutation);
+    if (mutations.size() >= maxCount || bytes >= maxBytes) {
+      flush();
+    }
+  }
+
+  /**
+   * Upserts the buffered mutations in a single unordered bulk operation.
+   */
+  @SneakyThrows
+  void flush() {
+    if (mutations.isEmpty()) {
+      return;
+    }
+
+    BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+    for (Entry<List<Object>, DBObject> entry : mutations.entrySet()) {
+      bulk.find(getPrimaryKeyQuery(entry.getKey())).upsert().replaceOne(entry.getValue());
+    }
+
+    try {
+      bulk.execute();
+    } catch (MongoException e) {
+      log.error("{} caught while trying to upsert {} mutations: {}",
+          new Object[] { e.getClass().getSimpleName(), mutations.size(), e.getMessage() });
+      Throwables.propagate(e);
+    }
+
+    log.debug("Upserted {} mutations", mutations.size());
+    mutations.clear();
+    bytes = 0;
+  }
+
+  int size() {
+    return mutations.size();
+  }
+
+  long getBytes() {
+    return bytes;
+  }
+
+  private static List<Object> getPrimaryKey(DBObject mutation) {
+    List<Object> primaryKey = newArrayList();
+    for (String fieldName : MUTATION_COLLECTION.getPrimaryKey()) {
+      primaryKey.add(mutation.get(fieldName));
+    }
+
+    return primaryKey;
+  }
+
+  private static DBObject getPrimaryKeyQuery(List<Object> primaryKey) {
+    BasicDBObjectBuilder builder = new BasicDBObjectBuilder();
+    int i = 0;
+    for (String fieldName : MUTATION_COLLECTION.getPrimaryKey()) {
+      builder.add(fieldName, primaryKey.get(i++));
+    }
+
+    return builder.get();
+  }
+
+  /**
+   * Cheap approximation of the BSON size, which only needs to be good enough to bound the buffer.
+   */
+  static long estimateSize(DBObject mutation) {
+    long size = 0;
+    for (String fieldName : mutation.keySet()) {
+      Object value = mutation.get(fieldName);
+      size += fieldName.length() + (value == null ? 0 : value.toString().length()) + 8;
+    }
+
+    return size;
+  }
+
+}
@@ -58,6 +58,7 @@ import org.icgc.dcc.etl.loader.mongodb.LoaderMongoDbScheme;
 
 import cascading.flow.Flow;
 import cascading.flow.FlowConnector;
+import cascading.flow.FlowDef;
 import cascading.property.ConfigDef;
 import cascading.tap.SinkMode;
 import cascading.tap.Tap;
@@ -106,6 +107,20 @@ public abstract class BaseLoaderPlatformStrategy implements LoaderPlatformStrate
             augmentFlowProperties());
   }
 
+  @Override
+  public Flow<?> connect(@NonNull final FlowDef flowDef) {
+    val flow = getFlowConnector().connect(flowDef);
+    configureFlow(flow);
+
+    return flow;
+  }
+
+  /**
+   * Allows subclasses to apply settings that require the planned {@code Flow}.
+   */
+  protected void configureFlow(Flow<?> flow) {
+  }
+
   @Override
   public void initialise(@NonNull final ProvidedDataReleaseDigest dataDigest) {
     val fileSystem = platformData.getFileSystem();
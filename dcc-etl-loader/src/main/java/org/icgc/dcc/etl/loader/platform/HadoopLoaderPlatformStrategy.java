@@ -35,12 +35,15 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.mapred.JobConf;
 import org.icgc.dcc.common.cascading.CascadingContext;
 import org.icgc.dcc.common.core.model.DataType;
 import org.icgc.dcc.common.hadoop.util.HadoopProperties;
+import org.icgc.dcc.etl.loader.cascading.TupleEntrySchemaStrategy;
 import org.icgc.dcc.etl.loader.cascading.TupleEntrySerialization;
 import org.icgc.dcc.etl.loader.service.LoaderService;
 
+import cascading.flow.Flow;
 import cascading.property.AppProps;
 import cascading.tap.Tap;
 import cascading.tuple.hadoop.TupleSerializationProps;
@@ -100,6 +103,15 @@ public class HadoopLoaderPlatformStrategy extends BaseLoaderPlatformStrategy {
     return flowProperties;
   }
 
+  /**
+   * Registers the nested schemas resolved by the planner for each step of the flow.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected void configureFlow(Flow<?> flow) {
+    ((Flow<JobConf>) flow).setFlowStepStrategy(new TupleEntrySchemaStrategy());
+  }
+
   @Override
   public Tap<?, ?, ?> getFileSystemTap(DataType type, String submission) {
     val fileSystemTap = super.getFileSystemTap(type, submission);
@@ -25,7 +25,9 @@ import org.icgc.dcc.common.core.model.FileTypes.FileType;
 import org.icgc.dcc.etl.loader.core.ProvidedDataReleaseDigest;
 import org.icgc.dcc.etl.loader.flow.SummaryCollector;
 
+import cascading.flow.Flow;
 import cascading.flow.FlowConnector;
+import cascading.flow.FlowDef;
 import cascading.tap.Tap;
 import cascading.tuple.Fields;
 
@@ -64,6 +66,11 @@ public interface LoaderPlatformStrategy {
    */
   FlowConnector getFlowConnector();
 
+  /**
+   * Connects {@code flowDef} using the platform-specific {@code FlowConnector} and settings.
+   */
+  Flow<?> connect(FlowDef flowDef);
+
   /**
    * Necessary until DCC-996 is done (IF there is indeed a more elegant alternative).
    */
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.cascading;
+
+import static cascading.CascadingTestCase.invokeFunction;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import lombok.val;
+
+import org.junit.Test;
+
+import cascading.pipe.Each;
+import cascading.pipe.Pipe;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests {@code CodesTranslator}.
+ */
+public class CodesTranslatorTest {
+
+  @Test
+  public void testEachFieldTranslatedWithItsOwnMapping() {
+    // Hash ordered, so that the pairing of fields and mappings does not rely on insertion order
+    Map<String, Map<String, String>> mappings = Maps.newHashMap();
+    for (int i = 0; i < 10; i++) {
+      mappings.put("field" + i, ImmutableMap.of("1", "field" + i + "_value1", "2", "field" + i + "_value2"));
+    }
+
+    val each = (Each) new CodesTranslator(new Pipe("codes"), mappings).getTails()[0];
+    val fields = each.getArgumentSelector();
+    val tuple = translate(each, new TupleEntry(fields, Tuple.size(fields.size(), "2")));
+
+    for (int i = 0; i < fields.size(); i++) {
+      assertThat(tuple.getString(i)).isEqualTo(fields.get(i) + "_value2");
+    }
+  }
+
+  @Test
+  public void testUnknownCodeKept() {
+    Map<String, Map<String, String>> mappings = Maps.newLinkedHashMap();
+    mappings.put("a", ImmutableMap.of("1", "alpha"));
+    mappings.put("b", ImmutableMap.of("1", "beta"));
+
+    val each = (Each) new CodesTranslator(new Pipe("codes"), mappings).getTails()[0];
+    val tuple = translate(each, new TupleEntry(new Fields("a", "b"), new Tuple("1", "alpha")));
+
+    assertThat(tuple).isEqualTo(new Tuple("alpha", "alpha"));
+  }
+
+  @Test
+  public void testNoMappings() {
+    val pipe = new Pipe("codes");
+    val tails = new CodesTranslator(pipe, ImmutableMap.<String, Map<String, String>> of()).getTails();
+
+    assertThat(tails).containsExactly(pipe);
+  }
+
+  private static Tuple translate(Each each, TupleEntry arguments) {
+    val collector = invokeFunction(each.getFunction(), arguments, arguments.getFields());
+    assertThat(collector.size()).isEqualTo(1);
+
+    return ImmutableList.copyOf(collector.iterator()).get(0);
+  }
+
+}
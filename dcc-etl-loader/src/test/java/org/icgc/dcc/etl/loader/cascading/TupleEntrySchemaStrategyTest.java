@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.cascading;
+
+import static cascading.tuple.Fields.ALL;
+import static cascading.tuple.Fields.RESULTS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.etl.loader.flow.LoaderFields.prefixedFields;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.DONOR_ID_BASE_FIELD_NAME;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_DONOR_ID_FIELD_NAME;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_MERGED_FIELD_NAME;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_REST_FIELD_NAME;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import lombok.val;
+
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cascading.flow.Flow;
+import cascading.flow.FlowDef;
+import cascading.flow.FlowStep;
+import cascading.flow.hadoop.HadoopFlowConnector;
+import cascading.pipe.Each;
+import cascading.pipe.Every;
+import cascading.pipe.GroupBy;
+import cascading.pipe.Pipe;
+import cascading.scheme.hadoop.TextDelimited;
+import cascading.tap.SinkMode;
+import cascading.tap.hadoop.Hfs;
+import cascading.tuple.Fields;
+
+/**
+ * Tests {@code TupleEntrySchemaStrategy}.
+ */
+public class TupleEntrySchemaStrategyTest {
+
+  private static final String FILE_TYPE_ID = "donor_therapy";
+
+  private static final Fields DONOR_ID_FIELD = prefixedFields(FILE_TYPE_ID, DONOR_ID_BASE_FIELD_NAME);
+  private static final Fields VALUE_FIELDS = prefixedFields(FILE_TYPE_ID, "first_therapy_type")
+      .append(prefixedFields(FILE_TYPE_ID, "first_therapy_response"));
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void test_resolve_schemas() throws IOException {
+    val flow = connectSupplementalFlow();
+
+    assertThat(TupleEntrySchemaStrategy.resolveSchemas(flow)).containsExactly(
+        VALUE_FIELDS, // Tuplized entries
+        new Fields(SUPPLEMENTAL_REST_FIELD_NAME)); // Merged entries
+  }
+
+  @Test
+  public void test_apply() throws IOException {
+    val flow = connectSupplementalFlow();
+    val strategy = new TupleEntrySchemaStrategy();
+
+    for (val flowStep : flow.getFlowSteps()) {
+      strategy.apply(flow, Collections.<FlowStep<JobConf>> emptyList(), flowStep);
+
+      assertThat(flowStep.getConfig().get(TupleEntrySerialization.SCHEMAS_PROPERTY)).isNotNull();
+    }
+  }
+
+  /**
+   * Reproduces the supplemental merging of the donor flow.
+   */
+  @SuppressWarnings("unchecked")
+  private Flow<JobConf> connectSupplementalFlow() throws IOException {
+    val source = new Hfs(
+        new TextDelimited(DONOR_ID_FIELD.append(VALUE_FIELDS), "\t"),
+        tmp.newFile().getAbsolutePath());
+    val sink = new Hfs(
+        new TextDelimited(ALL, "\t"),
+        tmp.newFolder().getAbsolutePath(),
+        SinkMode.REPLACE);
+
+    val head = new Pipe("supplemental");
+    Pipe pipe = new Each(head, ALL, new TuplizeFunction(), RESULTS);
+    pipe = new GroupBy(pipe, new Fields(SUPPLEMENTAL_DONOR_ID_FIELD_NAME));
+    pipe = new Every(pipe, new AsList(
+        new Fields(SUPPLEMENTAL_MERGED_FIELD_NAME),
+        new Fields(SUPPLEMENTAL_DONOR_ID_FIELD_NAME)));
+
+    val flowDef = FlowDef.flowDef()
+        .addSource(head, source)
+        .addTailSink(pipe, sink);
+
+    return (Flow<JobConf>) new HadoopFlowConnector().connect(flowDef);
+  }
+
+}
@@ -19,13 +19,18 @@ package org.icgc.dcc.etl.loader.cascading;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
+import org.apache.hadoop.io.serializer.Deserializer;
+import org.apache.hadoop.io.serializer.Serializer;
 import org.apache.hadoop.mapred.JobConf;
+import org.icgc.dcc.etl.loader.cascading.TupleEntrySerialization.TupleEntryComparator;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -35,6 +40,7 @@ import cascading.tuple.Fields;
 import cascading.tuple.Tuple;
 import cascading.tuple.TupleEntry;
 import cascading.tuple.hadoop.TupleSerialization;
+import cascading.tuple.hadoop.io.BufferedInputStream;
 import cascading.tuple.hadoop.io.HadoopTupleInputStream;
 import cascading.tuple.hadoop.io.HadoopTupleOutputStream;
 import cascading.tuple.io.TupleInputStream;
@@ -80,6 +86,83 @@ public class TupleEntrySerializationTest extends CascadingTestCase {
     assertThat(inputTuple.toString()).isEqualTo(outputTuple.toString());
   }
 
+  @Test
+  public void test_tuple_entry_serialization_shared_schema() throws IOException {
+    TupleEntrySerialization serialization = createSerialization();
+    TupleEntry entry1 = new TupleEntry(new Fields("a", "b"), new Tuple("x", 1));
+    TupleEntry entry2 = new TupleEntry(new Fields("a", "b"), new Tuple("y", 2));
+    TupleEntry entry3 = new TupleEntry(new Fields("c"), new Tuple(3));
+
+    byte[] bytes = serialize(serialization, entry1, entry2, entry3);
+
+    Deserializer<TupleEntry> deserializer = serialization.getDeserializer(TupleEntry.class);
+    deserializer.open(new ByteArrayInputStream(bytes));
+    TupleEntry actual1 = deserializer.deserialize(null);
+    TupleEntry actual2 = deserializer.deserialize(null);
+    TupleEntry actual3 = deserializer.deserialize(null);
+    deserializer.close();
+
+    assertThat(actual1.getFields()).isEqualTo(entry1.getFields());
+    assertThat(actual1.getTuple()).isEqualTo(entry1.getTuple());
+    assertThat(actual2.getTuple()).isEqualTo(entry2.getTuple());
+    assertThat(actual3.getFields()).isEqualTo(entry3.getFields());
+    assertThat(actual3.getTuple()).isEqualTo(entry3.getTuple());
+
+    // Decoded once per schema
+    assertThat(actual2.getFields()).isSameAs(actual1.getFields());
+  }
+
+  @Test
+  public void test_tuple_entry_serialization_registered_schema() throws IOException {
+    Fields registered = new Fields("registered_a", "registered_b");
+    TupleEntrySerialization serialization = createSerialization(registered);
+    TupleEntry entry1 = new TupleEntry(registered, new Tuple("x", 1));
+    TupleEntry entry2 = new TupleEntry(new Fields("c"), new Tuple(3));
+
+    byte[] bytes = serialize(serialization, entry1, entry1, entry2);
+
+    // Only the token is written for the registered schema
+    String text = new String(bytes, "ISO-8859-1");
+    assertThat(text).doesNotContain("registered_a");
+
+    Deserializer<TupleEntry> deserializer = serialization.getDeserializer(TupleEntry.class);
+    deserializer.open(new ByteArrayInputStream(bytes));
+    TupleEntry actual1 = deserializer.deserialize(null);
+    TupleEntry actual2 = deserializer.deserialize(null);
+    TupleEntry actual3 = deserializer.deserialize(null);
+    deserializer.close();
+
+    assertThat(actual1.getFields()).isEqualTo(registered);
+    assertThat(actual1.getTuple()).isEqualTo(entry1.getTuple());
+    assertThat(actual2.getFields()).isSameAs(actual1.getFields());
+    assertThat(actual3.getFields()).isEqualTo(entry2.getFields());
+    assertThat(actual3.getTuple()).isEqualTo(entry2.getTuple());
+
+    // Unregistered schemas are written inline
+    byte[] inline = serialize(createSerialization(), entry1);
+    assertThat(inline.length).isGreaterThan(serialize(serialization, entry1).length);
+  }
+
+  @Test
+  public void test_tuple_entry_stream_comparison() throws IOException {
+    TupleEntrySerialization serialization = createSerialization();
+    TupleEntry entry1 = new TupleEntry(new Fields("a", "b"), new Tuple("x", 1));
+    TupleEntry entry2 = new TupleEntry(new Fields("a", "b"), new Tuple("x", 1));
+    TupleEntry entry3 = new TupleEntry(new Fields("a", "b"), new Tuple("x", 2));
+
+    BufferedInputStream lhs = createStream(serialize(serialization, entry1, entry1));
+    BufferedInputStream rhs = createStream(serialize(serialization, entry2, entry3));
+
+    TupleEntryComparator comparator = new TupleEntryComparator();
+    assertThat(comparator.compare(lhs, rhs)).isEqualTo(0);
+    assertThat(comparator.compare(lhs, rhs)).isNotEqualTo(0);
+    assertThat(lhs.available()).isEqualTo(0);
+    assertThat(rhs.available()).isEqualTo(0);
+
+    assertThat(comparator.compare(entry1, entry2)).isEqualTo(0);
+    assertThat(comparator.compare(entry1, entry3)).isLessThan(0);
+  }
+
   private Tuple writeTuple(TupleSerialization tupleSerialization, File file, TupleEntry tupleEntry)
       throws FileNotFoundException, IOException {
     TupleOutputStream output =
@@ -100,6 +183,35 @@ public class TupleEntrySerializationTest extends CascadingTestCase {
     return inputTuple;
   }
 
+  private TupleEntrySerialization createSerialization(Fields... schemas) {
+    JobConf jobConf = createJobConf();
+    TupleEntrySerialization.setSchemas(jobConf, schemas);
+
+    TupleEntrySerialization serialization = new TupleEntrySerialization();
+    serialization.setConf(jobConf);
+
+    return serialization;
+  }
+
+  private byte[] serialize(TupleEntrySerialization serialization, TupleEntry... entries) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    Serializer<TupleEntry> serializer = serialization.getSerializer(TupleEntry.class);
+    serializer.open(output);
+    for (TupleEntry entry : entries) {
+      serializer.serialize(entry);
+    }
+    serializer.close();
+
+    return output.toByteArray();
+  }
+
+  private BufferedInputStream createStream(byte[] bytes) {
+    BufferedInputStream stream = new BufferedInputStream();
+    stream.reset(bytes, 0, bytes.length);
+
+    return stream;
+  }
+
   private JobConf createJobConf() {
     JobConf jobConf = new JobConf();
     jobConf.set("io.serializations", TupleEntrySerialization.class.getName());
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.flow;
+
+import static cascading.CascadingTestCase.invokeFunction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.SSM_P_TYPE;
+import static org.icgc.dcc.common.core.model.ValueType.DECIMAL;
+import static org.icgc.dcc.common.core.model.ValueType.INTEGER;
+import static org.icgc.dcc.common.core.model.ValueType.TEXT;
+
+import java.util.Map;
+
+import lombok.val;
+
+import org.icgc.dcc.common.core.model.ValueType;
+import org.icgc.dcc.etl.loader.flow.PreProcessor.PreProcessFunction;
+import org.junit.Test;
+
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@code PreProcessor.PreProcessFunction}.
+ */
+public class PreProcessorTest {
+
+  /**
+   * Test data.
+   */
+  private static final Fields FIELDS = new Fields("text", "coded", "integer", "decimal");
+  private static final Map<String, ValueType> VALUE_TYPES = ImmutableMap.of(
+      "text", TEXT,
+      "coded", TEXT,
+      "integer", INTEGER,
+      "decimal", DECIMAL);
+  private static final Map<String, Optional<Map<String, String>>> CODE_LISTS =
+      ImmutableMap.<String, Optional<Map<String, String>>> of(
+          "text", Optional.<Map<String, String>> absent(),
+          "coded", Optional.<Map<String, String>> of(ImmutableMap.of("1", "alpha", "2", "beta")));
+
+  @Test
+  public void testTrimmedAndCoerced() {
+    val tuple = preProcess(" value\t", " 2 ", " 007", "1.50 ");
+
+    assertThat(tuple.getObject(0)).isEqualTo("value");
+    assertThat(tuple.getObject(1)).isEqualTo("beta");
+    assertThat(tuple.getObject(2)).isEqualTo(7L);
+    assertThat(tuple.getObject(3)).isEqualTo(1.5);
+  }
+
+  @Test
+  public void testMissingCodesCleared() {
+    val tuple = preProcess("", "-777", "1", "1");
+
+    assertThat(tuple.getObject(0)).isNull();
+    assertThat(tuple.getObject(1)).isNull();
+  }
+
+  @Test
+  public void testNullKept() {
+    val tuple = preProcess(null, null, "1", "1");
+
+    assertThat(tuple.getObject(0)).isNull();
+    assertThat(tuple.getObject(1)).isNull();
+  }
+
+  @Test
+  public void testCodesTranslated() {
+    assertThat(preProcess("1", "1", "1", "1").getObject(1)).isEqualTo("alpha");
+
+    // Only code list backed fields are translated
+    assertThat(preProcess("1", "1", "1", "1").getObject(0)).isEqualTo("1");
+  }
+
+  @Test
+  public void testTermValueKept() {
+    assertThat(preProcess("1", "alpha", "1", "1").getObject(1)).isEqualTo("alpha");
+  }
+
+  @Test
+  public void testInvalidValueKept() {
+    // Logged as neither a term code nor a term value, but not failed on
+    assertThat(preProcess("1", "gamma", "1", "1").getObject(1)).isEqualTo("gamma");
+  }
+
+  private static Tuple preProcess(Object... values) {
+    val function = new PreProcessFunction(FIELDS, SSM_P_TYPE, VALUE_TYPES, CODE_LISTS);
+    val collector = invokeFunction(function, new TupleEntry(FIELDS, new Tuple(values)), FIELDS);
+    assertThat(collector.size()).isEqualTo(1);
+
+    return ImmutableList.copyOf(collector.iterator()).get(0);
+  }
+
+}
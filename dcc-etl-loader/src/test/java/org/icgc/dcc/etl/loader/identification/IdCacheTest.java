@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.identification;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.icgc.dcc.etl.loader.identification.Identifier.IdResolver;
+import org.icgc.dcc.id.client.core.IdClient;
+import org.junit.Test;
+
+public class IdCacheTest {
+
+  private static final String PROJECT_ID = "PRJ-1";
+
+  IdClient idClient = mock(IdClient.class);
+
+  @Test
+  public void testRepeatedKeysResolvedOnce() {
+    when(idClient.createDonorId("d1", PROJECT_ID)).thenReturn("DO1");
+    IdCache cache = new IdCache(IdResolver.DONOR, PROJECT_ID, idClient, 10);
+
+    assertThat(cache.getId(singletonList("d1"))).isEqualTo("DO1");
+    assertThat(cache.getId(singletonList("d1"))).isEqualTo("DO1");
+    assertThat(cache.getId(singletonList("d1"))).isEqualTo("DO1");
+
+    verify(idClient, times(1)).createDonorId("d1", PROJECT_ID);
+    assertThat(cache.getHitCount()).isEqualTo(2);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    when(idClient.createDonorId(anyString(), anyString())).thenReturn("DO");
+    IdCache cache = new IdCache(IdResolver.DONOR, PROJECT_ID, idClient, 2);
+
+    cache.getId(singletonList("d1"));
+    cache.getId(singletonList("d2"));
+    cache.getId(singletonList("d1"));
+
+    // Evicts d2, the least recently used
+    cache.getId(singletonList("d3"));
+    assertThat(cache.size()).isEqualTo(2);
+
+    cache.getId(singletonList("d1"));
+    verify(idClient, times(1)).createDonorId("d1", PROJECT_ID);
+
+    cache.getId(singletonList("d2"));
+    verify(idClient, times(2)).createDonorId("d2", PROJECT_ID);
+    assertThat(cache.getHitCount()).isEqualTo(2);
+    assertThat(cache.getMissCount()).isEqualTo(4);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testUnresolved() {
+    IdCache cache = new IdCache(IdResolver.DONOR, PROJECT_ID, idClient, 10);
+
+    cache.getId(singletonList("d1"));
+  }
+
+}
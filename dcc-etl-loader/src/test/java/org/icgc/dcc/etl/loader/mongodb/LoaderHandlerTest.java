@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.mongodb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.FieldNames.IdentifierFieldNames.SURROGATE_DONOR_ID;
+import static org.icgc.dcc.common.core.model.FieldNames.IdentifierFieldNames.SURROGATE_MUTATION_ID;
+import static org.icgc.dcc.common.core.model.FieldNames.IdentifierFieldNames.SURROGATE_SAMPLE_ID;
+import static org.icgc.dcc.common.core.model.FieldNames.LoaderFieldNames.CONSEQUENCE_ARRAY_NAME;
+import static org.icgc.dcc.common.core.model.FieldNames.LoaderFieldNames.OBSERVATION_ARRAY_NAME;
+import static org.icgc.dcc.common.core.model.FieldNames.LoaderFieldNames.PROJECT_ID;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.BIOMARKER_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.CNSM_M_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.CNSM_P_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.CNSM_S_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.DONOR_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.SPECIMEN_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.SSM_M_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.SSM_P_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.SSM_S_TYPE;
+import static org.icgc.dcc.common.core.model.FileTypes.FileType.THERAPY_TYPE;
+import static org.icgc.dcc.common.core.model.ValueType.TEXT;
+import static org.icgc.dcc.etl.loader.flow.LoaderFields.generatedFieldName;
+import static org.icgc.dcc.etl.loader.flow.LoaderFields.prefixedFieldName;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Consequence.getConsequenceArrayInternalName;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Occurence.getObservationArrayInternalName;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SPECIMEN_FIELD_NAME;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_DONOR_ID_FIELD_NAME;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_MERGED_FIELD_NAME;
+import static org.icgc.dcc.etl.loader.service.LoaderModel.Supplemental.SUPPLEMENTAL_REST_FIELD_NAME;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import lombok.val;
+
+import org.icgc.dcc.common.core.model.FileTypes.FileType;
+import org.icgc.dcc.common.core.model.SubmissionModel;
+import org.icgc.dcc.common.core.model.SubmissionModel.FileModel;
+import org.icgc.dcc.common.core.model.SubmissionModel.FileModel.FieldModel;
+import org.icgc.dcc.common.core.model.SubmissionModel.JoinModel;
+import org.icgc.dcc.etl.loader.mongodb.LoaderHandler.HandlingType;
+import org.icgc.dcc.etl.loader.mongodb.LoaderHandler.Nesting;
+import org.icgc.dcc.etl.loader.mongodb.LoaderHandler.Redacting;
+import org.junit.Test;
+
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Tests {@code LoaderHandler}.
+ * <p>
+ * The expected documents are those produced by the field-by-field implementation the compiled plans replaced.
+ */
+public class LoaderHandlerTest {
+
+  /**
+   * Test data.
+   */
+  private static final String CONTROLLED_FIELD_NAME = "donor_age_at_diagnosis";
+  private static final SubmissionModel SUBMISSION_MODEL = new SubmissionModel(
+      "0.0",
+      ImmutableMap.<FileType, FileModel> builder()
+          .put(DONOR_TYPE, fileModel(ImmutableMap.of(
+              "donor_id", field(false),
+              "donor_sex", field(false),
+              "donor_vital_status", field(false),
+              CONTROLLED_FIELD_NAME, field(true))))
+          .put(SPECIMEN_TYPE, fileModel(ImmutableMap.of(
+              "specimen_id", field(false),
+              "specimen_type", field(false))))
+          .put(SSM_M_TYPE, fileModel(ImmutableMap.of(
+              "assembly_version", field(false))))
+          .put(SSM_P_TYPE, fileModel(ImmutableMap.of(
+              "reference_genome_allele", field(false),
+              "analysis_id", field(false))))
+          .put(SSM_S_TYPE, fileModel(ImmutableMap.of(
+              "gene_affected", field(false))))
+          .put(CNSM_M_TYPE, fileModel(ImmutableMap.of(
+              "platform", field(false))))
+          .put(CNSM_P_TYPE, fileModel(ImmutableMap.of(
+              "analysis_id", field(false),
+              "copy_number", field(false))))
+          .put(CNSM_S_TYPE, fileModel(ImmutableMap.of(
+              "gene_affected", field(false))))
+          .build(),
+      ImmutableMap.<FileType, JoinModel> of(),
+      ImmutableMap.<FileType, List<String>> of(),
+      ImmutableMap.<FileType, List<String>> of(),
+      ImmutableMap.<String, String> of());
+
+  @Test
+  public void testPlainAndGeneratedFields() {
+    val handler = createHandler(DONOR_TYPE, Redacting.NONE);
+
+    val document = handler.transformEntry(entry(
+        prefixedFieldName(DONOR_TYPE, "donor_id"), "DO1",
+        prefixedFieldName(DONOR_TYPE, "donor_sex"), "female",
+        prefixedFieldName(DONOR_TYPE, "donor_vital_status"), null, // Missing
+        prefixedFieldName(DONOR_TYPE, CONTROLLED_FIELD_NAME), "42",
+        generatedFieldName(SURROGATE_DONOR_ID), "DO100",
+        generatedFieldName(PROJECT_ID), null)); // Generated fields are always kept
+
+    assertThat(document).isEqualTo(document(
+        "donor_id", "DO1",
+        "donor_sex", "female",
+        CONTROLLED_FIELD_NAME, "42",
+        SURROGATE_DONOR_ID, "DO100",
+        PROJECT_ID, null));
+  }
+
+  @Test
+  public void testRedactedFields() {
+    val handler = createHandler(DONOR_TYPE, Redacting.SENSITIVE_FIELDS);
+
+    val document = handler.transformEntry(entry(
+        prefixedFieldName(DONOR_TYPE, "donor_id"), "DO1",
+        prefixedFieldName(DONOR_TYPE, CONTROLLED_FIELD_NAME), "42",
+        generatedFieldName(SURROGATE_DONOR_ID), "DO100"));
+
+    assertThat(document).isEqualTo(document(
+        "donor_id", "DO1",
+        SURROGATE_DONOR_ID, "DO100"));
+  }
+
+  @Test
+  public void testMetaFieldsAndJoinArray() {
+    val handler = createHandler(CNSM_P_TYPE, Redacting.NONE);
+
+    val document = handler.transformEntry(entry(
+        prefixedFieldName(CNSM_P_TYPE, "analysis_id"), "A1",
+        prefixedFieldName(CNSM_P_TYPE, "copy_number"), "2",
+        prefixedFieldName(CNSM_M_TYPE, "platform"), "Illumina",
+        getConsequenceArrayInternalName(CNSM_S_TYPE), new Tuple(
+            entry(prefixedFieldName(CNSM_S_TYPE, "gene_affected"), "G1"),
+            entry(prefixedFieldName(CNSM_S_TYPE, "gene_affected"), "G2"))));
+
+    assertThat(document).isEqualTo(document(
+        "analysis_id", "A1",
+        "copy_number", "2",
+        "platform", "Illumina",
+        CONSEQUENCE_ARRAY_NAME, list(
+            document("gene_affected", "G1"),
+            document("gene_affected", "G2"))));
+  }
+
+  @Test
+  public void testObservationArray() {
+    val handler = createHandler(SSM_P_TYPE, Redacting.NONE);
+
+    val document = handler.transformEntry(entry(
+        prefixedFieldName(SSM_P_TYPE, "reference_genome_allele"), "A",
+        prefixedFieldName(SSM_M_TYPE, "assembly_version"), "GRCh37",
+        generatedFieldName(SURROGATE_MUTATION_ID), "MU1",
+        getConsequenceArrayInternalName(SSM_S_TYPE), new Tuple(
+            entry(prefixedFieldName(SSM_S_TYPE, "gene_affected"), "G1")),
+        getObservationArrayInternalName(), new Tuple(
+            entry(
+                prefixedFieldName(SSM_P_TYPE, "analysis_id"), "A1",
+                generatedFieldName(SURROGATE_SAMPLE_ID), "SA1"),
+            entry(
+                prefixedFieldName(SSM_P_TYPE, "analysis_id"), "A2",
+                generatedFieldName(SURROGATE_SAMPLE_ID), "SA2"))));
+
+    assertThat(document).isEqualTo(document(
+        "reference_genome_allele", "A",
+        "assembly_version", "GRCh37",
+        SURROGATE_MUTATION_ID, "MU1",
+        CONSEQUENCE_ARRAY_NAME, list(
+            document("gene_affected", "G1")),
+        OBSERVATION_ARRAY_NAME, list(
+            document("analysis_id", "A1", SURROGATE_SAMPLE_ID, "SA1"),
+            document("analysis_id", "A2", SURROGATE_SAMPLE_ID, "SA2"))));
+  }
+
+  @Test
+  public void testSupplementalMerging() {
+    val handler = createHandler(DONOR_TYPE, Redacting.NONE);
+
+    val therapy = entry(
+        prefixedFieldName(THERAPY_TYPE, "first_therapy_type"), "surgery");
+    val biomarker = entry(
+        prefixedFieldName(BIOMARKER_TYPE, "specimen_id"), "SP2",
+        prefixedFieldName(BIOMARKER_TYPE, "biomarker_name"), "CA-125");
+
+    val document = handler.transformEntry(entry(
+        prefixedFieldName(DONOR_TYPE, "donor_id"), "DO1",
+        getConsequenceArrayInternalName(SPECIMEN_TYPE), new Tuple(
+            entry(prefixedFieldName(SPECIMEN_TYPE, "specimen_id"), "SP1"),
+            entry(prefixedFieldName(SPECIMEN_TYPE, "specimen_id"), "SP2")),
+        SUPPLEMENTAL_DONOR_ID_FIELD_NAME, "DO1",
+        SUPPLEMENTAL_MERGED_FIELD_NAME, new Tuple(
+            entry(SUPPLEMENTAL_REST_FIELD_NAME, therapy),
+            entry(SUPPLEMENTAL_REST_FIELD_NAME, biomarker))));
+
+    assertThat(document).isEqualTo(document(
+        "donor_id", "DO1",
+        SPECIMEN_FIELD_NAME, list(
+            document("specimen_id", "SP1"),
+            document(
+                "specimen_id", "SP2",
+                BIOMARKER_TYPE.getId(), list(
+                    document("specimen_id", "SP2", "biomarker_name", "CA-125")))),
+        THERAPY_TYPE.getId(), list(
+            document("first_therapy_type", "surgery"))));
+  }
+
+  @Test
+  public void testAbsentSupplemental() {
+    val handler = createHandler(DONOR_TYPE, Redacting.NONE);
+
+    val document = handler.transformEntry(entry(
+        prefixedFieldName(DONOR_TYPE, "donor_id"), "DO1",
+        SUPPLEMENTAL_DONOR_ID_FIELD_NAME, null,
+        SUPPLEMENTAL_MERGED_FIELD_NAME, null)); // Left join without supplemental data
+
+    assertThat(document).isEqualTo(document("donor_id", "DO1"));
+  }
+
+  @Test
+  public void testPlanPerFields() {
+    val handler = createHandler(DONOR_TYPE, Redacting.NONE);
+    val donorId = prefixedFieldName(DONOR_TYPE, "donor_id");
+    val donorSex = prefixedFieldName(DONOR_TYPE, "donor_sex");
+
+    // Same fields share a plan
+    assertThat(handler.transformEntry(entry(donorId, "DO1", donorSex, "female")))
+        .isEqualTo(document("donor_id", "DO1", "donor_sex", "female"));
+    assertThat(handler.transformEntry(entry(donorId, "DO2", donorSex, null)))
+        .isEqualTo(document("donor_id", "DO2"));
+
+    // Other fields get their own plan, addressing their own positions
+    assertThat(handler.transformEntry(entry(donorSex, "male", donorId, "DO3")))
+        .isEqualTo(document("donor_sex", "male", "donor_id", "DO3"));
+    assertThat(handler.transformEntry(entry(donorId, "DO4")))
+        .isEqualTo(document("donor_id", "DO4"));
+
+    // Earlier plans are unaffected
+    assertThat(handler.transformEntry(entry(donorId, "DO5", donorSex, "female")))
+        .isEqualTo(document("donor_id", "DO5", "donor_sex", "female"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnknownField() {
+    val handler = createHandler(DONOR_TYPE, Redacting.NONE);
+
+    handler.transformEntry(entry(prefixedFieldName(DONOR_TYPE, "unknown"), "value"));
+  }
+
+  private static LoaderHandler createHandler(FileType fileType, Redacting redacting) {
+    return new LoaderHandler(SUBMISSION_MODEL, new HandlingType(fileType, Nesting.JOIN), redacting);
+  }
+
+  private static FileModel fileModel(Map<String, FieldModel> fields) {
+    return new FileModel(Pattern.compile(".*"), fields);
+  }
+
+  private static FieldModel field(boolean controlled) {
+    return new FieldModel(TEXT, controlled, Optional.<Map<String, String>> absent());
+  }
+
+  private static TupleEntry entry(Object... namesAndValues) {
+    Fields fields = new Fields();
+    val tuple = new Tuple();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      fields = fields.append(new Fields((String) namesAndValues[i]));
+      tuple.add(namesAndValues[i + 1]);
+    }
+
+    return new TupleEntry(fields, tuple);
+  }
+
+  private static DBObject document(Object... namesAndValues) {
+    val document = new BasicDBObject();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      document.append((String) namesAndValues[i], namesAndValues[i + 1]);
+    }
+
+    return document;
+  }
+
+  private static BasicDBList list(Object... values) {
+    val list = new BasicDBList();
+    for (val value : values) {
+      list.add(value);
+    }
+
+    return list;
+  }
+
+}
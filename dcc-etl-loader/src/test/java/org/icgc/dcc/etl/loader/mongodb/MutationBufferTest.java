@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.loader.mongodb;
+
+import static com.google.common.base.Strings.repeat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.ReleaseCollection.MUTATION_COLLECTION;
+import static org.icgc.dcc.etl.loader.mongodb.MutationBuffer.DEFAULT_MAX_BYTES;
+import static org.icgc.dcc.etl.loader.mongodb.MutationBuffer.DEFAULT_MAX_COUNT;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import lombok.val;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkUpdateRequestBuilder;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+public class MutationBufferTest {
+
+  /**
+   * Collaborators.
+   */
+  DBCollection collection;
+  BulkWriteOperation bulk;
+  BulkWriteRequestBuilder request;
+  BulkUpdateRequestBuilder upsert;
+
+  /**
+   * Class under test.
+   */
+  MutationBuffer buffer;
+
+  @Before
+  public void setUp() {
+    collection = mock(DBCollection.class);
+    bulk = mock(BulkWriteOperation.class);
+    request = mock(BulkWriteRequestBuilder.class);
+    upsert = mock(BulkUpdateRequestBuilder.class);
+    when(collection.initializeUnorderedBulkOperation()).thenReturn(bulk);
+    when(bulk.find(any(DBObject.class))).thenReturn(request);
+    when(request.upsert()).thenReturn(upsert);
+
+    buffer = new MutationBuffer(collection);
+  }
+
+  @Test
+  public void testUnorderedBulkUpsert() {
+    val mutation1 = createMutation("1", "value");
+    val mutation2 = createMutation("2", "value");
+    buffer.add(mutation1);
+    buffer.add(mutation2);
+
+    // Buffered until flushed
+    verify(collection, never()).initializeUnorderedBulkOperation();
+    assertThat(buffer.size()).isEqualTo(2);
+
+    buffer.flush();
+
+    val query = ArgumentCaptor.forClass(DBObject.class);
+    verify(collection).initializeUnorderedBulkOperation();
+    verify(bulk, times(2)).find(query.capture());
+    verify(upsert).replaceOne(mutation1);
+    verify(upsert).replaceOne(mutation2);
+    verify(bulk).execute();
+
+    // Queried by primary key only
+    assertThat(query.getAllValues().get(0).keySet()).containsExactly(getPrimaryKeyFieldNames());
+    assertThat(query.getAllValues().get(0).get(getPrimaryKeyFieldNames()[0])).isEqualTo("1");
+    assertThat(query.getAllValues().get(1).get(getPrimaryKeyFieldNames()[0])).isEqualTo("2");
+    assertThat(buffer.size()).isEqualTo(0);
+    assertThat(buffer.getBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDeduplicateByPrimaryKey() {
+    val mutation1 = createMutation("1", "value");
+    val mutation2 = createMutation("1", "other value");
+    buffer.add(mutation1);
+    buffer.add(mutation2);
+
+    assertThat(buffer.size()).isEqualTo(1);
+    assertThat(buffer.getBytes()).isEqualTo(MutationBuffer.estimateSize(mutation2));
+
+    buffer.flush();
+
+    verify(bulk, times(1)).find(any(DBObject.class));
+    verify(upsert).replaceOne(mutation2);
+  }
+
+  @Test
+  public void testFlushOnCount() {
+    for (int i = 0; i < DEFAULT_MAX_COUNT - 1; i++) {
+      buffer.add(createMutation(Integer.toString(i), "value"));
+    }
+
+    verify(bulk, never()).execute();
+
+    buffer.add(createMutation("last", "value"));
+
+    verify(bulk).execute();
+    verify(bulk, times(DEFAULT_MAX_COUNT)).find(any(DBObject.class));
+    assertThat(buffer.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFlushOnBytes() {
+    val value = repeat("x", (int) (DEFAULT_MAX_BYTES / 4));
+    for (int i = 0; i < 3; i++) {
+      buffer.add(createMutation(Integer.toString(i), value));
+    }
+
+    verify(bulk, never()).execute();
+
+    buffer.add(createMutation("last", value));
+
+    verify(bulk).execute();
+    verify(bulk, times(4)).find(any(DBObject.class));
+    assertThat(buffer.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFinalFlush() {
+    buffer.add(createMutation("1", "value"));
+    buffer.flush();
+
+    // Nothing left to write
+    buffer.flush();
+
+    verify(collection, times(1)).initializeUnorderedBulkOperation();
+    verify(bulk, times(1)).execute();
+  }
+
+  private static DBObject createMutation(String key, String value) {
+    val mutation = new BasicDBObject();
+    for (val fieldName : getPrimaryKeyFieldNames()) {
+      mutation.put(fieldName, key);
+    }
+
+    mutation.put("redundant", value);
+
+    return mutation;
+  }
+
+  private static String[] getPrimaryKeyFieldNames() {
+    val fieldNames = MUTATION_COLLECTION.getPrimaryKey();
+
+    return fieldNames.toArray(new String[fieldNames.size()]);
+  }
+
+}
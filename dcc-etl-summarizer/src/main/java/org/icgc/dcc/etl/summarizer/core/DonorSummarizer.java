@@ -17,7 +17,6 @@
  */
 package org.icgc.dcc.etl.summarizer.core;
 
-import static com.google.common.base.Objects.firstNonNull;
 import static com.google.common.base.Strings.nullToEmpty;
 import static org.icgc.dcc.common.core.json.Jackson.DEFAULT;
 import static org.icgc.dcc.common.core.model.FeatureTypes.FeatureType.SSM_TYPE;
@@ -30,18 +29,25 @@ import static org.icgc.dcc.common.core.model.FieldNames.OBSERVATION_TYPE;
 import static org.icgc.dcc.common.core.util.Formats.formatCount;
 import static org.icgc.dcc.common.core.util.Formats.formatRate;
 import static org.icgc.dcc.etl.summarizer.util.Donors.getAgeGroup;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
+import org.icgc.dcc.common.core.model.FeatureTypes.FeatureType;
+import org.icgc.dcc.etl.summarizer.core.ObservationAccumulator.Partition;
+import org.icgc.dcc.etl.summarizer.core.TypeCountTable.RowView;
 import org.icgc.dcc.etl.summarizer.repository.ReleaseRepository;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
-import com.google.common.collect.TreeBasedTable;
 
 /**
  * Summarizes {@code Donor} collection information.
@@ -105,19 +111,22 @@ public class DonorSummarizer extends AbstractSummarizer {
    */
   private static final int COUNTER_THRESHOLD = 10;
 
+  /**
+   * Feature types ordered by id, which is the order of the {@code typeCounts} of each gene.
+   */
+  private static final List<FeatureType> FEATURE_TYPES_BY_ID = getFeatureTypesById();
+
   public DonorSummarizer(ReleaseRepository repository) {
     super(repository);
   }
 
+  /**
+   * Summarizes donor-level fields only and is independent of the observation scan: donor genes are written by the
+   * accumulator of {@link #createDonorGeneAccumulator()} as {@link ObservationScanSummarizer#summarize()} feeds it.
+   */
   @Override
   public void summarize() {
-    // Clear any previous runs, for idempotence
-    log.info("Clearing donor.genes...");
-    repository.unsetDonorGenes();
-    log.info("Finished clearing donor.genes");
-
     // Order is important:
-    summarizeDonorGenes();
     summarizeDonorRepositories();
     summarizeDonorStudies();
     summarizeDonorState();
@@ -125,62 +134,91 @@ public class DonorSummarizer extends AbstractSummarizer {
     summarizeDonorAgeGroups();
   }
 
-  private void summarizeDonorGenes() {
-    val observations = repository.getDonorGeneObservationTypes();
-    val watch = Stopwatch.createStarted();
+  /**
+   * @return an accumulator that summarizes donor genes from observations ordered by donor
+   */
+  public ObservationAccumulator createDonorGeneAccumulator() {
+    return new ObservationAccumulator() {
+
+      @Override
+      public void start() {
+        // Clear any previous runs, for idempotence
+        log.info("Clearing donor.genes...");
+        repository.unsetDonorGenes();
+        log.info("Finished clearing donor.genes");
+      }
+
+      @Override
+      public Partition createPartition() {
+        // Donors never span partitions
+        return new DonorGenePartition();
+      }
 
-    // Accumulation state
-    int count = 0;
-    String currentDonorId = null;
-    val table = TreeBasedTable.<String, String, Integer> create();
+      @Override
+      public void finish() {
+        // No-op
+      }
 
-    for (val observation : observations) {
-      try {
-        val nextDonorId = observation.get(OBSERVATION_DONOR_ID).asText();
-        val type = observation.get(OBSERVATION_TYPE).asText();
-        val consequences = observation.path(OBSERVATION_CONSEQUENCES);
+    };
+  }
 
-        val first = currentDonorId == null;
-        if (first) {
-          currentDonorId = nextDonorId;
-        }
+  private class DonorGenePartition implements Partition {
 
-        val commit = !currentDonorId.equals(nextDonorId);
-        if (commit) {
-          // Commit
-          val result = createDonorGeneResult(currentDonorId, table);
-          summarizeDonorGene(result);
+    private final Stopwatch watch = Stopwatch.createStarted();
 
-          if (++count % COUNTER_THRESHOLD == 0) {
-            log.info("Summarized {} donor-gene(s) ({} docs/s)",
-                formatCount(count), formatRate(rate(COUNTER_THRESHOLD, watch)));
-          }
+    /**
+     * Accumulation state.
+     */
+    private final TypeCountTable table = new TypeCountTable();
+    private int count = 0;
+    private String currentDonorId = null;
 
-          // Advance and clean-up
-          currentDonorId = nextDonorId;
-          table.clear();
-        }
+    @Override
+    public void accumulate(JsonNode observation) {
+      val nextDonorId = observation.get(OBSERVATION_DONOR_ID).asText();
+      val type = FeatureType.from(observation.get(OBSERVATION_TYPE).asText());
+      val consequences = observation.path(OBSERVATION_CONSEQUENCES);
+
+      val first = currentDonorId == null;
+      if (first) {
+        currentDonorId = nextDonorId;
+      }
 
-        // Find unique geneIds for this observation
-        val uniqueGeneIds = getUniqueGeneIds(consequences, true);
+      val commit = !currentDonorId.equals(nextDonorId);
+      if (commit) {
+        // Commit
+        val result = createDonorGeneResult(currentDonorId, table);
+        summarizeDonorGene(result);
 
-        // Accumulate
-        for (val geneId : uniqueGeneIds) {
-          val typeCount = firstNonNull(table.get(geneId, type), 0);
-          table.put(geneId, type, typeCount + 1);
+        if (++count % COUNTER_THRESHOLD == 0) {
+          log.info("Summarized {} donor-gene(s) ({} docs/s)",
+              formatCount(count), formatRate(rate(COUNTER_THRESHOLD, watch)));
         }
-      } catch (Exception e) {
-        log.error("Error processing observation: " + observation, e);
-        throw new RuntimeException(e);
+
+        // Advance and clean-up
+        currentDonorId = nextDonorId;
+        table.clear();
+      }
+
+      // Find unique geneIds for this observation
+      val uniqueGeneIds = getUniqueGeneIds(consequences, true);
+
+      // Accumulate
+      for (val geneId : uniqueGeneIds) {
+        table.increment(currentDonorId, geneId, type);
       }
     }
 
-    val commit = !table.isEmpty();
-    if (commit) {
-      // Commit the straggler, if any
-      val result = createDonorGeneResult(currentDonorId, table);
-      summarizeDonorGene(result);
+    @Override
+    public void finish() {
+      val commit = !table.isEmpty();
+      if (commit) {
+        // Commit the straggler, if any
+        val result = createDonorGeneResult(currentDonorId, table);
+        summarizeDonorGene(result);
+      }
     }
+
   }
 
   private void summarizeDonorGene(JsonNode result) {
@@ -301,24 +339,24 @@ public class DonorSummarizer extends AbstractSummarizer {
     }
   }
 
-  private ObjectNode createDonorGeneResult(String donorId, Table<String, String, Integer> table) {
+  private ObjectNode createDonorGeneResult(String donorId, TypeCountTable table) {
     val result = createObject();
     result.put("donorId", donorId);
 
+    val row = table.getRow(donorId);
     val genes = result.withArray("genes");
-    for (val row : table.rowMap().entrySet()) {
-      val geneId = row.getKey();
-      val geneTypeCounts = row.getValue();
-
+    for (val index : getGeneIndexes(row)) {
       val gene = createObject();
-      gene.put("geneId", geneId);
+      gene.put("geneId", row.getColumnKey(index));
       val typeCounts = gene.withArray("typeCounts");
-      for (val entry : geneTypeCounts.entrySet()) {
-        val type = entry.getKey();
-        val count = entry.getValue();
+      for (val type : FEATURE_TYPES_BY_ID) {
+        val count = row.getCount(index, type);
+        if (count == 0) {
+          continue;
+        }
 
         val typeCount = createObject();
-        typeCount.put("type", type);
+        typeCount.put("type", type.getId());
         typeCount.put("typeCount", count);
 
         typeCounts.add(typeCount);
@@ -330,6 +368,41 @@ public class DonorSummarizer extends AbstractSummarizer {
     return result;
   }
 
+  /**
+   * @return the cell indexes of {@code row} ordered by gene id
+   */
+  private static List<Integer> getGeneIndexes(final RowView row) {
+    val indexes = Lists.<Integer> newArrayListWithCapacity(row.size());
+    for (int i = 0; i < row.size(); i++) {
+      indexes.add(i);
+    }
+
+    Collections.sort(indexes, new Comparator<Integer>() {
+
+      @Override
+      public int compare(Integer a, Integer b) {
+        return row.getColumnKey(a).compareTo(row.getColumnKey(b));
+      }
+
+    });
+
+    return indexes;
+  }
+
+  private static List<FeatureType> getFeatureTypesById() {
+    val types = Lists.newArrayList(FeatureType.values());
+    Collections.sort(types, new Comparator<FeatureType>() {
+
+      @Override
+      public int compare(FeatureType a, FeatureType b) {
+        return a.getId().compareTo(b.getId());
+      }
+
+    });
+
+    return types;
+  }
+
   private ObjectNode createDonorGeneSummary(String geneId) {
     ObjectNode donorGeneSummary = createSummary();
     donorGeneSummary.put(DONOR_GENE_GENE_ID, geneId);
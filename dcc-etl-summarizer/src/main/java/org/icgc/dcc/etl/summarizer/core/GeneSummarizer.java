@@ -17,7 +17,6 @@
  */
 package org.icgc.dcc.etl.summarizer.core;
 
-import static com.google.common.collect.Maps.filterEntries;
 import static com.google.common.collect.Sets.newTreeSet;
 import static org.icgc.dcc.common.core.model.FieldNames.AFFECTED_DONOR_COUNT;
 import static org.icgc.dcc.common.core.model.FieldNames.AVAILABLE_DATA_TYPES;
@@ -34,24 +33,26 @@ import static org.icgc.dcc.common.core.util.Formats.formatCount;
 import static org.icgc.dcc.common.core.util.Formats.formatRate;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.icgc.dcc.common.core.model.FeatureTypes.FeatureType;
+import org.icgc.dcc.etl.summarizer.core.ObservationAccumulator.Partition;
+import org.icgc.dcc.etl.summarizer.core.TypeCountTable.RowView;
 import org.icgc.dcc.etl.summarizer.repository.ReleaseRepository;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 
 /**
  * Summarizes {@code Gene} collection information.
@@ -95,75 +96,133 @@ public class GeneSummarizer extends AbstractSummarizer {
 
   private static final int COUNTER_THRESHOLD = 10000;
 
-  private int processingCount = 0;
   private int persistanceCount = 0;
-  private final Stopwatch processingWatch = Stopwatch.createStarted();
   private final Stopwatch persistanceWatch = Stopwatch.createStarted();
 
+  /**
+   * Gene-donor type counts accumulated from observations, one per partition in order of donor ids. Since donors never
+   * span partitions, neither do cells.
+   */
+  private final List<TypeCountTable> tables = Lists.newArrayList();
+
   public GeneSummarizer(ReleaseRepository repository) {
     super(repository);
   }
 
+  /**
+   * Requires the accumulator of {@link #createGeneDonorAccumulator()} to have been fed with observations beforehand.
+   */
   @Override
   public void summarize() {
     log.info("Finding donor-project mapping...");
     val donorProjectIds = repository.getDonorProjectIds();
     log.info("Found {} donor-project mappings", formatCount(donorProjectIds.size()));
 
-    val observations = repository.getDonorGeneObservationTypes();
-
-    val table = HashBasedTable.<String, String, Map<FeatureType, Short>> create();
-    for (val observation : observations) {
-      try {
-        updateTableCounts(observation, table);
-      } catch (Exception e) {
-        log.error(String.format("Error processing observation: '{}'", observation), e);
-        throw new RuntimeException(e);
-      }
+    val geneIds = Sets.<String> newLinkedHashSet();
+    int cellCount = 0;
+    for (val table : tables) {
+      geneIds.addAll(table.getRowKeys());
+      cellCount += table.size();
     }
 
-    log.info("Gathering results ('{}' cells)", table.size());
-    for (val geneId : table.rowKeySet()) {
+    log.info("Gathering results ('{}' cells)", cellCount);
+    for (val geneId : geneIds) {
       repository.setGeneSummary(
           geneId,
-          createGeneEntry(geneId, donorProjectIds, table));
+          createGeneEntry(geneId, donorProjectIds, tables));
     }
+
+    tables.clear();
+  }
+
+  /**
+   * @return an accumulator of gene-donor type counts from observations
+   */
+  public ObservationAccumulator createGeneDonorAccumulator() {
+    return new ObservationAccumulator() {
+
+      @Override
+      public void start() {
+        tables.clear();
+      }
+
+      @Override
+      public Partition createPartition() {
+        val partition = new GeneDonorPartition();
+        tables.add(partition.table);
+
+        return partition;
+      }
+
+      @Override
+      public void finish() {
+        // No-op
+      }
+
+    };
   }
 
-  private void updateTableCounts(JsonNode observation, HashBasedTable<String, String, Map<FeatureType, Short>> table) {
+  private static class GeneDonorPartition implements Partition {
+
+    private final TypeCountTable table = new TypeCountTable();
+    private final Stopwatch processingWatch = Stopwatch.createStarted();
+    private int processingCount = 0;
+
+    @Override
+    public void accumulate(JsonNode observation) {
+      updateTableCounts(observation);
+    }
+
+    @Override
+    public void finish() {
+      log.info("Accumulated '{}' gene-donor cells", table.size());
+    }
+
+    private void updateTableCounts(JsonNode observation) {
 
-    val donorId = STRING_INTERNER.intern(observation.get(OBSERVATION_DONOR_ID).asText());
-    val type = FeatureType.from(STRING_INTERNER.intern(observation.get(OBSERVATION_TYPE).asText()));
-    val uniqueGeneIds = getUniqueGeneIds(observation.path(OBSERVATION_CONSEQUENCES), false);
+      val donorId = STRING_INTERNER.intern(observation.get(OBSERVATION_DONOR_ID).asText());
+      val type = FeatureType.from(STRING_INTERNER.intern(observation.get(OBSERVATION_TYPE).asText()));
+      val uniqueGeneIds = getUniqueGeneIds(observation.path(OBSERVATION_CONSEQUENCES), false);
 
-    for (val geneId : uniqueGeneIds) {
-      Map<FeatureType, Short> countMap = table.get(geneId, donorId);
-      if (countMap == null) {
-        countMap = createDefaultCountMap();
-        table.put(geneId, donorId, countMap);
-        if (++processingCount % COUNTER_THRESHOLD == 0) {
+      for (val geneId : uniqueGeneIds) {
+        val created = table.increment(geneId, donorId, type);
+        if (created && ++processingCount % COUNTER_THRESHOLD == 0) {
           log.info("Pre-processed {} gene-donor(s) ({} docs/s)",
               formatCount(processingCount), formatRate(processingCount, processingWatch));
         }
       }
-      countMap.put(type, (short) (countMap.get(type) + 1));
     }
+
   }
 
   private ObjectNode createGeneEntry(
       String geneId,
       Map<String, String> donorProjectIds,
-      HashBasedTable<String, String, Map<FeatureType, Short>> table) {
-    val row = table.row(geneId);
-
+      List<TypeCountTable> tables) {
     val projectToDonors = Maps.<String, Integer> newHashMap();
     val projectAvailableTypes = ArrayListMultimap.<String, FeatureType> create();
 
     val donorArray = createArray();
-    for (val donorId : row.keySet()) {
+    for (val table : tables) {
+      addDonorEntries(table.getRow(geneId), donorProjectIds, donorArray, projectToDonors, projectAvailableTypes);
+    }
 
-      val countMap = row.get(donorId);
-      donorArray.add(createDonorEntry(donorId, countMap));
+    val geneEntry = createObject();
+    geneEntry.put(GENE_DONORS, donorArray);
+    geneEntry.put(GENE_PROJECTS, createProjectArray(projectToDonors, projectAvailableTypes));
+
+    return geneEntry;
+  }
+
+  private void addDonorEntries(
+      RowView row,
+      Map<String, String> donorProjectIds,
+      ArrayNode donorArray,
+      Map<String, Integer> projectToDonors,
+      Multimap<String, FeatureType> projectAvailableTypes) {
+    for (int i = 0; i < row.size(); i++) {
+      val donorId = row.getColumnKey(i);
+      donorArray.add(createDonorEntry(donorId, row, i));
 
       val projectId = donorProjectIds.get(donorId);
       {
@@ -171,34 +230,23 @@ public class GeneSummarizer extends AbstractSummarizer {
         projectToDonors.put(projectId, currentCount == null ? 1 : currentCount + 1);
       }
 
-      projectAvailableTypes.putAll(
-          projectId,
-          filterEntries(countMap, new Predicate<Entry<FeatureType, Short>>() {
-
-            @Override
-            public boolean apply(Entry<FeatureType, Short> entry) {
-              return entry.getValue() > 0;
-            }
-
-          }).keySet());
+      for (val type : FeatureType.values()) {
+        if (row.getCount(i, type) > 0) {
+          projectAvailableTypes.put(projectId, type);
+        }
+      }
 
       if (++persistanceCount % COUNTER_THRESHOLD == 0) {
         log.info("Summarized {} gene-donor(s) ({} docs/s)",
             formatCount(persistanceCount), formatRate(persistanceCount, persistanceWatch));
       }
     }
-
-    val geneEntry = createObject();
-    geneEntry.put(GENE_DONORS, donorArray);
-    geneEntry.put(GENE_PROJECTS, createProjectArray(projectToDonors, projectAvailableTypes));
-
-    return geneEntry;
   }
 
-  private ObjectNode createDonorEntry(String donorId, Map<FeatureType, Short> countMap) {
+  private ObjectNode createDonorEntry(String donorId, RowView row, int index) {
     val donorEntry = createObject();
     donorEntry.put(GENE_DONOR_DONOR_ID, donorId);
-    donorEntry.put(GENE_DONOR_SUMMARY, toTypeSummaryObjectNode(countMap));
+    donorEntry.put(GENE_DONOR_SUMMARY, toTypeSummaryObjectNode(row, index));
     return donorEntry;
   }
 
@@ -235,18 +283,10 @@ public class GeneSummarizer extends AbstractSummarizer {
     return projectEntry;
   }
 
-  private static Map<FeatureType, Short> createDefaultCountMap() {
-    val countMap = Maps.<FeatureType, Short> newHashMap();
-    for (val type : FeatureType.values()) {
-      countMap.put(type, (short) 0);
-    }
-    return countMap;
-  }
-
-  private static ObjectNode toTypeSummaryObjectNode(Map<FeatureType, Short> countMap) {
+  private static ObjectNode toTypeSummaryObjectNode(RowView row, int index) {
     val summary = createSummary();
-    for (val entry : countMap.entrySet()) {
-      setTypeMetric(summary, entry.getKey(), entry.getValue());
+    for (val type : FeatureType.values()) {
+      setTypeMetric(summary, type, row.getCount(index, type));
     }
     return summary;
   }
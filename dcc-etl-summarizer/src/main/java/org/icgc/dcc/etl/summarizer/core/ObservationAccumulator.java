@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Accumulates summary state from a single scan of the {@code Observation} collection, so that several summaries can
+ * share it.
+ * <p>
+ * The scan may be partitioned into disjoint ranges of donor ids, each scanned by its own thread into its own
+ * {@link Partition}. Observations of a partition are presented ordered by donor id.
+ */
+public interface ObservationAccumulator {
+
+  /**
+   * Called once before any partition is created.
+   */
+  void start();
+
+  /**
+   * Called once per partition, in order of donor id ranges, before any observation is accumulated.
+   * 
+   * @return the accumulation state of the partition, only used by the thread scanning it
+   */
+  Partition createPartition();
+
+  /**
+   * Called once after all partitions have finished.
+   */
+  void finish();
+
+  /**
+   * Accumulation state of a single partition.
+   */
+  interface Partition {
+
+    /**
+     * Called once per observation of the partition.
+     */
+    void accumulate(JsonNode observation);
+
+    /**
+     * Called once after the last observation of the partition, possibly concurrently with other partitions.
+     */
+    void finish();
+
+  }
+
+}
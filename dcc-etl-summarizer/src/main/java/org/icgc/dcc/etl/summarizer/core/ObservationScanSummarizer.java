@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Stopwatch.createStarted;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.icgc.dcc.common.core.util.Formats.formatCount;
+import static org.icgc.dcc.common.core.util.Formats.formatRate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.etl.summarizer.core.ObservationAccumulator.Partition;
+import org.icgc.dcc.etl.summarizer.repository.ReleaseRepository;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Feeds a single streaming scan of the {@code Observation} collection to any number of {@link ObservationAccumulator}s
+ * at once, rather than each summary scanning the collection on its own.
+ * <p>
+ * The scan is partitioned into contiguous ranges of donor ids of roughly equal donor counts, each scanned with its own
+ * cursor by a pool thread.
+ */
+@Slf4j
+public class ObservationScanSummarizer extends AbstractSummarizer {
+
+  /**
+   * Constants.
+   */
+  private static final int COUNTER_THRESHOLD = 1000000;
+
+  private final int partitionCount;
+  private final List<ObservationAccumulator> accumulators;
+
+  public ObservationScanSummarizer(@NonNull ReleaseRepository repository,
+      @NonNull ObservationAccumulator... accumulators) {
+    this(repository, 1, accumulators);
+  }
+
+  public ObservationScanSummarizer(@NonNull ReleaseRepository repository, int partitionCount,
+      @NonNull ObservationAccumulator... accumulators) {
+    super(repository);
+    checkArgument(partitionCount > 0, "Partition count must be positive: %s", partitionCount);
+    this.partitionCount = partitionCount;
+    this.accumulators = ImmutableList.copyOf(accumulators);
+  }
+
+  @Override
+  public void summarize() {
+    for (val accumulator : accumulators) {
+      accumulator.start();
+    }
+
+    val boundaries = getBoundaries();
+    log.info("Scanning observations in {} partition(s) split at donors {}", boundaries.size() - 1,
+        boundaries.subList(1, boundaries.size() - 1));
+
+    val executor = newFixedThreadPool(boundaries.size() - 1,
+        new ThreadFactoryBuilder().setNameFormat("observation-scan-%d").build());
+    try {
+      // Partitions must be created in order
+      val futures = Lists.<Future<Integer>> newArrayList();
+      for (int i = 0; i < boundaries.size() - 1; i++) {
+        futures.add(executor.submit(
+            new PartitionScan(boundaries.get(i), boundaries.get(i + 1), createPartitions())));
+      }
+
+      int count = 0;
+      for (val future : futures) {
+        count += getResult(future);
+      }
+
+      log.info("Finished scanning {} observation(s)", formatCount(count));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (val accumulator : accumulators) {
+      accumulator.finish();
+    }
+  }
+
+  /**
+   * @return the partition donor id boundaries, starting and ending with {@code null} for the open ends
+   */
+  private List<String> getBoundaries() {
+    val boundaries = Lists.<String> newArrayList();
+    boundaries.add(null);
+
+    if (partitionCount > 1) {
+      val donorIds = Lists.newArrayList(repository.getDonorProjectIds().keySet());
+      Collections.sort(donorIds);
+
+      int partitionSize = Math.max(1, donorIds.size() / partitionCount);
+      for (int i = partitionSize; i < donorIds.size() && boundaries.size() < partitionCount; i += partitionSize) {
+        boundaries.add(donorIds.get(i));
+      }
+    }
+
+    boundaries.add(null);
+    return boundaries;
+  }
+
+  private List<Partition> createPartitions() {
+    val partitions = ImmutableList.<Partition> builder();
+    for (val accumulator : accumulators) {
+      partitions.add(accumulator.createPartition());
+    }
+
+    return partitions.build();
+  }
+
+  private static int getResult(Future<Integer> future) {
+    try {
+      return getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Failed to scan observations", e.getCause());
+    }
+  }
+
+  /**
+   * Scans the observations of a single donor id range.
+   */
+  private class PartitionScan implements Callable<Integer> {
+
+    private final String fromDonorId;
+    private final String toDonorId;
+    private final List<Partition> partitions;
+
+    private PartitionScan(String fromDonorId, String toDonorId, List<Partition> partitions) {
+      this.fromDonorId = fromDonorId;
+      this.toDonorId = toDonorId;
+      this.partitions = partitions;
+    }
+
+    @Override
+    public Integer call() {
+      val watch = createStarted();
+      int count = 0;
+      for (val observation : repository.getSummaryObservations(fromDonorId, toDonorId)) {
+        try {
+          for (val partition : partitions) {
+            partition.accumulate(observation);
+          }
+        } catch (Exception e) {
+          log.error("Error processing observation: " + observation, e);
+          throw new RuntimeException(e);
+        }
+
+        if (++count % COUNTER_THRESHOLD == 0) {
+          log.info("Scanned {} observation(s) from donor '{}' ({} docs/s)",
+              formatCount(count), fromDonorId, formatRate(rate(COUNTER_THRESHOLD, watch)));
+        }
+      }
+
+      for (val partition : partitions) {
+        partition.finish();
+      }
+
+      return count;
+    }
+
+  }
+
+}
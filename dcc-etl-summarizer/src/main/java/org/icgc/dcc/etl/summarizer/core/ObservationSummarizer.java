@@ -27,11 +27,12 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.bson.types.ObjectId;
+import org.icgc.dcc.etl.summarizer.core.ObservationAccumulator.Partition;
 import org.icgc.dcc.etl.summarizer.repository.ReleaseRepository;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.POJONode;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.Sets;
 
 /**
@@ -58,12 +59,43 @@ public class ObservationSummarizer extends AbstractSummarizer {
 
   @Override
   public void summarize() {
-    val watch = createStarted();
+    new ObservationScanSummarizer(repository, createConsequenceTypeAccumulator()).summarize();
+    repository.flush();
+  }
+
+  /**
+   * @return an accumulator that summarizes the consequence types of each observation
+   */
+  public ObservationAccumulator createConsequenceTypeAccumulator() {
+    return new ObservationAccumulator() {
+
+      @Override
+      public void start() {
+        // No-op
+      }
 
-    int count = 0;
-    for (val result : repository.getObservationConsequenceTypes()) {
-      val observationId = getObservationId(result);
-      val observationConsequences = getObservationConsequences(result);
+      @Override
+      public Partition createPartition() {
+        return new ConsequenceTypePartition();
+      }
+
+      @Override
+      public void finish() {
+        // No-op
+      }
+
+    };
+  }
+
+  private class ConsequenceTypePartition implements Partition {
+
+    private final Stopwatch watch = createStarted();
+    private int count = 0;
+
+    @Override
+    public void accumulate(JsonNode observation) {
+      val observationId = getObservationId(observation);
+      val observationConsequences = getObservationConsequences(observation);
 
       val consequenceTypes = Sets.<String> newHashSet();
       for (val observationConsequence : observationConsequences) {
@@ -79,6 +111,12 @@ public class ObservationSummarizer extends AbstractSummarizer {
             formatCount(count), formatRate(rate(COUNTER_THRESHOLD, watch)));
       }
     }
+
+    @Override
+    public void finish() {
+      // No-op
+    }
+
   }
 
   private static ObjectId getObservationId(JsonNode result) {
@@ -86,8 +124,9 @@ public class ObservationSummarizer extends AbstractSummarizer {
     return (ObjectId) pojoNode.getPojo();
   }
 
-  private static ArrayNode getObservationConsequences(JsonNode result) {
-    return (ArrayNode) result.get(OBSERVATION_CONSEQUENCES);
+  private static JsonNode getObservationConsequences(JsonNode result) {
+    // Not all observations have consequences
+    return result.path(OBSERVATION_CONSEQUENCES);
   }
 
   private static String getConsequenceType(JsonNode observationConsequence) {
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.core;
+
+import static java.util.Arrays.binarySearch;
+import static java.util.Arrays.copyOf;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.NonNull;
+
+import org.icgc.dcc.common.core.model.FeatureTypes.FeatureType;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Sparse table of {@link FeatureType} counts by row and column keys, such as genes by donors.
+ * <p>
+ * Keys are dictionary encoded to dense {@code int} ids in order of first appearance. Each row holds the sorted ids of
+ * its columns and one {@code int[]} of counts per feature type, allocated only once the type is counted in that row.
+ * Columns of a row are therefore ordered by first appearance of their keys.
+ * Clearing keeps the dictionaries so they can be reused across rows. Not thread safe.
+ */
+public class TypeCountTable {
+
+  /**
+   * Constants.
+   */
+  private static final int INITIAL_ROW_CAPACITY = 4;
+  private static final FeatureType[] TYPES = FeatureType.values();
+
+  /**
+   * Key dictionaries.
+   */
+  private final Dictionary rowKeys = new Dictionary();
+  private final Dictionary columnKeys = new Dictionary();
+
+  /**
+   * Rows by row id, {@code null} if empty.
+   */
+  private Row[] rows = new Row[0];
+  private final List<String> usedRowKeys = Lists.newArrayList();
+  private int size;
+
+  /**
+   * Increments the count of {@code type} in the cell at {@code rowKey} and {@code columnKey}.
+   * 
+   * @return {@code true} if the cell was created
+   */
+  public boolean increment(@NonNull String rowKey, @NonNull String columnKey, @NonNull FeatureType type) {
+    int rowId = rowKeys.getId(rowKey);
+    if (rowId >= rows.length) {
+      rows = copyOf(rows, Math.max(rowId + 1, 2 * rows.length));
+    }
+
+    Row row = rows[rowId];
+    if (row == null) {
+      row = new Row();
+      rows[rowId] = row;
+      usedRowKeys.add(rowKey);
+    }
+
+    int columnId = columnKeys.getId(columnKey);
+    int index = binarySearch(row.columnIds, 0, row.size, columnId);
+
+    boolean created = index < 0;
+    if (created) {
+      index = -(index + 1);
+      row.insert(index, columnId);
+      size++;
+    }
+
+    row.increment(index, type.ordinal());
+    return created;
+  }
+
+  /**
+   * @return the keys of the non-empty rows, in order of first appearance
+   */
+  public List<String> getRowKeys() {
+    return usedRowKeys;
+  }
+
+  /**
+   * @return a view of the row at {@code rowKey}, empty if there is no such row
+   */
+  public RowView getRow(@NonNull String rowKey) {
+    Integer rowId = rowKeys.findId(rowKey);
+    Row row = rowId == null || rowId >= rows.length ? null : rows[rowId];
+
+    return new RowView(row == null ? new Row() : row);
+  }
+
+  /**
+   * @return the number of non-empty cells
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all cells, keeping the key dictionaries.
+   */
+  public void clear() {
+    for (String rowKey : usedRowKeys) {
+      rows[rowKeys.findId(rowKey)] = null;
+    }
+
+    usedRowKeys.clear();
+    size = 0;
+  }
+
+  /**
+   * Read only view of a row.
+   */
+  public class RowView {
+
+    private final Row row;
+
+    private RowView(Row row) {
+      this.row = row;
+    }
+
+    /**
+     * @return the number of cells of the row
+     */
+    public int size() {
+      return row.size;
+    }
+
+    public String getColumnKey(int index) {
+      return columnKeys.getKey(row.columnIds[index]);
+    }
+
+    public int getCount(int index, @NonNull FeatureType type) {
+      int[] counts = row.counts[type.ordinal()];
+
+      return counts == null ? 0 : counts[index];
+    }
+
+  }
+
+  private static class Row {
+
+    private int[] columnIds = new int[INITIAL_ROW_CAPACITY];
+    private final int[][] counts = new int[TYPES.length][];
+    private int size;
+
+    private void insert(int index, int columnId) {
+      if (size == columnIds.length) {
+        int capacity = 2 * columnIds.length;
+        columnIds = copyOf(columnIds, capacity);
+        for (int i = 0; i < counts.length; i++) {
+          if (counts[i] != null) {
+            counts[i] = copyOf(counts[i], capacity);
+          }
+        }
+      }
+
+      // Shift to keep column ids sorted
+      System.arraycopy(columnIds, index, columnIds, index + 1, size - index);
+      columnIds[index] = columnId;
+      for (int[] typeCounts : counts) {
+        if (typeCounts != null) {
+          System.arraycopy(typeCounts, index, typeCounts, index + 1, size - index);
+          typeCounts[index] = 0;
+        }
+      }
+
+      size++;
+    }
+
+    private void increment(int index, int typeOrdinal) {
+      if (counts[typeOrdinal] == null) {
+        counts[typeOrdinal] = new int[columnIds.length];
+      }
+
+      counts[typeOrdinal][index]++;
+    }
+
+  }
+
+  /**
+   * Two way mapping between keys and dense ids.
+   */
+  private static class Dictionary {
+
+    private final Map<String, Integer> ids = Maps.newHashMap();
+    private final List<String> keys = Lists.newArrayList();
+
+    private int getId(String key) {
+      Integer id = ids.get(key);
+      if (id == null) {
+        id = keys.size();
+        ids.put(key, id);
+        keys.add(key);
+      }
+
+      return id;
+    }
+
+    private Integer findId(String key) {
+      return ids.get(key);
+    }
+
+    private String getKey(int id) {
+      return keys.get(id);
+    }
+
+  }
+
+}
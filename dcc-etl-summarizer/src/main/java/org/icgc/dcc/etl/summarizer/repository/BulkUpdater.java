@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Sink that collects single document updates of a collection into unordered bulk writes, executing up to a fixed number
+ * of batches concurrently.
+ * <p>
+ * Updates are only guaranteed to be visible after {@link #flush()}. Must be closed to release the writer threads. Thread
+ * safe.
+ */
+@Slf4j
+public class BulkUpdater implements Closeable {
+
+  /**
+   * Configuration.
+   */
+  private final DBCollection collection;
+  private final int batchSize;
+
+  /**
+   * Execution state.
+   */
+  private final ExecutorService executor;
+  private final Semaphore inFlight;
+  private final List<Future<?>> pending = Lists.newLinkedList();
+
+  /**
+   * Current batch state.
+   */
+  private BulkWriteOperation batch;
+  private int count;
+  private long totalCount;
+
+  public BulkUpdater(@NonNull DBCollection collection, int batchSize, int maxInFlightBatches) {
+    checkArgument(batchSize > 0, "Batch size must be positive: %s", batchSize);
+    checkArgument(maxInFlightBatches > 0, "Max in-flight batches must be positive: %s", maxInFlightBatches);
+    this.collection = collection;
+    this.batchSize = batchSize;
+    this.inFlight = new Semaphore(maxInFlightBatches);
+    this.executor = newFixedThreadPool(maxInFlightBatches,
+        new ThreadFactoryBuilder().setNameFormat(collection.getName() + "-updater-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Adds an update of the single document matching {@code query}.
+   */
+  public synchronized void update(@NonNull DBObject query, @NonNull DBObject update) {
+    if (batch == null) {
+      batch = collection.initializeUnorderedBulkOperation();
+    }
+
+    batch.find(query).updateOne(update);
+    if (++count == batchSize) {
+      submit();
+    }
+  }
+
+  /**
+   * Writes any partial batch and waits for all batches to complete.
+   */
+  public synchronized void flush() {
+    if (count > 0) {
+      submit();
+    }
+
+    for (val future : pending) {
+      checkResult(future);
+    }
+
+    pending.clear();
+    log.info("Flushed {} update(s) of '{}'", totalCount, collection.getName());
+    totalCount = 0;
+  }
+
+  /**
+   * Flushes and then releases the writer threads.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      flush();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void submit() {
+    final BulkWriteOperation submitted = batch;
+    totalCount += count;
+    batch = null;
+    count = 0;
+
+    // Apply back pressure
+    inFlight.acquireUninterruptibly();
+    pending.add(executor.submit(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          submitted.execute();
+        } finally {
+          inFlight.release();
+        }
+      }
+
+    }));
+
+    checkCompleted();
+  }
+
+  /**
+   * Fails fast on completed batches rather than at the next flush.
+   */
+  private void checkCompleted() {
+    for (Iterator<Future<?>> iterator = pending.iterator(); iterator.hasNext();) {
+      val future = iterator.next();
+      if (future.isDone()) {
+        checkResult(future);
+        iterator.remove();
+      }
+    }
+  }
+
+  private void checkResult(Future<?> future) {
+    try {
+      getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Failed to write updates to collection '" + collection.getName() + "'", e.getCause());
+    }
+  }
+
+}
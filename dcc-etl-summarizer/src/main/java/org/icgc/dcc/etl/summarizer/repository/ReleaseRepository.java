@@ -18,6 +18,7 @@
 package org.icgc.dcc.etl.summarizer.repository;
 
 import static java.lang.String.format;
+import static org.icgc.dcc.common.core.json.Jackson.DEFAULT;
 import static org.icgc.dcc.common.core.json.Jackson.asArrayNode;
 import static org.icgc.dcc.common.core.model.FieldNames.AVAILABLE_DATA_TYPES;
 import static org.icgc.dcc.common.core.model.FieldNames.DONOR_AGE_AT_DIAGNOSIS;
@@ -63,6 +64,7 @@ import static org.icgc.dcc.etl.summarizer.util.JsonNodes.mapMultipleTextValues;
 import static org.icgc.dcc.etl.summarizer.util.JsonNodes.mapTextValues;
 import static org.icgc.dcc.etl.summarizer.util.JsonNodes.textValues;
 
+import java.io.Closeable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -78,16 +80,27 @@ import org.icgc.dcc.etl.summarizer.util.LongBatchQueryModifier;
 import org.jongo.MongoCollection;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.collect.ImmutableList;
-
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Data access for summarization.
+ * <p>
+ * Summary setters are buffered into bulk writes and are only guaranteed to be visible after {@link #flush()}. They may
+ * be called concurrently. Must be closed to release the bulk writers.
+ */
 @RequiredArgsConstructor
-public class ReleaseRepository {
+public class ReleaseRepository implements Closeable {
 
   /**
    * Constants.
    */
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+  public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
 
   @NonNull
   private final MongoCollection genes;
@@ -104,6 +117,46 @@ public class ReleaseRepository {
   @NonNull
   private final MongoCollection geneSets;
 
+  /**
+   * Bulk write configuration.
+   */
+  private final int batchSize;
+  private final int maxInFlightBatches;
+
+  /**
+   * Bulk write state, by collection name.
+   */
+  private final Map<String, BulkUpdater> updaters = Maps.newLinkedHashMap();
+
+  public ReleaseRepository(MongoCollection genes, MongoCollection observations, MongoCollection donors,
+      MongoCollection projects, MongoCollection mutations, MongoCollection releases, MongoCollection geneSets) {
+    this(genes, observations, donors, projects, mutations, releases, geneSets,
+        DEFAULT_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT_BATCHES);
+  }
+
+  /**
+   * Writes all buffered summary updates.
+   */
+  public synchronized void flush() {
+    for (val updater : updaters.values()) {
+      updater.flush();
+    }
+  }
+
+  /**
+   * Writes all buffered summary updates and releases the bulk writers.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      for (val updater : updaters.values()) {
+        updater.close();
+      }
+    } finally {
+      updaters.clear();
+    }
+  }
+
   public Map<String, String> getDonorProjectIds() {
     // Create donorId -> projectId mapping
     return mapTextValues(DONOR_ID, DONOR_PROJECT_ID, donors
@@ -134,14 +187,35 @@ public class ReleaseRepository {
             .as(JsonNode.class));
   }
 
-  public Iterable<JsonNode> getDonorGeneObservationTypes() {
+  /**
+   * @param fromDonorId the inclusive lower bound of donor ids, {@code null} for none
+   * @param toDonorId the exclusive upper bound of donor ids, {@code null} for none
+   * @return the observation fields required by all observation based summaries, ordered by donor id
+   */
+  public Iterable<JsonNode> getSummaryObservations(String fromDonorId, String toDonorId) {
+    val conditions = Lists.<String> newArrayList();
+    val parameters = Lists.<Object> newArrayList();
+    if (fromDonorId != null) {
+      conditions.add("$gte: #");
+      parameters.add(fromDonorId);
+    }
+    if (toDonorId != null) {
+      conditions.add("$lt: #");
+      parameters.add(toDonorId);
+    }
+
+    val query = conditions.isEmpty() ?
+        "{}" :
+        "{ " + OBSERVATION_DONOR_ID + ": { " + Joiner.on(", ").join(conditions) + " } }";
+
     return observations
-        .find()
+        .find(query, parameters.toArray())
         .projection("{ "
-            + "_id: 0, "
+            + OBSERVATION_ID + ": 1, "
             + OBSERVATION_DONOR_ID + ": 1, "
             + OBSERVATION_TYPE + ": 1, '"
-            + OBSERVATION_CONSEQUENCES + "." + OBSERVATION_CONSEQUENCES_GENE_ID + "': 1 }")
+            + OBSERVATION_CONSEQUENCES + "." + OBSERVATION_CONSEQUENCES_GENE_ID + "': 1, '"
+            + OBSERVATION_CONSEQUENCES + "." + OBSERVATION_CONSEQUENCES_CONSEQUENCE_TYPE + "': 1 }")
         .sort("{ " + OBSERVATION_DONOR_ID + ": 1 }")
         .as(JsonNode.class);
   }
@@ -196,9 +270,7 @@ public class ReleaseRepository {
 
   public void setDonorRepositories(String donorId, JsonNode repositories) {
     String field = DONOR_SUMMARY + "." + DONOR_SUMMARY_REPOSITORY;
-    donors
-        .update("{ " + DONOR_ID + ": # }", donorId)
-        .with("{ $set: { " + field + ": # } }", textValues(repositories));
+    updateDonor(donorId, set(field, textValues(repositories)));
   }
 
   public List<JsonNode> getDonorStudies() {
@@ -219,47 +291,33 @@ public class ReleaseRepository {
 
   public void setDonorStudies(String donorId, JsonNode studies) {
     String field = DONOR_SUMMARY + "." + DONOR_SUMMARY_STUDIES;
-    donors
-        .update("{ " + DONOR_ID + ": # }", donorId)
-        .with("{ $set: { " + field + ": # } }", extractStudies(studies));
+    updateDonor(donorId, set(field, extractStudies(studies)));
   }
 
   public void setDonorState(String donorId, String state) {
     String field = DONOR_SUMMARY + "." + DONOR_SUMMARY_STATE;
-    donors
-        .update("{ " + DONOR_ID + ": # }", donorId)
-        .with("{ $set: { " + field + ": # } }", state);
+    updateDonor(donorId, set(field, state));
   }
 
   public void setDonorExperimentalAnalysis(String donorId, JsonNode analysisSampleCounts) {
     String f1 = DONOR_SUMMARY + "." + DONOR_SUMMARY_EXPERIMENTAL_ANALYSIS;
     String f2 = DONOR_SUMMARY + "." + DONOR_SUMMARY_EXPERIMENTAL_ANALYSIS_SAMPLE_COUNTS;
-    donors
-        .update("{ " + DONOR_ID + ": # }", donorId)
-        .with("{ $set: { " + f1 + ": #, " + f2 + ": # } }",
-            textValues("libraryStrategy", analysisSampleCounts),
-            mapLongValues("libraryStrategy", "libraryStrategyCount", analysisSampleCounts));
+    updateDonor(donorId, new BasicDBObject("$set", new BasicDBObject()
+        .append(f1, toValue(textValues("libraryStrategy", analysisSampleCounts)))
+        .append(f2, toValue(mapLongValues("libraryStrategy", "libraryStrategyCount", analysisSampleCounts)))));
   }
 
   public void setDonorAgeGroup(String donorId, String ageRange) {
-    donors
-        .update("{ " + DONOR_ID + ": # }", donorId)
-        .with("{ $set: { " + DONOR_SUMMARY + "." + DONOR_SUMMARY_AGE_AT_DIAGNOSIS_GROUP + ": # } }",
-            ageRange);
+    updateDonor(donorId, set(DONOR_SUMMARY + "." + DONOR_SUMMARY_AGE_AT_DIAGNOSIS_GROUP, ageRange));
   }
 
   public void setDonorAffectedGeneCount(String donorId, int affectedGeneCount) {
-    donors
-        .update("{ " + DONOR_ID + ": # }", donorId)
-        .with("{ $set: { " + DONOR_SUMMARY + "." + DONOR_SUMMARY_AFFECTED_GENE_COUNT + ": # } }",
-            affectedGeneCount);
+    updateDonor(donorId, set(DONOR_SUMMARY + "." + DONOR_SUMMARY_AFFECTED_GENE_COUNT, affectedGeneCount));
   }
 
   public void setDonorGeneSummary(String donorId, ObjectNode donoGeneSummary) {
     val genes = donoGeneSummary.get(DONOR_GENES);
-    donors
-        .update("{ " + DONOR_ID + ": # }", donorId)
-        .with("{ $set: { " + DONOR_GENES + ": # } }", jsonNodes(asArrayNode(genes)));
+    updateDonor(donorId, set(DONOR_GENES, asArrayNode(genes)));
   }
 
   public void unsetDonorGenes() {
@@ -269,11 +327,10 @@ public class ReleaseRepository {
         .with("{ $unset: { " + DONOR_GENES + ": # } }", "");
   }
 
-  public int setGeneSummary(String geneId, ObjectNode geneSummary) {
-    return genes
-        .update("{ " + GENE_ID + ": # }", geneId)
-        .with("{ $set: # }", geneSummary)
-        .getN();
+  public void setGeneSummary(String geneId, ObjectNode geneSummary) {
+    getUpdater(genes).update(
+        new BasicDBObject(GENE_ID, geneId),
+        new BasicDBObject("$set", toValue(geneSummary)));
   }
 
   public Iterable<ObjectNode> getGeneSets() {
@@ -298,18 +355,10 @@ public class ReleaseRepository {
         .as(ObjectNode.class);
   }
 
-  public Iterable<ObjectNode> getObservationConsequenceTypes() {
-    return observations
-        .find()
-        .projection("{ '" + OBSERVATION_CONSEQUENCES + "." + OBSERVATION_CONSEQUENCES_CONSEQUENCE_TYPE + "':1 }")
-        .as(ObjectNode.class);
-  }
-
-  public int setObservationSummary(ObjectId observationId, Set<String> consequenceTypes) {
-    return observations
-        .update("{ " + OBSERVATION_ID + ": # }", observationId)
-        .with("{ $set: { " + OBSERVATION_CONSEQUENCE_TYPES + ": # } }", consequenceTypes)
-        .getN();
+  public void setObservationSummary(ObjectId observationId, Set<String> consequenceTypes) {
+    getUpdater(observations).update(
+        new BasicDBObject(OBSERVATION_ID, observationId),
+        set(OBSERVATION_CONSEQUENCE_TYPES, consequenceTypes));
   }
 
   public List<String> getProjectIds() {
@@ -490,9 +539,9 @@ public class ReleaseRepository {
   }
 
   public void setProjectSummary(String projectId, ObjectNode projectSummary) {
-    projects
-        .update("{ " + PROJECT_ID + ": # }", projectId)
-        .with("{ $set: { " + PROJECT_SUMMARY + ": # } }", projectSummary);
+    getUpdater(projects).update(
+        new BasicDBObject(PROJECT_ID, projectId),
+        set(PROJECT_SUMMARY, projectSummary));
   }
 
   public long getReleaseProjectCount() {
@@ -558,13 +607,30 @@ public class ReleaseRepository {
         .get(0).get("sampleCount").asLong();
   }
 
-  private static List<JsonNode> jsonNodes(ArrayNode array) {
-    val nodesList = ImmutableList.<JsonNode> builder();
-    for (val element : array) {
-      nodesList.add(element);
+  private void updateDonor(String donorId, DBObject update) {
+    getUpdater(donors).update(new BasicDBObject(DONOR_ID, donorId), update);
+  }
+
+  private synchronized BulkUpdater getUpdater(MongoCollection collection) {
+    val name = collection.getName();
+    BulkUpdater updater = updaters.get(name);
+    if (updater == null) {
+      updater = new BulkUpdater(collection.getDBCollection(), batchSize, maxInFlightBatches);
+      updaters.put(name, updater);
     }
 
-    return nodesList.build();
+    return updater;
+  }
+
+  private static DBObject set(String field, Object value) {
+    return new BasicDBObject("$set", new BasicDBObject(field, toValue(value)));
+  }
+
+  /**
+   * Converts to the maps, lists and scalars of the driver, as Jongo's marshalling would.
+   */
+  private static Object toValue(Object value) {
+    return DEFAULT.convertValue(value, Object.class);
   }
 
   private static String getFieldName(String parent, String child) {
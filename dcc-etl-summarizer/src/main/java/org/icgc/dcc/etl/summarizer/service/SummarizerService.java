@@ -17,7 +17,11 @@
  */
 package org.icgc.dcc.etl.summarizer.service;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.io.Closeables.close;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.icgc.dcc.common.core.model.ReleaseCollection.DONOR_COLLECTION;
 import static org.icgc.dcc.common.core.model.ReleaseCollection.GENE_COLLECTION;
 import static org.icgc.dcc.common.core.model.ReleaseCollection.GENE_SET_COLLECTION;
@@ -29,6 +33,10 @@ import static org.icgc.dcc.common.core.util.Formats.formatCount;
 import static org.icgc.dcc.common.core.util.Formats.formatDuration;
 
 import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import lombok.Data;
 import lombok.NonNull;
@@ -37,9 +45,11 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.icgc.dcc.common.core.model.ReleaseCollection;
+import org.icgc.dcc.etl.summarizer.core.AbstractSummarizer;
 import org.icgc.dcc.etl.summarizer.core.DonorSummarizer;
 import org.icgc.dcc.etl.summarizer.core.GeneSetSummarizer;
 import org.icgc.dcc.etl.summarizer.core.GeneSummarizer;
+import org.icgc.dcc.etl.summarizer.core.ObservationScanSummarizer;
 import org.icgc.dcc.etl.summarizer.core.ProjectSummarizer;
 import org.icgc.dcc.etl.summarizer.core.ReleaseSummarizer;
 import org.icgc.dcc.etl.summarizer.repository.ReleaseRepository;
@@ -47,6 +57,9 @@ import org.jongo.Jongo;
 import org.jongo.MongoCollection;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.DB;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
@@ -55,9 +68,25 @@ import com.mongodb.MongoClientURI;
 @Data
 public class SummarizerService {
 
+  /**
+   * Constants.
+   */
+  public static final int DEFAULT_PARTITION_COUNT = 4;
+
   @NonNull
   private final String releaseMongoUri;
 
+  /**
+   * Number of donor id ranges the observation scan is partitioned into.
+   */
+  private int partitionCount = DEFAULT_PARTITION_COUNT;
+
+  public void setPartitionCount(int partitionCount) {
+    checkArgument(partitionCount >= 1, "Partition count must be at least 1: %s", partitionCount);
+    this.partitionCount = partitionCount;
+  }
+
+  @SneakyThrows
   public void summarize(@NonNull String jobId, @NonNull String releaseName) {
     val jongo = createJongo(jobId);
 
@@ -82,7 +111,13 @@ public class SummarizerService {
     ReleaseRepository repository =
         new ReleaseRepository(genes, observations, donors, projects, mutations, releases, geneSets);
 
-    execute(jobId, releaseName, repository);
+    try {
+      execute(jobId, releaseName, repository);
+    } finally {
+      // Releases the bulk writer threads. Updates are flushed after each stage, so this only writes on failure
+      val swallow = true;
+      close(repository, swallow);
+    }
   }
 
   private void execute(@NonNull String jobId, @NonNull String releaseName, @NonNull ReleaseRepository repository) {
@@ -93,33 +128,69 @@ public class SummarizerService {
     val geneSummarizer = new GeneSummarizer(repository);
     val releaseSummarizer = new ReleaseSummarizer(jobId, releaseName, repository);
 
-    // For correctness, the aggregation order below must be respected:
+    // Scans observations once for both donor-gene and gene-donor summaries, partitioned by donor
+    val observationScanSummarizer = new ObservationScanSummarizer(repository, partitionCount,
+        donorSummarizer.createDonorGeneAccumulator(),
+        geneSummarizer.createGeneDonorAccumulator());
+
+    // For correctness, the stage order below must be respected, flushing the buffered updates of each stage before the
+    // next. Summarizers within a stage only depend on previous stages and run concurrently.
     log.info("Starting summarizing...");
     Stopwatch cumulative = Stopwatch.createStarted();
 
-    val delta = Stopwatch.createStarted();
-    geneSetSummarizer.summarize();
-    log.info("Summarizing 'gene set' took......... {}", formatDuration(delta));
-
-    delta.reset().start();
-    donorSummarizer.summarize();
-    log.info("Summarizing 'donor' took......... {}", formatDuration(delta));
-
-    delta.reset().start();
-    projectSummarizer.summarize();
-    log.info("Summarizing 'project' took....... {}", formatDuration(delta));
+    val executor = newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("summarizer-%d").build());
+    try {
+      summarize(executor, repository, ImmutableMap.<String, AbstractSummarizer> of(
+          "gene set", geneSetSummarizer,
+          "observation", observationScanSummarizer,
+          "donor", donorSummarizer));
 
-    delta.reset().start();
-    geneSummarizer.summarize();
-    log.info("Summarizing 'gene' took.......... {}", formatDuration(delta));
+      summarize(executor, repository, ImmutableMap.<String, AbstractSummarizer> of(
+          "project", projectSummarizer,
+          "gene", geneSummarizer));
 
-    delta.reset().start();
-    releaseSummarizer.summarize();
-    log.info("Summarizing 'release' took....... {}", formatDuration(delta));
+      summarize(executor, repository, ImmutableMap.<String, AbstractSummarizer> of(
+          "release", releaseSummarizer));
+    } finally {
+      executor.shutdownNow();
+    }
 
     log.info("Finished summarizing in {}", formatDuration(cumulative));
   }
 
+  /**
+   * Runs a stage of independent summarizers concurrently.
+   */
+  private static void summarize(ExecutorService executor, ReleaseRepository repository,
+      Map<String, AbstractSummarizer> summarizers) {
+    val futures = Maps.<String, Future<?>> newLinkedHashMap();
+    for (val entry : summarizers.entrySet()) {
+      val name = entry.getKey();
+      val summarizer = entry.getValue();
+
+      futures.put(name, executor.submit(new Runnable() {
+
+        @Override
+        public void run() {
+          val watch = Stopwatch.createStarted();
+          summarizer.summarize();
+          log.info("Summarizing '{}' took {}", name, formatDuration(watch));
+        }
+
+      }));
+    }
+
+    for (val entry : futures.entrySet()) {
+      try {
+        getUninterruptibly(entry.getValue());
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Failed summarizing '" + entry.getKey() + "'", e.getCause());
+      }
+    }
+
+    repository.flush();
+  }
+
   private MongoCollection collection(Jongo jongo, ReleaseCollection releaseCollection) {
     return jongo.getCollection(releaseCollection.getId());
   }
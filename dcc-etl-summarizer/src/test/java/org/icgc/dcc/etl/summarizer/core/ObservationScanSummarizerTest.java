@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import lombok.val;
+
+import org.icgc.dcc.etl.summarizer.core.ObservationAccumulator.Partition;
+import org.icgc.dcc.etl.summarizer.repository.ReleaseRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+
+public class ObservationScanSummarizerTest {
+
+  /**
+   * Test data.
+   */
+  private static final int DONOR_COUNT = 10;
+  private static final int OBSERVATIONS_PER_DONOR = 3;
+  private static final String DONOR_ID = "donorId";
+
+  /**
+   * Collaborators.
+   */
+  ReleaseRepository repository;
+  List<String> donorIds;
+
+  @Before
+  public void setUp() {
+    donorIds = Lists.newArrayList();
+    val donorProjectIds = Maps.<String, String> newHashMap();
+    for (int i = 0; i < DONOR_COUNT; i++) {
+      val donorId = "DO" + i;
+      donorIds.add(donorId);
+      donorProjectIds.put(donorId, "project");
+    }
+
+    Collections.sort(donorIds);
+
+    repository = mock(ReleaseRepository.class);
+    when(repository.getDonorProjectIds()).thenReturn(donorProjectIds);
+    when(repository.getSummaryObservations(anyString(), anyString())).thenAnswer(new Answer<Iterable<JsonNode>>() {
+
+      @Override
+      public Iterable<JsonNode> answer(InvocationOnMock invocation) throws Throwable {
+        return getObservations((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]);
+      }
+
+    });
+  }
+
+  @Test
+  public void testSinglePartition() {
+    assertCoveredOnce(1);
+  }
+
+  @Test
+  public void testMultiplePartitions() {
+    assertCoveredOnce(4);
+  }
+
+  @Test
+  public void testMorePartitionsThanDonors() {
+    assertCoveredOnce(DONOR_COUNT + 5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoPartitions() {
+    new ObservationScanSummarizer(repository, 0, new RecordingAccumulator());
+  }
+
+  private void assertCoveredOnce(int partitionCount) {
+    val accumulator = new RecordingAccumulator();
+    new ObservationScanSummarizer(repository, partitionCount, accumulator).summarize();
+
+    // Every donor is scanned by exactly one partition
+    for (val donorId : donorIds) {
+      assertThat(accumulator.donorIds.count(donorId)).as(donorId).isEqualTo(OBSERVATIONS_PER_DONOR);
+    }
+    assertThat(accumulator.donorIds.size()).isEqualTo(DONOR_COUNT * OBSERVATIONS_PER_DONOR);
+
+    // Each partition is a non empty contiguous range, the last one taking the remainder
+    val partitionDonorIds = Lists.<String> newArrayList();
+    for (val partition : accumulator.partitions) {
+      assertThat(partition).isNotEmpty();
+      partitionDonorIds.addAll(partition);
+    }
+    assertThat(accumulator.partitions).hasSize(Math.min(partitionCount, DONOR_COUNT));
+    assertThat(accumulator.partitions.get(accumulator.partitions.size() - 1)).contains(donorIds.get(DONOR_COUNT - 1));
+    assertThat(partitionDonorIds).isSorted();
+    assertThat(accumulator.finished).isTrue();
+  }
+
+  /**
+   * Mirrors the {@code $gte} / {@code $lt} donor id range query.
+   */
+  private List<JsonNode> getObservations(String fromDonorId, String toDonorId) {
+    val observations = Lists.<JsonNode> newArrayList();
+    for (val donorId : donorIds) {
+      val included = (fromDonorId == null || donorId.compareTo(fromDonorId) >= 0)
+          && (toDonorId == null || donorId.compareTo(toDonorId) < 0);
+      if (included) {
+        for (int i = 0; i < OBSERVATIONS_PER_DONOR; i++) {
+          observations.add(JsonNodeFactory.instance.objectNode().put(DONOR_ID, donorId));
+        }
+      }
+    }
+
+    return observations;
+  }
+
+  private static class RecordingAccumulator implements ObservationAccumulator {
+
+    final Multiset<String> donorIds = HashMultiset.create();
+    final List<List<String>> partitions = Lists.newArrayList();
+    boolean finished;
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public Partition createPartition() {
+      final List<String> partitionDonorIds = Lists.newArrayList();
+      partitions.add(partitionDonorIds);
+
+      return new Partition() {
+
+        @Override
+        public void accumulate(JsonNode observation) {
+          partitionDonorIds.add(observation.get(DONOR_ID).textValue());
+        }
+
+        @Override
+        public void finish() {
+          synchronized (donorIds) {
+            donorIds.addAll(partitionDonorIds);
+          }
+        }
+
+      };
+    }
+
+    @Override
+    public void finish() {
+      finished = true;
+    }
+
+  }
+
+}
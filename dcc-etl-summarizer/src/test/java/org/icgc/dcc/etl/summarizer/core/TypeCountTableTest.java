@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.model.FeatureTypes.FeatureType.CNSM_TYPE;
+import static org.icgc.dcc.common.core.model.FeatureTypes.FeatureType.SSM_TYPE;
+import lombok.val;
+
+import org.junit.Test;
+
+public class TypeCountTableTest {
+
+  @Test
+  public void testIncrement() {
+    val table = new TypeCountTable();
+
+    assertThat(table.increment("gene1", "donor2", SSM_TYPE)).isTrue();
+    assertThat(table.increment("gene1", "donor1", SSM_TYPE)).isTrue();
+    assertThat(table.increment("gene1", "donor2", SSM_TYPE)).isFalse();
+    assertThat(table.increment("gene1", "donor2", CNSM_TYPE)).isFalse();
+    assertThat(table.increment("gene2", "donor1", CNSM_TYPE)).isTrue();
+
+    assertThat(table.size()).isEqualTo(3);
+    assertThat(table.getRowKeys()).containsExactly("gene1", "gene2");
+
+    // Columns are ordered by first appearance
+    val row = table.getRow("gene1");
+    assertThat(row.size()).isEqualTo(2);
+    assertThat(row.getColumnKey(0)).isEqualTo("donor2");
+    assertThat(row.getCount(0, SSM_TYPE)).isEqualTo(2);
+    assertThat(row.getCount(0, CNSM_TYPE)).isEqualTo(1);
+    assertThat(row.getColumnKey(1)).isEqualTo("donor1");
+    assertThat(row.getCount(1, SSM_TYPE)).isEqualTo(1);
+    assertThat(row.getCount(1, CNSM_TYPE)).isEqualTo(0);
+  }
+
+  @Test
+  public void testIncrementManyColumns() {
+    val table = new TypeCountTable();
+    for (int i = 0; i < 100; i++) {
+      table.increment("gene", "donor" + i, SSM_TYPE);
+    }
+
+    // Added in reverse id order to force shifting
+    for (int i = 99; i >= 0; i--) {
+      table.increment("other", "donor" + i, CNSM_TYPE);
+      table.increment("other", "donor" + i, CNSM_TYPE);
+    }
+
+    val row = table.getRow("other");
+    assertThat(row.size()).isEqualTo(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(row.getColumnKey(i)).isEqualTo("donor" + i);
+      assertThat(row.getCount(i, CNSM_TYPE)).isEqualTo(2);
+      assertThat(row.getCount(i, SSM_TYPE)).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testIncrementBeyondShortRange() {
+    val table = new TypeCountTable();
+    val count = Short.MAX_VALUE + 10;
+    for (int i = 0; i < count; i++) {
+      table.increment("donor1", "gene1", SSM_TYPE);
+    }
+
+    assertThat(table.getRow("donor1").getCount(0, SSM_TYPE)).isEqualTo(count);
+  }
+
+  @Test
+  public void testClear() {
+    val table = new TypeCountTable();
+    table.increment("donor1", "gene1", SSM_TYPE);
+    table.clear();
+
+    assertThat(table.isEmpty()).isTrue();
+    assertThat(table.getRowKeys()).isEmpty();
+    assertThat(table.getRow("donor1").size()).isEqualTo(0);
+
+    assertThat(table.increment("donor1", "gene1", SSM_TYPE)).isTrue();
+    assertThat(table.getRow("donor1").getCount(0, SSM_TYPE)).isEqualTo(1);
+  }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.repository;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.val;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+public class BulkUpdaterTest {
+
+  /**
+   * Test data.
+   */
+  private static final DBObject QUERY = new BasicDBObject("_id", "id");
+  private static final DBObject UPDATE = new BasicDBObject("$set", new BasicDBObject("field", "value"));
+
+  /**
+   * Collaborators.
+   */
+  DBCollection collection;
+  ExecutorService caller;
+
+  @Before
+  public void setUp() {
+    collection = mock(DBCollection.class);
+    when(collection.getName()).thenReturn("collection");
+    caller = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    caller.shutdownNow();
+  }
+
+  @Test
+  public void testBackPressure() throws Exception {
+    val started = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+    val blocked = mockBatch(new Answer<Object>() {
+
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        started.countDown();
+        release.await();
+        return null;
+      }
+
+    });
+    val next = mockBatch(null);
+    when(collection.initializeUnorderedBulkOperation()).thenReturn(blocked, next);
+
+    val updater = new BulkUpdater(collection, 1, 1);
+    updater.update(QUERY, UPDATE);
+    assertThat(started.await(1, SECONDS)).isTrue();
+
+    // The only permit is held by the executing batch
+    val update = caller.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() {
+        updater.update(QUERY, UPDATE);
+        return null;
+      }
+
+    });
+
+    try {
+      update.get(200, MILLISECONDS);
+      fail("Expected update to block while the batch is in flight");
+    } catch (TimeoutException e) {
+      // Expected
+    }
+
+    release.countDown();
+    update.get(1, SECONDS);
+    updater.close();
+
+    verify(blocked).execute();
+    verify(next).execute();
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testFailedBatchFailsNextUpdate() throws Exception {
+    val batch = mockBatch(new Answer<Object>() {
+
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        throw new MongoException("Write failed");
+      }
+
+    });
+    when(collection.initializeUnorderedBulkOperation()).thenReturn(batch);
+
+    val updater = new BulkUpdater(collection, 1, 2);
+    for (int i = 0; i < 100; i++) {
+      // Fails once a completed batch is observed when submitting
+      updater.update(QUERY, UPDATE);
+      MILLISECONDS.sleep(10);
+    }
+  }
+
+  @Test
+  public void testFailedBatchFailsFlush() {
+    val batch = mockBatch(new Answer<Object>() {
+
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        throw new MongoException("Write failed");
+      }
+
+    });
+    when(collection.initializeUnorderedBulkOperation()).thenReturn(batch);
+
+    val updater = new BulkUpdater(collection, 10, 2);
+    updater.update(QUERY, UPDATE);
+
+    try {
+      updater.flush();
+      fail("Expected flush to fail");
+    } catch (RuntimeException e) {
+      assertThat(e).hasMessageContaining("collection");
+      assertThat(e.getCause()).isInstanceOf(MongoException.class);
+    }
+  }
+
+  @Test
+  public void testFlushDrainsInFlightBatches() {
+    val executed = new AtomicInteger();
+    val batch = mockBatch(new Answer<Object>() {
+
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        MILLISECONDS.sleep(50);
+        executed.incrementAndGet();
+        return null;
+      }
+
+    });
+    when(collection.initializeUnorderedBulkOperation()).thenReturn(batch);
+
+    val updater = new BulkUpdater(collection, 10, 2);
+    for (int i = 0; i < 25; i++) {
+      updater.update(QUERY, UPDATE);
+    }
+
+    // Two full batches and the partial one
+    updater.flush();
+    assertThat(executed.get()).isEqualTo(3);
+    verify(batch, times(25)).find(QUERY);
+
+    // Nothing left to write
+    updater.flush();
+    assertThat(executed.get()).isEqualTo(3);
+    updater.close();
+  }
+
+  @Test
+  public void testClose() {
+    val batch = mockBatch(null);
+    when(collection.initializeUnorderedBulkOperation()).thenReturn(batch);
+
+    val updater = new BulkUpdater(collection, 10, 2);
+    updater.update(QUERY, UPDATE);
+    updater.close();
+
+    // Partial batch is written
+    verify(batch).execute();
+
+    try {
+      for (int i = 0; i < 10; i++) {
+        updater.update(QUERY, UPDATE);
+      }
+      fail("Expected writer threads to be released");
+    } catch (RejectedExecutionException e) {
+      // Expected
+    }
+  }
+
+  private static BulkWriteOperation mockBatch(Answer<Object> execute) {
+    val batch = mock(BulkWriteOperation.class, RETURNS_DEEP_STUBS);
+    if (execute != null) {
+      when(batch.execute()).thenAnswer(execute);
+    }
+    return batch;
+  }
+
+}
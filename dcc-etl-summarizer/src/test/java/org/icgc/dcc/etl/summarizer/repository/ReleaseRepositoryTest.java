@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.etl.summarizer.repository;
+
+import static org.icgc.dcc.common.core.model.FieldNames.OBSERVATION_DONOR_ID;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.jongo.MongoCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReleaseRepositoryTest {
+
+  /**
+   * Collaborators.
+   */
+  MongoCollection observations;
+
+  /**
+   * Class under test.
+   */
+  ReleaseRepository repository;
+
+  @Before
+  public void setUp() {
+    observations = mock(MongoCollection.class, RETURNS_DEEP_STUBS);
+    repository = new ReleaseRepository(
+        mock(MongoCollection.class), observations, mock(MongoCollection.class), mock(MongoCollection.class),
+        mock(MongoCollection.class), mock(MongoCollection.class), mock(MongoCollection.class));
+  }
+
+  @Test
+  public void testGetSummaryObservationsUnbounded() {
+    repository.getSummaryObservations(null, null);
+
+    verify(observations).find("{}");
+  }
+
+  @Test
+  public void testGetSummaryObservationsFrom() {
+    repository.getSummaryObservations("DO1", null);
+
+    verify(observations).find("{ " + OBSERVATION_DONOR_ID + ": { $gte: # } }", "DO1");
+  }
+
+  @Test
+  public void testGetSummaryObservationsTo() {
+    repository.getSummaryObservations(null, "DO2");
+
+    verify(observations).find("{ " + OBSERVATION_DONOR_ID + ": { $lt: # } }", "DO2");
+  }
+
+  @Test
+  public void testGetSummaryObservationsRange() {
+    repository.getSummaryObservations("DO1", "DO2");
+
+    verify(observations).find("{ " + OBSERVATION_DONOR_ID + ": { $gte: #, $lt: # } }", "DO1", "DO2");
+  }
+
+}